@@ -0,0 +1,33 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link Format#fromString(String)}のベンチマークです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatBenchmark {
+
+    /** 解析するフォーマット名（名前・別名・大文字混在）。 */
+    @Param({"json", "CSV", "console"})
+    private String name;
+
+    /**
+     * フォーマット名を解析します。
+     *
+     * @return 解析結果
+     */
+    @Benchmark
+    public Format fromString() {
+        return Format.fromString(name);
+    }
+}
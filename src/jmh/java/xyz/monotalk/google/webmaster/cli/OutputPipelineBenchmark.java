@@ -0,0 +1,116 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 検索アナリティクスのレスポンスを出力する処理のベンチマークです。
+ *
+ * <p>合成した{@link SearchAnalyticsQueryResponse}を、{@code GenericJson.toString()}による文字列化、
+ * {@link ResponseWriter#streamJson(Object, java.io.OutputStream)}による直接書き込み、
+ * Jacksonによる書き込み、{@link CsvRowStreamWriter}によるCSV書き込みで出力し、スループットを比較します。
+ * 出力先は破棄するストリームのため、ディスクI/Oは含みません。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OutputPipelineBenchmark {
+
+    /** CSVのキー列名。 */
+    private static final List<String> KEY_COLUMNS = List.of("query", "page");
+
+    /** 比較用のJacksonマッパー。 */
+    private static final ObjectMapper JACKSON = JsonMapper.builder().build();
+
+    /** レスポンスの行数。 */
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    /** 出力するレスポンス。 */
+    private SearchAnalyticsQueryResponse response;
+
+    /**
+     * 指定行数のレスポンスを生成します。
+     */
+    @Setup
+    public void setUp() {
+        final List<ApiDataRow> dataRows = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            dataRows.add(new ApiDataRow()
+                    .setKeys(List.of("query " + i, "https://example.com/page/" + i))
+                    .setClicks((double) (i % 100))
+                    .setImpressions((double) (i % 1000 + 100))
+                    .setCtr((i % 100) / 1000.0)
+                    .setPosition(1.0 + i % 50));
+        }
+        response = new SearchAnalyticsQueryResponse()
+                .setResponseAggregationType("byPage")
+                .setRows(dataRows);
+        response.setFactory(GsonFactory.getDefaultInstance());
+    }
+
+    /**
+     * {@code GenericJson.toString()}でJSON文字列を組み立てます。
+     *
+     * @return JSON文字列
+     */
+    @Benchmark
+    public String genericJsonToString() {
+        return response.toString();
+    }
+
+    /**
+     * {@link ResponseWriter#streamJson(Object, java.io.OutputStream)}で文字列を組み立てずに書き込みます。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void streamJson() throws IOException {
+        ResponseWriter.streamJson(response, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Jacksonでレスポンス（{@link java.util.Map}として）を書き込みます。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void jacksonWriteValue() throws IOException {
+        JACKSON.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    /**
+     * {@link CsvRowStreamWriter}で全行をCSVとして書き込みます。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void csvWrite() throws IOException {
+        try (RowStreamWriter writer = new CsvRowStreamWriter(
+                new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)),
+                KEY_COLUMNS)) {
+            for (final ApiDataRow row : response.getRows()) {
+                writer.write(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package xyz.monotalk.google.webmaster.cli.model;
+
+import com.google.api.client.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link ApiResponseHandler#extractHeaders(Map)}のベンチマークです。
+ *
+ * <p>Search Console APIのレスポンスで一般的なヘッダー構成を変換します。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeaderExtractionBenchmark {
+
+    /** 変換するヘッダー。 */
+    private HttpHeaders headers;
+
+    /**
+     * ヘッダーを生成します。
+     */
+    @Setup
+    public void setUp() {
+        headers = new HttpHeaders()
+                .setContentType("application/json; charset=UTF-8")
+                .setContentEncoding("gzip")
+                .setCacheControl("private")
+                .setDate("Sun, 18 Oct 2026 00:00:00 GMT")
+                .setETag("\"abc123\"")
+                .set("vary", "Origin")
+                .set("x-content-type-options", "nosniff")
+                .set("x-frame-options", "SAMEORIGIN")
+                .set("server", "ESF")
+                .set("alt-svc", List.of("h3=\":443\"; ma=2592000", "h3-29=\":443\"; ma=2592000"));
+    }
+
+    /**
+     * ヘッダーを文字列リストのマップへ変換します。
+     *
+     * @return 変換結果
+     */
+    @Benchmark
+    public Map<String, List<String>> extractHeaders() {
+        return ApiResponseHandler.extractHeaders(headers);
+    }
+}
@@ -0,0 +1,67 @@
+package xyz.monotalk.google.webmaster.cli.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 1つの実行モードで計測したコマンドごとのレイテンシとスループットの集計です。
+ *
+ * @param mode 実行モード名
+ * @param commands 実行したコマンド数
+ * @param failed 失敗したコマンド数
+ * @param wallMillis 全コマンドの実行に要した時間（ミリ秒）
+ * @param sortedLatencies コマンドごとのレイテンシ（ミリ秒、昇順）
+ */
+/* default */ record LatencyReport(String mode, int commands, int failed, long wallMillis, long[] sortedLatencies) {
+
+    /**
+     * 計測結果から集計を作成します。
+     *
+     * @param mode 実行モード名
+     * @param failed 失敗したコマンド数
+     * @param wallMillis 全コマンドの実行に要した時間（ミリ秒）
+     * @param latencies コマンドごとのレイテンシ（ミリ秒、順不同）
+     * @return 集計
+     */
+    /* default */ static LatencyReport of(final String mode, final int failed, final long wallMillis,
+            final long... latencies) {
+        final long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return new LatencyReport(mode, sorted.length, failed, wallMillis, sorted);
+    }
+
+    /**
+     * 指定したパーセンタイルのレイテンシを最近傍順位法で返します。
+     *
+     * @param percent パーセンタイル（0より大きく100以下）
+     * @return レイテンシ（ミリ秒、計測値がない場合は0）
+     */
+    /* default */ long percentile(final double percent) {
+        if (sortedLatencies.length == 0) {
+            return 0L;
+        }
+        final int rank = (int) Math.ceil(percent / 100.0 * sortedLatencies.length);
+        return sortedLatencies[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * 1秒あたりに完了したコマンド数を返します。
+     *
+     * @return スループット（コマンド/秒）
+     */
+    /* default */ double throughput() {
+        return commands * 1000.0 / Math.max(wallMillis, 1L);
+    }
+
+    /**
+     * 1行の報告として整形します。
+     *
+     * @return 報告の文字列
+     */
+    /* default */ String format() {
+        final long max = sortedLatencies.length == 0 ? 0L : sortedLatencies[sortedLatencies.length - 1];
+        return String.format(Locale.ROOT,
+                "%-8s commands=%d failed=%d wall=%dms throughput=%.1f/s p50=%dms p99=%dms max=%dms",
+                mode, commands, failed, wallMillis, throughput(), percentile(50), percentile(99), max);
+    }
+}
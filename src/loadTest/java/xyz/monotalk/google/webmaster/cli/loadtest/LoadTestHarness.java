@@ -0,0 +1,325 @@
+package xyz.monotalk.google.webmaster.cli.loadtest;
+
+import com.google.api.client.json.gson.GsonFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.commons.io.file.PathUtils;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import xyz.monotalk.google.webmaster.cli.CliApplication;
+import xyz.monotalk.google.webmaster.cli.CommandExecution;
+import xyz.monotalk.google.webmaster.cli.CommandExecutionEngine;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+import xyz.monotalk.google.webmaster.cli.subcommands.batch.BatchResult;
+import xyz.monotalk.google.webmaster.cli.subcommands.batch.BatchSummary;
+
+/**
+ * ローカルの{@link StubSearchConsoleServer}に対してコマンドを大量に実行し、レイテンシとスループットを計測するハーネスです。
+ *
+ * <p>スタブサーバーを起動し、{@link StubWebmastersFactory}を優先するSpringコンテキストで
+ * {@link WebmastersCommandRunner}を取得して、サイト一覧・サイトマップ一覧・サイトマップ取得・
+ * 検索アナリティクスのページ送り取得を順に繰り返すコマンド列を次のモードで実行します。</p>
+ * <ul>
+ *   <li>single：1コマンドずつ順に実行します。</li>
+ *   <li>batch：コマンド列をファイルに書き出し、{@code webmasters.batch.run}で実行します。</li>
+ *   <li>parallel：{@link CommandExecutionEngine}で{@code -concurrency}件ずつ同時に実行します。</li>
+ * </ul>
+ * <p>計測の前に同じコマンド列の一部で暖機します。計測中はコマンドの出力を破棄し、
+ * モードごとのp50/p99レイテンシとスループット、スタブサーバーが受け付けたリクエスト数を最後に出力します。
+ * {@code --}で始まる引数はSpringのプロパティとして扱います（レート制限は既定で無効にします）。</p>
+ */
+public final class LoadTestHarness {
+
+    /** バッチ実行のコマンド名。 */
+    private static final String BATCH_COMMAND = "webmasters.batch.run";
+
+    /** 暖機に実行するコマンド数の上限。 */
+    private static final int MAX_WARMUP_COMMANDS = 20;
+
+    /** 実行するモード（カンマ区切り）。 */
+    @Option(name = "-modes", usage = "Modes to run, comma separated (single, batch, parallel)")
+    private String modes = "single,batch,parallel";
+
+    /** 各モードで実行するコマンド数。 */
+    @Option(name = "-commands", usage = "Number of commands executed in each mode")
+    private int commands = 200;
+
+    /** batch・parallelモードの同時実行数。 */
+    @Option(name = "-concurrency", usage = "Number of commands executed concurrently in batch and parallel modes")
+    private int concurrency = 16;
+
+    /** スタブサーバーの固定の遅延（ミリ秒）。 */
+    @Option(name = "-latencyMillis", usage = "Fixed latency added to each stub response")
+    private long latencyMillis = 50;
+
+    /** スタブサーバーの遅延のゆらぎ（ミリ秒）。 */
+    @Option(name = "-jitterMillis", usage = "Maximum random latency added on top of -latencyMillis")
+    private long jitterMillis = 20;
+
+    /** スタブサーバーが500エラーを返す割合。 */
+    @Option(name = "-errorRate", usage = "Ratio of stub responses failing with 500 (0.0-1.0)")
+    private double errorRate;
+
+    /** スタブサーバーが429を返す割合。 */
+    @Option(name = "-throttleRate", usage = "Ratio of stub responses failing with 429 (0.0-1.0)")
+    private double throttleRate;
+
+    /** サイト数。 */
+    @Option(name = "-sites", usage = "Number of sites served by the stub")
+    private int sites = 10;
+
+    /** サイトごとのサイトマップ数。 */
+    @Option(name = "-sitemaps", usage = "Number of sitemaps per site served by the stub")
+    private int sitemaps = 5;
+
+    /** 検索アナリティクスのクエリごとの総行数。 */
+    @Option(name = "-rows", usage = "Total rows returned by each search analytics query")
+    private int rows = 10_000;
+
+    /** 検索アナリティクスの1ページの行数。 */
+    @Option(name = "-rowLimit", usage = "Rows per page of the paginated search analytics query")
+    private int rowLimit = 5000;
+
+    /**
+     * コンストラクタ。
+     */
+    private LoadTestHarness() {
+        // mainから使用する
+    }
+
+    /**
+     * 負荷試験を実行します。
+     *
+     * @param args ハーネスの引数と{@code --}で始まるSpringのプロパティ
+     * @throws Exception 負荷試験の実行に失敗した場合
+     */
+    public static void main(final String[] args) throws Exception {
+        final LoadTestHarness harness = new LoadTestHarness();
+        final List<String> harnessArgs = new ArrayList<>();
+        final Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("application.keyFileLocation", "stub");
+        properties.put("application.rateLimit.projectQps", "0");
+        properties.put("application.rateLimit.siteQps", "0");
+        for (final String arg : args) {
+            if (arg.startsWith("--")) {
+                final int separator = arg.indexOf('=');
+                properties.put(arg.substring(2, separator < 0 ? arg.length() : separator),
+                        separator < 0 ? "true" : arg.substring(separator + 1));
+            } else {
+                harnessArgs.add(arg);
+            }
+        }
+        final CmdLineParser parser = new CmdLineParser(harness);
+        try {
+            parser.parseArgument(harnessArgs);
+        } catch (CmdLineException e) {
+            System.err.println(e.getMessage());
+            parser.printUsage(System.err);
+            System.exit(2);
+        }
+        harness.run(properties);
+    }
+
+    /**
+     * スタブサーバーとSpringコンテキストを起動し、指定したモードを順に計測して結果を出力します。
+     *
+     * @param properties Springのプロパティ
+     * @throws IOException スタブサーバーの起動または一時ファイルの操作に失敗した場合
+     * @throws IllegalArgumentException コマンド数またはサイト数が1未満の場合
+     */
+    private void run(final Map<String, String> properties) throws IOException {
+        if (commands < 1 || sites < 1) {
+            throw new IllegalArgumentException("-commands and -sites must be greater than 0");
+        }
+        final StubSearchConsoleServer.Settings settings = new StubSearchConsoleServer.Settings(
+                latencyMillis, jitterMillis, errorRate, throttleRate, sites, sitemaps, rows);
+        final Path workDir = Files.createTempDirectory("webmasters-loadtest");
+        try (StubSearchConsoleServer stub = new StubSearchConsoleServer(settings);
+                ConfigurableApplicationContext context = startContext(stub.getPort(), properties)) {
+            stub.start();
+            final WebmastersCommandRunner runner = context.getBean(WebmastersCommandRunner.class);
+            final List<String[]> workload = workload();
+            final List<LatencyReport> reports = new ArrayList<>();
+            final PrintStream console = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                runSingle(runner, workload.subList(0, Math.min(MAX_WARMUP_COMMANDS, workload.size())));
+                for (final String mode : modes.split(",")) {
+                    reports.add(measure(mode.trim().toLowerCase(Locale.ROOT), runner, workload, workDir));
+                }
+            } finally {
+                System.setOut(console);
+            }
+            console.printf(Locale.ROOT, "stub: latency=%dms jitter=%dms errorRate=%.3f throttleRate=%.3f%n",
+                    latencyMillis, jitterMillis, errorRate, throttleRate);
+            for (final LatencyReport report : reports) {
+                console.println(report.format());
+            }
+            console.printf(Locale.ROOT, "stub: requests=%d injected500=%d injected429=%d%n",
+                    stub.getRequests(), stub.getInjectedErrors(), stub.getInjectedThrottles());
+        } finally {
+            PathUtils.deleteDirectory(workDir);
+        }
+    }
+
+    /**
+     * {@link StubWebmastersFactory}を優先して注入するSpringコンテキストを起動します。
+     *
+     * @param port スタブサーバーの待ち受けポート
+     * @param properties Springのプロパティ
+     * @return 起動したコンテキスト
+     */
+    private static ConfigurableApplicationContext startContext(final int port, final Map<String, String> properties) {
+        final SpringApplication application = new SpringApplication(CliApplication.class);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.addInitializers(context -> ((GenericApplicationContext) context).registerBean(
+                StubWebmastersFactory.class, () -> new StubWebmastersFactory(port),
+                definition -> definition.setPrimary(true)));
+        return application.run(properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new));
+    }
+
+    /**
+     * 計測するコマンド列を生成します。
+     *
+     * @return コマンドライン引数のリスト
+     */
+    private List<String[]> workload() {
+        final List<String[]> workload = new ArrayList<>(commands);
+        for (int i = 0; i < commands; i++) {
+            final String siteUrl = StubSearchConsoleServer.siteUrlOf(i % sites);
+            workload.add(switch (i % 4) {
+                case 0 -> new String[] {"webmasters.sites.list"};
+                case 1 -> new String[] {"webmasters.sitemaps.list", "-siteUrl", siteUrl};
+                case 2 -> new String[] {"webmasters.sitemaps.get", "-siteUrl", siteUrl,
+                    "-feedpath", siteUrl + "sitemap-0.xml"};
+                default -> new String[] {"webmasters.searchanalytics.query", "-siteUrl", siteUrl,
+                    "-startDate", "2024-01-01", "-endDate", "2024-01-31", "-dimensions", "query,page",
+                    "-paginate", "-rowLimit", Integer.toString(rowLimit)};
+            });
+        }
+        return workload;
+    }
+
+    /**
+     * 1つのモードでコマンド列を実行して計測します。
+     *
+     * @param mode モード名
+     * @param runner コマンドランナー
+     * @param workload コマンド列
+     * @param workDir 一時ファイルの作成先
+     * @return 計測結果
+     * @throws IOException 一時ファイルの操作に失敗した場合
+     * @throws IllegalArgumentException 未知のモードの場合
+     */
+    private LatencyReport measure(final String mode, final WebmastersCommandRunner runner,
+            final List<String[]> workload, final Path workDir) throws IOException {
+        return switch (mode) {
+            case "single" -> runSingle(runner, workload);
+            case "batch" -> runBatch(runner, workload, workDir);
+            case "parallel" -> runParallel(runner, workload);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    /**
+     * コマンドを1件ずつ順に実行します。
+     *
+     * @param runner コマンドランナー
+     * @param workload コマンド列
+     * @return 計測結果
+     */
+    private static LatencyReport runSingle(final WebmastersCommandRunner runner, final List<String[]> workload) {
+        final long[] latencies = new long[workload.size()];
+        int failed = 0;
+        final long started = System.nanoTime();
+        for (int i = 0; i < workload.size(); i++) {
+            final long commandStarted = System.nanoTime();
+            try {
+                runner.run(workload.get(i));
+            } catch (RuntimeException e) {
+                failed++;
+            }
+            latencies[i] = millisSince(commandStarted);
+        }
+        return LatencyReport.of("single", failed, millisSince(started), latencies);
+    }
+
+    /**
+     * コマンド列をファイルに書き出し、{@code webmasters.batch.run}で実行します。
+     *
+     * <p>コマンドごとのレイテンシはバッチ実行の集計（JSON）から読み取ります。</p>
+     *
+     * @param runner コマンドランナー
+     * @param workload コマンド列
+     * @param workDir 一時ファイルの作成先
+     * @return 計測結果
+     * @throws IOException 一時ファイルの操作に失敗した場合
+     */
+    private LatencyReport runBatch(final WebmastersCommandRunner runner, final List<String[]> workload,
+            final Path workDir) throws IOException {
+        final Path input = workDir.resolve("commands.txt");
+        final Path summaryFile = workDir.resolve("summary.json");
+        Files.write(input, workload.stream().map(args -> String.join(" ", args)).toList(), StandardCharsets.UTF_8);
+        final long started = System.nanoTime();
+        try {
+            runner.run(BATCH_COMMAND, "-file", input.toString(), "-concurrency", Integer.toString(concurrency),
+                    "-format", "json", "-filePath", summaryFile.toString());
+        } catch (RuntimeException e) {
+            // 失敗したコマンドがある場合も集計は出力済みのため、集計から失敗数を読み取る
+        }
+        final long wallMillis = millisSince(started);
+        final BatchSummary summary;
+        try (InputStream in = Files.newInputStream(summaryFile)) {
+            summary = GsonFactory.getDefaultInstance().fromInputStream(in, StandardCharsets.UTF_8, BatchSummary.class);
+        }
+        final long[] latencies = summary.getResults().stream()
+                .map(BatchResult::getElapsedMillis)
+                .mapToLong(Long::longValue)
+                .toArray();
+        return LatencyReport.of("batch", summary.getFailed(), wallMillis, latencies);
+    }
+
+    /**
+     * {@link CommandExecutionEngine}でコマンドを同時に実行します。
+     *
+     * @param runner コマンドランナー
+     * @param workload コマンド列
+     * @return 計測結果
+     */
+    private LatencyReport runParallel(final WebmastersCommandRunner runner, final List<String[]> workload) {
+        final CommandExecutionEngine engine = new CommandExecutionEngine(runner, concurrency, false);
+        final long started = System.nanoTime();
+        final List<CommandExecution> executions = engine.execute(workload);
+        final long wallMillis = millisSince(started);
+        final int failed = (int) executions.stream().filter(execution -> !execution.succeeded()).count();
+        return LatencyReport.of("parallel", failed, wallMillis,
+                executions.stream().mapToLong(CommandExecution::elapsedMillis).toArray());
+    }
+
+    /**
+     * 指定時刻からの経過ミリ秒を返します。
+     *
+     * @param startedNanos 開始時刻（{@link System#nanoTime()}）
+     * @return 経過ミリ秒
+     */
+    private static long millisSince(final long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,498 @@
+package xyz.monotalk.google.webmaster.cli.loadtest;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.gson.GsonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Webmasters API v3のうちCLIのコマンドが使用するエンドポイントを模したローカルのHTTPサーバーです。
+ *
+ * <p>{@code /webmasters/v3/sites}（一覧・取得・追加・削除）、{@code sites/{siteUrl}/sitemaps}
+ * （一覧・取得・送信・削除）、{@code sites/{siteUrl}/searchAnalytics/query}を実装します。
+ * 検索アナリティクスは{@code startRow}・{@code rowLimit}に従って設定した総行数を分割して返すため、
+ * {@code -paginate}によるページ送りもそのまま動作します。
+ * すべてのリクエストは設定した遅延（固定値とゆらぎ）の後に応答し、設定した割合で500エラーまたは
+ * 429（Too Many Requests）を返します。リクエストは仮想スレッドで処理するため、遅延中も同時に受け付けます。</p>
+ */
+public final class StubSearchConsoleServer implements AutoCloseable {
+
+    /** APIのパスの接頭辞。 */
+    private static final String API_PREFIX = "/webmasters/v3/";
+
+    /** JSONのContent-Type。 */
+    private static final String APPLICATION_JSON = "application/json; charset=UTF-8";
+
+    /** 成功のステータスコード。 */
+    private static final int STATUS_OK = 200;
+
+    /** 本文なし成功のステータスコード。 */
+    private static final int STATUS_NO_CONTENT = 204;
+
+    /** 未定義パスのステータスコード。 */
+    private static final int STATUS_NOT_FOUND = 404;
+
+    /** 未対応メソッドのステータスコード。 */
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+
+    /** レート制限のステータスコード。 */
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+    /** サーバーエラーのステータスコード。 */
+    private static final int STATUS_ERROR = 500;
+
+    /** サーバーの設定。 */
+    private final Settings settings;
+
+    /** HTTPサーバー。 */
+    private final HttpServer server;
+
+    /** リクエストを処理する仮想スレッドのエグゼキューター。 */
+    private final ExecutorService executor;
+
+    /** 受け付けたリクエスト数。 */
+    private final LongAdder requests = new LongAdder();
+
+    /** 注入した500エラーの数。 */
+    private final LongAdder injectedErrors = new LongAdder();
+
+    /** 注入した429の数。 */
+    private final LongAdder injectedThrottles = new LongAdder();
+
+    /**
+     * コンストラクタ。ループバックアドレスの空いているポートで待ち受けます。
+     *
+     * @param settings サーバーの設定
+     * @throws IOException ポートを確保できなかった場合
+     */
+    public StubSearchConsoleServer(final Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX, this::handle);
+    }
+
+    /**
+     * 要求の受け付けを開始します。
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 待ち受けポートを返します。
+     *
+     * @return 待ち受けポート
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 受け付けたリクエスト数を返します。
+     *
+     * @return リクエスト数
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 注入した500エラーの数を返します。
+     *
+     * @return 500エラーの数
+     */
+    public long getInjectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    /**
+     * 注入した429の数を返します。
+     *
+     * @return 429の数
+     */
+    public long getInjectedThrottles() {
+        return injectedThrottles.sum();
+    }
+
+    /**
+     * 要求の受け付けを停止します。
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * リクエストを処理します。遅延とエラーの注入を行ってから、パスに応じた応答を返します。
+     *
+     * @param exchange HTTPのやり取り
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            final byte[] body = readBody(exchange);
+            delay();
+            final double dice = ThreadLocalRandom.current().nextDouble();
+            if (dice < settings.throttleRate()) {
+                injectedThrottles.increment();
+                respondError(exchange, STATUS_TOO_MANY_REQUESTS, "rateLimitExceeded", "Quota exceeded");
+                return;
+            }
+            if (dice < settings.throttleRate() + settings.errorRate()) {
+                injectedErrors.increment();
+                respondError(exchange, STATUS_ERROR, "backendError", "Backend Error");
+                return;
+            }
+            route(exchange, segmentsOf(exchange), body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * パスとメソッドに応じた応答を返します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param segments {@code /webmasters/v3/}以降のデコード済みパス要素
+     * @param body リクエスト本文
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private void route(final HttpExchange exchange, final List<String> segments, final byte[] body)
+            throws IOException {
+        final String method = exchange.getRequestMethod();
+        if (segments.isEmpty() || !"sites".equals(segments.get(0)) || segments.size() > 4) {
+            respondError(exchange, STATUS_NOT_FOUND, "notFound", "Not Found");
+            return;
+        }
+        if (segments.size() == 1) {
+            respondReadOnly(exchange, method, this::siteList);
+            return;
+        }
+        final String siteUrl = segments.get(1);
+        if (segments.size() == 2) {
+            respondResource(exchange, method, () -> site(siteUrl));
+            return;
+        }
+        final String collection = segments.get(2);
+        if ("sitemaps".equals(collection) && segments.size() == 3) {
+            respondReadOnly(exchange, method, () -> sitemapList(siteUrl));
+        } else if ("sitemaps".equals(collection)) {
+            respondResource(exchange, method, () -> sitemap(siteUrl, segments.get(3)));
+        } else if ("searchAnalytics".equals(collection) && "query".equals(segments.get(3))) {
+            if ("POST".equals(method)) {
+                respondJson(exchange, searchAnalytics(body));
+            } else {
+                respondError(exchange, STATUS_METHOD_NOT_ALLOWED, "methodNotAllowed", "POST is required");
+            }
+        } else {
+            respondError(exchange, STATUS_NOT_FOUND, "notFound", "Not Found");
+        }
+    }
+
+    /**
+     * 一覧のような取得のみのリソースに応答します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param method HTTPメソッド
+     * @param resource 応答するリソース
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private static void respondReadOnly(final HttpExchange exchange, final String method,
+            final ResourceSupplier resource) throws IOException {
+        if ("GET".equals(method)) {
+            respondJson(exchange, resource.get());
+        } else {
+            respondError(exchange, STATUS_METHOD_NOT_ALLOWED, "methodNotAllowed", "GET is required");
+        }
+    }
+
+    /**
+     * 取得・追加（PUT）・削除（DELETE）できるリソースに応答します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param method HTTPメソッド
+     * @param resource GETで応答するリソース
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private static void respondResource(final HttpExchange exchange, final String method,
+            final ResourceSupplier resource) throws IOException {
+        switch (method) {
+            case "GET" -> respondJson(exchange, resource.get());
+            case "PUT", "DELETE" -> exchange.sendResponseHeaders(STATUS_NO_CONTENT, -1);
+            default -> respondError(exchange, STATUS_METHOD_NOT_ALLOWED, "methodNotAllowed", method);
+        }
+    }
+
+    /**
+     * サイト一覧を生成します。
+     *
+     * @return サイト一覧のレスポンス
+     */
+    private GenericJson siteList() {
+        final List<GenericJson> entries = new ArrayList<>(settings.sites());
+        for (int i = 0; i < settings.sites(); i++) {
+            entries.add(site(siteUrlOf(i)));
+        }
+        return json("siteEntry", entries);
+    }
+
+    /**
+     * サイトを生成します。
+     *
+     * @param siteUrl サイトURL
+     * @return サイトのレスポンス
+     */
+    private static GenericJson site(final String siteUrl) {
+        return json("siteUrl", siteUrl).set("permissionLevel", "siteOwner");
+    }
+
+    /**
+     * サイトマップ一覧を生成します。
+     *
+     * @param siteUrl サイトURL
+     * @return サイトマップ一覧のレスポンス
+     */
+    private GenericJson sitemapList(final String siteUrl) {
+        final List<GenericJson> sitemaps = new ArrayList<>(settings.sitemapsPerSite());
+        for (int i = 0; i < settings.sitemapsPerSite(); i++) {
+            sitemaps.add(sitemap(siteUrl, siteUrl + "sitemap-" + i + ".xml"));
+        }
+        return json("sitemap", sitemaps);
+    }
+
+    /**
+     * サイトマップを生成します。
+     *
+     * @param siteUrl サイトURL
+     * @param feedpath サイトマップのURL
+     * @return サイトマップのレスポンス
+     */
+    private static GenericJson sitemap(final String siteUrl, final String feedpath) {
+        return json("path", feedpath)
+                .set("lastSubmitted", "2024-01-01T00:00:00.000Z")
+                .set("lastDownloaded", "2024-01-02T00:00:00.000Z")
+                .set("isPending", false)
+                .set("isSitemapsIndex", false)
+                .set("type", "sitemap")
+                .set("warnings", "0")
+                .set("errors", "0")
+                .set("contents", List.of(json("type", "web").set("submitted", "100").set("indexed", "90")));
+    }
+
+    /**
+     * 検索アナリティクスのクエリに応答する行を生成します。
+     *
+     * <p>{@code startRow}から最大{@code rowLimit}行を、設定した総行数を超えない範囲で返します。
+     * 範囲外の場合は、実際のAPIと同じく{@code rows}を含まないレスポンスを返します。</p>
+     *
+     * @param body リクエスト本文
+     * @return クエリのレスポンス
+     * @throws IOException リクエスト本文を解析できなかった場合
+     */
+    private GenericJson searchAnalytics(final byte[] body) throws IOException {
+        final GenericJson request = GsonFactory.getDefaultInstance()
+                .createJsonParser(new String(body, StandardCharsets.UTF_8))
+                .parse(GenericJson.class);
+        final int startRow = intOf(request.get("startRow"), 0);
+        final int rowLimit = intOf(request.get("rowLimit"), 1000);
+        final int dimensionCount = request.get("dimensions") instanceof List<?> list ? list.size() : 0;
+        final int end = Math.min(settings.analyticsRows(), startRow + rowLimit);
+        final GenericJson response = json("responseAggregationType", "byProperty");
+        if (startRow >= end) {
+            return response;
+        }
+        final List<GenericJson> rows = new ArrayList<>(end - startRow);
+        for (int i = startRow; i < end; i++) {
+            final List<String> keys = new ArrayList<>(dimensionCount);
+            for (int d = 0; d < dimensionCount; d++) {
+                keys.add("key" + d + "-" + i);
+            }
+            rows.add(json("keys", keys)
+                    .set("clicks", (double) (i % 100))
+                    .set("impressions", (double) (i % 1000 + 100))
+                    .set("ctr", (i % 100) / 1000.0)
+                    .set("position", 1.0 + i % 50));
+        }
+        return response.set("rows", rows);
+    }
+
+    /**
+     * 設定した遅延の間待機します。
+     */
+    private void delay() {
+        final long jitter = settings.jitterMillis() > 0
+                ? ThreadLocalRandom.current().nextLong(settings.jitterMillis() + 1) : 0L;
+        final long millis = settings.latencyMillis() + jitter;
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * i番目のサイトURLを返します。
+     *
+     * @param index サイトの番号
+     * @return サイトURL
+     */
+    public static String siteUrlOf(final int index) {
+        return "https://site" + index + ".example.com/";
+    }
+
+    /**
+     * {@code /webmasters/v3/}以降のパス要素をデコードして返します。
+     *
+     * @param exchange HTTPのやり取り
+     * @return デコード済みのパス要素
+     */
+    private static List<String> segmentsOf(final HttpExchange exchange) {
+        final String path = exchange.getRequestURI().getRawPath().substring(API_PREFIX.length());
+        return Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .map(segment -> URLDecoder.decode(segment, StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    /**
+     * リクエスト本文を読み込みます。gzipで送信された場合は展開します。
+     *
+     * @param exchange HTTPのやり取り
+     * @return リクエスト本文
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static byte[] readBody(final HttpExchange exchange) throws IOException {
+        final boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        try (InputStream in = gzip
+                ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * JSONの数値を整数として返します。
+     *
+     * @param value JSONの値
+     * @param defaultValue 値がない場合の既定値
+     * @return 整数値
+     */
+    private static int intOf(final Object value, final int defaultValue) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.intValue();
+        }
+        return value instanceof Number number ? number.intValue() : defaultValue;
+    }
+
+    /**
+     * 1つのフィールドを持つJSONオブジェクトを生成します。
+     *
+     * @param name フィールド名
+     * @param value 値
+     * @return JSONオブジェクト
+     */
+    private static GenericJson json(final String name, final Object value) {
+        final GenericJson json = new GenericJson();
+        json.setFactory(GsonFactory.getDefaultInstance());
+        return json.set(name, value);
+    }
+
+    /**
+     * JSONのレスポンスを送信します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param json 送信するJSON
+     * @throws IOException 送信に失敗した場合
+     */
+    private static void respondJson(final HttpExchange exchange, final GenericJson json) throws IOException {
+        respond(exchange, STATUS_OK, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Google APIと同じ形式のエラーレスポンスを送信します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param status ステータスコード
+     * @param reason エラーの理由
+     * @param message エラーメッセージ
+     * @throws IOException 送信に失敗した場合
+     */
+    private static void respondError(final HttpExchange exchange, final int status, final String reason,
+            final String message) throws IOException {
+        final Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", status);
+        error.put("message", message);
+        error.put("errors", List.of(Map.of("domain", "global", "reason", reason, "message", message)));
+        respond(exchange, status, json("error", error).toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * レスポンスを送信します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param status ステータスコード
+     * @param body 本文
+     * @throws IOException 送信に失敗した場合
+     */
+    private static void respond(final HttpExchange exchange, final int status, final byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", APPLICATION_JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 応答するリソースを生成する処理。
+     */
+    @FunctionalInterface
+    private interface ResourceSupplier {
+
+        /**
+         * リソースを生成します。
+         *
+         * @return リソース
+         */
+        GenericJson get();
+    }
+
+    /**
+     * スタブサーバーの設定です。
+     *
+     * @param latencyMillis 各リクエストに加える固定の遅延（ミリ秒）
+     * @param jitterMillis 固定の遅延に加えるゆらぎの上限（ミリ秒）
+     * @param errorRate 500エラーを返す割合（0.0〜1.0）
+     * @param throttleRate 429を返す割合（0.0〜1.0）
+     * @param sites サイト一覧に含めるサイト数
+     * @param sitemapsPerSite サイトごとのサイトマップ数
+     * @param analyticsRows 検索アナリティクスのクエリごとの総行数
+     */
+    public record Settings(long latencyMillis, long jitterMillis, double errorRate, double throttleRate,
+            int sites, int sitemapsPerSite, int analyticsRows) {
+    }
+}
@@ -0,0 +1,61 @@
+package xyz.monotalk.google.webmaster.cli.loadtest;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+
+/**
+ * すべてのAPIリクエストをローカルの{@link StubSearchConsoleServer}へ送信するファクトリです。
+ *
+ * <p>{@link #createHttpTransport()}を上書きし、本番と同じ接続プール付きのApache HttpClientベースのトランスポートで、
+ * {@code https://www.googleapis.com}宛ての接続先だけをスタブサーバーのHTTPへ付け替えます。
+ * リクエストのURLと{@code Host}ヘッダーは変更しないため、レスポンスキャッシュのキーも本番と同じになります。
+ * 認証情報はキーファイルを読まず、有効期限の十分先な固定のアクセストークンを使用します。
+ * gzip転送・リトライ・レート制限・レスポンスキャッシュは本番と同じ設定が適用されます。</p>
+ */
+public class StubWebmastersFactory extends WebmastersFactory {
+
+    /** スタブサーバーの待ち受けポート。 */
+    private final int port;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param port スタブサーバーの待ち受けポート
+     */
+    public StubWebmastersFactory(final int port) {
+        super();
+        this.port = port;
+    }
+
+    /**
+     * 接続先をスタブサーバーへ付け替えるトランスポートを作成します。
+     *
+     * @return 作成されたHttpTransportインスタンス
+     */
+    @Override
+    protected HttpTransport createHttpTransport() {
+        final HttpHost stub = new HttpHost("127.0.0.1", port, "http");
+        return new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setRoutePlanner((target, request, context) -> new HttpRoute(stub))
+                .build());
+    }
+
+    /**
+     * 固定のアクセストークンを持つ認証情報を作成します。
+     *
+     * @return GoogleCredentialsインスタンス
+     */
+    @Override
+    protected GoogleCredentials createCredential() {
+        return GoogleCredentials.create(
+                new AccessToken("stub-token", Date.from(Instant.now().plus(1, ChronoUnit.DAYS))));
+    }
+}
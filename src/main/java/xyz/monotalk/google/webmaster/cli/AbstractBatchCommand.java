@@ -0,0 +1,154 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.services.webmasters.Webmasters;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
+
+/**
+ * 1行1呼び出しで記述した複数のAPI呼び出しをバッチエンドポイントで実行するコマンドの基底クラスです。
+ *
+ * <p>入力の各行は空白区切りで{@code <操作> <引数>...}の形式とし、サブクラスが
+ * {@link #toRequest(Webmasters, String[])}でAPI呼び出しに変換します。
+ * 変換できない行があった場合は、API呼び出しを行う前にエラーにします。
+ * 呼び出しごとにレート制限の許可を取得し、一時的なエラーで失敗した呼び出しはリトライします。
+ * 一部の呼び出しが失敗しても全結果を出力した後、最後にエラー終了します。</p>
+ */
+public abstract class AbstractBatchCommand implements Command {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractBatchCommand.class);
+
+    /** 呼び出しを記述したファイル。未指定の場合は標準入力から読み込みます。 */
+    @Option(name = "-file", usage = "File of calls, one per line (default: stdin)", metaVar = "<file>")
+    protected String file;
+
+    /** 1つのバッチリクエストにまとめる呼び出し数。 */
+    @Option(name = "-batchSize", usage = "Calls per batch request (1-100)")
+    protected int batchSize = WebmastersBatchExecutor.MAX_BATCH_SIZE;
+
+    /** 出力フォーマット。 */
+    @Option(name = "-format", usage = "Output format", metaVar = "[console or json or csv]")
+    protected Format format = Format.CONSOLE;
+
+    /** 出力ファイルパス。 */
+    @Option(name = "-filePath", usage = "Output file path", metaVar = "<filename>", depends = {"-format"})
+    protected String filePath;
+
+    /** WebmastersFactoryインスタンス。 */
+    private final WebmastersFactory factory;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param factory WebmastersFactoryインスタンス
+     */
+    protected AbstractBatchCommand(final WebmastersFactory factory) {
+        super();
+        this.factory = factory;
+    }
+
+    /**
+     * 入力のすべての呼び出しをバッチで実行し、結果を出力します。
+     *
+     * @throws CmdLineArgmentException 引数または入力の行が不正な場合
+     * @throws CommandLineInputOutputException 入力の読み込みに失敗した場合、または失敗した呼び出しがある場合
+     */
+    @Override
+    public void execute() {
+        if (format == Format.JSON && StringUtils.isBlank(filePath)) {
+            throw new CmdLineArgmentException("File path must be specified when using JSON format");
+        }
+        final Webmasters webmasters = factory.createClient();
+        final WebmastersBatchExecutor executor = new WebmastersBatchExecutor(webmasters, batchSize,
+                factory.getRateLimiter(), factory.getRetryPolicy());
+        final List<Call> calls = parseCalls(webmasters, CommandInput.readLines(file));
+        final List<AbstractGoogleJsonClientRequest<?>> requests = new ArrayList<>(calls.size());
+        for (final Call call : calls) {
+            requests.add(call.request());
+        }
+        final List<ApiResponseRecord<?>> records = executor.execute(requests);
+        final List<BatchCallResult> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            results.add(BatchCallResult.of(calls.get(i).line(), calls.get(i).text(), records.get(i)));
+        }
+        final BatchCallResponse response = BatchCallResponse.of(results);
+        ResponseWriter.writeJson(response, format, filePath);
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Batch calls finished: total={}, failed={}", response.getTotal(), response.getFailed());
+        }
+        if (response.getFailed() > 0) {
+            throw new CommandLineInputOutputException(
+                    response.getFailed() + " of " + response.getTotal() + " calls failed");
+        }
+    }
+
+    /**
+     * 入力の全行をAPI呼び出しに変換します。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param lines 入力の全行
+     * @return API呼び出し（入力順）
+     * @throws CmdLineArgmentException 変換できない行がある場合
+     */
+    private List<Call> parseCalls(final Webmasters webmasters, final List<String> lines) {
+        final List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (CommandInput.isSkippable(lines.get(i))) {
+                continue;
+            }
+            final String text = lines.get(i).trim();
+            try {
+                calls.add(new Call(i + 1, text, toRequest(webmasters, StringUtils.split(text))));
+            } catch (CmdLineArgmentException e) {
+                throw new CmdLineArgmentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new CommandLineInputOutputException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * 1行分の入力をAPI呼び出しに変換します。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param tokens 空白で区切った入力（先頭は操作名）
+     * @return API呼び出し
+     * @throws CmdLineArgmentException 操作名または引数が不正な場合
+     * @throws IOException API呼び出しの生成に失敗した場合
+     */
+    protected abstract AbstractGoogleJsonClientRequest<?> toRequest(Webmasters webmasters, String... tokens)
+            throws IOException;
+
+    /**
+     * 引数の数を検証します。
+     *
+     * @param tokens 空白で区切った入力（先頭は操作名）
+     * @param expected 操作名を除く引数の数
+     * @param usage 正しい書式
+     * @throws CmdLineArgmentException 引数の数が異なる場合
+     */
+    protected static void requireArguments(final String[] tokens, final int expected, final String usage) {
+        if (tokens.length != expected + 1) {
+            throw new CmdLineArgmentException("Expected: " + usage);
+        }
+    }
+
+    /**
+     * 入力の1行に対応するAPI呼び出しを表すレコード。
+     *
+     * @param line 行番号
+     * @param text 入力の行
+     * @param request API呼び出し
+     */
+    private record Call(int line, String text, AbstractGoogleJsonClientRequest<?> request) {
+    }
+}
@@ -0,0 +1,81 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+import java.util.List;
+
+/**
+ * バッチ実行した全呼び出しの結果を表すクラスです。
+ */
+public class BatchCallResponse extends GenericJson {
+
+    /** 呼び出し数。 */
+    @Key
+    private Integer total;
+
+    /** 失敗した呼び出し数。 */
+    @Key
+    private Integer failed;
+
+    /** 呼び出しごとの結果（入力順）。 */
+    @Key
+    private List<BatchCallResult> results;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public BatchCallResponse() {
+        super();
+    }
+
+    /**
+     * 呼び出しごとの結果から全体の結果を作成します。
+     *
+     * @param results 呼び出しごとの結果
+     * @return 全体の結果
+     */
+    public static BatchCallResponse of(final List<BatchCallResult> results) {
+        final BatchCallResponse response = new BatchCallResponse();
+        response.total = results.size();
+        response.failed = (int) results.stream().filter(result -> !result.isSuccess()).count();
+        response.results = List.copyOf(results);
+        return response;
+    }
+
+    /**
+     * 呼び出し数を取得します。
+     *
+     * @return 呼び出し数
+     */
+    public Integer getTotal() {
+        return total;
+    }
+
+    /**
+     * 失敗した呼び出し数を取得します。
+     *
+     * @return 失敗した呼び出し数
+     */
+    public Integer getFailed() {
+        return failed;
+    }
+
+    /**
+     * 呼び出しごとの結果を取得します。
+     *
+     * @return 呼び出しごとの結果
+     */
+    public List<BatchCallResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public BatchCallResponse set(final String fieldName, final Object value) {
+        return (BatchCallResponse) super.set(fieldName, value);
+    }
+
+    @Override
+    public BatchCallResponse clone() {
+        return (BatchCallResponse) super.clone();
+    }
+}
@@ -0,0 +1,134 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
+
+/**
+ * バッチ実行した1呼び出し分の結果を出力用に表すクラスです。
+ */
+public class BatchCallResult extends GenericJson {
+
+    /** 入力の行番号（1始まり）。 */
+    @Key
+    private Integer line;
+
+    /** 呼び出し内容。 */
+    @Key
+    private String request;
+
+    /** 応答ステータス。 */
+    @Key
+    private String status;
+
+    /** HTTPステータスコード。 */
+    @Key
+    private Integer code;
+
+    /** 応答データ（存在する場合）。 */
+    @Key
+    private Object data;
+
+    /** エラーメッセージ（存在する場合）。 */
+    @Key
+    private String error;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public BatchCallResult() {
+        super();
+    }
+
+    /**
+     * 応答レコードから結果を作成します。
+     *
+     * @param line 入力の行番号
+     * @param request 呼び出し内容
+     * @param record 応答レコード
+     * @return 結果
+     */
+    public static BatchCallResult of(final int line, final String request, final ApiResponseRecord<?> record) {
+        final BatchCallResult result = new BatchCallResult();
+        result.line = line;
+        result.request = request;
+        result.status = record.status().name();
+        result.code = record.code();
+        result.data = record.data();
+        result.error = record.err();
+        return result;
+    }
+
+    /**
+     * 呼び出しが成功したかどうかを返します。
+     *
+     * @return 成功した場合はtrue
+     */
+    public boolean isSuccess() {
+        return ApiResponseRecord.ResponseStatus.SUCCESS.name().equals(status);
+    }
+
+    /**
+     * 入力の行番号を取得します。
+     *
+     * @return 行番号
+     */
+    public Integer getLine() {
+        return line;
+    }
+
+    /**
+     * 呼び出し内容を取得します。
+     *
+     * @return 呼び出し内容
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * 応答ステータスを取得します。
+     *
+     * @return 応答ステータス
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * HTTPステータスコードを取得します。
+     *
+     * @return HTTPステータスコード
+     */
+    public Integer getCode() {
+        return code;
+    }
+
+    /**
+     * 応答データを取得します。
+     *
+     * @return 応答データ
+     */
+    public Object getData() {
+        return data;
+    }
+
+    /**
+     * エラーメッセージを取得します。
+     *
+     * @return エラーメッセージ
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public BatchCallResult set(final String fieldName, final Object value) {
+        return (BatchCallResult) super.set(fieldName, value);
+    }
+
+    @Override
+    public BatchCallResult clone() {
+        return (BatchCallResult) super.clone();
+    }
+}
@@ -0,0 +1,214 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 取得したアクセストークンをディスクに保存し、プロセスをまたいで再利用する認証情報です。
+ *
+ * <p>トークンの更新時は、まずキーファイルの内容とスコープから求めたキーで保存済みのトークンを探し、
+ * 有効期限まで十分な時間が残っていればトークンエンドポイントへ問い合わせずにそれを使用します。
+ * 残っていない場合は委譲先の認証情報で新しいトークンを取得して保存します。
+ * 複数のプロセスが同時に更新しないよう、読み込みから保存まではファイルロックを取得して行います。
+ * 常駐モードのように長時間動作する場合も、{@link GoogleCredentials}が有効期限の前に行う更新で
+ * 保存済みのトークンを使い切る前に新しいトークンへ切り替わります。</p>
+ */
+final class CachedTokenCredentials extends GoogleCredentials {
+
+    /** シリアルバージョンUID。 */
+    private static final long serialVersionUID = 1L;
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachedTokenCredentials.class);
+
+    /**
+     * 保存済みのトークンを再利用するために必要な残り有効期間（ミリ秒）。
+     *
+     * <p>{@link GoogleCredentials}が有効期限の前に更新を始める残り時間より長くし、
+     * 更新のたびに期限間近のトークンを返して更新が繰り返されないようにします。</p>
+     */
+    private static final long MIN_REMAINING_MILLIS = 10 * 60 * 1000L;
+
+    /** 同一プロセス内のスレッド間で更新を直列化するためのロック（ファイルロックはプロセス単位のため）。 */
+    private static final Object PROCESS_LOCK = new Object();
+
+    /** トークン値のキー。 */
+    private static final String KEY_TOKEN = "accessToken";
+
+    /** 有効期限のキー。 */
+    private static final String KEY_EXPIRATION = "expirationTimeMillis";
+
+    /** 委譲先の認証情報。 */
+    private final GoogleCredentials delegate;
+
+    /** 保存先ディレクトリ。 */
+    private final String directory;
+
+    /** キャッシュのキー。 */
+    private final String cacheKey;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 委譲先の認証情報（スコープ設定済み）
+     * @param directory 保存先ディレクトリ
+     * @param cacheKey キャッシュのキー（{@link #cacheKeyOf(byte[], String)}）
+     */
+    /* default */ CachedTokenCredentials(final GoogleCredentials delegate, final Path directory,
+            final String cacheKey) {
+        super();
+        this.delegate = delegate;
+        this.directory = directory.toString();
+        this.cacheKey = cacheKey;
+    }
+
+    /**
+     * キーファイルの内容とスコープからキャッシュのキーを求めます。
+     *
+     * @param keyFile キーファイルの内容
+     * @param scope スコープ
+     * @return SHA-256の16進表記
+     */
+    /* default */ static String cacheKeyOf(final byte[] keyFile, final String scope) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(keyFile);
+            digest.update((byte) '\n');
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public AccessToken refreshAccessToken() throws IOException {
+        final Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        synchronized (PROCESS_LOCK) {
+            try (FileChannel channel = FileChannel.open(dir.resolve(cacheKey + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                final Path tokenFile = dir.resolve(cacheKey + ".token");
+                final AccessToken stored = read(tokenFile);
+                if (isReusable(stored)) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Reusing cached access token");
+                    }
+                    return stored;
+                }
+                final AccessToken token = delegate.refreshAccessToken();
+                write(tokenFile, token);
+                return token;
+            }
+        }
+    }
+
+    /**
+     * 保存済みのトークンを再利用できるかどうかを判定します。
+     *
+     * <p>現在保持しているトークンと同じものは、{@link GoogleCredentials}が更新が必要と判断したトークンのため再利用しません。</p>
+     *
+     * @param stored 保存済みのトークン（ない場合はnull）
+     * @return 有効期限まで十分な時間が残っている別のトークンの場合はtrue
+     */
+    private boolean isReusable(final AccessToken stored) {
+        if (stored == null
+                || stored.getExpirationTime().getTime() - System.currentTimeMillis() <= MIN_REMAINING_MILLIS) {
+            return false;
+        }
+        final AccessToken current = getAccessToken();
+        return current == null || !stored.getTokenValue().equals(current.getTokenValue());
+    }
+
+    /**
+     * 保存済みのトークンを読み込みます。
+     *
+     * @param tokenFile トークンファイル
+     * @return トークン（ない場合、または読み込めない場合はnull）
+     */
+    private static AccessToken read(final Path tokenFile) {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(tokenFile)) {
+            properties.load(in);
+            final String value = properties.getProperty(KEY_TOKEN);
+            final String expiration = properties.getProperty(KEY_EXPIRATION);
+            if (value == null || expiration == null) {
+                return null;
+            }
+            return new AccessToken(value, new Date(Long.parseLong(expiration)));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NumberFormatException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Ignoring unreadable token cache {}: {}", tokenFile, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * トークンを所有者だけが読み書きできるファイルへ保存します。有効期限のないトークンは保存しません。
+     *
+     * @param tokenFile トークンファイル
+     * @param token トークン
+     */
+    private static void write(final Path tokenFile, final AccessToken token) {
+        if (token.getExpirationTime() == null) {
+            return;
+        }
+        final Properties properties = new Properties();
+        properties.setProperty(KEY_TOKEN, token.getTokenValue());
+        properties.setProperty(KEY_EXPIRATION, Long.toString(token.getExpirationTime().getTime()));
+        try {
+            final Path temp = Files.createTempFile(tokenFile.getParent(), "token", ".tmp");
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            }
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Failed to save token cache {}: {}", tokenFile, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof CachedTokenCredentials)) {
+            return false;
+        }
+        final CachedTokenCredentials other = (CachedTokenCredentials) obj;
+        return delegate.equals(other.delegate) && directory.equals(other.directory)
+                && cacheKey.equals(other.cacheKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return cacheKey.hashCode();
+    }
+}
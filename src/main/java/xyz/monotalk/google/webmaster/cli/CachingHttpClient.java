@@ -0,0 +1,183 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.http.GenericUrl;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ResponseCache}を参照してから送信するHTTPクライアントです。
+ *
+ * <p>共有のApache HttpClientを包み、キャッシュ対象のGETリクエストは有効期限内のレスポンスがあれば
+ * 送信せずにそれを返し、なければ送信して成功したレスポンスを保存します。更新リクエスト（PUT・DELETE：
+ * サイトマップの送信・削除、サイトの追加・削除など）は送信後に関係するエントリを破棄します。
+ * 検索アナリティクスのクエリのようにPOSTで送信する読み取り系のリクエストは破棄の対象にしません。
+ * レートリミッターを指定した場合、キャッシュに該当せず実際に送信するリクエストだけが許可を取得します。
+ * キャッシュの参照は1回だけ行うため、参照と送信の間に有効期限が切れても許可を取得せずに送信することはありません。
+ * 認証・リトライ・gzip転送などのリクエスト初期化処理は送信前に適用済みのため、
+ * キャッシュから返したレスポンスもAPIから受け取った場合と同じように処理されます。</p>
+ */
+final class CachingHttpClient extends CloseableHttpClient {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingHttpClient.class);
+
+    /** 委譲先のHTTPクライアント。 */
+    private final CloseableHttpClient delegate;
+
+    /** レスポンスキャッシュ。 */
+    private final ResponseCache cache;
+
+    /** キャッシュの名前空間。 */
+    private final String namespace;
+
+    /** 送信するリクエストに適用するレートリミッター（制限しない場合はnull）。 */
+    private final QuotaRateLimiter rateLimiter;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 委譲先のHTTPクライアント（接続プールを共有します）
+     * @param cache レスポンスキャッシュ
+     * @param namespace キャッシュの名前空間（キーファイルの場所）
+     * @param rateLimiter 送信するリクエストに適用するレートリミッター（制限しない場合はnull）
+     */
+    /* default */ CachingHttpClient(final CloseableHttpClient delegate, final ResponseCache cache,
+            final String namespace, final QuotaRateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.namespace = namespace;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(final HttpHost target, final HttpRequest request,
+            final HttpContext context) throws IOException {
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ROOT);
+        final String uri = uriOf(target, request);
+        final ResponseCache.Entry cached = cache.get(namespace, method, uri);
+        if (cached != null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Cache hit: {} {}", method, uri);
+            }
+            return toResponse(cached);
+        }
+        if (rateLimiter != null) {
+            rateLimiter.acquire(new GenericUrl(uri));
+        }
+        final CloseableHttpResponse response = delegate.execute(target, request, context);
+        if ("PUT".equals(method) || "DELETE".equals(method)) {
+            cache.invalidate(namespace, uri);
+            return response;
+        }
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK || cache.ttlMillisOf(method, uri) <= 0) {
+            return response;
+        }
+        try (response) {
+            final HttpEntity entity = response.getEntity();
+            final byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+            final List<String[]> headers = new ArrayList<>();
+            for (final Header header : response.getAllHeaders()) {
+                headers.add(new String[] {header.getName(), header.getValue()});
+            }
+            final ResponseCache.Entry stored = cache.put(namespace, method, uri,
+                    response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(),
+                    headers, body);
+            return toResponse(stored);
+        }
+    }
+
+    /**
+     * リクエストの絶対URLを返します。
+     *
+     * @param target 送信先ホスト
+     * @param request リクエスト
+     * @return 絶対URL
+     */
+    private static String uriOf(final HttpHost target, final HttpRequest request) {
+        if (request instanceof HttpUriRequest && ((HttpUriRequest) request).getURI().isAbsolute()) {
+            return ((HttpUriRequest) request).getURI().toString();
+        }
+        return target.toURI() + request.getRequestLine().getUri();
+    }
+
+    /**
+     * キャッシュされたレスポンスからHTTPレスポンスを生成します。
+     *
+     * @param entry キャッシュされたレスポンス
+     * @return HTTPレスポンス
+     */
+    private static CloseableHttpResponse toResponse(final ResponseCache.Entry entry) {
+        final CachedHttpResponse response = new CachedHttpResponse(entry.statusCode(), entry.reasonPhrase());
+        final ByteArrayEntity entity = new ByteArrayEntity(entry.body());
+        for (final String[] header : entry.headers()) {
+            response.addHeader(header[0], header[1]);
+            if ("Content-Type".equalsIgnoreCase(header[0])) {
+                entity.setContentType(header[1]);
+            } else if ("Content-Encoding".equalsIgnoreCase(header[0])) {
+                entity.setContentEncoding(header[1]);
+            }
+        }
+        response.setEntity(entity);
+        return response;
+    }
+
+    /**
+     * 接続プールは他のクライアントと共有しているため閉じません。
+     */
+    @Override
+    public void close() {
+        // 共有の接続プールは閉じない
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+
+    /**
+     * キャッシュから生成したHTTPレスポンスです。
+     */
+    private static final class CachedHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        /**
+         * コンストラクタ。
+         *
+         * @param statusCode ステータスコード
+         * @param reasonPhrase ステータスの説明
+         */
+        private CachedHttpResponse(final int statusCode, final String reasonPhrase) {
+            super(HttpVersion.HTTP_1_1, statusCode, reasonPhrase);
+        }
+
+        @Override
+        public void close() {
+            // 保持しているのはメモリ上の本文のみ
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package xyz.monotalk.google.webmaster.cli;
 
+import java.lang.management.ManagementFactory;
+import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.Banner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
 
 /**
@@ -13,6 +16,12 @@ import org.springframework.context.annotation.ComponentScan;
 @ComponentScan(nameGenerator = FullyQualifiedClassNameBeanNameGenerator.class)
 public class CliApplication {
 
+    /**
+     * 起動時間を計測するためのシステムプロパティ名です。
+     * trueの場合、コマンドの解決と引数の解析を終えて実行する直前までの経過時間を標準エラー出力に出力し、コマンドは実行せずに終了します。
+     */
+    public static final String STARTUP_REPORT_PROPERTY = "cli.startupReport";
+
     /**
      * インスタンス化を防ぐためのプライベートコンストラクタです。 このクラスはユーティリティクラスとして機能し、静的メソッドのみを提供します。
      */
@@ -23,11 +32,32 @@ public class CliApplication {
     /**
      * アプリケーションのエントリーポイントです。 Spring Bootアプリケーションを初期化し、起動します。
      *
+     * <p>{@code --}で始まる引数はSpringのプロパティとして扱い、それ以外の引数をコマンドとして実行します。</p>
+     *
      * @param args コマンドライン引数
      */
     public static void main(final String[] args) {
         final SpringApplication springApplication = new SpringApplication(CliApplication.class);
         springApplication.setBannerMode(Banner.Mode.OFF);
-        SpringApplication.run(CliApplication.class, args);
+        try (ConfigurableApplicationContext context = springApplication.run(args)) {
+            final String[] commandArgs = context.getBean(ApplicationArguments.class)
+                    .getNonOptionArgs().toArray(String[]::new);
+            final WebmastersCommandRunner runner = context.getBean(WebmastersCommandRunner.class);
+            if (Boolean.getBoolean(STARTUP_REPORT_PROPERTY)) {
+                runner.prepare(commandArgs);
+                reportStartup();
+                return;
+            }
+            runner.run(commandArgs);
+        }
+    }
+
+    /**
+     * JVMの起動からコマンド実行直前までの経過時間を標準エラー出力に出力します。
+     */
+    @SuppressWarnings("PMD.SystemPrintln")
+    private static void reportStartup() {
+        final long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.err.println("startup.millis=" + elapsed);
     }
 }
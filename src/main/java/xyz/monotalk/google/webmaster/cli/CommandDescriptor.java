@@ -0,0 +1,30 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+
+/**
+ * コマンド索引の1エントリーを表すレコードです。
+ *
+ * <p>ビルド時に{@code GeneratedCommandIndex}として生成され、実行時にはクラスパスの走査や
+ * クラス名の組み立てを行わずにコマンドを解決するために使用します。</p>
+ *
+ * @param name コマンド名（例：{@code webmasters.sites.list}）
+ * @param factory 依存性を注入したコマンドインスタンスを生成する処理
+ * @param options args4jのオプション名と別名
+ */
+public record CommandDescriptor(String name, Function<AutowireCapableBeanFactory, Command> factory,
+        List<String> options) {
+
+    /**
+     * コンストラクタ。オプション名のリストは不変リストとして保持します。
+     *
+     * @param name コマンド名
+     * @param factory コマンドインスタンスを生成する処理
+     * @param options オプション名と別名
+     */
+    public CommandDescriptor {
+        options = List.copyOf(options);
+    }
+}
@@ -0,0 +1,37 @@
+package xyz.monotalk.google.webmaster.cli;
+
+/**
+ * {@link CommandExecutionEngine}で実行した1コマンド分の結果です。
+ *
+ * @param index 投入順の位置（0始まり）
+ * @param args 実行したコマンドライン引数
+ * @param status 実行結果の状態
+ * @param error 失敗時のエラーメッセージ（成功時はnull）
+ * @param elapsedMillis 実行時間（ミリ秒、実行しなかった場合は0）
+ */
+public record CommandExecution(int index, String[] args, Status status, String error, long elapsedMillis) {
+
+    /**
+     * 成功したかどうかを返します。
+     *
+     * @return 成功した場合はtrue
+     */
+    public boolean succeeded() {
+        return status == Status.SUCCEEDED;
+    }
+
+    /**
+     * 実行結果の状態。
+     */
+    public enum Status {
+
+        /** 成功。 */
+        SUCCEEDED,
+
+        /** 失敗。 */
+        FAILED,
+
+        /** 取り消しにより実行しなかった、または実行中に中断した。 */
+        CANCELLED
+    }
+}
@@ -0,0 +1,197 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 複数のコマンドを仮想スレッドで並行に実行するエンジンです。
+ *
+ * <p>コマンドごとに仮想スレッドを1つ生成し、同時に実行中のコマンド数だけを{@link Semaphore}で制限します。
+ * API呼び出しの待ち時間の間はキャリアスレッドが解放されるため、スレッドプールの大きさを調整せずに
+ * 数千件のコマンドを並行に実行できます。</p>
+ *
+ * <p>{@link #execute(List)}は全コマンドの終了を待ってから戻り、実行中のタスクを残しません。
+ * {@link #cancel()}の呼び出し、失敗時の取り消し指定、または呼び出し元スレッドへの割り込みで取り消すと、
+ * 未実行のコマンドは実行せず、実行中のコマンドには割り込みます（仮想スレッドで待機中のソケットI/Oは中断されます）。
+ * 結果は投入順に{@link CommandExecution}として返します。1インスタンスで実行するバッチは1つだけです。</p>
+ */
+public final class CommandExecutionEngine {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutionEngine.class);
+
+    /** 取り消されたコマンドのエラーメッセージ。 */
+    private static final String CANCELLED_MESSAGE = "Cancelled";
+
+    /** コマンドを実行する処理。 */
+    private final Consumer<String[]> runner;
+
+    /** 同時に実行するコマンド数の上限。 */
+    private final int maxInFlight;
+
+    /** 失敗したコマンドがあった場合に残りを取り消すかどうか。 */
+    private final boolean cancelOnFailure;
+
+    /** 実行中のコマンド数を制限する許可。 */
+    private final Semaphore permits;
+
+    /** 取り消し済みかどうか。 */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /** 投入済みのタスク。 */
+    private final List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * コマンドランナーで実行するエンジンを生成します。
+     *
+     * @param runner コマンドランナー
+     * @param maxInFlight 同時に実行するコマンド数の上限
+     * @param cancelOnFailure 失敗したコマンドがあった場合に残りを取り消す場合はtrue
+     */
+    public CommandExecutionEngine(final WebmastersCommandRunner runner, final int maxInFlight,
+            final boolean cancelOnFailure) {
+        this(runner::run, maxInFlight, cancelOnFailure);
+    }
+
+    /**
+     * 任意の実行処理で実行するエンジンを生成します。
+     *
+     * @param runner コマンドライン引数を受け取って実行する処理（失敗時は実行時例外をスロー）
+     * @param maxInFlight 同時に実行するコマンド数の上限
+     * @param cancelOnFailure 失敗したコマンドがあった場合に残りを取り消す場合はtrue
+     * @throws CmdLineArgmentException 同時実行数の上限が1未満の場合
+     */
+    public CommandExecutionEngine(final Consumer<String[]> runner, final int maxInFlight,
+            final boolean cancelOnFailure) {
+        if (maxInFlight < 1) {
+            throw new CmdLineArgmentException("concurrency must be greater than 0");
+        }
+        this.runner = runner;
+        this.maxInFlight = maxInFlight;
+        this.cancelOnFailure = cancelOnFailure;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * 全コマンドを実行し、投入順の結果を返します。
+     *
+     * @param commands コマンドライン引数の一覧
+     * @return コマンドごとの結果（投入順）
+     */
+    public List<CommandExecution> execute(final List<String[]> commands) {
+        final AtomicReferenceArray<CommandExecution> results = new AtomicReferenceArray<>(commands.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (int i = 0; i < commands.size() && !cancelled.get(); i++) {
+                    permits.acquire();
+                    final int index = i;
+                    futures.add(executor.submit(() -> {
+                        try {
+                            results.set(index, run(index, commands.get(index)));
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+            } catch (InterruptedException e) {
+                // 実行中のコマンドの終了を待つ前に割り込むため、エグゼキューターのクローズより先に取り消す
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+        }
+        final List<CommandExecution> executions = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            final CommandExecution result = results.get(i);
+            executions.add(result != null ? result : cancelledResult(i, commands.get(i), 0));
+        }
+        return executions;
+    }
+
+    /**
+     * 未実行のコマンドを取り消し、実行中のコマンドに割り込みます。
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Cancelling remaining commands");
+        }
+        synchronized (futures) {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        // 開始前に取り消されたタスクは許可を返さないため、投入待ちのスレッドを解放する
+        permits.release(maxInFlight);
+    }
+
+    /**
+     * 取り消し済みかどうかを返します。
+     *
+     * @return 取り消し済みの場合はtrue
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 1コマンドを実行し、結果を記録します。
+     *
+     * @param index 投入順の位置
+     * @param args コマンドライン引数
+     * @return 実行結果
+     */
+    private CommandExecution run(final int index, final String[] args) {
+        if (cancelled.get()) {
+            return cancelledResult(index, args, 0);
+        }
+        final long started = System.nanoTime();
+        try {
+            runner.accept(args);
+            return new CommandExecution(index, args, CommandExecution.Status.SUCCEEDED, null,
+                    elapsedMillisSince(started));
+        } catch (RuntimeException e) {
+            if (cancelled.get()) {
+                return cancelledResult(index, args, elapsedMillisSince(started));
+            }
+            if (cancelOnFailure) {
+                cancel();
+            }
+            return new CommandExecution(index, args, CommandExecution.Status.FAILED, e.getMessage(),
+                    elapsedMillisSince(started));
+        }
+    }
+
+    /**
+     * 取り消されたコマンドの結果を生成します。
+     *
+     * @param index 投入順の位置
+     * @param args コマンドライン引数
+     * @param elapsedMillis 実行時間（ミリ秒）
+     * @return 実行結果
+     */
+    private static CommandExecution cancelledResult(final int index, final String[] args, final long elapsedMillis) {
+        return new CommandExecution(index, args, CommandExecution.Status.CANCELLED, CANCELLED_MESSAGE, elapsedMillis);
+    }
+
+    /**
+     * 指定時刻からの経過ミリ秒を返します。
+     *
+     * @param startedNanos 開始時刻（{@link System#nanoTime()}）
+     * @return 経過ミリ秒
+     */
+    private static long elapsedMillisSince(final long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,72 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.StringTokenizer;
+import org.apache.commons.text.matcher.StringMatcherFactory;
+
+/**
+ * 1行1件で記述されたコマンド入力を読み込むユーティリティクラスです。
+ *
+ * <p>空行と{@code #}で始まる行は、呼び出し側で{@link #isSkippable(String)}により読み飛ばします。</p>
+ */
+public final class CommandInput {
+
+    /** コメント行の接頭辞。 */
+    private static final String COMMENT_PREFIX = "#";
+
+    private CommandInput() {
+        // インスタンス化を防止するためのプライベートコンストラクタ
+    }
+
+    /**
+     * ファイルまたは標準入力から全行を読み込みます。
+     *
+     * @param file 入力ファイル（未指定の場合は標準入力）
+     * @return 入力の全行
+     * @throws CommandLineInputOutputException 読み込みに失敗した場合
+     */
+    public static List<String> readLines(final String file) {
+        try {
+            if (StringUtils.isBlank(file)) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        CloseShieldInputStream.wrap(System.in), StandardCharsets.UTF_8))) {
+                    return reader.lines().toList();
+                }
+            }
+            return Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to read input: " + file, e);
+        }
+    }
+
+    /**
+     * 読み飛ばす行（空行またはコメント行）かどうかを判定します。
+     *
+     * @param line 行
+     * @return 読み飛ばす場合はtrue
+     */
+    public static boolean isSkippable(final String line) {
+        final String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX);
+    }
+
+    /**
+     * コマンドラインを引数に分割します。引用符で囲まれた部分は1つの引数として扱います。
+     *
+     * @param line コマンドライン
+     * @return 引数
+     */
+    public static String[] tokenize(final String line) {
+        final StringTokenizer tokenizer = new StringTokenizer(line)
+                .setQuoteMatcher(StringMatcherFactory.INSTANCE.quoteMatcher());
+        return tokenizer.getTokenArray();
+    }
+}
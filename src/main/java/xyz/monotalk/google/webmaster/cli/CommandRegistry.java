@@ -0,0 +1,141 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.commons.text.similarity.LevenshteinDistance;
+
+/**
+ * コマンド名からコマンド定義を解決するレジストリです。
+ *
+ * <p>コマンド名の照合は大文字小文字を区別しません。
+ * 見つからない場合は編集距離の近い候補を提示します。</p>
+ */
+public final class CommandRegistry {
+
+    /** 提示する候補の最大数。 */
+    private static final int MAX_SUGGESTIONS = 3;
+
+    /** 候補とみなす最大の編集距離。 */
+    private static final int MAX_DISTANCE = 3;
+
+    /** 編集距離の計算処理。 */
+    private static final LevenshteinDistance DISTANCE = new LevenshteinDistance(MAX_DISTANCE);
+
+    /** 小文字化したコマンド名をキーとするコマンド定義。 */
+    private final Map<String, CommandDescriptor> commands;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param descriptors コマンド定義
+     * @throws IllegalArgumentException コマンド名が重複している場合
+     */
+    public CommandRegistry(final Collection<CommandDescriptor> descriptors) {
+        final Map<String, CommandDescriptor> map = new LinkedHashMap<>();
+        for (final CommandDescriptor descriptor : descriptors) {
+            if (map.putIfAbsent(normalize(descriptor.name()), descriptor) != null) {
+                throw new IllegalArgumentException("Duplicate command name: " + descriptor.name());
+            }
+        }
+        this.commands = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * ビルド時に生成されたコマンド索引からレジストリを生成します。
+     *
+     * @return コマンドレジストリ
+     */
+    public static CommandRegistry generated() {
+        return new CommandRegistry(GeneratedCommandIndex.commands());
+    }
+
+    /**
+     * コマンド定義を検索します。
+     *
+     * @param name コマンド名
+     * @return コマンド定義（見つからない場合は空）
+     */
+    public Optional<CommandDescriptor> find(final String name) {
+        return Optional.ofNullable(commands.get(normalize(name)));
+    }
+
+    /**
+     * コマンド定義を取得します。
+     *
+     * @param name コマンド名
+     * @return コマンド定義
+     * @throws CmdLineArgmentException コマンドが見つからない場合（近い候補があればメッセージに含めます）
+     */
+    public CommandDescriptor require(final String name) {
+        return find(name).orElseThrow(() -> new CmdLineArgmentException(
+                withSuggestions("Command not found: " + name, suggest(name, names()))));
+    }
+
+    /**
+     * 登録されているコマンド名を返します。
+     *
+     * @return コマンド名（登録順）
+     */
+    public List<String> names() {
+        final List<String> names = new ArrayList<>(commands.size());
+        for (final CommandDescriptor descriptor : commands.values()) {
+            names.add(descriptor.name());
+        }
+        return names;
+    }
+
+    /**
+     * 入力に近い候補を編集距離の近い順に返します。
+     *
+     * @param input 入力
+     * @param candidates 候補
+     * @return 近い候補（最大{@value #MAX_SUGGESTIONS}件）
+     */
+    public static List<String> suggest(final String input, final Collection<String> candidates) {
+        final String normalized = normalize(input);
+        final List<Map.Entry<String, Integer>> scored = new ArrayList<>();
+        for (final String candidate : candidates) {
+            final int distance = DISTANCE.apply(normalized, normalize(candidate));
+            if (distance >= 0) {
+                scored.add(Map.entry(candidate, distance));
+            }
+        }
+        scored.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        final List<String> suggestions = new ArrayList<>(MAX_SUGGESTIONS);
+        for (int i = 0; i < scored.size() && i < MAX_SUGGESTIONS; i++) {
+            suggestions.add(scored.get(i).getKey());
+        }
+        return suggestions;
+    }
+
+    /**
+     * メッセージに候補を付加します。
+     *
+     * @param message メッセージ
+     * @param suggestions 候補
+     * @return 候補を付加したメッセージ（候補がない場合は元のメッセージ）
+     */
+    public static String withSuggestions(final String message, final List<String> suggestions) {
+        if (suggestions.isEmpty()) {
+            return message;
+        }
+        return message + " (did you mean: " + String.join(", ", suggestions) + "?)";
+    }
+
+    /**
+     * 照合用にコマンド名を正規化します。
+     *
+     * @param name コマンド名
+     * @return 小文字化したコマンド名
+     */
+    private static String normalize(final String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
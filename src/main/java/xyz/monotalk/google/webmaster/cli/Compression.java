@@ -0,0 +1,62 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 出力ファイルの圧縮形式を定義するenumです。
+ *
+ * <p>書き込みながら圧縮するため、出力全体をメモリやディスクに展開せずに大きなエクスポートを圧縮できます。</p>
+ */
+public enum Compression {
+
+    /**
+     * gzip形式です。
+     */
+    GZIP("gzip"),
+
+    /**
+     * Zstandard形式です。gzipより高速で圧縮率も高くなります。
+     */
+    ZSTD("zstd");
+
+    /** 圧縮時のバッファサイズ。 */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** 圧縮形式の別名。 */
+    private final String alias;
+
+    /**
+     * Compressionコンストラクタ。
+     *
+     * @param alias 圧縮形式の別名
+     */
+    Compression(final String alias) {
+        this.alias = alias;
+    }
+
+    /**
+     * 圧縮形式の別名を取得します。
+     *
+     * @return 圧縮形式の別名
+     */
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * 出力ストリームを圧縮ストリームで包みます。圧縮ストリームをクローズすると出力先もクローズされます。
+     *
+     * @param out 出力先
+     * @return 圧縮ストリーム
+     * @throws IOException 圧縮ストリームの初期化に失敗した場合
+     */
+    public OutputStream wrap(final OutputStream out) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+}
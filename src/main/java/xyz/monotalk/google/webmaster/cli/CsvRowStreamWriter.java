@@ -0,0 +1,208 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.ClassInfo;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行をCSV形式で逐次出力するライターです。
+ *
+ * <p>ヘッダーは最初の行のクラス定義から決定します。{@code keys}配列は列に展開され、
+ * 列名には指定されたキー列名（未指定の場合は{@code key1}, {@code key2}, ...）を使用します。
+ * 配列やオブジェクトなど入れ子の値はJSON文字列として1列に出力します。</p>
+ */
+final class CsvRowStreamWriter implements RowStreamWriter {
+
+    /** キー配列のフィールド名。 */
+    private static final String KEYS_FIELD = "keys";
+
+    /** キー列名を自動生成する場合の接頭辞。 */
+    private static final String KEY_COLUMN_PREFIX = "key";
+
+    /** 行区切り文字。 */
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    /** 出力先。 */
+    private final Writer writer;
+
+    /** キー配列を展開する列名。 */
+    private final List<String> keyColumns;
+
+    /** キー配列以外の出力フィールド名（ヘッダー出力前はnull）。 */
+    private List<String> fieldNames;
+
+    /** キー配列を展開する列数。 */
+    private int keyCount;
+
+    /** ヘッダー行を出力するかどうか。 */
+    private final boolean headerEnabled;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param writer 出力先（呼び出し側でバッファリングされていること）
+     * @param keyColumns キー配列を展開する列名（空の場合は最初の行から列数を決定）
+     */
+    /* default */ CsvRowStreamWriter(final Writer writer, final List<String> keyColumns) {
+        this(writer, keyColumns, true);
+    }
+
+    /**
+     * ヘッダー行の出力有無を指定するコンストラクタ。
+     *
+     * @param writer 出力先（呼び出し側でバッファリングされていること）
+     * @param keyColumns キー配列を展開する列名（空の場合は最初の行から列数を決定）
+     * @param headerEnabled ヘッダー行を出力する場合はtrue（既存ファイルへの追記時はfalse）
+     */
+    /* default */ CsvRowStreamWriter(final Writer writer, final List<String> keyColumns,
+            final boolean headerEnabled) {
+        this.writer = writer;
+        this.keyColumns = List.copyOf(keyColumns);
+        this.headerEnabled = headerEnabled;
+    }
+
+    @Override
+    public void write(final GenericJson row) throws IOException {
+        if (fieldNames == null) {
+            writeHeader(row);
+        }
+        final List<String> values = new ArrayList<>(keyCount + fieldNames.size());
+        final Object keys = row.get(KEYS_FIELD);
+        final List<?> keyValues = keys instanceof List<?> list ? list : List.of();
+        for (int i = 0; i < keyCount; i++) {
+            values.add(i < keyValues.size() ? format(keyValues.get(i)) : "");
+        }
+        for (final String name : fieldNames) {
+            values.add(format(row.get(name)));
+        }
+        writeLine(values);
+    }
+
+    /**
+     * 最初の行からヘッダーを決定し、有効な場合は出力します。
+     *
+     * @param row 最初の行
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void writeHeader(final GenericJson row) throws IOException {
+        final Collection<String> declared = ClassInfo.of(row.getClass()).getNames();
+        final Collection<String> names = declared.isEmpty() ? row.keySet() : declared;
+        fieldNames = new ArrayList<>();
+        boolean hasKeys = false;
+        for (final String name : names) {
+            if (KEYS_FIELD.equals(name)) {
+                hasKeys = true;
+            } else {
+                fieldNames.add(name);
+            }
+        }
+        final List<String> header = new ArrayList<>();
+        if (hasKeys) {
+            header.addAll(resolveKeyColumns(row));
+        }
+        keyCount = header.size();
+        header.addAll(fieldNames);
+        if (headerEnabled) {
+            writeLine(header);
+        }
+    }
+
+    /**
+     * キー配列を展開する列名を決定します。
+     *
+     * @param row 最初の行
+     * @return キー列名
+     */
+    private List<String> resolveKeyColumns(final GenericJson row) {
+        if (!keyColumns.isEmpty()) {
+            return keyColumns;
+        }
+        final List<String> columns = new ArrayList<>();
+        if (row.get(KEYS_FIELD) instanceof List<?> keys) {
+            for (int i = 1; i <= keys.size(); i++) {
+                columns.add(KEY_COLUMN_PREFIX + i);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 値をCSVのセル文字列に変換します。
+     *
+     * @param value 値
+     * @return セル文字列
+     * @throws IOException JSON変換に失敗した場合
+     */
+    private static String format(final Object value) throws IOException {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Collection<?> || value instanceof Map<?, ?>) {
+            return GsonFactory.getDefaultInstance().toString(value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * 1行分のセルをエスケープして出力します。
+     *
+     * @param cells セル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void writeLine(final List<String> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(cells.get(i));
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * RFC 4180に従ってセルをエスケープして出力します。
+     *
+     * @param cell セル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void writeCell(final String cell) throws IOException {
+        if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0
+                && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+            writer.write(cell);
+            return;
+        }
+        writer.write('"');
+        writer.write(cell.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * バッファ済みの行を出力先へ書き出します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * 出力をフラッシュし、出力先をクローズします。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.gson.GsonFactory;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 行を{@code {"<フィールド名>":[...]}}形式のJSONとして逐次出力するライターです。
+ *
+ * <p>行は受け取った順にJSON配列の要素として書き込まれ、
+ * レスポンス全体を文字列として組み立てることはありません。</p>
+ */
+final class JsonRowStreamWriter implements RowStreamWriter {
+
+    /**
+     * JSONジェネレーター。
+     */
+    private final JsonGenerator generator;
+
+    /**
+     * コンストラクタ。配列の開始までを出力します。
+     *
+     * @param writer 出力先
+     * @param fieldName 行配列のフィールド名
+     * @throws IOException 書き込みに失敗した場合
+     */
+    /* default */ JsonRowStreamWriter(final Writer writer, final String fieldName) throws IOException {
+        this.generator = GsonFactory.getDefaultInstance().createJsonGenerator(writer);
+        generator.writeStartObject();
+        generator.writeFieldName(fieldName);
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void write(final GenericJson row) throws IOException {
+        generator.serialize(row);
+    }
+
+    /**
+     * バッファ済みの行を出力先へ書き出します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * 配列とオブジェクトを閉じ、出力先をクローズします。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+        } finally {
+            generator.close();
+        }
+    }
+}
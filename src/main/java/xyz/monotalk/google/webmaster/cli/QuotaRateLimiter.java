@@ -0,0 +1,89 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Search Consoleのクォータに合わせてAPIリクエストの送信レートを制限するクラスです。
+ *
+ * <p>プロジェクト全体で共有するバケットと、サイトごとのバケットの両方から許可を取得します。
+ * バケットはプロセス内の全スレッド・全クライアントで共有されるため、並行実行しても
+ * 合計のリクエスト数が上限を超えません。上限に0以下を指定したバケットは制限しません。</p>
+ */
+@Component
+public class QuotaRateLimiter {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuotaRateLimiter.class);
+
+    /** URLパス中でサイトURLの直前に現れるセグメント。 */
+    private static final String SITES_SEGMENT = "sites";
+
+    /** プロジェクト全体のレートリミッター（制限しない場合はnull）。 */
+    private final RateLimiter projectLimiter;
+
+    /** サイトごとの1秒あたりのリクエスト数上限。 */
+    private final double siteQps;
+
+    /** サイトURLごとのレートリミッター。 */
+    private final Map<String, RateLimiter> siteLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param projectQps プロジェクト全体の1秒あたりのリクエスト数上限（0以下の場合は制限なし）
+     * @param siteQps サイトごとの1秒あたりのリクエスト数上限（0以下の場合は制限なし）
+     */
+    public QuotaRateLimiter(
+            @Value("${application.rateLimit.projectQps:600}") final double projectQps,
+            @Value("${application.rateLimit.siteQps:20}") final double siteQps) {
+        this.projectLimiter = projectQps > 0 ? RateLimiter.create(projectQps) : null;
+        this.siteQps = siteQps;
+    }
+
+    /**
+     * リクエストの送信許可を取得します。許可が得られるまで呼び出し元スレッドを待機させます。
+     *
+     * @param url リクエストURL
+     * @return 待機した秒数
+     */
+    public double acquire(final GenericUrl url) {
+        double waited = 0;
+        if (projectLimiter != null) {
+            waited += projectLimiter.acquire();
+        }
+        final String siteKey = siteKeyOf(url);
+        if (siteKey != null && siteQps > 0) {
+            waited += siteLimiters.computeIfAbsent(siteKey, key -> RateLimiter.create(siteQps)).acquire();
+        }
+        if (waited > 0 && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Throttled {} for {} seconds", url, waited);
+        }
+        return waited;
+    }
+
+    /**
+     * リクエストURLから対象のサイトURLを取り出します。
+     *
+     * @param url リクエストURL（例：{@code .../webmasters/v3/sites/{siteUrl}/searchAnalytics/query}）
+     * @return デコード済みのサイトURL（サイトを対象としないリクエストの場合はnull）
+     */
+    /* default */ static String siteKeyOf(final GenericUrl url) {
+        final List<String> parts = url.getPathParts();
+        if (parts == null) {
+            return null;
+        }
+        final int index = parts.indexOf(SITES_SEGMENT);
+        if (index < 0 || index + 1 >= parts.size() || parts.get(index + 1).isEmpty()) {
+            return null;
+        }
+        return parts.get(index + 1);
+    }
+}
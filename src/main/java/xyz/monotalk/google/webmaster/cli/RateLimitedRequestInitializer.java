@@ -0,0 +1,45 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import java.io.IOException;
+
+/**
+ * リクエストの送信前にレート制限の許可を取得するリクエスト初期化処理です。
+ *
+ * <p>委譲先の初期化処理（認証など）を実行した後、送信直前に呼ばれるインターセプターを
+ * 差し替えます。リトライによる再送信も1リクエストとして数えます。</p>
+ */
+final class RateLimitedRequestInitializer implements HttpRequestInitializer {
+
+    /** 委譲先の初期化処理。 */
+    private final HttpRequestInitializer delegate;
+
+    /** レートリミッター。 */
+    private final QuotaRateLimiter rateLimiter;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 委譲先の初期化処理
+     * @param rateLimiter レートリミッター
+     */
+    /* default */ RateLimitedRequestInitializer(final HttpRequestInitializer delegate,
+            final QuotaRateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void initialize(final HttpRequest request) throws IOException {
+        delegate.initialize(request);
+        final HttpExecuteInterceptor original = request.getInterceptor();
+        request.setInterceptor(intercepted -> {
+            rateLimiter.acquire(intercepted.getUrl());
+            if (original != null) {
+                original.intercept(intercepted);
+            }
+        });
+    }
+}
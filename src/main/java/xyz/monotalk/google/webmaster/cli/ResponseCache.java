@@ -0,0 +1,476 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 読み取り系APIのレスポンスを有効期限付きで保持するキャッシュです。
+ *
+ * <p>キーはキャッシュの名前空間（キーファイル）、HTTPメソッドとリクエストURLです。
+ * 有効期限はエンドポイントごとに設定し（サイト一覧・サイト取得、サイトマップ一覧・取得、ディスカバリー）、
+ * それ以外のエンドポイントはキャッシュしません。メモリ上の件数が上限を超えると最も長く参照されていない
+ * エントリから破棄します。保存先ディレクトリを指定した場合はディスクにも保存し、プロセスをまたいで再利用します。
+ * 上限件数に0以下を指定した場合はキャッシュしません。</p>
+ */
+@Component
+public class ResponseCache {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+    /** ディスク上のキャッシュファイルの拡張子。 */
+    private static final String FILE_SUFFIX = ".cache";
+
+    /** URLパス中でサイトURLの直前に現れるセグメント。 */
+    private static final String SITES_SEGMENT = "sites";
+
+    /** URLパス中でサイトマップを表すセグメント。 */
+    private static final String SITEMAPS_SEGMENT = "sitemaps";
+
+    /** ディスカバリーAPIのパスの先頭セグメント。 */
+    private static final String DISCOVERY_SEGMENT = "discovery";
+
+    /** キーだけを読み込む際のバッファサイズ。 */
+    private static final int KEY_BUFFER_SIZE = 512;
+
+    /** ミリ秒に換算するための係数。 */
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    /** メモリ上に保持する最大件数。 */
+    private final int maxEntries;
+
+    /** ディスクの保存先（保存しない場合はnull）。 */
+    private final Path directory;
+
+    /** サイト一覧・サイト取得の有効期限（ミリ秒）。 */
+    private final long sitesTtlMillis;
+
+    /** サイトマップ一覧・取得の有効期限（ミリ秒）。 */
+    private final long sitemapsTtlMillis;
+
+    /** ディスカバリーの有効期限（ミリ秒）。 */
+    private final long discoveryTtlMillis;
+
+    /** 現在時刻（エポックミリ秒）を返す時計。 */
+    private final LongSupplier clock;
+
+    /** 参照順に並んだメモリ上のエントリ。 */
+    private final Map<String, Entry> entries;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param maxEntries メモリ上に保持する最大件数（0以下の場合はキャッシュしない）
+     * @param directory ディスクの保存先（空の場合はディスクに保存しない）
+     * @param sitesTtlSeconds サイト一覧・サイト取得の有効期限（秒）
+     * @param sitemapsTtlSeconds サイトマップ一覧・取得の有効期限（秒）
+     * @param discoveryTtlSeconds ディスカバリーの有効期限（秒）
+     */
+    @Autowired
+    public ResponseCache(
+            @Value("${application.cache.maxEntries:1000}") final int maxEntries,
+            @Value("${application.cache.dir:}") final String directory,
+            @Value("${application.cache.ttl.sitesSeconds:300}") final long sitesTtlSeconds,
+            @Value("${application.cache.ttl.sitemapsSeconds:300}") final long sitemapsTtlSeconds,
+            @Value("${application.cache.ttl.discoverySeconds:86400}") final long discoveryTtlSeconds) {
+        this(maxEntries, directory == null || directory.isBlank() ? null : Paths.get(directory),
+                sitesTtlSeconds, sitemapsTtlSeconds, discoveryTtlSeconds, System::currentTimeMillis);
+    }
+
+    /**
+     * 時計を指定するコンストラクタ。
+     *
+     * @param maxEntries メモリ上に保持する最大件数（0以下の場合はキャッシュしない）
+     * @param directory ディスクの保存先（nullの場合はディスクに保存しない）
+     * @param sitesTtlSeconds サイト一覧・サイト取得の有効期限（秒）
+     * @param sitemapsTtlSeconds サイトマップ一覧・取得の有効期限（秒）
+     * @param discoveryTtlSeconds ディスカバリーの有効期限（秒）
+     * @param clock 現在時刻（エポックミリ秒）を返す時計
+     */
+    /* default */ ResponseCache(final int maxEntries, final Path directory, final long sitesTtlSeconds,
+            final long sitemapsTtlSeconds, final long discoveryTtlSeconds, final LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.sitesTtlMillis = sitesTtlSeconds * MILLIS_PER_SECOND;
+        this.sitemapsTtlMillis = sitemapsTtlSeconds * MILLIS_PER_SECOND;
+        this.discoveryTtlMillis = discoveryTtlSeconds * MILLIS_PER_SECOND;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, ResponseCache.Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * キャッシュが有効かどうかを返します。
+     *
+     * @return 有効な場合はtrue
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * リクエストのレスポンスをキャッシュする有効期限を返します。
+     *
+     * @param method HTTPメソッド
+     * @param uri リクエストURL
+     * @return 有効期限（ミリ秒、キャッシュしない場合は0）
+     */
+    /* default */ long ttlMillisOf(final String method, final String uri) {
+        if (!isEnabled() || !"GET".equals(method)) {
+            return 0;
+        }
+        final List<String> segments = segmentsOf(uri);
+        if (!segments.isEmpty() && DISCOVERY_SEGMENT.equals(segments.get(0))) {
+            return discoveryTtlMillis;
+        }
+        final int sites = segments.indexOf(SITES_SEGMENT);
+        if (sites < 0) {
+            return 0;
+        }
+        final int remaining = segments.size() - sites - 1;
+        if (remaining <= 1) {
+            return sitesTtlMillis;
+        }
+        if (SITEMAPS_SEGMENT.equals(segments.get(sites + 2)) && remaining <= 3) {
+            return sitemapsTtlMillis;
+        }
+        return 0;
+    }
+
+    /**
+     * 有効期限内のレスポンスを返します。メモリにない場合はディスクから読み込みます。
+     *
+     * @param namespace 名前空間
+     * @param method HTTPメソッド
+     * @param uri リクエストURL
+     * @return キャッシュされたレスポンス（ない場合はnull）
+     */
+    public Entry get(final String namespace, final String method, final String uri) {
+        if (ttlMillisOf(method, uri) <= 0) {
+            return null;
+        }
+        final String key = keyOf(namespace, method, uri);
+        final long now = clock.getAsLong();
+        synchronized (this) {
+            final Entry cached = entries.get(key);
+            if (cached != null) {
+                if (cached.expiresAt() > now) {
+                    return cached;
+                }
+                entries.remove(key);
+            }
+        }
+        final Entry stored = readFromDisk(key, now);
+        if (stored != null) {
+            synchronized (this) {
+                entries.put(key, stored);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * 有効期限内のレスポンスがあるかどうかを返します。
+     *
+     * @param namespace 名前空間
+     * @param method HTTPメソッド
+     * @param uri リクエストURL
+     * @return ある場合はtrue
+     */
+    public boolean contains(final String namespace, final String method, final String uri) {
+        return get(namespace, method, uri) != null;
+    }
+
+    /**
+     * レスポンスを保存します。キャッシュ対象外のリクエストの場合は何もしません。
+     *
+     * @param namespace 名前空間
+     * @param method HTTPメソッド
+     * @param uri リクエストURL
+     * @param statusCode ステータスコード
+     * @param reasonPhrase ステータスの説明
+     * @param headers レスポンスヘッダー（名前と値の組）
+     * @param body レスポンス本文
+     * @return 保存したエントリ（キャッシュ対象外の場合はnull）
+     */
+    public Entry put(final String namespace, final String method, final String uri, final int statusCode,
+            final String reasonPhrase, final List<String[]> headers, final byte[] body) {
+        final long ttl = ttlMillisOf(method, uri);
+        if (ttl <= 0) {
+            return null;
+        }
+        final String key = keyOf(namespace, method, uri);
+        final Entry entry = new Entry(key, clock.getAsLong() + ttl, statusCode,
+                reasonPhrase == null ? "" : reasonPhrase, List.copyOf(headers), body.clone());
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        writeToDisk(entry);
+        return entry;
+    }
+
+    /**
+     * 更新されたリソースに関係するエントリを破棄します。
+     *
+     * <p>同じ名前空間・同じホストで、更新対象のリソース自身とその子孫、および更新対象を直接含む一覧
+     * （サイトマップの送信に対するサイトマップ一覧、サイトの追加に対するサイト一覧など）を破棄します。
+     * ディスク上のエントリは先頭に書き込んだキーだけを読んで判定するため、本文は読み込みません。</p>
+     *
+     * @param namespace 名前空間
+     * @param uri 更新リクエストのURL
+     */
+    public void invalidate(final String namespace, final String uri) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            entries.keySet().removeIf(key -> isAffected(key, namespace, uri));
+        }
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (final Path file : files) {
+                final String key = readKey(file);
+                if (key == null || isAffected(key, namespace, uri)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Failed to invalidate cache directory {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * エントリのキーが更新の影響を受けるかどうかを判定します。
+     *
+     * @param key エントリのキー
+     * @param namespace 更新リクエストの名前空間
+     * @param uri 更新リクエストのURL
+     * @return 影響を受ける場合はtrue
+     */
+    private static boolean isAffected(final String key, final String namespace, final String uri) {
+        final String prefix = namespace + '\n';
+        if (!key.startsWith(prefix)) {
+            return false;
+        }
+        final String cachedUri = key.substring(key.indexOf(' ', prefix.length()) + 1);
+        final URI cached = URI.create(cachedUri);
+        final URI updated = URI.create(uri);
+        if (!String.valueOf(cached.getRawAuthority()).equals(String.valueOf(updated.getRawAuthority()))) {
+            return false;
+        }
+        final List<String> cachedSegments = segmentsOf(cachedUri);
+        final List<String> updatedSegments = segmentsOf(uri);
+        if (cachedSegments.size() >= updatedSegments.size()
+                && cachedSegments.subList(0, updatedSegments.size()).equals(updatedSegments)) {
+            return true;
+        }
+        return !updatedSegments.isEmpty()
+                && cachedSegments.equals(updatedSegments.subList(0, updatedSegments.size() - 1));
+    }
+
+    /**
+     * URLのパスをセグメントに分割します。
+     *
+     * @param uri URL
+     * @return エンコードされたままのパスセグメント
+     */
+    private static List<String> segmentsOf(final String uri) {
+        final String path = URI.create(uri).getRawPath();
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return List.of();
+        }
+        return Arrays.asList(path.substring(1).split("/", -1));
+    }
+
+    /**
+     * キャッシュのキーを生成します。
+     *
+     * @param namespace 名前空間
+     * @param method HTTPメソッド
+     * @param uri リクエストURL
+     * @return キー
+     */
+    private static String keyOf(final String namespace, final String method, final String uri) {
+        return namespace + '\n' + method + ' ' + uri;
+    }
+
+    /**
+     * キーに対応するディスク上のファイルを返します。
+     *
+     * @param key キー
+     * @return ファイルのパス
+     */
+    private Path fileOf(final String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * ディスクから有効期限内のエントリを読み込みます。期限切れのファイルは削除します。
+     *
+     * @param key キー
+     * @param now 現在時刻（エポックミリ秒）
+     * @return エントリ（ない場合はnull）
+     */
+    private Entry readFromDisk(final String key, final long now) {
+        if (directory == null) {
+            return null;
+        }
+        final Path file = fileOf(key);
+        final Entry stored = readFile(file);
+        if (stored == null || !key.equals(stored.key())) {
+            return null;
+        }
+        if (stored.expiresAt() <= now) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Failed to delete expired cache file {}", file, e);
+                }
+            }
+            return null;
+        }
+        return stored;
+    }
+
+    /**
+     * キャッシュファイルの先頭に書き込んだキーだけを読み込みます。
+     *
+     * @param file ファイルのパス
+     * @return キー（ファイルがない、または読み込めない場合はnull）
+     */
+    private static String readKey(final Path file) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), KEY_BUFFER_SIZE);
+                DataInputStream data = new DataInputStream(in)) {
+            return data.readUTF();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Ignoring unreadable cache file {}", file, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * キャッシュファイルを読み込みます。
+     *
+     * @param file ファイルのパス
+     * @return エントリ（ファイルがない、または読み込めない場合はnull）
+     */
+    private static Entry readFile(final Path file) {
+        try (InputStream in = Files.newInputStream(file);
+                DataInputStream data = new DataInputStream(in)) {
+            final String key = data.readUTF();
+            final long expiresAt = data.readLong();
+            final int statusCode = data.readInt();
+            final String reasonPhrase = data.readUTF();
+            final int headerCount = data.readInt();
+            final List<String[]> headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(new String[] {data.readUTF(), data.readUTF()});
+            }
+            final byte[] body = new byte[data.readInt()];
+            data.readFully(body);
+            return new Entry(key, expiresAt, statusCode, reasonPhrase, headers, body);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Ignoring unreadable cache file {}", file, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * エントリをディスクへ書き込みます。書き込み中のファイルを読まれないよう、一時ファイルから置き換えます。
+     *
+     * @param entry エントリ
+     */
+    private void writeToDisk(final Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            final Path file = fileOf(entry.key());
+            final Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                    DataOutputStream data = new DataOutputStream(out)) {
+                data.writeUTF(entry.key());
+                data.writeLong(entry.expiresAt());
+                data.writeInt(entry.statusCode());
+                data.writeUTF(entry.reasonPhrase());
+                data.writeInt(entry.headers().size());
+                for (final String[] header : entry.headers()) {
+                    data.writeUTF(header[0]);
+                    data.writeUTF(header[1]);
+                }
+                data.writeInt(entry.body().length);
+                data.write(entry.body());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Failed to write cache file in {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * キャッシュされたレスポンスです。
+     *
+     * @param key キー
+     * @param expiresAt 有効期限（エポックミリ秒）
+     * @param statusCode ステータスコード
+     * @param reasonPhrase ステータスの説明
+     * @param headers レスポンスヘッダー（名前と値の組）
+     * @param body レスポンス本文
+     */
+    public record Entry(String key, long expiresAt, int statusCode, String reasonPhrase, List<String[]> headers,
+            byte[] body) {
+    }
+}
@@ -1,18 +1,54 @@
 package xyz.monotalk.google.webmaster.cli;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.api.client.json.GenericJson;
-import java.io.File;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import com.google.api.services.webmasters.model.SitemapsListResponse;
+import com.google.api.services.webmasters.model.SitesListResponse;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import org.apache.commons.io.FileUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * レスポンス出力処理を提供するユーティリティクラスです。
  */
 public final class ResponseWriter {
+
+    /**
+     * {@link GenericJson}以外のレスポンスの変換で共有するObjectMapper。
+     *
+     * <p>設定は既定のまま（ゲッターによる出力）とし、呼び出しごとの生成を避けるためだけに共有します。</p>
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 出力ストリームへ直接書き込むためのObjectWriter。書き込み後も出力先をクローズしません。
+     */
+    private static final ObjectWriter STREAM_WRITER =
+            OBJECT_MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * 空のレスポンスを表すJSON。
+     */
+    private static final String EMPTY_JSON = "{}";
+
     /**
      * デフォルトコンストラクタ。
      * テスト用にアクセス修飾子を変更。
@@ -31,15 +67,294 @@ public final class ResponseWriter {
      * @throws CmdLineArgmentException フォーマットまたはパスが無効な場合。
      */
     public static void writeJson(final Object response, final Format format, final String path) {
+        writeJson(response, format, path, null);
+    }
+
+    /**
+     * レスポンスを圧縮して出力します。
+     *
+     * @param response 出力するレスポンスオブジェクト。
+     * @param format 出力フォーマット。
+     * @param path 出力先のファイルパス。
+     * @param compression 圧縮形式（nullの場合は圧縮しません）。
+     * @throws CommandLineInputOutputException 入出力エラーが発生した場合。
+     * @throws CmdLineArgmentException フォーマットまたはパスが無効な場合。
+     */
+    public static void writeJson(final Object response, final Format format, final String path,
+            final Compression compression) {
         // フォーマットの検証
         validateFormat(format);
+        validateCompression(format, path, compression);
         
         // JSONフォーマットでファイルパスのバリデーション
         if (format == Format.JSON) {
             validateJsonPath(path);
         }
-        final String jsonString = getJsonString(response);
-        routeOutput(jsonString, format, path);
+        if (format == Format.CSV) {
+            writeCsv(response, path, compression);
+            return;
+        }
+        try (OutputStream out = openJsonOutput(format, path, compression)) {
+            streamJson(response, out);
+            if (format == Format.CONSOLE) {
+                out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to write JSON to file: " + path, e);
+        }
+    }
+
+    /**
+     * レスポンスをJSONとして出力ストリームへ直接書き込みます。
+     *
+     * <p>JSON文字列を組み立てずに書き込むため、レスポンスの大きさに比例したメモリを追加で消費しません。
+     * {@link GenericJson}はGoogle APIクライアントの定義（{@code @Key}や日時型など）に従って、
+     * それ以外のオブジェクトは共有の{@link ObjectMapper}（ゲッターによる出力）で書き込みます。出力先はクローズしません。</p>
+     *
+     * @param response 出力するレスポンスオブジェクト
+     * @param out 出力先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static void streamJson(final Object response, final OutputStream out) throws IOException {
+        if (response == null || response instanceof GenericJson empty && empty.isEmpty()) {
+            out.write(EMPTY_JSON.getBytes(StandardCharsets.UTF_8));
+        } else if (response instanceof GenericJson json) {
+            final JsonFactory jsonFactory = json.getFactory() != null
+                    ? json.getFactory() : GsonFactory.getDefaultInstance();
+            final com.google.api.client.json.JsonGenerator generator =
+                    jsonFactory.createJsonGenerator(out, StandardCharsets.UTF_8);
+            generator.serialize(json);
+            generator.flush();
+        } else {
+            STREAM_WRITER.writeValue(out, response);
+        }
+        out.flush();
+    }
+
+    /**
+     * JSON出力先のストリームを開きます。
+     *
+     * @param format 出力フォーマット
+     * @param path 出力先のファイルパス
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @return バッファ付きの出力ストリーム
+     * @throws IOException ファイルを開けなかった場合
+     * @throws CmdLineArgmentException サポートされないフォーマットの場合
+     */
+    private static OutputStream openJsonOutput(final Format format, final String path,
+            final Compression compression) throws IOException {
+        if (format == Format.CONSOLE) {
+            return new BufferedOutputStream(CloseShieldOutputStream.wrap(System.out));
+        } else if (format == Format.JSON) {
+            return new BufferedOutputStream(openFileOutput(path, compression));
+        }
+        throw new CmdLineArgmentException("Unsupported format: " + format);
+    }
+
+    /**
+     * 行単位の逐次出力を開始します。
+     *
+     * <p>返却されたライターに行を書き込むと、その都度出力先へ書き出されます。
+     * 全行の書き込み後に必ず{@link RowStreamWriter#close()}を呼び出してください。</p>
+     *
+     * @param format 出力フォーマット
+     * @param path 出力先のファイルパス
+     * @param fieldName 行配列のフィールド名
+     * @return 行単位のライター
+     * @throws CommandLineInputOutputException 出力先を開けなかった場合
+     * @throws CmdLineArgmentException フォーマットまたはパスが無効な場合
+     */
+    public static RowStreamWriter openRowStream(final Format format, final String path, final String fieldName) {
+        return openRowStream(format, path, fieldName, List.of());
+    }
+
+    /**
+     * キー配列の列名を指定して行単位の逐次出力を開始します。
+     *
+     * <p>CSV形式では各行の{@code keys}配列を指定した列名の列に展開します。
+     * CSV形式でパスが未指定の場合は標準出力へ出力します。</p>
+     *
+     * @param format 出力フォーマット
+     * @param path 出力先のファイルパス
+     * @param fieldName 行配列のフィールド名（JSON形式のみ使用）
+     * @param keyColumns キー配列を展開する列名（CSV形式のみ使用）
+     * @return 行単位のライター
+     * @throws CommandLineInputOutputException 出力先を開けなかった場合
+     * @throws CmdLineArgmentException フォーマットまたはパスが無効な場合
+     */
+    public static RowStreamWriter openRowStream(final Format format, final String path, final String fieldName,
+            final List<String> keyColumns) {
+        return openRowStream(format, path, fieldName, keyColumns, null);
+    }
+
+    /**
+     * 書き込みながら圧縮する行単位の逐次出力を開始します。
+     *
+     * <p>圧縮はファイルへの出力でのみ指定できます。</p>
+     *
+     * @param format 出力フォーマット
+     * @param path 出力先のファイルパス
+     * @param fieldName 行配列のフィールド名（JSON形式のみ使用）
+     * @param keyColumns キー配列を展開する列名（CSV形式のみ使用）
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @return 行単位のライター
+     * @throws CommandLineInputOutputException 出力先を開けなかった場合
+     * @throws CmdLineArgmentException フォーマット、パスまたは圧縮形式が無効な場合
+     */
+    public static RowStreamWriter openRowStream(final Format format, final String path, final String fieldName,
+            final List<String> keyColumns, final Compression compression) {
+        validateFormat(format);
+        validateCompression(format, path, compression);
+        try {
+            if (format == Format.CSV) {
+                return new CsvRowStreamWriter(openCsvWriter(path, compression), keyColumns);
+            }
+            if (format == Format.CONSOLE) {
+                return new JsonRowStreamWriter(openConsoleWriter(), fieldName);
+            } else if (format == Format.JSON) {
+                validateJsonPath(path);
+                return new JsonRowStreamWriter(openFileWriter(path, compression), fieldName);
+            }
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to open output: " + path, e);
+        }
+        throw new CmdLineArgmentException("Unsupported format: " + format);
+    }
+
+    /**
+     * 既存のCSVファイルへ行単位で追記します。
+     *
+     * <p>ファイルが存在しないか空の場合はヘッダー行から出力し、
+     * 既に内容がある場合はヘッダー行を出力せずに末尾へ追記します。</p>
+     *
+     * @param path 出力先のファイルパス
+     * @param keyColumns キー配列を展開する列名
+     * @return 行単位のライター
+     * @throws CommandLineInputOutputException 出力先を開けなかった場合
+     * @throws CmdLineArgmentException パスが未指定の場合
+     */
+    public static RowStreamWriter appendCsvRowStream(final String path, final List<String> keyColumns) {
+        if (StringUtils.isBlank(path)) {
+            throw new CmdLineArgmentException("File path must be specified when appending CSV");
+        }
+        try {
+            final Path file = Paths.get(path);
+            final boolean empty = Files.notExists(file) || Files.size(file) == 0;
+            final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return new CsvRowStreamWriter(writer, keyColumns, empty);
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to open output: " + path, e);
+        }
+    }
+
+    /**
+     * レスポンスをCSV形式で出力します。
+     *
+     * <p>行形式のレスポンス（検索アナリティクスの行、サイトマップ一覧、サイト一覧）は
+     * 1要素を1行として出力し、それ以外のレスポンスは1行として出力します。</p>
+     *
+     * @param response 出力するレスポンスオブジェクト
+     * @param path 出力先のファイルパス（未指定の場合は標準出力）
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @throws CommandLineInputOutputException 入出力エラーが発生した場合
+     * @throws CmdLineArgmentException CSVに変換できないレスポンスの場合
+     */
+    private static void writeCsv(final Object response, final String path, final Compression compression) {
+        if (response != null && !(response instanceof GenericJson)) {
+            throw new CmdLineArgmentException("CSV format is not supported for: " + response.getClass().getName());
+        }
+        try (RowStreamWriter writer = new CsvRowStreamWriter(openCsvWriter(path, compression), List.of())) {
+            for (final GenericJson row : csvRowsOf((GenericJson) response)) {
+                writer.write(row);
+            }
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to write CSV: " + path, e);
+        }
+    }
+
+    /**
+     * CSVとして出力する行を取り出します。
+     *
+     * @param response レスポンス
+     * @return 出力する行
+     */
+    private static List<? extends GenericJson> csvRowsOf(final GenericJson response) {
+        if (response == null) {
+            return List.of();
+        }
+        if (response instanceof SearchAnalyticsQueryResponse analytics) {
+            return Objects.requireNonNullElse(analytics.getRows(), List.of());
+        }
+        if (response instanceof SitemapsListResponse sitemaps) {
+            return Objects.requireNonNullElse(sitemaps.getSitemap(), List.of());
+        }
+        if (response instanceof SitesListResponse sites) {
+            return Objects.requireNonNullElse(sites.getSiteEntry(), List.of());
+        }
+        if (response instanceof BatchCallResponse batch) {
+            return Objects.requireNonNullElse(batch.getResults(), List.of());
+        }
+        return List.of(response);
+    }
+
+    /**
+     * CSVの出力先ライターを生成します。パスが未指定の場合は標準出力へ出力します。
+     *
+     * @param path 出力先のファイルパス
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @return 出力先ライター
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private static Writer openCsvWriter(final String path, final Compression compression) throws IOException {
+        return StringUtils.isBlank(path) ? openConsoleWriter() : openFileWriter(path, compression);
+    }
+
+    /**
+     * 標準出力へのライターを生成します。クローズしても標準出力は閉じられません。
+     *
+     * @return 標準出力へのライター
+     */
+    private static Writer openConsoleWriter() {
+        return new BufferedWriter(new OutputStreamWriter(
+                CloseShieldOutputStream.wrap(System.out), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * ファイルへのバッファ付きライターを生成します。
+     *
+     * @param path 出力先のファイルパス
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @return ファイルへのライター
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private static Writer openFileWriter(final String path, final Compression compression) throws IOException {
+        if (compression == null) {
+            return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+        }
+        return new BufferedWriter(new OutputStreamWriter(openFileOutput(path, compression), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * ファイルへの出力ストリームを開きます。圧縮形式が指定された場合は書き込みながら圧縮します。
+     *
+     * @param path 出力先のファイルパス
+     * @param compression 圧縮形式（nullの場合は圧縮しません）
+     * @return 出力ストリーム
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private static OutputStream openFileOutput(final String path, final Compression compression)
+            throws IOException {
+        final OutputStream out = Files.newOutputStream(Paths.get(path));
+        if (compression == null) {
+            return out;
+        }
+        try {
+            return compression.wrap(out);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
     }
 
     /**
@@ -48,17 +363,17 @@ public final class ResponseWriter {
      * @param response レスポンスオブジェクト
      * @return JSON文字列
      * @throws CommandLineInputOutputException 変換中にエラーが発生した場合
+     * @see #streamJson(Object, OutputStream)
      */
     public static String getJsonString(final Object response) {
         if (response == null) {
-            return "{}";
+            return EMPTY_JSON;
         }
         if (response instanceof GenericJson) {
             return convertGenericJsonToString((GenericJson) response);
         }
         try {
-            final ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(response);
+            return OBJECT_MAPPER.writeValueAsString(response);
         } catch (JsonProcessingException e) {
             throw new CommandLineInputOutputException("JSONの変換に失敗しました: " + e.getMessage(), e);
         }
@@ -73,7 +388,7 @@ public final class ResponseWriter {
      */
     private static String convertGenericJsonToString(final GenericJson json) {
         if (json == null || json.isEmpty()) {
-            return "{}";
+            return EMPTY_JSON;
         }
         // toString()メソッドを呼び出し、テストケースでの例外をスローさせるために利用
         return json.toString();
@@ -92,26 +407,17 @@ public final class ResponseWriter {
     }
 
     /**
-     * 出力処理を振り分けます。
+     * 圧縮形式の指定を検証します。
      *
-     * @param jsonString JSON文字列
      * @param format 出力フォーマット
      * @param path 出力先のファイルパス
-     * @throws CommandLineInputOutputException 入出力エラーが発生した場合
+     * @param compression 圧縮形式
+     * @throws CmdLineArgmentException 標準出力への出力で圧縮形式が指定された場合
      */
-    @SuppressWarnings("PMD.SystemPrintln")
-    private static void routeOutput(final String jsonString, final Format format, final String path) {
-        if (format == Format.CONSOLE) {
-            System.out.println(jsonString);
-        } else if (format == Format.JSON) {
-            validateJsonPath(path);
-            try {
-                FileUtils.writeStringToFile(new File(path), jsonString, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                throw new CommandLineInputOutputException("Failed to write JSON to file: " + path, e);
-            }
-        } else {
-            throw new CmdLineArgmentException("Unsupported format: " + format);
+    private static void validateCompression(final Format format, final String path,
+            final Compression compression) {
+        if (compression != null && (format == Format.CONSOLE || StringUtils.isBlank(path))) {
+            throw new CmdLineArgmentException("Compression requires a file output (-filePath)");
         }
     }
 
@@ -0,0 +1,106 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 一時的なAPIエラーに対するリトライ方針です。
+ *
+ * <p>待機時間は指数バックオフの上限までの一様乱数（フルジッター）とし、
+ * リトライ回数と最初の送信からの合計経過時間の両方に上限を設けます。</p>
+ */
+@Component
+public class RetryPolicy {
+
+    /** リトライ対象のHTTPステータスコード。 */
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+
+    /** 最大リトライ回数。 */
+    private final int maxRetries;
+
+    /** 初回リトライの待機時間上限（ミリ秒）。 */
+    private final long initialIntervalMillis;
+
+    /** 1回あたりの待機時間上限（ミリ秒）。 */
+    private final long maxIntervalMillis;
+
+    /** 最初の送信からリトライを打ち切るまでの合計時間（ミリ秒）。 */
+    private final long maxElapsedMillis;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param maxRetries 最大リトライ回数（0の場合はリトライしない）
+     * @param initialIntervalMillis 初回リトライの待機時間上限（ミリ秒）
+     * @param maxIntervalMillis 1回あたりの待機時間上限（ミリ秒）
+     * @param maxElapsedMillis 最初の送信からリトライを打ち切るまでの合計時間（ミリ秒）
+     * @throws IllegalArgumentException 値が負の場合
+     */
+    public RetryPolicy(
+            @Value("${application.retry.maxRetries:5}") final int maxRetries,
+            @Value("${application.retry.initialIntervalMillis:500}") final long initialIntervalMillis,
+            @Value("${application.retry.maxIntervalMillis:32000}") final long maxIntervalMillis,
+            @Value("${application.retry.maxElapsedMillis:120000}") final long maxElapsedMillis) {
+        if (maxRetries < 0 || initialIntervalMillis < 0 || maxIntervalMillis < 0 || maxElapsedMillis < 0) {
+            throw new IllegalArgumentException("Retry settings must not be negative");
+        }
+        this.maxRetries = maxRetries;
+        this.initialIntervalMillis = initialIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.maxElapsedMillis = maxElapsedMillis;
+    }
+
+    /**
+     * HTTPステータスコードがリトライ対象かどうかを判定します。
+     *
+     * @param statusCode HTTPステータスコード
+     * @return リトライ対象の場合はtrue
+     */
+    public boolean isRetryable(final int statusCode) {
+        return RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    /**
+     * 指定回目のリトライの待機時間上限を返します。
+     *
+     * @param retry これまでのリトライ回数（0始まり）
+     * @return 待機時間上限（ミリ秒）
+     */
+    public long backOffCeilingMillis(final int retry) {
+        // 桁あふれする回数以降は常に上限とする
+        if (retry >= Long.numberOfLeadingZeros(initialIntervalMillis) - 1) {
+            return maxIntervalMillis;
+        }
+        return Math.min(initialIntervalMillis << retry, maxIntervalMillis);
+    }
+
+    /**
+     * 指定回目のリトライの待機時間をフルジッターで決定します。
+     *
+     * @param retry これまでのリトライ回数（0始まり）
+     * @return 待機時間（ミリ秒、0以上上限以下）
+     */
+    public long jitteredDelayMillis(final int retry) {
+        return ThreadLocalRandom.current().nextLong(backOffCeilingMillis(retry) + 1);
+    }
+
+    /**
+     * 最大リトライ回数を返します。
+     *
+     * @return 最大リトライ回数
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * リトライを打ち切るまでの合計時間を返します。
+     *
+     * @return 合計時間（ミリ秒）
+     */
+    public long getMaxElapsedMillis() {
+        return maxElapsedMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import java.io.IOException;
+
+/**
+ * リクエストごとに{@link RetryingResponseHandler}を設定するリクエスト初期化処理です。
+ *
+ * <p>委譲先の初期化処理（認証など）が設定したエラーハンドラーは、
+ * リトライハンドラーの委譲先として引き継ぎます。</p>
+ */
+final class RetryingRequestInitializer implements HttpRequestInitializer {
+
+    /** 委譲先の初期化処理。 */
+    private final HttpRequestInitializer delegate;
+
+    /** リトライ方針。 */
+    private final RetryPolicy policy;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param delegate 委譲先の初期化処理
+     * @param policy リトライ方針
+     */
+    /* default */ RetryingRequestInitializer(final HttpRequestInitializer delegate, final RetryPolicy policy) {
+        this.delegate = delegate;
+        this.policy = policy;
+    }
+
+    @Override
+    public void initialize(final HttpRequest request) throws IOException {
+        delegate.initialize(request);
+        final RetryingResponseHandler handler =
+                new RetryingResponseHandler(policy, request.getUnsuccessfulResponseHandler());
+        request.setUnsuccessfulResponseHandler(handler);
+        request.setIOExceptionHandler(handler);
+        // 認証ハンドラーによる再送信の分も含めて、リトライ回数の上限はハンドラー側で判定する
+        request.setNumberOfRetries(policy.getMaxRetries() + 1);
+    }
+}
@@ -0,0 +1,161 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.Sleeper;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 一時的なAPIエラーと入出力エラーをバックオフしながらリトライするハンドラーです。
+ *
+ * <p>1リクエストにつき1インスタンスを使用し、リトライ回数と経過時間を保持します。
+ * 認証エラー（401）は先に委譲先の認証ハンドラーへ渡し、トークン更新による再送信を優先します。
+ * {@code Retry-After}ヘッダーがある場合はその時間だけ待機します。</p>
+ */
+public final class RetryingResponseHandler implements HttpUnsuccessfulResponseHandler, HttpIOExceptionHandler {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingResponseHandler.class);
+
+    /** Retry-Afterヘッダー名。 */
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /** リトライ方針。 */
+    private final RetryPolicy policy;
+
+    /** 先に処理させる委譲先のハンドラー（存在しない場合はnull）。 */
+    private final HttpUnsuccessfulResponseHandler delegate;
+
+    /** 待機処理。 */
+    private final Sleeper sleeper;
+
+    /** 最初の送信時刻（{@link System#nanoTime()}）。 */
+    private final long startedNanos;
+
+    /** バックオフしてリトライした回数。 */
+    private int retries;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param policy リトライ方針
+     * @param delegate 先に処理させる委譲先のハンドラー（存在しない場合はnull）
+     */
+    public RetryingResponseHandler(final RetryPolicy policy, final HttpUnsuccessfulResponseHandler delegate) {
+        this(policy, delegate, Sleeper.DEFAULT);
+    }
+
+    /**
+     * 待機処理を指定するコンストラクタ。
+     *
+     * @param policy リトライ方針
+     * @param delegate 先に処理させる委譲先のハンドラー（存在しない場合はnull）
+     * @param sleeper 待機処理
+     */
+    /* default */ RetryingResponseHandler(final RetryPolicy policy, final HttpUnsuccessfulResponseHandler delegate,
+            final Sleeper sleeper) {
+        this.policy = policy;
+        this.delegate = delegate;
+        this.sleeper = sleeper;
+        this.startedNanos = System.nanoTime();
+    }
+
+    @Override
+    public boolean handleResponse(final HttpRequest request, final HttpResponse response, final boolean supportsRetry)
+            throws IOException {
+        if (!supportsRetry) {
+            return false;
+        }
+        if (delegate != null && delegate.handleResponse(request, response, true)) {
+            return true;
+        }
+        if (!policy.isRetryable(response.getStatusCode())) {
+            return false;
+        }
+        final long retryAfter = retryAfterMillis(response.getHeaders().getFirstHeaderStringValue(RETRY_AFTER));
+        return backOff(retryAfter, "HTTP " + response.getStatusCode());
+    }
+
+    @Override
+    public boolean handleIOException(final HttpRequest request, final boolean supportsRetry) throws IOException {
+        return supportsRetry && backOff(-1, "I/O error");
+    }
+
+    /**
+     * 待機してからリトライするかどうかを決定します。
+     *
+     * @param retryAfterMillis サーバーが指定した待機時間（指定がない場合は負の値）
+     * @param reason ログ出力用のリトライ理由
+     * @return リトライする場合はtrue
+     */
+    private boolean backOff(final long retryAfterMillis, final String reason) {
+        if (retries >= policy.getMaxRetries()) {
+            return false;
+        }
+        final long delay = retryAfterMillis >= 0 ? retryAfterMillis : policy.jitteredDelayMillis(retries);
+        final long elapsed = Duration.ofNanos(System.nanoTime() - startedNanos).toMillis();
+        if (elapsed + delay > policy.getMaxElapsedMillis()) {
+            return false;
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("{}; retrying in {} ms (retry {}/{})", reason, delay, retries + 1, policy.getMaxRetries());
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        retries++;
+        return true;
+    }
+
+    /**
+     * Retry-Afterヘッダーの値を待機時間に変換します。
+     *
+     * @param value ヘッダーの値（秒数またはHTTP日付）
+     * @return 待機時間（ミリ秒、解釈できない場合は負の値）
+     */
+    /* default */ static long retryAfterMillis(final String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        final String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed)) * 1000L;
+        } catch (NumberFormatException e) {
+            try {
+                final ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 先に処理させる委譲先のハンドラーを返します。
+     *
+     * @return 委譲先のハンドラー（存在しない場合はnull）
+     */
+    /* default */ HttpUnsuccessfulResponseHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * バックオフしてリトライした回数を返します。
+     *
+     * @return リトライ回数
+     */
+    public int getRetries() {
+        return retries;
+    }
+}
@@ -0,0 +1,24 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.json.GenericJson;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * 行単位でレスポンスを出力するライターのインターフェースです。
+ *
+ * <p>レスポンス全体をメモリ上に保持せず、受け取った行をそのまま出力先へ書き込みます。
+ * {@link #flush()}でそれまでに書き込んだ行を出力先へ書き出し、
+ * {@link #close()}で出力を終端し、ファイル出力の場合はファイルを閉じます。</p>
+ */
+public interface RowStreamWriter extends Closeable, Flushable {
+
+    /**
+     * 1行分のデータを出力します。
+     *
+     * @param row 出力する行
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void write(GenericJson row) throws IOException;
+}
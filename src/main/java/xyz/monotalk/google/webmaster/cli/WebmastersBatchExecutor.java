@@ -0,0 +1,289 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonErrorContainer;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.util.Sleeper;
+import com.google.api.services.webmasters.Webmasters;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseHandler;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
+
+/**
+ * 複数のAPI呼び出しをGoogleのバッチエンドポイントにまとめて送信するクラスです。
+ *
+ * <p>呼び出しは{@link #MAX_BATCH_SIZE}件ずつ1つのマルチパートリクエストにまとめられ、
+ * 結果は呼び出しごとの{@link ApiResponseRecord}として投入順に返されます。
+ * 一部の呼び出しが失敗しても他の呼び出しの結果は失われません。
+ * バッチリクエスト自体が失敗した場合は、そのバッチに含まれる呼び出しをすべてエラーとして返します。</p>
+ *
+ * <p>{@link QuotaRateLimiter}を指定した場合、バッチに含める呼び出しごとに対象サイトを含む許可を取得してから送信します。
+ * {@link RetryPolicy}を指定した場合、リトライ対象のステータスで失敗した呼び出しだけをバックオフ後に再送信します。</p>
+ */
+public class WebmastersBatchExecutor {
+
+    /** 1つのバッチリクエストにまとめる呼び出し数の上限。 */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebmastersBatchExecutor.class);
+
+    /** Retry-Afterヘッダー名。 */
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /** Webmastersクライアント。 */
+    private final Webmasters webmasters;
+
+    /** 1つのバッチリクエストにまとめる呼び出し数。 */
+    private final int batchSize;
+
+    /** 呼び出しごとに許可を取得するレートリミッター（制限しない場合はnull）。 */
+    private final QuotaRateLimiter rateLimiter;
+
+    /** 失敗した呼び出しのリトライ方針（リトライしない場合はnull）。 */
+    private final RetryPolicy retryPolicy;
+
+    /** 待機処理。 */
+    private final Sleeper sleeper;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     */
+    public WebmastersBatchExecutor(final Webmasters webmasters) {
+        this(webmasters, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * バッチサイズを指定するコンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param batchSize 1つのバッチリクエストにまとめる呼び出し数（1～{@value #MAX_BATCH_SIZE}）
+     * @throws CmdLineArgmentException バッチサイズが範囲外の場合
+     */
+    public WebmastersBatchExecutor(final Webmasters webmasters, final int batchSize) {
+        this(webmasters, batchSize, null, null);
+    }
+
+    /**
+     * レート制限とリトライ方針を指定するコンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param batchSize 1つのバッチリクエストにまとめる呼び出し数（1～{@value #MAX_BATCH_SIZE}）
+     * @param rateLimiter 呼び出しごとに許可を取得するレートリミッター（nullの場合は制限なし）
+     * @param retryPolicy 失敗した呼び出しのリトライ方針（nullの場合はリトライなし）
+     * @throws CmdLineArgmentException バッチサイズが範囲外の場合
+     */
+    public WebmastersBatchExecutor(final Webmasters webmasters, final int batchSize,
+            final QuotaRateLimiter rateLimiter, final RetryPolicy retryPolicy) {
+        this(webmasters, batchSize, rateLimiter, retryPolicy, Sleeper.DEFAULT);
+    }
+
+    /**
+     * 待機処理を指定するコンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param batchSize 1つのバッチリクエストにまとめる呼び出し数（1～{@value #MAX_BATCH_SIZE}）
+     * @param rateLimiter 呼び出しごとに許可を取得するレートリミッター（nullの場合は制限なし）
+     * @param retryPolicy 失敗した呼び出しのリトライ方針（nullの場合はリトライなし）
+     * @param sleeper 待機処理
+     * @throws CmdLineArgmentException バッチサイズが範囲外の場合
+     */
+    /* default */ WebmastersBatchExecutor(final Webmasters webmasters, final int batchSize,
+            final QuotaRateLimiter rateLimiter, final RetryPolicy retryPolicy, final Sleeper sleeper) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new CmdLineArgmentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        this.webmasters = webmasters;
+        this.batchSize = batchSize;
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * すべての呼び出しをバッチで実行します。
+     *
+     * @param requests API呼び出し
+     * @return 呼び出しごとの結果（投入順）
+     */
+    public List<ApiResponseRecord<?>> execute(final List<? extends AbstractGoogleJsonClientRequest<?>> requests) {
+        final ApiResponseRecord<?>[] results = new ApiResponseRecord<?>[requests.size()];
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            final int to = Math.min(from + batchSize, requests.size());
+            final List<Integer> indices = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                indices.add(i);
+            }
+            executeWithRetry(requests, indices, results);
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * 1つのバッチを実行し、リトライ対象の失敗があった呼び出しだけをバックオフしながら再送信します。
+     *
+     * @param requests API呼び出し
+     * @param indices バッチに含める呼び出しの位置
+     * @param results 結果の格納先
+     */
+    private void executeWithRetry(final List<? extends AbstractGoogleJsonClientRequest<?>> requests,
+            final List<Integer> indices, final ApiResponseRecord<?>[] results) {
+        final long startedNanos = System.nanoTime();
+        List<Integer> pending = indices;
+        int retry = 0;
+        while (true) {
+            final RetryableFailures failures = new RetryableFailures();
+            executeBatch(requests, pending, results, failures);
+            if (failures.indices.isEmpty() || !backOff(retry, failures, startedNanos)) {
+                return;
+            }
+            pending = failures.indices;
+            retry++;
+        }
+    }
+
+    /**
+     * 1つのバッチリクエストを実行します。
+     *
+     * @param requests API呼び出し
+     * @param indices バッチに含める呼び出しの位置
+     * @param results 結果の格納先
+     * @param failures リトライ対象の失敗の記録先
+     */
+    private void executeBatch(final List<? extends AbstractGoogleJsonClientRequest<?>> requests,
+            final List<Integer> indices, final ApiResponseRecord<?>[] results, final RetryableFailures failures) {
+        final BatchRequest batch = webmasters.batch();
+        try {
+            for (final int index : indices) {
+                final AbstractGoogleJsonClientRequest<?> request = requests.get(index);
+                if (rateLimiter != null) {
+                    // バッチのURLには対象サイトが含まれないため、呼び出しごとにサイトの許可も取得する
+                    rateLimiter.acquire(request.buildHttpRequestUrl());
+                }
+                results[index] = null;
+                queue(batch, request, index, results, failures);
+            }
+            batch.execute();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Executed batch of {} calls", indices.size());
+            }
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("Batch request failed: {}", e.getMessage());
+            }
+            failures.indices.clear();
+            for (final int index : indices) {
+                if (results[index] == null) {
+                    results[index] = ApiResponseRecord.error("Batch request failed: " + e.getMessage(), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * リトライ方針に従って待機し、リトライするかどうかを決定します。
+     *
+     * @param retry これまでのリトライ回数（0始まり）
+     * @param failures リトライ対象の失敗
+     * @param startedNanos 最初の送信時刻（{@link System#nanoTime()}）
+     * @return リトライする場合はtrue
+     */
+    private boolean backOff(final int retry, final RetryableFailures failures, final long startedNanos) {
+        if (retry >= retryPolicy.getMaxRetries()) {
+            return false;
+        }
+        final long delay = failures.retryAfterMillis >= 0
+                ? failures.retryAfterMillis : retryPolicy.jitteredDelayMillis(retry);
+        final long elapsed = Duration.ofNanos(System.nanoTime() - startedNanos).toMillis();
+        if (elapsed + delay > retryPolicy.getMaxElapsedMillis()) {
+            return false;
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("{} batch calls failed; retrying in {} ms (retry {}/{})",
+                    failures.indices.size(), delay, retry + 1, retryPolicy.getMaxRetries());
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 呼び出しをバッチに追加します。
+     *
+     * @param <T> 応答データの型
+     * @param batch バッチリクエスト
+     * @param request API呼び出し
+     * @param index 結果の格納位置
+     * @param results 結果の格納先
+     * @param failures リトライ対象の失敗の記録先
+     * @throws IOException バッチへの追加に失敗した場合
+     */
+    private <T> void queue(final BatchRequest batch, final AbstractGoogleJsonClientRequest<T> request,
+            final int index, final ApiResponseRecord<?>[] results, final RetryableFailures failures)
+            throws IOException {
+        final HttpRequest httpRequest = request.buildHttpRequest();
+        if (retryPolicy != null
+                && httpRequest.getUnsuccessfulResponseHandler() instanceof RetryingResponseHandler retrying) {
+            // 呼び出しごとのリトライはこのクラスで行うため、リトライが重ならないよう認証ハンドラーだけを残す
+            httpRequest.setUnsuccessfulResponseHandler(retrying.getDelegate());
+        }
+        final JsonBatchCallback<T> callback = new JsonBatchCallback<T>() {
+            @Override
+            public void onSuccess(final T data, final HttpHeaders responseHeaders) {
+                results[index] = ApiResponseHandler.handleBatchSuccess(data, responseHeaders);
+            }
+
+            @Override
+            public void onFailure(final GoogleJsonError error, final HttpHeaders responseHeaders) {
+                // リトライを打ち切った場合に備え、リトライ対象の失敗も結果として記録しておく
+                results[index] = ApiResponseHandler.handleBatchFailure(error, responseHeaders);
+                if (retryPolicy != null && retryPolicy.isRetryable(error.getCode())) {
+                    failures.add(index, responseHeaders);
+                }
+            }
+        };
+        batch.queue(httpRequest, request.getResponseClass(), GoogleJsonErrorContainer.class, callback);
+    }
+
+    /**
+     * 1回のバッチ送信でリトライ対象のステータスにより失敗した呼び出しです。
+     */
+    private static final class RetryableFailures {
+
+        /** 失敗した呼び出しの位置。 */
+        private final List<Integer> indices = new ArrayList<>();
+
+        /** サーバーが指定した待機時間の最大値（指定がない場合は負の値）。 */
+        private long retryAfterMillis = -1;
+
+        /**
+         * 失敗した呼び出しを記録します。
+         *
+         * @param index 呼び出しの位置
+         * @param responseHeaders 呼び出しの応答ヘッダー
+         */
+        private void add(final int index, final HttpHeaders responseHeaders) {
+            indices.add(index);
+            if (responseHeaders != null) {
+                retryAfterMillis = Math.max(retryAfterMillis, RetryingResponseHandler.retryAfterMillis(
+                        responseHeaders.getFirstHeaderStringValue(RETRY_AFTER)));
+            }
+        }
+    }
+}
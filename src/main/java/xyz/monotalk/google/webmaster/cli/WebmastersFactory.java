@@ -1,52 +1,137 @@
 package xyz.monotalk.google.webmaster.cli;
 
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.googleapis.apache.v2.GoogleApacheHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.webmasters.Webmasters;
 import com.google.api.services.webmasters.WebmastersScopes;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * Google Webmasters APIクライアントを生成するファクトリクラスです。
+ *
+ * <p>クライアントはキーファイルごとに1つだけ生成され、以降の呼び出しでは同じインスタンスを返します。
+ * {@link Webmasters}インスタンスとHTTPトランスポートはスレッドセーフなため、
+ * 複数のコマンドやスレッドから共有できます。
+ * {@link QuotaRateLimiter}が利用可能な場合、全リクエストはそのレート制限の下で送信され、
+ * {@link RetryPolicy}が利用可能な場合、一時的なエラーはバックオフしながらリトライされます。
+ * {@link ResponseCache}が有効な場合、読み取り系APIのレスポンスはキーファイルごとにキャッシュされ、
+ * キャッシュから返すリクエストはレート制限の許可を消費しません。</p>
  */
 @Component
 public class WebmastersFactory {
 
-    /** 
+    /**
      * アプリケーションのキーファイルの場所です。
      */
     @Value("${application.keyFileLocation}")
     private String keyFileLocation;
 
+    /**
+     * アクセストークンの保存先です（空の場合は保存せず、プロセスごとに取得します）。
+     */
+    @Value("${application.tokenCache.dir:}")
+    private String tokenCacheDir;
+
+    /**
+     * キーファイルの場所ごとに生成済みのクライアントです。
+     */
+    private final Map<String, Webmasters> clients = new ConcurrentHashMap<>();
+
+    /**
+     * 全クライアントで共有するHTTPトランスポートです。
+     */
+    private HttpTransport sharedTransport;
+
+    /**
+     * 全リクエストに適用するレートリミッターです（未設定の場合は制限しません）。
+     */
+    @Autowired(required = false)
+    private QuotaRateLimiter rateLimiter;
+
+    /**
+     * 全リクエストに適用するリトライ方針です（未設定の場合はリトライしません）。
+     */
+    @Autowired(required = false)
+    private RetryPolicy retryPolicy;
+
+    /**
+     * 読み取り系APIのレスポンスキャッシュです（未設定の場合はキャッシュしません）。
+     */
+    @Autowired(required = false)
+    private ResponseCache responseCache;
+
     /**
      * デフォルトコンストラクタです。
      */
     public WebmastersFactory() {
         // デフォルトコンストラクタ
     }
-    
+
     /**
-     * Google Webmasters APIクライアントを生成します。
+     * Google Webmasters APIクライアントを取得します。
+     *
+     * <p>キーファイルごとに初回のみクライアントを生成し、以降は同じインスタンスを返します。</p>
      *
      * @return Google Webmasters APIクライアントのインスタンス。
      * @throws IllegalStateException クライアントの生成に失敗した場合。
      */
     public Webmasters createClient() {
+        if (keyFileLocation == null) {
+            throw new IllegalStateException("application.keyFileLocation is not configured");
+        }
+        return clients.computeIfAbsent(keyFileLocation, location -> buildClient());
+    }
+
+    /**
+     * 全リクエストに適用するレートリミッターを返します。
+     *
+     * @return レートリミッター（未設定の場合はnull）
+     */
+    /* default */ QuotaRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 全リクエストに適用するリトライ方針を返します。
+     *
+     * @return リトライ方針（未設定の場合はnull）
+     */
+    /* default */ RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Google Webmasters APIクライアントを新規に生成します。
+     *
+     * @return Google Webmasters APIクライアントのインスタンス。
+     * @throws IllegalStateException クライアントの生成に失敗した場合。
+     */
+    private Webmasters buildClient() {
         try {
             // クライアント生成ロジック
+            final HttpTransport shared = getSharedTransport();
+            final HttpTransport transport = withResponseCache(shared);
             return new Webmasters.Builder(
-                createHttpTransport(), 
-                getJsonFactory(), 
-                new HttpCredentialsAdapter(createCredential()))
+                transport,
+                getJsonFactory(),
+                createRequestInitializer(createCredential(), transport != shared))
                     .setApplicationName("Search Console Cli")
                     .build();
         } catch (GeneralSecurityException | IOException e) {
@@ -54,15 +139,73 @@ public class WebmastersFactory {
         }
     }
 
+    /**
+     * 認証・リトライ・レート制限を行うリクエスト初期化処理を作成します。
+     *
+     * @param credentials 認証情報
+     * @param cached レスポンスをキャッシュするトランスポートで送信する場合はtrue
+     * @return リクエスト初期化処理
+     */
+    private HttpRequestInitializer createRequestInitializer(final GoogleCredentials credentials,
+            final boolean cached) {
+        HttpRequestInitializer initializer = new HttpCredentialsAdapter(credentials);
+        if (retryPolicy != null) {
+            initializer = new RetryingRequestInitializer(initializer, retryPolicy);
+        }
+        if (rateLimiter != null && !cached) {
+            // キャッシュ付きトランスポートでは、キャッシュに該当せず送信するときにCachingHttpClientが許可を取得する
+            initializer = new RateLimitedRequestInitializer(initializer, rateLimiter);
+        }
+        return initializer;
+    }
+
+    /**
+     * 共有HTTPトランスポートを取得します。未生成の場合は生成します。
+     *
+     * @return 共有HTTPトランスポート
+     * @throws GeneralSecurityException セキュリティ例外が発生した場合
+     * @throws IOException 入出力例外が発生した場合
+     */
+    private synchronized HttpTransport getSharedTransport() throws GeneralSecurityException, IOException {
+        if (sharedTransport == null) {
+            sharedTransport = createHttpTransport();
+        }
+        return sharedTransport;
+    }
+
+    /**
+     * 共有HTTPトランスポートの接続プールを使い、レスポンスキャッシュを参照するトランスポートを返します。
+     *
+     * <p>キャッシュが無効な場合、またはApache HttpClientベースでないトランスポートの場合は、そのまま返します。</p>
+     *
+     * @param transport 共有HTTPトランスポート
+     * @return キーファイルの場所を名前空間とするキャッシュ付きトランスポート
+     */
+    private HttpTransport withResponseCache(final HttpTransport transport) {
+        if (responseCache == null || !responseCache.isEnabled() || !(transport instanceof ApacheHttpTransport)) {
+            return transport;
+        }
+        final ApacheHttpTransport apacheTransport = (ApacheHttpTransport) transport;
+        final HttpClient httpClient = apacheTransport.getHttpClient();
+        if (!(httpClient instanceof CloseableHttpClient)) {
+            return transport;
+        }
+        return new ApacheHttpTransport(
+                new CachingHttpClient((CloseableHttpClient) httpClient, responseCache, keyFileLocation, rateLimiter),
+                apacheTransport.isMtls());
+    }
+
     /**
      * HTTPトランスポートを作成します。
      *
-     * @return 作成されたNetHttpTransportインスタンス
+     * <p>接続プールとKeep-Aliveを備えたApache HttpClientベースのトランスポートを生成します。</p>
+     *
+     * @return 作成されたHttpTransportインスタンス
      * @throws GeneralSecurityException セキュリティ例外が発生した場合
      * @throws IOException 入出力例外が発生した場合
      */
-    protected NetHttpTransport createHttpTransport() throws GeneralSecurityException, IOException {
-        return GoogleNetHttpTransport.newTrustedTransport();
+    protected HttpTransport createHttpTransport() throws GeneralSecurityException, IOException {
+        return GoogleApacheHttpTransport.newTrustedTransport();
     }
 
     /**
@@ -77,13 +220,20 @@ public class WebmastersFactory {
     /**
      * 認証情報を作成します。
      *
+     * <p>トークンの保存先が設定されている場合、アクセストークンをキーファイルとスコープごとにディスクへ保存し、
+     * 有効期限内であれば次回以降のコマンド実行でも再利用します（{@link CachedTokenCredentials}）。</p>
+     *
      * @return GoogleCredentialsインスタンス
      * @throws IOException 入出力例外が発生した場合
      */
     protected GoogleCredentials createCredential() throws IOException {
-        // Java NIOのPaths.getとFiles.newInputStreamを使用
-        return GoogleCredentials.fromStream(
-                Files.newInputStream(Paths.get(keyFileLocation))
-            ).createScoped(Collections.singleton(WebmastersScopes.WEBMASTERS));
+        final byte[] keyFile = Files.readAllBytes(Paths.get(keyFileLocation));
+        final GoogleCredentials credentials = GoogleCredentials.fromStream(new ByteArrayInputStream(keyFile))
+                .createScoped(Collections.singleton(WebmastersScopes.WEBMASTERS));
+        if (tokenCacheDir == null || tokenCacheDir.isBlank()) {
+            return credentials;
+        }
+        return new CachedTokenCredentials(credentials, Paths.get(tokenCacheDir),
+                CachedTokenCredentials.cacheKeyOf(keyFile, WebmastersScopes.WEBMASTERS));
     }
 }
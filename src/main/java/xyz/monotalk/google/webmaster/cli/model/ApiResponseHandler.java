@@ -1,5 +1,7 @@
 package xyz.monotalk.google.webmaster.cli.model;
 
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.json.GenericJson;
@@ -14,6 +16,7 @@ import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.RetryingResponseHandler;
 
 /**
  * API応答を処理するユーティリティクラス。
@@ -83,6 +86,7 @@ public final class ApiResponseHandler {
                     .timestamp(LocalDateTime.now())
                     .data(data)
                     .headers(headers)
+                    .retries(retriesOf(response))
                     .build();
 
         } catch (final HttpResponseException e) {
@@ -92,7 +96,7 @@ public final class ApiResponseHandler {
             }
 
             // エラーレスポンスの作成
-            return getErrorResponse(e);
+            return getErrorResponse(e, retriesOf(response));
 
         } catch (final IOException e) {
             // I/Oエラーの処理
@@ -122,13 +126,49 @@ public final class ApiResponseHandler {
         });
     }
 
+    /**
+     * バッチリクエスト内で成功した1呼び出しをApiResponseRecordに変換します。
+     *
+     * @param <T> 応答データの型
+     * @param data 応答データ（本文のない操作の場合はnull）
+     * @param headers 呼び出しごとのレスポンスヘッダー
+     * @return 成功応答レコード
+     */
+    public static <T> ApiResponseRecord<T> handleBatchSuccess(final T data, final HttpHeaders headers) {
+        return ApiResponseRecord.<T>builder()
+                .status(ApiResponseRecord.ResponseStatus.SUCCESS)
+                .statusCode(200)
+                .timestamp(LocalDateTime.now())
+                .data(data)
+                .headers(extractHeaders(headers))
+                .build();
+    }
+
+    /**
+     * バッチリクエスト内で失敗した1呼び出しをApiResponseRecordに変換します。
+     *
+     * @param <T> 応答データの型
+     * @param error 呼び出しごとのエラー
+     * @param headers 呼び出しごとのレスポンスヘッダー
+     * @return エラー応答レコード
+     */
+    public static <T> ApiResponseRecord<T> handleBatchFailure(final GoogleJsonError error, final HttpHeaders headers) {
+        return ApiResponseRecord.<T>builder()
+                .status(determineResponseStatus(error.getCode()))
+                .statusCode(error.getCode())
+                .timestamp(LocalDateTime.now())
+                .headers(extractHeaders(headers))
+                .errorMessage(error.getMessage())
+                .build();
+    }
+
     /**
      * ヘッダーマップからヘッダー情報を抽出します。
      *
      * <p>このメソッドは、元のヘッダーマップを処理し、
-     * 必要な形式に変換します。</p>
+     * 必要な形式に変換します。ベンチマーク（src/jmh）から呼び出すため、パッケージプライベートとしています。</p>
      */
-    private static Map<String, List<String>> extractHeaders(final Map<String, Object> headerMap) {
+    /* default */ static Map<String, List<String>> extractHeaders(final Map<String, Object> headerMap) {
         final Map<String, List<String>> headers = new ConcurrentHashMap<>();
 
         if (headerMap == null) {
@@ -199,9 +239,11 @@ public final class ApiResponseHandler {
      *
      * @param <T> 応答データの型
      * @param exception HttpResponseException
+     * @param retries リトライ回数
      * @return エラー応答レコード
      */
-    private static <T> ApiResponseRecord<T> getErrorResponse(final HttpResponseException exception) {
+    private static <T> ApiResponseRecord<T> getErrorResponse(final HttpResponseException exception,
+            final int retries) {
         final ApiResponseRecord.ResponseStatus status = determineResponseStatus(exception.getStatusCode());
         final Map<String, List<String>> headers = extractHeaders(exception.getHeaders());
 
@@ -212,9 +254,24 @@ public final class ApiResponseHandler {
                 .timestamp(LocalDateTime.now())
                 .headers(headers)
                 .errorMessage(exception.getMessage())
+                .retries(retries)
                 .build();
     }
 
+    /**
+     * レスポンスを得るまでにリトライした回数を取得します。
+     *
+     * @param response HttpResponse
+     * @return リトライ回数（リトライハンドラーが設定されていない場合は0）
+     */
+    private static int retriesOf(final HttpResponse response) {
+        if (response.getRequest() != null
+                && response.getRequest().getUnsuccessfulResponseHandler() instanceof RetryingResponseHandler handler) {
+            return handler.getRetries();
+        }
+        return 0;
+    }
+
     /**
      * HTTPステータスコードに基づいてレスポンスステータスを決定します。
      *
@@ -16,6 +16,7 @@ import java.util.Optional;
  * @param data         応答データ（存在する場合）
  * @param hdrs      レスポンスヘッダー
  * @param err エラーメッセージ（存在する場合）
+ * @param retries 応答を得るまでにリトライした回数
  * @param <T>          応答データの型
  */
 public record ApiResponseRecord<T>(
@@ -24,7 +25,8 @@ public record ApiResponseRecord<T>(
     LocalDateTime time,
     T data,
     Map<String, List<String>> hdrs,
-    String err) {
+    String err,
+    int retries) {
 
     /**
      * API応答レコードのコンストラクタ。
@@ -35,16 +37,35 @@ public record ApiResponseRecord<T>(
      * @param data 応答データ
      * @param hdrs レスポンスヘッダー
      * @param err エラーメッセージ
+     * @param retries リトライ回数
      */
     public ApiResponseRecord(final ResponseStatus status, final int code, 
                              final LocalDateTime time, final T data, 
-                             final Map<String, List<String>> hdrs, final String err) {
+                             final Map<String, List<String>> hdrs, final String err,
+                             final int retries) {
         this.status = status;
         this.code = code;
         this.time = time;
         this.data = data;
         this.hdrs = hdrs != null ? Map.copyOf(hdrs) : Map.of();
         this.err = err;
+        this.retries = retries;
+    }
+
+    /**
+     * リトライ回数を指定しないAPI応答レコードのコンストラクタ。
+     *
+     * @param status 応答ステータス
+     * @param code HTTPステータスコード
+     * @param time 応答タイムスタンプ
+     * @param data 応答データ
+     * @param hdrs レスポンスヘッダー
+     * @param err エラーメッセージ
+     */
+    public ApiResponseRecord(final ResponseStatus status, final int code, 
+                             final LocalDateTime time, final T data, 
+                             final Map<String, List<String>> hdrs, final String err) {
+        this(status, code, time, data, hdrs, err, 0);
     }
 
     /**
@@ -95,6 +116,11 @@ public record ApiResponseRecord<T>(
          */
         private String errorMsg;
 
+        /**
+         * リトライ回数を格納します。
+         */
+        private int retryCount;
+
         /**
          * ステータスを設定します。
          *
@@ -161,6 +187,17 @@ public record ApiResponseRecord<T>(
             return this;
         }
 
+        /**
+         * リトライ回数を設定します。
+         *
+         * @param retryCount リトライ回数
+         * @return このビルダー
+         */
+        public Builder<T> retries(final int retryCount) {
+            this.retryCount = retryCount;
+            return this;
+        }
+
         /**
          * ApiResponseRecordを構築します。
          *
@@ -173,7 +210,8 @@ public record ApiResponseRecord<T>(
                 responseTimestamp, 
                 responseData, 
                 responseHeaders, 
-                errorMsg
+                errorMsg,
+                retryCount
             );
         }
 
@@ -334,12 +372,21 @@ public record ApiResponseRecord<T>(
         return status;
     }
 
+    /**
+     * リトライ回数を取得します。
+     *
+     * @return 応答を得るまでにリトライした回数
+     */
+    public int getRetries() {
+        return retries;
+    }
+
     /**
      * API応答レコードの詳細を取得します。
      *
      * @return 応答の詳細情報
      */
     public String getDetails() {
-        return "Status: " + status + ", Code: " + code + ", Time: " + time;
+        return "Status: " + status + ", Code: " + code + ", Time: " + time + ", Retries: " + retries;
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * ストアに保存する辞書符号化された文字列列です。
+ */
+public enum Column {
+
+    /** 検索クエリ。 */
+    QUERY("query"),
+
+    /** ページURL。 */
+    PAGE("page"),
+
+    /** 国コード。 */
+    COUNTRY("country"),
+
+    /** デバイス種別。 */
+    DEVICE("device");
+
+    /** 対応するSearch Analyticsのディメンション名。 */
+    private final String dimension;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param dimension 対応するSearch Analyticsのディメンション名
+     */
+    Column(final String dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * 対応するSearch Analyticsのディメンション名を返します。
+     *
+     * @return ディメンション名
+     */
+    public String getDimension() {
+        return dimension;
+    }
+
+    /**
+     * ディメンション名から列を取得します。
+     *
+     * @param dimension ディメンション名
+     * @return 列
+     * @throws CmdLineArgmentException ストアに保存できないディメンションの場合
+     */
+    public static Column of(final String dimension) {
+        for (final Column column : values()) {
+            if (column.dimension.equals(dimension)) {
+                return column;
+            }
+        }
+        throw new CmdLineArgmentException("Dimension is not supported by the store: " + dimension);
+    }
+}
@@ -0,0 +1,122 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * Search Analyticsの行をローカルに蓄積する追記専用の列指向ストアです。
+ *
+ * <p>ストアはディレクトリ内のセグメントファイルの集合で、外部のデータベースを必要としません。
+ * 行は{@link StoreAppender}で一定行数ごとのセグメントにまとめて書き出され、
+ * 書き出し済みのセグメントが変更されることはありません。
+ * 各セグメントのヘッダーには日付と数値列の最小値・最大値が記録されるため、
+ * 集計時は条件に合わないセグメントを本体を読まずに除外できます。</p>
+ */
+public final class ColumnarStore {
+
+    /** セグメントファイルの拡張子。 */
+    /* default */ static final String SEGMENT_SUFFIX = ".seg";
+
+    /** 書き出し中のセグメントファイルの拡張子。 */
+    /* default */ static final String PENDING_SUFFIX = ".tmp";
+
+    /** 1セグメントあたりのデフォルトの最大行数。 */
+    private static final int DEFAULT_SEGMENT_ROWS = 65_536;
+
+    /** 同じミリ秒内に書き出したセグメントを順に並べるための連番。 */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /** ストアのディレクトリ。 */
+    private final Path directory;
+
+    /** 1セグメントあたりの最大行数。 */
+    private final int segmentRows;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory ストアのディレクトリ
+     */
+    public ColumnarStore(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_ROWS);
+    }
+
+    /**
+     * 1セグメントあたりの最大行数を指定するコンストラクタ。
+     *
+     * @param directory ストアのディレクトリ
+     * @param segmentRows 1セグメントあたりの最大行数
+     * @throws CmdLineArgmentException 最大行数が1未満の場合
+     */
+    public ColumnarStore(final Path directory, final int segmentRows) {
+        if (segmentRows < 1) {
+            throw new CmdLineArgmentException("segmentRows must be greater than 0");
+        }
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+    }
+
+    /**
+     * 行を追記するアペンダーを生成します。
+     *
+     * @param dimensions 追記する行のディメンション（{@code keys}配列の並び順、{@code date}を含むこと）
+     * @return アペンダー
+     * @throws IOException ストアのディレクトリを作成できなかった場合
+     * @throws CmdLineArgmentException ディメンションが不正な場合
+     */
+    public StoreAppender newAppender(final List<String> dimensions) throws IOException {
+        Files.createDirectories(directory);
+        return new StoreAppender(this, dimensions);
+    }
+
+    /**
+     * 書き出し済みの全セグメントの索引を、書き出された順に返します。
+     *
+     * @return セグメントの索引（ストアが存在しない場合は空リスト）
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public List<SegmentMetadata> segments() throws IOException {
+        if (Files.notExists(directory)) {
+            return List.of();
+        }
+        final List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        final List<SegmentMetadata> segments = new ArrayList<>(paths.size());
+        for (final Path path : paths) {
+            segments.add(Segment.readMetadata(path));
+        }
+        return segments;
+    }
+
+    /**
+     * 1セグメントあたりの最大行数を返します。
+     *
+     * @return 最大行数
+     */
+    /* default */ int getSegmentRows() {
+        return segmentRows;
+    }
+
+    /**
+     * 新しいセグメントファイルのパスを返します。ファイル名は書き出した順に並びます。
+     *
+     * @return セグメントファイルのパス
+     */
+    /* default */ Path newSegmentPath() {
+        final String id = UUID.randomUUID().toString().substring(0, 8);
+        return directory.resolve(String.format(Locale.ROOT, "segment-%013d-%06d-%s%s",
+                System.currentTimeMillis(), SEQUENCE.incrementAndGet() % 1_000_000, id, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,72 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.util.Locale;
+import java.util.function.Function;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * ストアに保存する数値列です。
+ */
+public enum Metric {
+
+    /** クリック数。 */
+    CLICKS(ApiDataRow::getClicks),
+
+    /** 表示回数。 */
+    IMPRESSIONS(ApiDataRow::getImpressions),
+
+    /** クリック率。 */
+    CTR(ApiDataRow::getCtr),
+
+    /** 平均掲載順位。 */
+    POSITION(ApiDataRow::getPosition);
+
+    /** 行から値を取り出す関数。 */
+    private final Function<ApiDataRow, Double> accessor;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param accessor 行から値を取り出す関数
+     */
+    Metric(final Function<ApiDataRow, Double> accessor) {
+        this.accessor = accessor;
+    }
+
+    /**
+     * 列名（大文字・小文字を区別しない）から数値列を取得します。
+     *
+     * @param name 列名（例：{@code clicks}）
+     * @return 数値列
+     * @throws CmdLineArgmentException 未知の列名の場合
+     */
+    public static Metric of(final String name) {
+        for (final Metric metric : values()) {
+            if (metric.name().equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        throw new CmdLineArgmentException("Unknown metric: " + name);
+    }
+
+    /**
+     * 列名を返します。
+     *
+     * @return 小文字の列名
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 行から値を取り出します。
+     *
+     * @param row 行
+     * @return 値（未設定の場合は0）
+     */
+    /* default */ double valueOf(final ApiDataRow row) {
+        final Double value = accessor.apply(row);
+        return value == null ? 0.0 : value;
+    }
+}
@@ -0,0 +1,266 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * ストアの行を絞り込む条件です。
+ *
+ * <p>{@code <列><演算子><値>}形式の式（例：{@code position<10}、{@code country=jpn}、{@code query~shoes}）を解析します。
+ * 演算子は{@code = != < <= > >=}と部分一致の{@code ~}です。
+ * 文字列列の条件はセグメントの辞書に対して一度だけ評価し、行ごとの判定は整数コードの参照で行います。</p>
+ */
+public final class RowFilter {
+
+    /** 式の書式。 */
+    private static final Pattern EXPRESSION = Pattern.compile("^\\s*(\\w+)\\s*(<=|>=|!=|=|<|>|~)\\s*(.*?)\\s*$");
+
+    /** 日付列の名前。 */
+    private static final String DATE = "date";
+
+    /** 比較演算子。 */
+    private final Operator operator;
+
+    /** 対象の文字列列（文字列列以外の場合はnull）。 */
+    private final Column column;
+
+    /** 対象の数値列（数値列以外の場合はnull）。 */
+    private final Metric metric;
+
+    /** 比較する文字列。 */
+    private final String text;
+
+    /** 比較する数値（日付列の場合はエポック日）。 */
+    private final double number;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param operator 比較演算子
+     * @param column 対象の文字列列
+     * @param metric 対象の数値列
+     * @param text 比較する文字列
+     * @param number 比較する数値
+     */
+    private RowFilter(final Operator operator, final Column column, final Metric metric, final String text,
+            final double number) {
+        this.operator = operator;
+        this.column = column;
+        this.metric = metric;
+        this.text = text;
+        this.number = number;
+    }
+
+    /**
+     * 条件式を解析します。
+     *
+     * @param expression 条件式
+     * @return 条件
+     * @throws CmdLineArgmentException 式の書式、列名または値が不正な場合
+     */
+    public static RowFilter parse(final String expression) {
+        final Matcher matcher = EXPRESSION.matcher(expression);
+        if (!matcher.matches()) {
+            throw new CmdLineArgmentException("Invalid filter: " + expression);
+        }
+        final String field = matcher.group(1);
+        final Operator operator = Operator.of(matcher.group(2));
+        final String value = matcher.group(3);
+        if (DATE.equals(field)) {
+            requireOrdered(operator, expression);
+            try {
+                return new RowFilter(operator, null, null, value, LocalDate.parse(value).toEpochDay());
+            } catch (DateTimeParseException e) {
+                throw new CmdLineArgmentException("Invalid date in filter: " + expression, e);
+            }
+        }
+        for (final Column candidate : Column.values()) {
+            if (candidate.getDimension().equals(field)) {
+                return new RowFilter(operator, candidate, null, value, 0);
+            }
+        }
+        requireOrdered(operator, expression);
+        try {
+            return new RowFilter(operator, null, Metric.of(field), value, Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            throw new CmdLineArgmentException("Invalid number in filter: " + expression, e);
+        }
+    }
+
+    /**
+     * 条件の対象となる文字列列を返します。
+     *
+     * @return 文字列列（数値列・日付の条件の場合はnull）
+     */
+    /* default */ Column getColumn() {
+        return column;
+    }
+
+    /**
+     * セグメントの最小値・最大値から、条件に合う行を含む可能性があるかどうかを返します。
+     *
+     * @param metadata セグメントの索引
+     * @return 含む可能性がある場合はtrue
+     */
+    public boolean mayMatch(final SegmentMetadata metadata) {
+        if (column != null) {
+            return true;
+        }
+        if (metric == null) {
+            return operator.overlaps(metadata.getMinDate().toEpochDay(), metadata.getMaxDate().toEpochDay(), number);
+        }
+        return operator.overlaps(metadata.min(metric), metadata.max(metric), number);
+    }
+
+    /**
+     * セグメントの行番号に対する判定関数を生成します。
+     *
+     * @param segment セグメント
+     * @return 行番号を受け取り、条件に合う場合にtrueを返す関数
+     */
+    public IntPredicate bind(final Segment segment) {
+        if (column != null) {
+            final boolean[] matches = new boolean[segment.dictionarySize(column)];
+            for (int code = 0; code < matches.length; code++) {
+                matches[code] = operator.test(segment.decode(column, code), text);
+            }
+            final Column target = column;
+            return row -> matches[segment.code(target, row)];
+        }
+        if (metric == null) {
+            return row -> operator.test(segment.epochDay(row), number);
+        }
+        final Metric target = metric;
+        return row -> operator.test(segment.metric(target, row), number);
+    }
+
+    /**
+     * 数値・日付の条件で使用できる演算子であることを検証します。
+     *
+     * @param operator 演算子
+     * @param expression 条件式
+     * @throws CmdLineArgmentException 部分一致を指定した場合
+     */
+    private static void requireOrdered(final Operator operator, final String expression) {
+        if (operator == Operator.CONTAINS) {
+            throw new CmdLineArgmentException("'~' can only be used with text columns: " + expression);
+        }
+    }
+
+    /**
+     * 比較演算子。
+     */
+    private enum Operator {
+
+        /** 等しい。 */
+        EQ("="),
+
+        /** 等しくない。 */
+        NE("!="),
+
+        /** より小さい。 */
+        LT("<"),
+
+        /** 以下。 */
+        LE("<="),
+
+        /** より大きい。 */
+        GT(">"),
+
+        /** 以上。 */
+        GE(">="),
+
+        /** 部分一致（文字列のみ）。 */
+        CONTAINS("~");
+
+        /** 演算子の記号。 */
+        private final String symbol;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param symbol 演算子の記号
+         */
+        Operator(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * 記号から演算子を取得します。
+         *
+         * @param symbol 演算子の記号
+         * @return 演算子
+         */
+        private static Operator of(final String symbol) {
+            for (final Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new CmdLineArgmentException("Unknown operator: " + symbol);
+        }
+
+        /**
+         * 数値を比較します。
+         *
+         * @param value 行の値
+         * @param operand 比較する値
+         * @return 条件を満たす場合はtrue
+         */
+        private boolean test(final double value, final double operand) {
+            return switch (this) {
+                case EQ -> value == operand;
+                case NE -> value != operand;
+                case LT -> value < operand;
+                case LE -> value <= operand;
+                case GT -> value > operand;
+                case GE -> value >= operand;
+                case CONTAINS -> false;
+            };
+        }
+
+        /**
+         * 文字列を比較します。
+         *
+         * @param value 行の値
+         * @param operand 比較する値
+         * @return 条件を満たす場合はtrue
+         */
+        private boolean test(final String value, final String operand) {
+            final int comparison = value.compareTo(operand);
+            return switch (this) {
+                case EQ -> comparison == 0;
+                case NE -> comparison != 0;
+                case LT -> comparison < 0;
+                case LE -> comparison <= 0;
+                case GT -> comparison > 0;
+                case GE -> comparison >= 0;
+                case CONTAINS -> value.contains(operand);
+            };
+        }
+
+        /**
+         * 値の範囲に条件を満たす値が含まれる可能性があるかどうかを返します。
+         *
+         * @param min 範囲の最小値
+         * @param max 範囲の最大値
+         * @param operand 比較する値
+         * @return 含まれる可能性がある場合はtrue
+         */
+        private boolean overlaps(final double min, final double max, final double operand) {
+            return switch (this) {
+                case EQ -> min <= operand && operand <= max;
+                case NE -> min != operand || max != operand;
+                case LT -> min < operand;
+                case LE -> min <= operand;
+                case GT -> max > operand;
+                case GE -> max >= operand;
+                case CONTAINS -> true;
+            };
+        }
+    }
+}
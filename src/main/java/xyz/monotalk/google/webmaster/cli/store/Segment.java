@@ -0,0 +1,259 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+
+/**
+ * メモリに読み込んだ1セグメント分の列データです。
+ *
+ * <p>セグメントファイルは、ヘッダー（行数、取得時のディメンション、日付と数値列の最小値・最大値）に続けて、
+ * 文字列列ごとの辞書とコード配列、日付配列、数値列ごとの配列を列単位で連続して格納します。
+ * 読み込み後は不変で、複数スレッドから同時に参照できます。</p>
+ */
+public final class Segment {
+
+    /** セグメントファイルの識別子（"GSCS"）。 */
+    /* default */ static final int MAGIC = 0x47534353;
+
+    /** セグメントファイルの形式バージョン。 */
+    /* default */ static final int VERSION = 2;
+
+    /** ヘッダーの索引。 */
+    private final SegmentMetadata metadata;
+
+    /** 列ごとの辞書。 */
+    private final String[][] dictionaries;
+
+    /** 列ごとのコード。 */
+    private final int[][] codes;
+
+    /** 日付（エポック日）。 */
+    private final int[] epochDays;
+
+    /** 数値列ごとの値。 */
+    private final double[][] metrics;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param metadata ヘッダーの索引
+     * @param dictionaries 列ごとの辞書
+     * @param codes 列ごとのコード
+     * @param epochDays 日付
+     * @param metrics 数値列ごとの値
+     */
+    private Segment(final SegmentMetadata metadata, final String[][] dictionaries, final int[][] codes,
+            final int[] epochDays, final double[][] metrics) {
+        this.metadata = metadata;
+        this.dictionaries = dictionaries;
+        this.codes = codes;
+        this.epochDays = epochDays;
+        this.metrics = metrics;
+    }
+
+    /**
+     * セグメントファイルのヘッダーだけを読み込みます。
+     *
+     * @param path セグメントファイル
+     * @return ヘッダーの索引
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static SegmentMetadata readMetadata(final Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            return readHeader(path, in);
+        }
+    }
+
+    /**
+     * セグメントファイル全体を読み込みます。
+     *
+     * @param path セグメントファイル
+     * @return セグメント
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static Segment read(final Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            final SegmentMetadata metadata = readHeader(path, in);
+            final int rowCount = metadata.getRowCount();
+            final String[][] dictionaries = new String[Column.values().length][];
+            final int[][] codes = new int[Column.values().length][];
+            for (int c = 0; c < dictionaries.length; c++) {
+                dictionaries[c] = new String[in.readInt()];
+                for (int i = 0; i < dictionaries[c].length; i++) {
+                    final byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    dictionaries[c][i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                codes[c] = readInts(in, rowCount);
+            }
+            final int[] epochDays = readInts(in, rowCount);
+            final double[][] metrics = new double[Metric.values().length][rowCount];
+            for (final double[] values : metrics) {
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = in.readDouble();
+                }
+            }
+            return new Segment(metadata, dictionaries, codes, epochDays, metrics);
+        }
+    }
+
+    /**
+     * ヘッダーの索引を返します。
+     *
+     * @return ヘッダーの索引
+     */
+    public SegmentMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * 行数を返します。
+     *
+     * @return 行数
+     */
+    public int getRowCount() {
+        return epochDays.length;
+    }
+
+    /**
+     * 行の日付をエポック日で返します。
+     *
+     * @param row 行番号
+     * @return エポック日
+     */
+    public int epochDay(final int row) {
+        return epochDays[row];
+    }
+
+    /**
+     * 行の日付を返します。
+     *
+     * @param row 行番号
+     * @return 日付
+     */
+    public LocalDate date(final int row) {
+        return LocalDate.ofEpochDay(epochDays[row]);
+    }
+
+    /**
+     * 行の文字列列のコードを返します。同じセグメント内では同じ値に同じコードが割り当てられます。
+     *
+     * @param column 列
+     * @param row 行番号
+     * @return コード
+     */
+    public int code(final Column column, final int row) {
+        return codes[column.ordinal()][row];
+    }
+
+    /**
+     * 文字列列の辞書の大きさを返します。
+     *
+     * @param column 列
+     * @return 辞書に含まれる値の数
+     */
+    public int dictionarySize(final Column column) {
+        return dictionaries[column.ordinal()].length;
+    }
+
+    /**
+     * コードに対応する文字列を返します。
+     *
+     * @param column 列
+     * @param code コード
+     * @return 文字列（ディメンションが未取得の場合は空文字列）
+     */
+    public String decode(final Column column, final int code) {
+        return dictionaries[column.ordinal()][code];
+    }
+
+    /**
+     * 行の文字列列の値を返します。
+     *
+     * @param column 列
+     * @param row 行番号
+     * @return 文字列（ディメンションが未取得の場合は空文字列）
+     */
+    public String value(final Column column, final int row) {
+        return decode(column, code(column, row));
+    }
+
+    /**
+     * 行の数値列の値を返します。
+     *
+     * @param metric 数値列
+     * @param row 行番号
+     * @return 値
+     */
+    public double metric(final Metric metric, final int row) {
+        return metrics[metric.ordinal()][row];
+    }
+
+    /**
+     * セグメントファイルを開きます。
+     *
+     * @param path セグメントファイル
+     * @return 入力ストリーム
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private static DataInputStream open(final Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+    }
+
+    /**
+     * ヘッダーを読み込みます。
+     *
+     * @param path セグメントファイル
+     * @param in 入力ストリーム
+     * @return ヘッダーの索引
+     * @throws IOException 読み込みに失敗した場合
+     * @throws CommandLineInputOutputException セグメントファイルの形式が不正な場合
+     */
+    private static SegmentMetadata readHeader(final Path path, final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new CommandLineInputOutputException("Not a segment file: " + path);
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new CommandLineInputOutputException("Unsupported segment version " + version + ": " + path);
+        }
+        final int rowCount = in.readInt();
+        final List<String> dimensions = new ArrayList<>();
+        for (int d = in.readInt(); d > 0; d--) {
+            dimensions.add(in.readUTF());
+        }
+        final int minEpochDay = in.readInt();
+        final int maxEpochDay = in.readInt();
+        final double[] metricMin = new double[Metric.values().length];
+        final double[] metricMax = new double[Metric.values().length];
+        for (int m = 0; m < metricMin.length; m++) {
+            metricMin[m] = in.readDouble();
+            metricMax[m] = in.readDouble();
+        }
+        return new SegmentMetadata(path, rowCount, dimensions, minEpochDay, maxEpochDay, metricMin, metricMax);
+    }
+
+    /**
+     * 整数配列を読み込みます。
+     *
+     * @param in 入力ストリーム
+     * @param length 要素数
+     * @return 整数配列
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static int[] readInts(final DataInputStream in, final int length) throws IOException {
+        final int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,164 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * メモリ上で1セグメント分の行を列ごとに蓄積し、セグメントファイルへ書き出すクラスです。
+ *
+ * <p>文字列列はセグメント単位の辞書で整数コードへ符号化し、日付はエポック日の整数、
+ * 数値列はプリミティブ配列として保持します。</p>
+ */
+final class SegmentBuilder {
+
+    /** セグメントに格納できる最大行数。 */
+    private final int capacity;
+
+    /** 取得時のディメンション。 */
+    private final List<String> dimensions;
+
+    /** 列ごとの辞書（値からコード）。 */
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+
+    /** 列ごとの辞書（コード順の値）。 */
+    private final List<List<String>> dictionaryValues = new ArrayList<>();
+
+    /** 列ごとのコード。 */
+    private final int[][] codes;
+
+    /** 日付（エポック日）。 */
+    private final int[] epochDays;
+
+    /** 数値列ごとの値。 */
+    private final double[][] metrics;
+
+    /** 格納済みの行数。 */
+    private int size;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param capacity セグメントに格納できる最大行数
+     * @param dimensions 取得時のディメンション（{@link SegmentMetadata#canonicalDimensions}の並び順）
+     */
+    /* default */ SegmentBuilder(final int capacity, final List<String> dimensions) {
+        this.capacity = capacity;
+        this.dimensions = dimensions;
+        this.codes = new int[Column.values().length][capacity];
+        this.epochDays = new int[capacity];
+        this.metrics = new double[Metric.values().length][capacity];
+        for (int i = 0; i < Column.values().length; i++) {
+            dictionaries.add(new HashMap<>());
+            dictionaryValues.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * 1行を追加します。
+     *
+     * @param epochDay 日付（エポック日）
+     * @param values 列ごとの値（{@link Column#ordinal()}順）
+     * @param metricValues 数値列ごとの値（{@link Metric#ordinal()}順）
+     */
+    /* default */ void add(final int epochDay, final String[] values, final double[] metricValues) {
+        for (int c = 0; c < values.length; c++) {
+            final List<String> dictionary = dictionaryValues.get(c);
+            codes[c][size] = dictionaries.get(c).computeIfAbsent(values[c], value -> {
+                dictionary.add(value);
+                return dictionary.size() - 1;
+            });
+        }
+        epochDays[size] = epochDay;
+        for (int m = 0; m < metricValues.length; m++) {
+            metrics[m][size] = metricValues[m];
+        }
+        size++;
+    }
+
+    /**
+     * 格納済みの行数を返します。
+     *
+     * @return 行数
+     */
+    /* default */ int size() {
+        return size;
+    }
+
+    /**
+     * これ以上行を追加できないかどうかを返します。
+     *
+     * @return 最大行数に達した場合はtrue
+     */
+    /* default */ boolean isFull() {
+        return size >= capacity;
+    }
+
+    /**
+     * 蓄積した行をセグメントファイルへ書き出します。
+     *
+     * @param path 出力先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    /* default */ void writeTo(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            writeHeader(out);
+            for (int c = 0; c < codes.length; c++) {
+                final List<String> dictionary = dictionaryValues.get(c);
+                out.writeInt(dictionary.size());
+                for (final String value : dictionary) {
+                    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                for (int row = 0; row < size; row++) {
+                    out.writeInt(codes[c][row]);
+                }
+            }
+            for (int row = 0; row < size; row++) {
+                out.writeInt(epochDays[row]);
+            }
+            for (final double[] values : metrics) {
+                for (int row = 0; row < size; row++) {
+                    out.writeDouble(values[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 行数・ディメンションと最小値・最大値の索引を書き出します。
+     *
+     * @param out 出力先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void writeHeader(final DataOutputStream out) throws IOException {
+        out.writeInt(Segment.MAGIC);
+        out.writeInt(Segment.VERSION);
+        out.writeInt(size);
+        out.writeInt(dimensions.size());
+        for (final String dimension : dimensions) {
+            out.writeUTF(dimension);
+        }
+        out.writeInt(Arrays.stream(epochDays, 0, size).min().orElse(0));
+        out.writeInt(Arrays.stream(epochDays, 0, size).max().orElse(0));
+        for (final double[] values : metrics) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < size; row++) {
+                min = Math.min(min, values[row]);
+                max = Math.max(max, values[row]);
+            }
+            out.writeDouble(min);
+            out.writeDouble(max);
+        }
+    }
+}
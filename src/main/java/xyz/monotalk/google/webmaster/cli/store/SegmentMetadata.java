@@ -0,0 +1,164 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * セグメントのヘッダーに記録された行数・ディメンションと最小値・最大値の索引です。
+ *
+ * <p>セグメント本体を読み込まずに、日付範囲や数値の範囲が条件に合わないセグメントを除外するために使用します。
+ * ディメンションの組み合わせが異なるセグメントは同じ検索トラフィックを別の粒度で集計した行を持つため、
+ * 集計時はディメンションが一致するセグメントだけを対象にします。</p>
+ */
+public final class SegmentMetadata {
+
+    /** セグメントファイル。 */
+    private final Path path;
+
+    /** 行数。 */
+    private final int rowCount;
+
+    /** 取得時のディメンション（{@link #canonicalDimensions}の並び順）。 */
+    private final List<String> dimensions;
+
+    /** 日付の最小値（エポック日）。 */
+    private final int minEpochDay;
+
+    /** 日付の最大値（エポック日）。 */
+    private final int maxEpochDay;
+
+    /** 数値列ごとの最小値（{@link Metric#ordinal()}順）。 */
+    private final double[] metricMin;
+
+    /** 数値列ごとの最大値（{@link Metric#ordinal()}順）。 */
+    private final double[] metricMax;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param path セグメントファイル
+     * @param rowCount 行数
+     * @param dimensions 取得時のディメンション
+     * @param minEpochDay 日付の最小値（エポック日）
+     * @param maxEpochDay 日付の最大値（エポック日）
+     * @param metricMin 数値列ごとの最小値
+     * @param metricMax 数値列ごとの最大値
+     */
+    /* default */ SegmentMetadata(final Path path, final int rowCount, final List<String> dimensions,
+            final int minEpochDay, final int maxEpochDay, final double[] metricMin, final double[] metricMax) {
+        this.path = path;
+        this.rowCount = rowCount;
+        this.dimensions = List.copyOf(dimensions);
+        this.minEpochDay = minEpochDay;
+        this.maxEpochDay = maxEpochDay;
+        this.metricMin = metricMin.clone();
+        this.metricMax = metricMax.clone();
+    }
+
+    /**
+     * セグメントファイルを返します。
+     *
+     * @return セグメントファイル
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 行数を返します。
+     *
+     * @return 行数
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 取得時のディメンションを返します。
+     *
+     * @return ディメンション（{@code date}を先頭に{@link Column}の定義順）
+     */
+    public List<String> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 日付の最小値を返します。
+     *
+     * @return 日付の最小値
+     */
+    public LocalDate getMinDate() {
+        return LocalDate.ofEpochDay(minEpochDay);
+    }
+
+    /**
+     * 日付の最大値を返します。
+     *
+     * @return 日付の最大値
+     */
+    public LocalDate getMaxDate() {
+        return LocalDate.ofEpochDay(maxEpochDay);
+    }
+
+    /**
+     * 数値列の最小値を返します。
+     *
+     * @param metric 数値列
+     * @return 最小値
+     */
+    public double min(final Metric metric) {
+        return metricMin[metric.ordinal()];
+    }
+
+    /**
+     * 数値列の最大値を返します。
+     *
+     * @param metric 数値列
+     * @return 最大値
+     */
+    public double max(final Metric metric) {
+        return metricMax[metric.ordinal()];
+    }
+
+    /**
+     * 日付範囲と重なる行を含む可能性があるかどうかを返します。
+     *
+     * @param from 開始日（含む、nullの場合は制限なし）
+     * @param to 終了日（含む、nullの場合は制限なし）
+     * @return 重なる可能性がある場合はtrue
+     */
+    public boolean overlaps(final LocalDate from, final LocalDate to) {
+        return (from == null || maxEpochDay >= from.toEpochDay())
+                && (to == null || minEpochDay <= to.toEpochDay());
+    }
+
+    /**
+     * ディメンションを、並び順によらず比較できる順序に並べ替えます。
+     *
+     * @param dimensions ディメンション
+     * @return {@code date}を先頭に{@link Column}の定義順に並べたディメンション
+     * @throws CmdLineArgmentException ストアに保存できないディメンションを含む場合
+     */
+    public static List<String> canonicalDimensions(final Collection<String> dimensions) {
+        final List<String> canonical = new ArrayList<>(dimensions.size());
+        if (dimensions.contains("date")) {
+            canonical.add("date");
+        }
+        final Set<Column> columns = EnumSet.noneOf(Column.class);
+        for (final String dimension : dimensions) {
+            if (!"date".equals(dimension)) {
+                columns.add(Column.of(dimension));
+            }
+        }
+        for (final Column column : columns) {
+            canonical.add(column.getDimension());
+        }
+        return canonical;
+    }
+}
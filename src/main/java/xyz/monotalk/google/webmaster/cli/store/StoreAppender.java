@@ -0,0 +1,178 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+
+/**
+ * {@link ColumnarStore}へ行を追記するクラスです。
+ *
+ * <p>追記した行はセグメント単位で書き出し中のファイルへ出力され、{@link #commit()}で
+ * まとめてストアに公開されます。{@link #commit()}せずに{@link #close()}した場合は
+ * 書き出し中のファイルを破棄するため、中断したクエリの行がストアに残ることはありません。
+ * 複数スレッドから呼び出すことができます。</p>
+ */
+public final class StoreAppender implements Closeable {
+
+    /** ストア。 */
+    private final ColumnarStore store;
+
+    /** {@code keys}配列のうち日付の位置。 */
+    private final int dateIndex;
+
+    /** 列ごとの{@code keys}配列内の位置（取得していない列は-1）。 */
+    private final int[] keyIndexes;
+
+    /** セグメントのヘッダーに記録するディメンション。 */
+    private final List<String> dimensions;
+
+    /** 書き出し済みで未公開のセグメントファイル。 */
+    private final List<Path> pending = new ArrayList<>();
+
+    /** 書き出し前の行。 */
+    private SegmentBuilder builder;
+
+    /** 追記した行数。 */
+    private long rowCount;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param store ストア
+     * @param dimensions 追記する行のディメンション
+     * @throws CmdLineArgmentException 日付を含まない場合、ストアに保存できないディメンションを含む場合、
+     *         またはディメンションが重複している場合
+     */
+    /* default */ StoreAppender(final ColumnarStore store, final List<String> dimensions) {
+        this.store = store;
+        this.dateIndex = dimensions.indexOf("date");
+        if (dateIndex < 0) {
+            throw new CmdLineArgmentException("date dimension is required to store rows");
+        }
+        this.keyIndexes = new int[Column.values().length];
+        Arrays.fill(keyIndexes, -1);
+        for (int i = 0; i < dimensions.size(); i++) {
+            if (i != dateIndex) {
+                keyIndexes[Column.of(dimensions.get(i)).ordinal()] = i;
+            }
+        }
+        this.dimensions = SegmentMetadata.canonicalDimensions(dimensions);
+        if (this.dimensions.size() != dimensions.size()) {
+            throw new CmdLineArgmentException("Duplicate dimension: " + dimensions);
+        }
+        this.builder = new SegmentBuilder(store.getSegmentRows(), this.dimensions);
+    }
+
+    /**
+     * 行を追記します。
+     *
+     * @param rows 行
+     * @throws IOException セグメントの書き出しに失敗した場合
+     * @throws CommandLineInputOutputException 行の日付が不正な場合
+     */
+    public synchronized void append(final List<ApiDataRow> rows) throws IOException {
+        final String[] values = new String[keyIndexes.length];
+        final double[] metricValues = new double[Metric.values().length];
+        for (final ApiDataRow row : rows) {
+            final List<String> keys = row.getKeys() == null ? List.of() : row.getKeys();
+            for (int c = 0; c < keyIndexes.length; c++) {
+                values[c] = keyIndexes[c] >= 0 && keyIndexes[c] < keys.size() ? keys.get(keyIndexes[c]) : "";
+            }
+            for (final Metric metric : Metric.values()) {
+                metricValues[metric.ordinal()] = metric.valueOf(row);
+            }
+            builder.add(epochDayOf(keys), values, metricValues);
+            rowCount++;
+            if (builder.isFull()) {
+                flushSegment();
+            }
+        }
+    }
+
+    /**
+     * 追記した行をすべてストアに公開します。
+     *
+     * @throws IOException セグメントの書き出しまたは公開に失敗した場合
+     */
+    public synchronized void commit() throws IOException {
+        flushSegment();
+        for (final Path path : pending) {
+            final String name = path.getFileName().toString();
+            final Path target = path.resolveSibling(
+                    name.substring(0, name.length() - ColumnarStore.PENDING_SUFFIX.length()));
+            try {
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(path, target);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * 追記した行数を返します。
+     *
+     * @return 行数
+     */
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 未公開のセグメントファイルを破棄します。
+     *
+     * @throws IOException ファイルの削除に失敗した場合
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (final Path path : pending) {
+            Files.deleteIfExists(path);
+        }
+        pending.clear();
+    }
+
+    /**
+     * 書き出し前の行を未公開のセグメントファイルへ書き出します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void flushSegment() throws IOException {
+        if (builder.size() == 0) {
+            return;
+        }
+        final Path path = store.newSegmentPath();
+        final Path temporary = path.resolveSibling(path.getFileName() + ColumnarStore.PENDING_SUFFIX);
+        pending.add(temporary);
+        builder.writeTo(temporary);
+        builder = new SegmentBuilder(store.getSegmentRows(), dimensions);
+    }
+
+    /**
+     * 行の日付をエポック日で返します。
+     *
+     * @param keys 行の{@code keys}配列
+     * @return エポック日
+     * @throws CommandLineInputOutputException 日付が含まれないか不正な場合
+     */
+    private int epochDayOf(final List<String> keys) {
+        if (dateIndex >= keys.size()) {
+            throw new CommandLineInputOutputException("Row has no date key: " + keys);
+        }
+        try {
+            return Math.toIntExact(LocalDate.parse(keys.get(dateIndex)).toEpochDay());
+        } catch (DateTimeParseException e) {
+            throw new CommandLineInputOutputException("Invalid date key: " + keys.get(dateIndex), e);
+        }
+    }
+}
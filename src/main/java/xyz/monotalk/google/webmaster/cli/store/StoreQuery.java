@@ -0,0 +1,51 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * ストアに対する集計クエリを表すレコード。
+ *
+ * @param from 開始日（含む、nullの場合は制限なし）
+ * @param to 終了日（含む、nullの場合は制限なし）
+ * @param groupBy グループ化するディメンション（{@code date}と{@link Column}のディメンション名、空の場合は全体を集計）
+ * @param filters 集計前に行を絞り込む条件（すべてを満たす行が対象）
+ * @param orderBy 並べ替えに使用する数値列（{@code position}は昇順、それ以外は降順）
+ * @param limit 返却する最大グループ数
+ * @param dimensions 対象にするセグメントの取得時のディメンション（nullの場合は日付範囲内のセグメントから決定）
+ */
+public record StoreQuery(LocalDate from, LocalDate to, List<String> groupBy, List<RowFilter> filters,
+        Metric orderBy, int limit, List<String> dimensions) {
+
+    /**
+     * 集計クエリのコンストラクタ。
+     *
+     * @param from 開始日
+     * @param to 終了日
+     * @param groupBy グループ化するディメンション
+     * @param filters 集計前に行を絞り込む条件
+     * @param orderBy 並べ替えに使用する数値列
+     * @param limit 返却する最大グループ数
+     * @param dimensions 対象にするセグメントの取得時のディメンション
+     */
+    public StoreQuery {
+        groupBy = List.copyOf(groupBy);
+        filters = List.copyOf(filters);
+        dimensions = dimensions == null ? null : SegmentMetadata.canonicalDimensions(dimensions);
+    }
+
+    /**
+     * 対象のセグメントを日付範囲内のセグメントから決定する集計クエリのコンストラクタ。
+     *
+     * @param from 開始日
+     * @param to 終了日
+     * @param groupBy グループ化するディメンション
+     * @param filters 集計前に行を絞り込む条件
+     * @param orderBy 並べ替えに使用する数値列
+     * @param limit 返却する最大グループ数
+     */
+    public StoreQuery(final LocalDate from, final LocalDate to, final List<String> groupBy,
+            final List<RowFilter> filters, final Metric orderBy, final int limit) {
+        this(from, to, groupBy, filters, orderBy, limit, null);
+    }
+}
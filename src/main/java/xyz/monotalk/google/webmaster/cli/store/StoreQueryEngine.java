@@ -0,0 +1,414 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+
+/**
+ * {@link ColumnarStore}に対して集計クエリを実行するクラスです。
+ *
+ * <p>取得時のディメンションが異なるセグメントは同じ検索トラフィックを別の粒度で集計した行を持ち、
+ * 合算すると二重に計上されるため、1回の集計ではディメンションが一致するセグメントだけを対象にします。
+ * 日付範囲と条件の最小値・最大値で対象外のセグメントを除外した後、残りのセグメントを
+ * スレッドプールで並行に走査します。各セグメントではグループごとの集計値をプリミティブ配列に蓄積し、
+ * グループのキーは辞書のコードから組み立てた整数で識別するため、行ごとに文字列を生成しません。
+ * セグメントごとの部分集計を合算した後、上位のグループだけを返します。</p>
+ *
+ * <p>クリック数と表示回数は合計し、クリック率は合計クリック数÷合計表示回数、
+ * 掲載順位は表示回数で重み付けした平均として算出します。</p>
+ */
+public final class StoreQueryEngine {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreQueryEngine.class);
+
+    /** グループの検索に配列を直接使用するキー空間の上限。 */
+    private static final long DIRECT_SLOT_LIMIT = 1L << 20;
+
+    /** 日付ディメンションを表す列番号。 */
+    private static final int DATE_GROUP = -1;
+
+    /** クリック数の集計値の位置。 */
+    private static final int CLICKS = 0;
+
+    /** 表示回数の集計値の位置。 */
+    private static final int IMPRESSIONS = 1;
+
+    /** 表示回数で重み付けした掲載順位の合計の位置。 */
+    private static final int WEIGHTED_POSITION = 2;
+
+    /** ストア。 */
+    private final ColumnarStore store;
+
+    /** セグメントを並行に走査するスレッド数。 */
+    private final int concurrency;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param store ストア
+     * @param concurrency セグメントを並行に走査するスレッド数
+     * @throws CmdLineArgmentException スレッド数が1未満の場合
+     */
+    public StoreQueryEngine(final ColumnarStore store, final int concurrency) {
+        if (concurrency < 1) {
+            throw new CmdLineArgmentException("concurrency must be greater than 0");
+        }
+        this.store = store;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 集計クエリを実行します。
+     *
+     * @param query 集計クエリ
+     * @return 集計結果（{@code keys}はグループ化したディメンションの値、並べ替え済み）
+     * @throws IOException セグメントの読み込みに失敗した場合
+     * @throws CmdLineArgmentException グループ化できないディメンションを指定した場合、
+     *         または日付範囲内にディメンションの異なるセグメントが混在し、対象を指定していない場合
+     */
+    public List<ApiDataRow> execute(final StoreQuery query) throws IOException {
+        final int[] groups = groupColumnsOf(query.groupBy());
+        final List<SegmentMetadata> overlapping = new ArrayList<>();
+        for (final SegmentMetadata metadata : store.segments()) {
+            if (metadata.overlaps(query.from(), query.to())) {
+                overlapping.add(metadata);
+            }
+        }
+        final List<String> dimensions = resolveDimensions(overlapping, query);
+        final List<SegmentMetadata> targets = new ArrayList<>();
+        for (final SegmentMetadata metadata : overlapping) {
+            if (metadata.getDimensions().equals(dimensions)
+                    && query.filters().stream().allMatch(filter -> filter.mayMatch(metadata))) {
+                targets.add(metadata);
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Scanning {} segments", targets.size());
+        }
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, targets.size()));
+        try {
+            final List<Future<Map<List<String>, double[]>>> futures = new ArrayList<>(targets.size());
+            for (final SegmentMetadata metadata : targets) {
+                futures.add(executor.submit(() -> scan(Segment.read(metadata.getPath()), query, groups)));
+            }
+            final Map<List<String>, double[]> merged = new HashMap<>();
+            for (final Future<Map<List<String>, double[]>> future : futures) {
+                await(future).forEach((key, values) -> merged.merge(key, values, (left, right) -> {
+                    for (int i = 0; i < left.length; i++) {
+                        left[i] += right[i];
+                    }
+                    return left;
+                }));
+            }
+            return top(merged, query.orderBy(), query.limit());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 1セグメントを走査し、グループごとの部分集計を返します。
+     *
+     * @param segment セグメント
+     * @param query 集計クエリ
+     * @param groups グループ化する列番号（日付は{@value #DATE_GROUP}）
+     * @return グループのキーごとの集計値
+     */
+    private static Map<List<String>, double[]> scan(final Segment segment, final StoreQuery query,
+            final int[] groups) {
+        final IntPredicate predicate = predicateOf(segment, query);
+        final SegmentMetadata metadata = segment.getMetadata();
+        final int minEpochDay = (int) metadata.getMinDate().toEpochDay();
+        final long[] cardinalities = new long[groups.length];
+        long keySpace = 1;
+        boolean packed = true;
+        for (int g = 0; g < groups.length; g++) {
+            cardinalities[g] = groups[g] == DATE_GROUP
+                    ? metadata.getMaxDate().toEpochDay() - minEpochDay + 1
+                    : segment.dictionarySize(Column.values()[groups[g]]);
+            try {
+                keySpace = Math.multiplyExact(keySpace, cardinalities[g]);
+            } catch (ArithmeticException e) {
+                packed = false;
+            }
+        }
+        final Accumulators accumulators = new Accumulators();
+        final int[] direct = packed && keySpace <= DIRECT_SLOT_LIMIT ? new int[(int) keySpace] : null;
+        if (direct != null) {
+            Arrays.fill(direct, -1);
+        }
+        final Map<Object, Integer> slots = new HashMap<>();
+        final int[] codes = new int[groups.length];
+        for (int row = 0; row < segment.getRowCount(); row++) {
+            if (!predicate.test(row)) {
+                continue;
+            }
+            long key = 0;
+            for (int g = 0; g < groups.length; g++) {
+                codes[g] = groups[g] == DATE_GROUP
+                        ? segment.epochDay(row) - minEpochDay
+                        : segment.code(Column.values()[groups[g]], row);
+                key = key * cardinalities[g] + codes[g];
+            }
+            int slot;
+            if (direct != null) {
+                slot = direct[(int) key];
+                if (slot < 0) {
+                    slot = accumulators.newSlot(row);
+                    direct[(int) key] = slot;
+                }
+            } else {
+                final Object boxed = packed ? (Object) key : Arrays.stream(codes).boxed().toList();
+                final int current = row;
+                slot = slots.computeIfAbsent(boxed, ignored -> accumulators.newSlot(current));
+            }
+            accumulators.add(slot, segment, row);
+        }
+        return accumulators.toMap(segment, groups);
+    }
+
+    /**
+     * 日付範囲と条件をまとめた行の判定関数を生成します。
+     *
+     * @param segment セグメント
+     * @param query 集計クエリ
+     * @return 判定関数
+     */
+    private static IntPredicate predicateOf(final Segment segment, final StoreQuery query) {
+        final long from = query.from() == null ? Long.MIN_VALUE : query.from().toEpochDay();
+        final long to = query.to() == null ? Long.MAX_VALUE : query.to().toEpochDay();
+        IntPredicate predicate = row -> segment.epochDay(row) >= from && segment.epochDay(row) <= to;
+        for (final RowFilter filter : query.filters()) {
+            predicate = predicate.and(filter.bind(segment));
+        }
+        return predicate;
+    }
+
+    /**
+     * 集計の対象にするセグメントのディメンションを決定し、グループ化と条件に使用できることを検証します。
+     *
+     * @param overlapping 日付範囲と重なるセグメント
+     * @param query 集計クエリ
+     * @return 対象にするセグメントのディメンション（対象のセグメントがない場合は空リスト）
+     * @throws CmdLineArgmentException ディメンションの異なるセグメントが混在し対象を指定していない場合、
+     *         または対象のセグメントに保存されていないディメンションでグループ化・絞り込みをした場合
+     */
+    private static List<String> resolveDimensions(final List<SegmentMetadata> overlapping, final StoreQuery query) {
+        List<String> dimensions = query.dimensions();
+        if (dimensions == null) {
+            final Set<List<String>> stored = new LinkedHashSet<>();
+            for (final SegmentMetadata metadata : overlapping) {
+                stored.add(metadata.getDimensions());
+            }
+            if (stored.size() > 1) {
+                throw new CmdLineArgmentException("Store has segments with different dimensions in the date range "
+                        + stored + ", select one with -dimensions");
+            }
+            if (stored.isEmpty()) {
+                return List.of();
+            }
+            dimensions = stored.iterator().next();
+        }
+        final List<String> used = new ArrayList<>(query.groupBy());
+        for (final RowFilter filter : query.filters()) {
+            if (filter.getColumn() != null) {
+                used.add(filter.getColumn().getDimension());
+            }
+        }
+        for (final String dimension : used) {
+            if (!dimensions.contains(dimension)) {
+                throw new CmdLineArgmentException(
+                        "Dimension is not stored in the segments: " + dimension + " (stored: " + dimensions + ")");
+            }
+        }
+        return dimensions;
+    }
+
+    /**
+     * グループ化するディメンションを列番号に変換します。
+     *
+     * @param groupBy グループ化するディメンション
+     * @return 列番号（日付は{@value #DATE_GROUP}）
+     * @throws CmdLineArgmentException グループ化できないディメンションまたは重複を指定した場合
+     */
+    private static int[] groupColumnsOf(final List<String> groupBy) {
+        if (groupBy.stream().distinct().count() != groupBy.size()) {
+            throw new CmdLineArgmentException("Duplicate group by dimension: " + groupBy);
+        }
+        final int[] groups = new int[groupBy.size()];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = "date".equals(groupBy.get(g)) ? DATE_GROUP : Column.of(groupBy.get(g)).ordinal();
+        }
+        return groups;
+    }
+
+    /**
+     * 集計値を並べ替え、上位のグループを行に変換します。
+     *
+     * @param merged グループのキーごとの集計値
+     * @param orderBy 並べ替えに使用する数値列
+     * @param limit 返却する最大グループ数
+     * @return 上位のグループ
+     */
+    private static List<ApiDataRow> top(final Map<List<String>, double[]> merged, final Metric orderBy,
+            final int limit) {
+        Comparator<ApiDataRow> order = Comparator.comparingDouble(row -> orderBy.valueOf(row));
+        if (orderBy != Metric.POSITION) {
+            order = order.reversed();
+        }
+        // 上位limit件だけを保持するため、先頭に最も順位の低い行が来るヒープを使用する
+        final PriorityQueue<ApiDataRow> heap = new PriorityQueue<>(order.reversed());
+        for (final Map.Entry<List<String>, double[]> entry : merged.entrySet()) {
+            heap.add(toRow(entry.getKey(), entry.getValue()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        final List<ApiDataRow> rows = new ArrayList<>(heap);
+        rows.sort(order);
+        return rows;
+    }
+
+    /**
+     * 集計値を行に変換します。
+     *
+     * @param keys グループのキー
+     * @param values 集計値
+     * @return 行
+     */
+    private static ApiDataRow toRow(final List<String> keys, final double[] values) {
+        final double impressions = values[IMPRESSIONS];
+        return new ApiDataRow()
+                .setKeys(keys)
+                .setClicks(values[CLICKS])
+                .setImpressions(impressions)
+                .setCtr(impressions > 0 ? values[CLICKS] / impressions : 0.0)
+                .setPosition(impressions > 0 ? values[WEIGHTED_POSITION] / impressions : 0.0);
+    }
+
+    /**
+     * セグメントの走査結果を待ちます。
+     *
+     * @param future 走査結果
+     * @return グループのキーごとの集計値
+     * @throws IOException セグメントの読み込みに失敗していた場合
+     */
+    private static Map<List<String>, double[]> await(final Future<Map<List<String>, double[]>> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineInputOutputException("Interrupted while scanning segments", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CommandLineInputOutputException("Segment scan failed", cause);
+        }
+    }
+
+    /**
+     * 1セグメント内のグループごとの集計値を保持するプリミティブ配列です。
+     */
+    private static final class Accumulators {
+
+        /** 初期のグループ数。 */
+        private static final int INITIAL_CAPACITY = 256;
+
+        /** グループごとのクリック数の合計。 */
+        private double[] clicks = new double[INITIAL_CAPACITY];
+
+        /** グループごとの表示回数の合計。 */
+        private double[] impressions = new double[INITIAL_CAPACITY];
+
+        /** グループごとの表示回数で重み付けした掲載順位の合計。 */
+        private double[] weightedPositions = new double[INITIAL_CAPACITY];
+
+        /** グループごとの最初の行番号（キーの復元に使用）。 */
+        private int[] firstRows = new int[INITIAL_CAPACITY];
+
+        /** グループ数。 */
+        private int size;
+
+        /**
+         * グループを追加します。
+         *
+         * @param row グループの最初の行番号
+         * @return グループの番号
+         */
+        private int newSlot(final int row) {
+            if (size == firstRows.length) {
+                final int capacity = size * 2;
+                clicks = Arrays.copyOf(clicks, capacity);
+                impressions = Arrays.copyOf(impressions, capacity);
+                weightedPositions = Arrays.copyOf(weightedPositions, capacity);
+                firstRows = Arrays.copyOf(firstRows, capacity);
+            }
+            firstRows[size] = row;
+            return size++;
+        }
+
+        /**
+         * 行の値をグループへ加算します。
+         *
+         * @param slot グループの番号
+         * @param segment セグメント
+         * @param row 行番号
+         */
+        private void add(final int slot, final Segment segment, final int row) {
+            final double rowImpressions = segment.metric(Metric.IMPRESSIONS, row);
+            clicks[slot] += segment.metric(Metric.CLICKS, row);
+            impressions[slot] += rowImpressions;
+            weightedPositions[slot] += segment.metric(Metric.POSITION, row) * rowImpressions;
+        }
+
+        /**
+         * グループのキーを復元し、キーごとの集計値に変換します。
+         *
+         * @param segment セグメント
+         * @param groups グループ化する列番号
+         * @return グループのキーごとの集計値
+         */
+        private Map<List<String>, double[]> toMap(final Segment segment, final int[] groups) {
+            final Map<List<String>, double[]> result = new HashMap<>(size * 2);
+            for (int slot = 0; slot < size; slot++) {
+                final int row = firstRows[slot];
+                final List<String> keys = new ArrayList<>(groups.length);
+                for (final int group : groups) {
+                    keys.add(group == DATE_GROUP
+                            ? LocalDate.ofEpochDay(segment.epochDay(row)).toString()
+                            : segment.value(Column.values()[group], row));
+                }
+                result.put(keys, new double[] {clicks[slot], impressions[slot], weightedPositions[slot]});
+            }
+            return result;
+        }
+    }
+}
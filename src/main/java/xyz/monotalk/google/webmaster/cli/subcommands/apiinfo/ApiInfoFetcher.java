@@ -3,28 +3,64 @@ package xyz.monotalk.google.webmaster.cli.subcommands.apiinfo;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
 import com.google.api.services.webmasters.Webmasters;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
 import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
 import xyz.monotalk.google.webmaster.cli.model.ApiResponseHandler;
 import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
 
 /**
  * API情報を取得するクラス。
+ *
+ * <p>取得したディスカバリードキュメントはETag・Last-Modifiedとともに保存し（{@link DiscoveryDocumentStore}）、
+ * 次回は{@code If-None-Match}・{@code If-Modified-Since}を付けた条件付きリクエストを送ります。
+ * 変更がない（304 Not Modified）場合は本文を再取得せず、保存済みの本文を返します。</p>
  */
 @Component
 public class ApiInfoFetcher {
 
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApiInfoFetcher.class);
+
     /** Google APIのディスカバリーURL。 */
     private static final String API_DISCOVERY_URL = "https://www.googleapis.com/discovery/v1/apis";
 
+    /** ETagのヘッダー名。 */
+    private static final String ETAG = "ETag";
+
+    /** Last-Modifiedのヘッダー名。 */
+    private static final String LAST_MODIFIED = "Last-Modified";
+
     /** Webmasters APIクライアント生成ファクトリ。 */
     @Autowired
     private WebmastersFactory factory;
 
+    /** ディスカバリードキュメントの取得元URL。 */
+    @Value("${application.discovery.url:" + API_DISCOVERY_URL + "}")
+    private String discoveryUrl = API_DISCOVERY_URL;
+
+    /** ディスカバリードキュメントの保存先（空の場合は保存せず、毎回取得します）。 */
+    @Value("${application.discovery.cacheDir:}")
+    private String cacheDir;
+
     /**
      * デフォルトコンストラクタ。
      */
@@ -41,12 +77,105 @@ public class ApiInfoFetcher {
     public ApiResponseRecord<GenericJson> fetchApiInfo() throws IOException {
         final Webmasters client = factory.createClient();
         final HttpRequestFactory requestFactory = createRequestFactory(client);
-        final HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(API_DISCOVERY_URL));
-        requestFactory.getInitializer().initialize(request);
-        return ApiResponseHandler.handleJsonResponse(request.execute());
+        final HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(discoveryUrl));
+        final DiscoveryDocumentStore store = cacheDir == null || cacheDir.isBlank()
+                ? null : new DiscoveryDocumentStore(Paths.get(cacheDir), discoveryUrl);
+        final DiscoveryDocumentStore.Stored stored = store == null ? null : store.load();
+        if (stored != null) {
+            request.getHeaders().setIfNoneMatch(stored.etag());
+            request.getHeaders().setIfModifiedSince(stored.lastModified());
+        }
+        final HttpResponse response;
+        try {
+            response = request.execute();
+        } catch (HttpResponseException e) {
+            if (stored != null && e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Discovery document not modified, using stored copy: {}", discoveryUrl);
+                }
+                return notModified(client.getJsonFactory(), stored);
+            }
+            throw e;
+        }
+        final ApiResponseRecord<byte[]> raw =
+                ApiResponseHandler.handleResponse(response, ApiInfoFetcher::readContent);
+        if (store != null) {
+            store.save(new DiscoveryDocumentStore.Stored(raw.data(), headerOf(raw.getHeaders(), ETAG),
+                    headerOf(raw.getHeaders(), LAST_MODIFIED)));
+        }
+        return ApiResponseRecord.<GenericJson>builder()
+                .status(raw.status())
+                .statusCode(raw.code())
+                .timestamp(raw.time())
+                .data(parse(client.getJsonFactory(), raw.data()))
+                .headers(raw.getHeaders())
+                .retries(raw.retries())
+                .build();
     }
 
     private HttpRequestFactory createRequestFactory(final Webmasters client) {
         return client.getRequestFactory();
     }
-}
\ No newline at end of file
+
+    /**
+     * 保存済みの本文から成功レスポンスを作成します。
+     *
+     * @param jsonFactory JSONファクトリ
+     * @param stored 保存済みのドキュメント
+     * @return 保存済みの本文を含むレスポンスレコード
+     * @throws IOException 本文の解析に失敗した場合
+     */
+    private static ApiResponseRecord<GenericJson> notModified(final JsonFactory jsonFactory,
+            final DiscoveryDocumentStore.Stored stored) throws IOException {
+        return ApiResponseRecord.<GenericJson>builder()
+                .status(ApiResponseRecord.ResponseStatus.SUCCESS)
+                .statusCode(HttpStatusCodes.STATUS_CODE_OK)
+                .timestamp(LocalDateTime.now())
+                .data(parse(jsonFactory, stored.body()))
+                .build();
+    }
+
+    /**
+     * レスポンス本文を読み込みます。
+     *
+     * @param response HTTPレスポンス
+     * @return 本文
+     * @throws CommandLineInputOutputException 読み込みに失敗した場合
+     */
+    private static byte[] readContent(final HttpResponse response) {
+        try (InputStream in = response.getContent()) {
+            return in == null ? new byte[0] : in.readAllBytes();
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to read API response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 本文をJSONとして解析します。
+     *
+     * @param jsonFactory JSONファクトリ
+     * @param body 本文
+     * @return 解析結果
+     * @throws IOException 解析に失敗した場合
+     */
+    private static GenericJson parse(final JsonFactory jsonFactory, final byte[] body) throws IOException {
+        return jsonFactory.createJsonParser(new ByteArrayInputStream(body), StandardCharsets.UTF_8)
+                .parseAndClose(GenericJson.class);
+    }
+
+    /**
+     * レスポンスヘッダーの値を名前の大文字・小文字を区別せずに取り出します。
+     *
+     * @param headers レスポンスヘッダー
+     * @param name ヘッダー名
+     * @return 最初の値（ない場合はnull）
+     */
+    private static String headerOf(final Map<String, List<String>> headers, final String name) {
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+}
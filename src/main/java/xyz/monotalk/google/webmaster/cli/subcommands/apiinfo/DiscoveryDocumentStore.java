@@ -0,0 +1,160 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.apiinfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ディスカバリードキュメントの本文と検証用ヘッダー（ETag・Last-Modified）をディスクに保存するクラスです。
+ *
+ * <p>URLごとに本文ファイルとメタデータファイルの2つを保存します。次回の取得時に条件付きリクエストを送り、
+ * 変更がなければ（304 Not Modified）保存済みの本文を使用します。
+ * 書き込みは一時ファイルからの置き換えで行うため、書き込み途中のファイルを読み込むことはありません。</p>
+ */
+final class DiscoveryDocumentStore {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryDocumentStore.class);
+
+    /** URLを保存するメタデータのキー。 */
+    private static final String KEY_URL = "url";
+
+    /** ETagを保存するメタデータのキー。 */
+    private static final String KEY_ETAG = "etag";
+
+    /** Last-Modifiedを保存するメタデータのキー。 */
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+
+    /** 取得元のURL。 */
+    private final String url;
+
+    /** 本文ファイル。 */
+    private final Path bodyFile;
+
+    /** メタデータファイル。 */
+    private final Path metadataFile;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory 保存先ディレクトリ
+     * @param url 取得元のURL
+     */
+    /* default */ DiscoveryDocumentStore(final Path directory, final String url) {
+        this.url = url;
+        final String name = "discovery-" + digestOf(url);
+        this.bodyFile = directory.resolve(name + ".json");
+        this.metadataFile = directory.resolve(name + ".properties");
+    }
+
+    /**
+     * 保存済みのドキュメントを読み込みます。
+     *
+     * @return 保存済みのドキュメント（ない場合、または検証用ヘッダーがない場合はnull）
+     */
+    /* default */ Stored load() {
+        final Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+            if (!url.equals(metadata.getProperty(KEY_URL))) {
+                return null;
+            }
+            final String etag = metadata.getProperty(KEY_ETAG);
+            final String lastModified = metadata.getProperty(KEY_LAST_MODIFIED);
+            if (etag == null && lastModified == null) {
+                return null;
+            }
+            return new Stored(Files.readAllBytes(bodyFile), etag, lastModified);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Ignoring unreadable discovery document cache {}: {}", metadataFile, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * ドキュメントを保存します。検証用ヘッダーがない場合は保存しません。保存に失敗しても例外は送出しません。
+     *
+     * @param stored 保存するドキュメント
+     */
+    /* default */ void save(final Stored stored) {
+        if (stored.etag() == null && stored.lastModified() == null) {
+            return;
+        }
+        final Properties metadata = new Properties();
+        metadata.setProperty(KEY_URL, url);
+        if (stored.etag() != null) {
+            metadata.setProperty(KEY_ETAG, stored.etag());
+        }
+        if (stored.lastModified() != null) {
+            metadata.setProperty(KEY_LAST_MODIFIED, stored.lastModified());
+        }
+        try {
+            Files.createDirectories(bodyFile.getParent());
+            // 本文を先に置き換え、メタデータは本文と対応が取れてから置き換える
+            Files.deleteIfExists(metadataFile);
+            replace(bodyFile, stored.body());
+            final Path temp = Files.createTempFile(metadataFile.getParent(), "discovery", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                metadata.store(out, null);
+            }
+            Files.move(temp, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Failed to save discovery document cache {}: {}", bodyFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一時ファイルに書き込んでからファイルを置き換えます。
+     *
+     * @param file 置き換えるファイル
+     * @param bytes 書き込む内容
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void replace(final Path file, final byte[] bytes) throws IOException {
+        final Path temp = Files.createTempFile(file.getParent(), "discovery", ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * URLからファイル名に使うダイジェストを求めます。
+     *
+     * @param url URL
+     * @return SHA-256の16進表記
+     */
+    private static String digestOf(final String url) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * 保存済みのドキュメントです。
+     *
+     * @param body 本文
+     * @param etag ETag（ない場合はnull）
+     * @param lastModified Last-Modified（ない場合はnull）
+     */
+    /* default */ record Stored(byte[] body, String etag, String lastModified) {
+    }
+}
@@ -0,0 +1,147 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.batch;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+/**
+ * バッチ実行した1コマンド分の結果を表すクラス。
+ */
+public class BatchResult extends GenericJson {
+
+    /** 入力の行番号（1始まり）。 */
+    @Key
+    private Integer line;
+
+    /** 実行したコマンドライン。 */
+    @Key
+    private String command;
+
+    /** 成功したかどうか。 */
+    @Key
+    private Boolean success;
+
+    /** 実行時間（ミリ秒）。 */
+    @Key
+    private Long elapsedMillis;
+
+    /** 失敗時のエラーメッセージ。 */
+    @Key
+    private String error;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public BatchResult() {
+        super();
+    }
+
+    /**
+     * 行番号を取得します。
+     *
+     * @return 行番号
+     */
+    public Integer getLine() {
+        return line;
+    }
+
+    /**
+     * 行番号を設定します。
+     *
+     * @param line 行番号
+     * @return このインスタンス
+     */
+    public BatchResult setLine(final Integer line) {
+        this.line = line;
+        return this;
+    }
+
+    /**
+     * コマンドラインを取得します。
+     *
+     * @return コマンドライン
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * コマンドラインを設定します。
+     *
+     * @param command コマンドライン
+     * @return このインスタンス
+     */
+    public BatchResult setCommand(final String command) {
+        this.command = command;
+        return this;
+    }
+
+    /**
+     * 成功したかどうかを取得します。
+     *
+     * @return 成功した場合はtrue
+     */
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    /**
+     * 成功したかどうかを設定します。
+     *
+     * @param success 成功した場合はtrue
+     * @return このインスタンス
+     */
+    public BatchResult setSuccess(final Boolean success) {
+        this.success = success;
+        return this;
+    }
+
+    /**
+     * 実行時間を取得します。
+     *
+     * @return 実行時間（ミリ秒）
+     */
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 実行時間を設定します。
+     *
+     * @param elapsedMillis 実行時間（ミリ秒）
+     * @return このインスタンス
+     */
+    public BatchResult setElapsedMillis(final Long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+        return this;
+    }
+
+    /**
+     * エラーメッセージを取得します。
+     *
+     * @return エラーメッセージ
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * エラーメッセージを設定します。
+     *
+     * @param error エラーメッセージ
+     * @return このインスタンス
+     */
+    public BatchResult setError(final String error) {
+        this.error = error;
+        return this;
+    }
+
+    @Override
+    public BatchResult set(final String fieldName, final Object value) {
+        return (BatchResult) super.set(fieldName, value);
+    }
+
+    @Override
+    public BatchResult clone() {
+        return (BatchResult) super.clone();
+    }
+}
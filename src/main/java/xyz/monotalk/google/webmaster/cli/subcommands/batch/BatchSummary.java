@@ -0,0 +1,111 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.batch;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+import java.util.List;
+
+/**
+ * バッチ実行全体の結果を表すクラス。
+ */
+public class BatchSummary extends GenericJson {
+
+    /** 実行したコマンド数。 */
+    @Key
+    private Integer total;
+
+    /** 成功したコマンド数。 */
+    @Key
+    private Integer succeeded;
+
+    /** 失敗したコマンド数。 */
+    @Key
+    private Integer failed;
+
+    /** 全体の実行時間（ミリ秒）。 */
+    @Key
+    private Long elapsedMillis;
+
+    /** コマンドごとの結果（入力順）。 */
+    @Key
+    private List<BatchResult> results;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public BatchSummary() {
+        super();
+    }
+
+    /**
+     * コマンドごとの結果から集計結果を生成します。
+     *
+     * @param results コマンドごとの結果（入力順）
+     * @param elapsedMillis 全体の実行時間（ミリ秒）
+     * @return 集計結果
+     */
+    public static BatchSummary of(final List<BatchResult> results, final long elapsedMillis) {
+        final int succeeded = (int) results.stream().filter(r -> Boolean.TRUE.equals(r.getSuccess())).count();
+        final BatchSummary summary = new BatchSummary();
+        summary.total = results.size();
+        summary.succeeded = succeeded;
+        summary.failed = results.size() - succeeded;
+        summary.elapsedMillis = elapsedMillis;
+        summary.results = results;
+        return summary;
+    }
+
+    /**
+     * 実行したコマンド数を取得します。
+     *
+     * @return 実行したコマンド数
+     */
+    public Integer getTotal() {
+        return total;
+    }
+
+    /**
+     * 成功したコマンド数を取得します。
+     *
+     * @return 成功したコマンド数
+     */
+    public Integer getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * 失敗したコマンド数を取得します。
+     *
+     * @return 失敗したコマンド数
+     */
+    public Integer getFailed() {
+        return failed;
+    }
+
+    /**
+     * 全体の実行時間を取得します。
+     *
+     * @return 全体の実行時間（ミリ秒）
+     */
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * コマンドごとの結果を取得します。
+     *
+     * @return コマンドごとの結果
+     */
+    public List<BatchResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public BatchSummary set(final String fieldName, final Object value) {
+        return (BatchSummary) super.set(fieldName, value);
+    }
+
+    @Override
+    public BatchSummary clone() {
+        return (BatchSummary) super.clone();
+    }
+}
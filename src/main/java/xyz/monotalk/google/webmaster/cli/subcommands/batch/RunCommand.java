@@ -0,0 +1,170 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.Command;
+import xyz.monotalk.google.webmaster.cli.CommandExecution;
+import xyz.monotalk.google.webmaster.cli.CommandExecutionEngine;
+import xyz.monotalk.google.webmaster.cli.CommandInput;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.Format;
+import xyz.monotalk.google.webmaster.cli.ResponseWriter;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+
+/**
+ * 複数のコマンドを1プロセス内でまとめて実行するコマンドクラス。
+ *
+ * <p>ファイルまたは標準入力から1行1コマンドで読み込み、同じSpringコンテキストと
+ * 共有のWebmastersクライアントを使って実行します。空行と{@code #}で始まる行は無視します。
+ * 各コマンドの出力は各コマンドの{@code -format}/{@code -filePath}に従い、
+ * 実行結果の集計は本コマンドの{@code -format}/{@code -filePath}に出力します。
+ * コマンドは{@link CommandExecutionEngine}により仮想スレッドで実行し、同時実行数を{@code -concurrency}で制限します。
+ * {@code -failFast}を指定すると、失敗したコマンドがあった時点で残りのコマンドを取り消します。</p>
+ */
+@Component
+public class RunCommand implements Command {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunCommand.class);
+
+    /** バッチ実行自身のコマンド名。入れ子実行を防ぐために使用します。 */
+    private static final String SELF_COMMAND = "webmasters.batch.run";
+
+    /** コマンドラインを記述したファイル。未指定の場合は標準入力から読み込みます。 */
+    @Option(name = "-file", usage = "File of command lines (default: stdin)", metaVar = "<file>")
+    private String file;
+
+    /** 同時実行数。 */
+    @Option(name = "-concurrency", usage = "Number of commands executed concurrently")
+    private int concurrency = 1;
+
+    /** 失敗したコマンドがあった場合に残りを取り消すかどうか。 */
+    @Option(name = "-failFast", usage = "Cancel the remaining commands when a command fails")
+    private boolean failFast;
+
+    /** 集計結果の出力フォーマット。 */
+    @Option(name = "-format", usage = "Summary output format")
+    private Format format = Format.CONSOLE;
+
+    /** 集計結果の出力ファイルパス。 */
+    @Option(name = "-filePath", usage = "Summary output file path")
+    private String filePath;
+
+    /** コマンドを実行するランナー。 */
+    private final WebmastersCommandRunner runner;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param runner コマンドを実行するランナー
+     */
+    public RunCommand(final WebmastersCommandRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * 読み込んだコマンドをすべて実行し、集計結果を出力します。
+     *
+     * @throws CommandLineInputOutputException 入力の読み込みに失敗した場合、または失敗したコマンドがある場合
+     * @throws CmdLineArgmentException 引数が不正な場合
+     */
+    @Override
+    public void execute() {
+        validateArguments();
+        final List<String> lines = CommandInput.readLines(file);
+        final long started = System.nanoTime();
+        final List<BatchResult> results = runAll(lines);
+        final BatchSummary summary = BatchSummary.of(results, elapsedMillisSince(started));
+        ResponseWriter.writeJson(summary, format, filePath);
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Batch finished: total={}, succeeded={}, failed={}",
+                    summary.getTotal(), summary.getSucceeded(), summary.getFailed());
+        }
+        if (summary.getFailed() > 0) {
+            throw new CommandLineInputOutputException(
+                    summary.getFailed() + " of " + summary.getTotal() + " commands failed");
+        }
+    }
+
+    /**
+     * 引数を検証します。
+     *
+     * @throws CmdLineArgmentException 引数が無効な場合
+     */
+    private void validateArguments() {
+        if (concurrency < 1) {
+            throw new CmdLineArgmentException("concurrency must be greater than 0");
+        }
+        if (format == Format.JSON && StringUtils.isBlank(filePath)) {
+            throw new CmdLineArgmentException("File path must be specified when using JSON format");
+        }
+    }
+
+    /**
+     * 全コマンドを実行し、入力順の結果を返します。
+     *
+     * @param lines 入力の全行
+     * @return コマンドごとの結果（入力順）
+     */
+    private List<BatchResult> runAll(final List<String> lines) {
+        final List<Integer> lineNumbers = new ArrayList<>();
+        final List<String[]> commands = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (CommandInput.isSkippable(lines.get(i))) {
+                continue;
+            }
+            lineNumbers.add(i + 1);
+            commands.add(CommandInput.tokenize(lines.get(i).trim()));
+        }
+        final CommandExecutionEngine engine = new CommandExecutionEngine(this::runCommand, concurrency, failFast);
+        final List<BatchResult> results = new ArrayList<>(commands.size());
+        for (final CommandExecution execution : engine.execute(commands)) {
+            final int lineNumber = lineNumbers.get(execution.index());
+            if (!execution.succeeded() && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Command {} at line {}: {}", execution.status(), lineNumber, execution.error());
+            }
+            results.add(new BatchResult()
+                    .setLine(lineNumber)
+                    .setCommand(lines.get(lineNumber - 1).trim())
+                    .setSuccess(execution.succeeded())
+                    .setError(execution.error())
+                    .setElapsedMillis(execution.elapsedMillis()));
+        }
+        return results;
+    }
+
+    /**
+     * 1コマンドを実行します。
+     *
+     * @param args コマンドライン引数
+     * @throws CmdLineArgmentException バッチ実行を入れ子で実行しようとした場合
+     */
+    private void runCommand(final String... args) {
+        if (SELF_COMMAND.equals(args[0])) {
+            throw new CmdLineArgmentException("Nested batch execution is not supported");
+        }
+        runner.run(args);
+    }
+
+    /**
+     * 指定時刻からの経過ミリ秒を返します。
+     *
+     * @param startedNanos 開始時刻（{@link System#nanoTime()}）
+     * @return 経過ミリ秒
+     */
+    private static long elapsedMillisSince(final long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000L;
+    }
+
+    @Override
+    public String usage() {
+        return "Runs command lines from a file or stdin in a single process.";
+    }
+}
@@ -0,0 +1,404 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.daemon;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandInput;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+
+/**
+ * コマンドの実行要求をループバックアドレスのHTTPで受け付けるサーバーです。
+ *
+ * <p>{@code POST /run}の本文に1行のコマンドライン（例：{@code webmasters.sites.list -format json ...}）を送ると、
+ * {@link WebmastersCommandRunner}で実行し、CLIとして実行した場合に標準出力へ書き込まれる内容をそのままレスポンスとして返します。
+ * 出力は書き込まれた順に逐次送信します。出力前に失敗した場合は引数の誤りを400、それ以外を500として
+ * エラーメッセージを返し、出力の送信開始後に失敗した場合は終端を送らずに接続を切断します。
+ * {@code GET /health}は稼働確認、{@code POST /shutdown}はサーバーの停止に使用します。</p>
+ *
+ * <p>起動ごとにランダムなトークンを生成して所有者だけが読み書きできるファイルへ書き出し、
+ * すべての要求で{@code Authorization: Bearer <トークン>}ヘッダーを要求します。
+ * ブラウザーが別のオリジンから送信する要求を受け付けないよう、{@code Origin}ヘッダーを含む要求は拒否します。</p>
+ */
+final class DaemonServer {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonServer.class);
+
+    /** 常駐サーバー自身のコマンド名。入れ子実行を防ぐために使用します。 */
+    private static final String SELF_COMMAND = "webmasters.daemon.serve";
+
+    /** テキストのContent-Type。 */
+    private static final String TEXT_PLAIN = "text/plain; charset=UTF-8";
+
+    /** 成功のステータスコード。 */
+    private static final int STATUS_OK = 200;
+
+    /** 引数誤りのステータスコード。 */
+    private static final int STATUS_BAD_REQUEST = 400;
+
+    /** 認証失敗のステータスコード。 */
+    private static final int STATUS_UNAUTHORIZED = 401;
+
+    /** 拒否のステータスコード。 */
+    private static final int STATUS_FORBIDDEN = 403;
+
+    /** 未対応メソッドのステータスコード。 */
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+
+    /** 実行失敗のステータスコード。 */
+    private static final int STATUS_ERROR = 500;
+
+    /** トークンのバイト数。 */
+    private static final int TOKEN_BYTES = 32;
+
+    /** 認証ヘッダーの接頭辞。 */
+    private static final String BEARER = "Bearer ";
+
+    /** コマンドを実行するランナー。 */
+    private final WebmastersCommandRunner runner;
+
+    /** HTTPサーバー。 */
+    private final HttpServer server;
+
+    /** リクエストを処理するスレッドプール。 */
+    private final ExecutorService executor;
+
+    /** 要求の認証に使うトークン。 */
+    private final String token;
+
+    /** トークンを書き出すファイル。 */
+    private final Path tokenFile;
+
+    /** 停止要求を待つためのラッチ。 */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /** 標準出力の振り分け（起動前はnull）。 */
+    private OutputRouter router;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param runner コマンドを実行するランナー
+     * @param port 待ち受けポート（0の場合は空いているポート）
+     * @param concurrency 同時に実行するコマンド数
+     * @param tokenFile トークンを書き出すファイル
+     * @throws IOException ポートを確保できなかった場合
+     */
+    /* default */ DaemonServer(final WebmastersCommandRunner runner, final int port, final int concurrency,
+            final Path tokenFile) throws IOException {
+        this.runner = runner;
+        this.tokenFile = tokenFile;
+        final byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        this.token = HexFormat.of().formatHex(random);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(concurrency);
+        server.setExecutor(executor);
+        server.createContext("/run", authorized(this::handleRun));
+        server.createContext("/health", authorized(exchange -> respond(exchange, STATUS_OK, "ok")));
+        server.createContext("/shutdown", authorized(this::handleShutdown));
+    }
+
+    /**
+     * トークンをファイルへ書き出し、標準出力を振り分けに差し替えて、要求の受け付けを開始します。
+     *
+     * @throws IOException トークンを書き出せなかった場合
+     */
+    /* default */ void start() throws IOException {
+        writeToken(tokenFile, token);
+        router = OutputRouter.install();
+        server.start();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Daemon listening on http://{}:{} (token: {})", server.getAddress().getHostString(), getPort(),
+                    tokenFile);
+        }
+    }
+
+    /**
+     * 待ち受けポートを返します。
+     *
+     * @return 待ち受けポート
+     */
+    /* default */ int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * {@code POST /shutdown}を受け付けるまで待機します。
+     *
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    /* default */ void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * 要求の受け付けを停止し、標準出力を元に戻してトークンのファイルを削除します。
+     */
+    /* default */ void stop() {
+        server.stop(0);
+        executor.shutdown();
+        if (router != null) {
+            router.uninstall();
+        }
+        try {
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Failed to delete token file {}: {}", tokenFile, e.getMessage());
+            }
+        }
+        stopped.countDown();
+    }
+
+    /**
+     * {@code Origin}ヘッダーのない、正しいトークンを持つ要求だけを処理するハンドラーを返します。
+     *
+     * @param handler 要求を処理するハンドラー
+     * @return 認証付きのハンドラー
+     */
+    private HttpHandler authorized(final HttpHandler handler) {
+        return exchange -> {
+            if (exchange.getRequestHeaders().containsKey("Origin")) {
+                drain(exchange);
+                respond(exchange, STATUS_FORBIDDEN, "Cross-origin requests are not allowed");
+                return;
+            }
+            if (!hasToken(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                drain(exchange);
+                respond(exchange, STATUS_UNAUTHORIZED, "A valid token is required");
+                return;
+            }
+            handler.handle(exchange);
+        };
+    }
+
+    /**
+     * 認証ヘッダーが正しいトークンを含むかどうかを判定します。
+     *
+     * @param authorization 認証ヘッダーの値（ない場合はnull）
+     * @return 正しいトークンを含む場合はtrue
+     */
+    private boolean hasToken(final String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return false;
+        }
+        // 比較にかかる時間からトークンを推測されないよう、一定時間で比較する
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 処理しない要求の本文を読み捨てます。
+     *
+     * @param exchange HTTPのやり取り
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static void drain(final HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * トークンを所有者だけが読み書きできるファイルへ書き出します。
+     *
+     * @param tokenFile トークンを書き出すファイル
+     * @param token トークン
+     * @throws IOException 書き出しに失敗した場合
+     */
+    private static void writeToken(final Path tokenFile, final String token) throws IOException {
+        final Path dir = tokenFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path temp = Files.createTempFile(dir, "daemon", ".tmp");
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        }
+        Files.writeString(temp, token, StandardCharsets.UTF_8);
+        Files.move(temp, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * コマンドの実行要求を処理します。
+     *
+     * @param exchange HTTPのやり取り
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private void handleRun(final HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, STATUS_METHOD_NOT_ALLOWED, "POST is required");
+            return;
+        }
+        final String line;
+        try (InputStream in = exchange.getRequestBody()) {
+            line = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        final ExchangeOutput out = new ExchangeOutput(exchange);
+        router.route(out);
+        try {
+            runner.run(parse(line));
+        } catch (RuntimeException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Command failed: {}: {}", line, e.getMessage());
+            }
+            if (out.isCommitted()) {
+                // 出力の途中で失敗したことをクライアントが検知できるよう、終端を送らずに切断する
+                throw new IOException("Command failed after output was sent: " + line, e);
+            }
+            final int status = e instanceof CmdLineArgmentException ? STATUS_BAD_REQUEST : STATUS_ERROR;
+            respond(exchange, status, String.valueOf(e.getMessage()));
+            return;
+        } finally {
+            router.route(null);
+        }
+        out.finish();
+    }
+
+    /**
+     * 停止要求を処理します。
+     *
+     * @param exchange HTTPのやり取り
+     * @throws IOException レスポンスの送信に失敗した場合
+     */
+    private void handleShutdown(final HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, STATUS_METHOD_NOT_ALLOWED, "POST is required");
+            return;
+        }
+        respond(exchange, STATUS_OK, "stopping");
+        stopped.countDown();
+    }
+
+    /**
+     * コマンドラインを引数に分割し、常駐サーバーで実行できるコマンドであることを検証します。
+     *
+     * @param line コマンドライン
+     * @return 引数
+     * @throws CmdLineArgmentException コマンドラインが空の場合、または常駐サーバー自身を実行しようとした場合
+     */
+    private static String[] parse(final String line) {
+        final String[] args = CommandInput.tokenize(line);
+        if (args.length == 0) {
+            throw new CmdLineArgmentException("Command must be specified");
+        }
+        if (SELF_COMMAND.equals(args[0])) {
+            throw new CmdLineArgmentException("Nested daemon execution is not supported");
+        }
+        return args;
+    }
+
+    /**
+     * テキストのレスポンスを送信します。
+     *
+     * @param exchange HTTPのやり取り
+     * @param status ステータスコード
+     * @param body 本文
+     * @throws IOException 送信に失敗した場合
+     */
+    private static void respond(final HttpExchange exchange, final int status, final String body)
+            throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 最初の書き込み時に成功ステータスを送信し、以降の出力を逐次送信するレスポンス本文です。
+     */
+    private static final class ExchangeOutput extends OutputStream {
+
+        /** HTTPのやり取り。 */
+        private final HttpExchange exchange;
+
+        /** レスポンス本文（ステータス送信前はnull）。 */
+        private OutputStream body;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param exchange HTTPのやり取り
+         */
+        private ExchangeOutput(final HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * ステータスを送信済みかどうかを返します。
+         *
+         * @return 送信済みの場合はtrue
+         */
+        private synchronized boolean isCommitted() {
+            return body != null;
+        }
+
+        /**
+         * 必要であればステータスを送信し、レスポンス本文を返します。
+         *
+         * @return レスポンス本文
+         * @throws IOException 送信に失敗した場合
+         */
+        private OutputStream body() throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN);
+                // 長さ0はチャンク転送で逐次送信することを表す
+                exchange.sendResponseHeaders(STATUS_OK, 0);
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+
+        @Override
+        public synchronized void write(final int b) throws IOException {
+            body().write(b);
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+            body().write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        /**
+         * レスポンスを完了します。出力がなかった場合は本文なしで成功を返します。
+         *
+         * @throws IOException 送信に失敗した場合
+         */
+        private synchronized void finish() throws IOException {
+            if (body == null) {
+                exchange.sendResponseHeaders(STATUS_OK, -1);
+                exchange.close();
+                return;
+            }
+            body.close();
+        }
+    }
+}
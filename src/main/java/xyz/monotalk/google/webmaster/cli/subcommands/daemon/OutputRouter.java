@@ -0,0 +1,89 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 標準出力への書き込みを、実行中のコマンドごとの出力先へ振り分けるストリームです。
+ *
+ * <p>コマンドは標準出力（{@link System#out}）へ結果を書き込むため、常駐プロセスで複数のコマンドを
+ * 同時に実行すると出力が混ざります。{@link #install()}で標準出力を差し替え、
+ * {@link #route(OutputStream)}を呼び出したスレッド（とそのスレッドが生成したスレッド）からの書き込みを
+ * 指定した出力先へ送ります。出力先が設定されていないスレッドの書き込みは元の標準出力へ送ります。</p>
+ */
+final class OutputRouter extends OutputStream {
+
+    /** スレッドごとの出力先。 */
+    private final InheritableThreadLocal<OutputStream> target = new InheritableThreadLocal<>();
+
+    /** 元の標準出力。 */
+    private final PrintStream original;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param original 元の標準出力
+     */
+    private OutputRouter(final PrintStream original) {
+        this.original = original;
+    }
+
+    /**
+     * 標準出力を振り分けストリームへ差し替えます。
+     *
+     * @return 振り分けストリーム（{@link #uninstall()}で元に戻します）
+     */
+    /* default */ static OutputRouter install() {
+        final OutputRouter router = new OutputRouter(System.out);
+        System.setOut(new PrintStream(router, true, StandardCharsets.UTF_8));
+        return router;
+    }
+
+    /**
+     * 標準出力を元に戻します。
+     */
+    /* default */ void uninstall() {
+        System.out.flush();
+        System.setOut(original);
+    }
+
+    /**
+     * 現在のスレッドの出力先を設定します。
+     *
+     * @param out 出力先（nullの場合は元の標準出力）
+     */
+    /* default */ void route(final OutputStream out) {
+        if (out == null) {
+            target.remove();
+        } else {
+            target.set(out);
+        }
+    }
+
+    /**
+     * 現在のスレッドの出力先を返します。
+     *
+     * @return 出力先
+     */
+    private OutputStream current() {
+        final OutputStream out = target.get();
+        return out == null ? original : out;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        current().write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        current().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        current().flush();
+    }
+}
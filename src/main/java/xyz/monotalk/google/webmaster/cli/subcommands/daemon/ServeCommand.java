@@ -0,0 +1,121 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.daemon;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.args4j.Option;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.Command;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+
+/**
+ * プロセスを常駐させ、ループバックアドレスのHTTPでコマンドの実行要求を受け付けるコマンドクラス。
+ *
+ * <p>Springコンテキスト、共有のWebmastersクライアントと接続プールを保持したまま、
+ * 要求ごとにCLIと同じコマンド実装とargs4jの引数解析でコマンドを実行します（{@link DaemonServer}）。
+ * JVMとSpringの起動をコマンドごとに繰り返さないため、多数のコマンドを呼び出す場合の待ち時間を削減できます。
+ * 要求には起動時に{@code -tokenFile}へ書き出したトークンが必要です。
+ * {@code POST /shutdown}を受け付けると終了します。</p>
+ */
+@Component
+public class ServeCommand implements Command {
+
+    /** デフォルトの待ち受けポート。 */
+    private static final int DEFAULT_PORT = 8765;
+
+    /** デフォルトの同時実行数。 */
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    /** 待ち受けるポートの上限。 */
+    private static final int MAX_PORT = 65_535;
+
+    /** 待ち受けポート。 */
+    @Option(name = "-port", usage = "Loopback port to listen on (0: any free port)")
+    private int port = DEFAULT_PORT;
+
+    /** 同時に実行するコマンド数。 */
+    @Option(name = "-concurrency", usage = "Number of commands executed concurrently")
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /** 認証用のトークンを書き出すファイル。 */
+    @Option(name = "-tokenFile", usage = "File the access token is written to "
+            + "(default: ~/.cache/webmasters-cli/daemon.token)", metaVar = "<file>")
+    private String tokenFile;
+
+    /** コマンドを実行するランナー。 */
+    private final WebmastersCommandRunner runner;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param runner コマンドを実行するランナー
+     */
+    public ServeCommand(final WebmastersCommandRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * サーバーを起動し、停止要求を受け付けるまで待機します。
+     *
+     * @throws CommandLineInputOutputException サーバーを起動できなかった場合、または待機中に割り込まれた場合
+     * @throws CmdLineArgmentException 引数が不正な場合
+     */
+    @Override
+    public void execute() {
+        validateArguments();
+        final DaemonServer server;
+        try {
+            server = new DaemonServer(runner, port, concurrency, resolveTokenFile());
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to listen on port " + port, e);
+        }
+        try {
+            server.start();
+        } catch (IOException e) {
+            server.stop();
+            throw new CommandLineInputOutputException("Failed to write the token file", e);
+        }
+        try {
+            server.awaitShutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineInputOutputException("Interrupted while serving", e);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * トークンを書き出すファイルを返します。
+     *
+     * @return 指定されたファイル（未指定の場合はユーザーのキャッシュディレクトリ内のファイル）
+     */
+    private Path resolveTokenFile() {
+        if (StringUtils.isNotBlank(tokenFile)) {
+            return Paths.get(tokenFile);
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "webmasters-cli", "daemon.token");
+    }
+
+    /**
+     * 引数を検証します。
+     *
+     * @throws CmdLineArgmentException 引数が無効な場合
+     */
+    private void validateArguments() {
+        if (port < 0 || port > MAX_PORT) {
+            throw new CmdLineArgmentException("port must be between 0 and " + MAX_PORT);
+        }
+        if (concurrency < 1) {
+            throw new CmdLineArgmentException("concurrency must be greater than 0");
+        }
+    }
+
+    @Override
+    public String usage() {
+        return "Keeps the process resident and runs commands posted to a loopback HTTP endpoint.";
+    }
+}
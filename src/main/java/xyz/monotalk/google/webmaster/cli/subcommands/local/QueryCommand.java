@@ -0,0 +1,198 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.local;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.Command;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.Compression;
+import xyz.monotalk.google.webmaster.cli.Format;
+import xyz.monotalk.google.webmaster.cli.ResponseWriter;
+import xyz.monotalk.google.webmaster.cli.RowStreamWriter;
+import xyz.monotalk.google.webmaster.cli.store.ColumnarStore;
+import xyz.monotalk.google.webmaster.cli.store.Metric;
+import xyz.monotalk.google.webmaster.cli.store.RowFilter;
+import xyz.monotalk.google.webmaster.cli.store.SegmentMetadata;
+import xyz.monotalk.google.webmaster.cli.store.StoreQuery;
+import xyz.monotalk.google.webmaster.cli.store.StoreQueryEngine;
+
+/**
+ * ローカルの列指向ストアに蓄積した行を、APIを呼び出さずに集計するコマンドクラス。
+ *
+ * <p>{@code -groupBy}で指定したディメンションごとにクリック数・表示回数を合計し、
+ * クリック率と掲載順位（表示回数による加重平均）を算出して、{@code -orderBy}の上位{@code -limit}件を出力します。
+ * {@code -where}の条件は集計前の行に適用されます。
+ * 取得時のディメンションが異なるセグメントは二重に計上しないよう、{@code -dimensions}で選んだ組み合わせのセグメントだけを集計します。</p>
+ */
+@Component
+public class QueryCommand implements Command {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCommand.class);
+
+    /** デフォルトの最大グループ数。 */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /** ストアのディレクトリ。 */
+    @Option(name = "-storeDir", usage = "Directory of the local columnar store", required = true)
+    private String storeDir;
+
+    /** 開始日。 */
+    @Option(name = "-startDate", usage = "Start date (yyyy-MM-dd)")
+    private String startDate;
+
+    /** 終了日。 */
+    @Option(name = "-endDate", usage = "End date (yyyy-MM-dd, default: latest date in the store with -days)")
+    private String endDate;
+
+    /** 終了日から遡る日数。 */
+    @Option(name = "-days", usage = "Number of days up to the end date", forbids = {"-startDate"})
+    private int days;
+
+    /** グループ化するディメンション（カンマ区切り）。 */
+    @Option(name = "-groupBy", usage = "Dimensions to group by, comma separated (date, query, page, country, device)")
+    private String groupBy = "page";
+
+    /** 集計の対象にするセグメントの取得時のディメンション（カンマ区切り）。 */
+    @Option(name = "-dimensions", usage = "Aggregate only segments stored with these dimensions, comma separated "
+            + "(required when the date range has segments stored with different dimensions)")
+    private String dimensions;
+
+    /** 集計前に行を絞り込む条件。 */
+    @Option(name = "-where", usage = "Row filter such as position<10 or country=jpn (repeatable)")
+    private List<String> where = new ArrayList<>();
+
+    /** 並べ替えに使用する数値列。 */
+    @Option(name = "-orderBy", usage = "Metric to sort by (clicks, impressions, ctr, position)")
+    private String orderBy = "clicks";
+
+    /** 出力する最大グループ数。 */
+    @Option(name = "-limit", usage = "Maximum number of groups")
+    private int limit = DEFAULT_LIMIT;
+
+    /** セグメントを並行に走査するスレッド数。 */
+    @Option(name = "-concurrency", usage = "Number of segments scanned concurrently")
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    /** 出力フォーマット。 */
+    @Option(name = "-format", usage = "Output format")
+    private Format format = Format.CONSOLE;
+
+    /** 出力ファイルパス。 */
+    @Option(name = "-filePath", usage = "Output file path")
+    private String filePath;
+
+    /** 出力ファイルの圧縮形式。 */
+    @Option(name = "-compress", usage = "Compress the output file while writing (gzip or zstd)")
+    private Compression compress;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public QueryCommand() {
+        // デフォルトコンストラクタ
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute() {
+        validateArguments();
+        final ColumnarStore store = new ColumnarStore(Paths.get(storeDir));
+        final List<String> groups = List.of(StringUtils.split(StringUtils.deleteWhitespace(groupBy), ','));
+        final List<RowFilter> filters = where.stream().map(RowFilter::parse).toList();
+        final List<String> stored = StringUtils.isBlank(dimensions)
+                ? null : List.of(StringUtils.split(StringUtils.deleteWhitespace(dimensions), ','));
+        try {
+            final LocalDate to = resolveEndDate(store);
+            final LocalDate from = days > 0 && to != null ? to.minusDays(days - 1L) : parseDate(startDate);
+            final long started = System.nanoTime();
+            final List<ApiDataRow> rows = new StoreQueryEngine(store, concurrency)
+                    .execute(new StoreQuery(from, to, groups, filters, Metric.of(orderBy), limit, stored));
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Aggregated {} groups in {} ms", rows.size(), (System.nanoTime() - started) / 1_000_000L);
+            }
+            try (RowStreamWriter writer = ResponseWriter.openRowStream(format, filePath, "rows", groups, compress)) {
+                for (final ApiDataRow row : rows) {
+                    writer.write(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to query local store: " + storeDir, e);
+        }
+    }
+
+    /**
+     * 引数を検証します。
+     *
+     * @throws CmdLineArgmentException 引数が無効な場合
+     */
+    private void validateArguments() {
+        if (StringUtils.isBlank(storeDir)) {
+            throw new CmdLineArgmentException("Store directory must be specified");
+        }
+        if (days < 0) {
+            throw new CmdLineArgmentException("days must not be negative");
+        }
+        if (limit < 1) {
+            throw new CmdLineArgmentException("limit must be greater than 0");
+        }
+        if (format == Format.JSON && StringUtils.isBlank(filePath)) {
+            throw new CmdLineArgmentException("File path must be specified when using JSON format");
+        }
+    }
+
+    /**
+     * 終了日を決定します。{@code -days}指定時に終了日が未指定の場合はストア内の最新の日付を使用します。
+     *
+     * @param store ストア
+     * @return 終了日（制限しない場合はnull）
+     * @throws IOException セグメントの読み込みに失敗した場合
+     */
+    private LocalDate resolveEndDate(final ColumnarStore store) throws IOException {
+        if (StringUtils.isNotBlank(endDate) || days == 0) {
+            return parseDate(endDate);
+        }
+        return store.segments().stream()
+                .map(SegmentMetadata::getMaxDate)
+                .max(LocalDate::compareTo)
+                .orElse(null);
+    }
+
+    /**
+     * 日付を解析します。
+     *
+     * @param value 日付文字列
+     * @return 日付（未指定の場合はnull）
+     * @throws CmdLineArgmentException 日付の形式が不正な場合
+     */
+    private static LocalDate parseDate(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new CmdLineArgmentException("Invalid date: " + value, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String usage() {
+        return "Aggregates search analytics rows in the local store without calling the API.";
+    }
+}
@@ -0,0 +1,25 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import java.time.LocalDate;
+
+/**
+ * 開始日と終了日（いずれも含む）からなる日付範囲を表すレコード。
+ *
+ * @param start 開始日
+ * @param end 終了日
+ */
+public record DateRange(LocalDate start, LocalDate end) {
+
+    /**
+     * 日付範囲のコンストラクタ。
+     *
+     * @param start 開始日
+     * @param end 終了日
+     * @throws IllegalArgumentException 終了日が開始日より前の場合
+     */
+    public DateRange {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End date must not be before start date: " + start + ".." + end);
+        }
+    }
+}
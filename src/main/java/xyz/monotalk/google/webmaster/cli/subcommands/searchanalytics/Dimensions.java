@@ -0,0 +1,47 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * Search Analyticsクエリのディメンション指定を扱うユーティリティクラス。
+ */
+public final class Dimensions {
+
+    /** 日付ディメンション。 */
+    public static final String DATE = "date";
+
+    /** 指定可能なディメンション。 */
+    private static final Set<String> SUPPORTED = Set.of("date", "query", "page", "country", "device",
+            "searchAppearance");
+
+    private Dimensions() {
+        // インスタンス化を防止するためのプライベートコンストラクタ
+    }
+
+    /**
+     * カンマ区切りのディメンション指定を解析します。
+     *
+     * @param value カンマ区切りのディメンション（例：{@code query,page}）
+     * @return ディメンション（指定順、重複なし）
+     * @throws CmdLineArgmentException 未知のディメンションまたは重複が含まれる場合
+     */
+    public static List<String> parse(final String value) {
+        final List<String> dimensions = new ArrayList<>();
+        for (final String token : StringUtils.split(StringUtils.defaultString(value), ',')) {
+            final String dimension = token.trim();
+            if (!SUPPORTED.contains(dimension)) {
+                throw new CmdLineArgmentException("Unknown dimension: " + dimension + " (supported: "
+                        + String.join(", ", SUPPORTED.stream().sorted().toList()) + ")");
+            }
+            if (dimensions.contains(dimension)) {
+                throw new CmdLineArgmentException("Duplicate dimension: " + dimension);
+            }
+            dimensions.add(dimension);
+        }
+        return dimensions;
+    }
+}
@@ -0,0 +1,424 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
+import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.common.hash.Hashing;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.ResponseWriter;
+import xyz.monotalk.google.webmaster.cli.RowStreamWriter;
+
+/**
+ * Search Analyticsのエクスポートを途中から再開できるようにするチェックポイントです。
+ *
+ * <p>行は出力ファイルと同じ場所の{@code <出力ファイル>.part}へCSV形式で追記され、
+ * ページを書き出すたびに（分割したクエリ, 開始行, 行数, 書き込み済みバイト数）を
+ * {@code <出力ファイル>.checkpoint}のジャーナルへ記録します。
+ * 再開時はジャーナルの最後の記録までファイルを切り詰め、完了済みのページを飛ばして取得を続けます。
+ * 全ページの取得後に{@link #commit()}で出力ファイルへアトミックに置き換えるため、
+ * 出力ファイルに書きかけの内容が見えることはありません。</p>
+ */
+public final class ExportCheckpoint implements ShardedQueryExecutor.ShardHandler, Closeable {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportCheckpoint.class);
+
+    /** 書きかけファイルの拡張子。 */
+    private static final String PART_SUFFIX = ".part";
+
+    /** ジャーナルファイルの拡張子。 */
+    private static final String JOURNAL_SUFFIX = ".checkpoint";
+
+    /** クエリの識別子を記録するレコード種別。 */
+    private static final String QUERY_RECORD = "query";
+
+    /** 書き出し済みのページを記録するレコード種別。 */
+    private static final String PAGE_RECORD = "page";
+
+    /** 全ページを書き出したクエリを記録するレコード種別。 */
+    private static final String DONE_RECORD = "done";
+
+    /** ジャーナルのフィールド区切り文字。 */
+    private static final String SEPARATOR = "\t";
+
+    /** 最終的な出力ファイル。 */
+    private final Path output;
+
+    /** 書きかけファイル。 */
+    private final Path part;
+
+    /** ジャーナルファイル。 */
+    private final Path journal;
+
+    /** 分割したクエリごとの次に取得する行番号。 */
+    private final Map<String, Integer> nextRows;
+
+    /** 全ページを書き出し済みのクエリ。 */
+    private final Set<String> completed;
+
+    /** 書きかけファイルへのライター。 */
+    private final RowStreamWriter rows;
+
+    /** ジャーナルへのライター。 */
+    private final Writer journalWriter;
+
+    /** 今回の実行で書き込んだ行数。 */
+    private long rowsWritten;
+
+    /** 出力ファイルへの置き換えが完了したかどうか。 */
+    private boolean committed;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param output 最終的な出力ファイル
+     * @param journalState ジャーナルから復元した状態
+     * @param keyColumns キー配列を展開する列名
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private ExportCheckpoint(final Path output, final JournalState journalState, final List<String> keyColumns)
+            throws IOException {
+        this.output = output;
+        this.part = siblingOf(output, PART_SUFFIX);
+        this.journal = siblingOf(output, JOURNAL_SUFFIX);
+        this.nextRows = journalState.nextRows;
+        this.completed = journalState.completed;
+        this.rows = ResponseWriter.appendCsvRowStream(part.toString(), keyColumns);
+        this.journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * チェックポイントを開きます。
+     *
+     * <p>再開する場合は既存のジャーナルを読み込み、書きかけファイルを最後に記録した位置まで切り詰めます。
+     * 再開しない場合、またはジャーナルが存在しない場合は既存の書きかけファイルとジャーナルを破棄して新規に開始します。</p>
+     *
+     * @param output 最終的な出力ファイル
+     * @param siteUrl サイトURL
+     * @param template クエリリクエストのひな形（異なるクエリのチェックポイントからの再開を防ぐために使用）
+     * @param resume 既存のチェックポイントから再開する場合はtrue
+     * @return チェックポイント
+     * @throws IOException ファイルの読み書きに失敗した場合
+     * @throws CmdLineArgmentException チェックポイントが異なるクエリのものである場合
+     */
+    public static ExportCheckpoint open(final Path output, final String siteUrl,
+            final SearchAnalyticsQueryRequest template, final boolean resume) throws IOException {
+        return open(output, siteUrl, template, List.of(template), resume);
+    }
+
+    /**
+     * 分割したクエリのチェックポイントを開きます。
+     *
+     * <p>分割の計画（日付範囲の分割単位やディメンションフィルタによる分割とその値）もクエリの識別子に含めるため、
+     * 分割方法を変えて再開すると異なるクエリとして扱います。それ以外は{@link #open(Path, String,
+     * SearchAnalyticsQueryRequest, boolean)}と同じです。</p>
+     *
+     * @param output 最終的な出力ファイル
+     * @param siteUrl サイトURL
+     * @param template クエリリクエストのひな形（異なるクエリのチェックポイントからの再開を防ぐために使用）
+     * @param shards 分割したすべてのクエリリクエスト
+     * @param resume 既存のチェックポイントから再開する場合はtrue
+     * @return チェックポイント
+     * @throws IOException ファイルの読み書きに失敗した場合
+     * @throws CmdLineArgmentException チェックポイントが異なるクエリまたは異なる分割のものである場合
+     */
+    public static ExportCheckpoint open(final Path output, final String siteUrl,
+            final SearchAnalyticsQueryRequest template, final List<SearchAnalyticsQueryRequest> shards,
+            final boolean resume) throws IOException {
+        final Path part = siblingOf(output, PART_SUFFIX);
+        final Path journal = siblingOf(output, JOURNAL_SUFFIX);
+        final String queryId = queryIdOf(siteUrl, template, shards);
+        JournalState state = null;
+        if (resume && Files.exists(journal)) {
+            state = recover(part, journal, queryId);
+        } else if (resume && LOGGER.isInfoEnabled()) {
+            LOGGER.info("No checkpoint found at {}, starting a new export", journal);
+        }
+        if (state == null) {
+            Files.deleteIfExists(part);
+            Files.writeString(journal, QUERY_RECORD + SEPARATOR + queryId + "\n", StandardCharsets.UTF_8);
+            state = new JournalState(queryId);
+        }
+        return new ExportCheckpoint(output, state, template.getDimensions());
+    }
+
+    /**
+     * 分割したクエリの全ページを書き出し済みかどうかを返します。
+     *
+     * @param request 分割したクエリリクエスト
+     * @return 書き出し済みの場合はtrue
+     */
+    public boolean isCompleted(final SearchAnalyticsQueryRequest request) {
+        return completed.contains(shardKeyOf(request));
+    }
+
+    @Override
+    public int firstRow(final SearchAnalyticsQueryRequest request) {
+        return nextRows.getOrDefault(shardKeyOf(request), 0);
+    }
+
+    /**
+     * ページを書きかけファイルへ書き出し、ジャーナルへ記録します。
+     *
+     * @param request ページを取得したクエリリクエスト
+     * @param startRow ページの開始行番号
+     * @param page ページの行
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void onPage(final SearchAnalyticsQueryRequest request, final int startRow, final List<ApiDataRow> page)
+            throws IOException {
+        for (final ApiDataRow row : page) {
+            rows.write(row);
+        }
+        rows.flush();
+        rowsWritten += page.size();
+        final String shardKey = shardKeyOf(request);
+        nextRows.put(shardKey, startRow + page.size());
+        appendRecord(PAGE_RECORD, shardKey, String.valueOf(startRow), String.valueOf(page.size()),
+                String.valueOf(Files.size(part)));
+    }
+
+    /**
+     * 分割したクエリの完了をジャーナルへ記録します。
+     *
+     * @param request 完了したクエリリクエスト
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Override
+    public void onComplete(final SearchAnalyticsQueryRequest request) throws IOException {
+        final String shardKey = shardKeyOf(request);
+        completed.add(shardKey);
+        appendRecord(DONE_RECORD, shardKey, String.valueOf(Files.size(part)));
+    }
+
+    /**
+     * 書きかけファイルを出力ファイルへアトミックに置き換え、ジャーナルを削除します。
+     *
+     * @throws IOException ファイルの置き換えに失敗した場合
+     */
+    public void commit() throws IOException {
+        rows.close();
+        journalWriter.close();
+        if (Files.notExists(part)) {
+            Files.createFile(part);
+        }
+        try {
+            Files.move(part, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, output, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(journal);
+        committed = true;
+    }
+
+    /**
+     * 今回の実行で書き込んだ行数を返します。
+     *
+     * @return 行数
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * 未完了の場合は書きかけファイルとジャーナルを再開用に残したままクローズします。
+     *
+     * @throws IOException クローズに失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            rows.close();
+        } finally {
+            journalWriter.close();
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Export did not complete, resume with -resume (checkpoint: {})", journal);
+        }
+    }
+
+    /**
+     * ジャーナルへ1レコードを追記し、フラッシュします。
+     *
+     * @param fields レコードのフィールド
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void appendRecord(final String... fields) throws IOException {
+        journalWriter.write(String.join(SEPARATOR, fields));
+        journalWriter.write('\n');
+        journalWriter.flush();
+    }
+
+    /**
+     * ジャーナルを読み込み、書きかけファイルを最後に記録した位置まで切り詰めます。
+     *
+     * <p>改行で終わっていない末尾のレコードは書き込み途中で中断したものとして破棄します。</p>
+     *
+     * @param part 書きかけファイル
+     * @param journal ジャーナルファイル
+     * @param queryId 今回のクエリの識別子
+     * @return 復元した状態
+     * @throws IOException ファイルの読み書きに失敗した場合
+     * @throws CmdLineArgmentException チェックポイントが異なるクエリのものである場合
+     */
+    private static JournalState recover(final Path part, final Path journal, final String queryId)
+            throws IOException {
+        final String content = Files.readString(journal, StandardCharsets.UTF_8);
+        final String complete = content.substring(0, content.lastIndexOf('\n') + 1);
+        final JournalState state = new JournalState(null);
+        long offset = 0;
+        for (final String line : complete.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split(SEPARATOR);
+            switch (fields[0]) {
+                case QUERY_RECORD -> state.queryId = fields[1];
+                case PAGE_RECORD -> {
+                    state.nextRows.put(fields[1], Integer.parseInt(fields[2]) + Integer.parseInt(fields[3]));
+                    offset = Long.parseLong(fields[4]);
+                }
+                case DONE_RECORD -> {
+                    state.completed.add(fields[1]);
+                    offset = Long.parseLong(fields[2]);
+                }
+                default -> throw new CommandLineInputOutputException("Broken checkpoint record: " + line);
+            }
+        }
+        if (!queryId.equals(state.queryId)) {
+            throw new CmdLineArgmentException("Checkpoint " + journal + " was created for a different query");
+        }
+        truncate(part, offset);
+        Files.writeString(journal, complete, StandardCharsets.UTF_8);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Resuming export: {} shards done, {} in progress, {} bytes kept",
+                    state.completed.size(), state.nextRows.size() - state.completed.size(), offset);
+        }
+        return state;
+    }
+
+    /**
+     * ファイルを最後に記録した位置まで切り詰めます。
+     *
+     * @param part 書きかけファイル
+     * @param size 残すバイト数
+     * @throws IOException ファイルの操作に失敗した場合
+     * @throws CommandLineInputOutputException ファイルが記録した位置より短い場合
+     */
+    /* default */ static void truncate(final Path part, final long size) throws IOException {
+        if (Files.notExists(part)) {
+            if (size > 0) {
+                throw new CommandLineInputOutputException("Checkpointed file is missing: " + part);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            if (channel.size() < size) {
+                throw new CommandLineInputOutputException("File is shorter than its checkpoint: " + part);
+            }
+            channel.truncate(size);
+        }
+    }
+
+    /**
+     * クエリの識別子を返します。
+     *
+     * @param siteUrl サイトURL
+     * @param template クエリリクエストのひな形
+     * @param shards 分割したすべてのクエリリクエスト
+     * @return サイトURL、リクエスト内容、分割したクエリの識別子のハッシュ値
+     * @throws IOException リクエストのJSON変換に失敗した場合
+     */
+    private static String queryIdOf(final String siteUrl, final SearchAnalyticsQueryRequest template,
+            final List<SearchAnalyticsQueryRequest> shards) throws IOException {
+        final StringBuilder query = new StringBuilder(siteUrl)
+                .append('\n').append(GsonFactory.getDefaultInstance().toString(template));
+        // 国の一覧は取得のたびに並び順が変わり得るため、識別子の集合として比較する
+        shards.stream().map(ExportCheckpoint::shardKeyOf).sorted().forEach(key -> query.append('\n').append(key));
+        return Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * 分割したクエリの識別子を返します。
+     *
+     * @param request 分割したクエリリクエスト
+     * @return 開始日と終了日、ディメンションフィルタからなる識別子
+     */
+    private static String shardKeyOf(final SearchAnalyticsQueryRequest request) {
+        final StringBuilder key = new StringBuilder()
+                .append(request.getStartDate()).append("..").append(request.getEndDate());
+        if (request.getDimensionFilterGroups() != null) {
+            for (final ApiDimensionFilterGroup group : request.getDimensionFilterGroups()) {
+                if (group.getFilters() == null) {
+                    continue;
+                }
+                for (final ApiDimensionFilter filter : group.getFilters()) {
+                    key.append('|').append(filter.getDimension()).append(' ').append(filter.getOperator())
+                            .append(' ').append(filter.getExpression());
+                }
+            }
+        }
+        // ジャーナルのフィールド区切り文字と改行は識別子に含めない
+        return key.toString().replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * 出力ファイルと同じディレクトリのファイルパスを返します。
+     *
+     * @param output 出力ファイル
+     * @param suffix 付加する拡張子
+     * @return ファイルパス
+     */
+    private static Path siblingOf(final Path output, final String suffix) {
+        return output.resolveSibling(output.getFileName() + suffix);
+    }
+
+    /**
+     * ジャーナルから復元した状態。
+     */
+    private static final class JournalState {
+
+        /** 分割したクエリごとの次に取得する行番号。 */
+        private final Map<String, Integer> nextRows = new HashMap<>();
+
+        /** 全ページを書き出し済みのクエリ。 */
+        private final Set<String> completed = new HashSet<>();
+
+        /** クエリの識別子。 */
+        private String queryId;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param queryId クエリの識別子
+         */
+        private JournalState(final String queryId) {
+            this.queryId = queryId;
+        }
+    }
+}
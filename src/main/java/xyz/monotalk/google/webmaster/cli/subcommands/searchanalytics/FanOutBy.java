@@ -0,0 +1,39 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+/**
+ * Search Analyticsクエリをディメンションフィルタで分割する単位を定義するenumです。
+ */
+public enum FanOutBy {
+    /**
+     * デバイス種別（DESKTOP、MOBILE、TABLET）ごとに分割します。
+     */
+    DEVICE("device"),
+
+    /**
+     * 国ごとに分割します。対象の国は事前の集計クエリで取得します。
+     */
+    COUNTRY("country");
+
+    /**
+     * 分割に使用するディメンション名。
+     */
+    private final String dimension;
+
+    /**
+     * FanOutByコンストラクタ。
+     *
+     * @param dimension 分割に使用するディメンション名
+     */
+    FanOutBy(final String dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * 分割に使用するディメンション名を返します。
+     *
+     * @return ディメンション名
+     */
+    public String getDimension() {
+        return dimension;
+    }
+}
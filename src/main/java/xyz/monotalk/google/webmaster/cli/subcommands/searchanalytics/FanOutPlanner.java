@@ -0,0 +1,146 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
+import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 行数の多いSearch Analyticsクエリを、日付範囲とディメンションフィルタで小さなクエリに分割するクラス。
+ *
+ * <p>APIは1クエリで取得できる行数に上限があるため、デバイスや国のフィルタで分割した各クエリを
+ * {@link ShardedQueryExecutor}で並行に取得することで、1つのクエリでは切り捨てられる行まで取得できます。
+ * 分割したクエリの結果は分割に使用したディメンションの値ごとに重複しません。</p>
+ */
+public class FanOutPlanner {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FanOutPlanner.class);
+
+    /** すべての条件を満たす行を返すフィルタグループの種別。 */
+    private static final String AND = "and";
+
+    /** デバイス種別。 */
+    private static final List<String> DEVICES = List.of("DESKTOP", "MOBILE", "TABLET");
+
+    /** Webmastersクライアント。 */
+    private final Webmasters webmasters;
+
+    /** サイトURL。 */
+    private final String siteUrl;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント（国で分割する場合の事前クエリに使用）
+     * @param siteUrl サイトURL
+     */
+    public FanOutPlanner(final Webmasters webmasters, final String siteUrl) {
+        this.webmasters = webmasters;
+        this.siteUrl = siteUrl;
+    }
+
+    /**
+     * 日付範囲ごと・分割値ごとのクエリを作成します。
+     *
+     * @param template クエリリクエストのひな形（変更されません）
+     * @param ranges 日付範囲（日付順）
+     * @param fanOutBy 分割単位（nullの場合は日付範囲だけで分割）
+     * @return 日付順、分割値順に並んだクエリ
+     * @throws IOException 国の一覧の取得に失敗した場合
+     */
+    public List<SearchAnalyticsQueryRequest> plan(final SearchAnalyticsQueryRequest template,
+            final List<DateRange> ranges, final FanOutBy fanOutBy) throws IOException {
+        final List<String> partitions = fanOutBy == null ? List.of() : partitionsOf(template, fanOutBy);
+        final List<SearchAnalyticsQueryRequest> requests = new ArrayList<>();
+        for (final DateRange range : ranges) {
+            final SearchAnalyticsQueryRequest shard = template.clone()
+                    .setStartDate(range.start().toString())
+                    .setEndDate(range.end().toString());
+            if (fanOutBy == null) {
+                requests.add(shard);
+                continue;
+            }
+            for (final String partition : partitions) {
+                requests.add(withFilter(shard, fanOutBy.getDimension(), partition));
+            }
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Planned {} queries ({} date ranges x {} partitions)",
+                    requests.size(), ranges.size(), Math.max(partitions.size(), 1));
+        }
+        return requests;
+    }
+
+    /**
+     * 分割値の一覧を返します。
+     *
+     * @param template クエリリクエストのひな形
+     * @param fanOutBy 分割単位
+     * @return 分割値
+     * @throws IOException 国の一覧の取得に失敗した場合
+     */
+    private List<String> partitionsOf(final SearchAnalyticsQueryRequest template, final FanOutBy fanOutBy)
+            throws IOException {
+        if (fanOutBy == FanOutBy.DEVICE) {
+            return DEVICES;
+        }
+        // 期間全体で行のある国だけを対象にする
+        final SearchAnalyticsQueryRequest probe = template.clone()
+                .setDimensions(new ArrayList<>(List.of(fanOutBy.getDimension())))
+                .setStartRow(0)
+                .setRowLimit(SearchAnalyticsPager.MAX_ROW_LIMIT);
+        final SearchAnalyticsQueryResponse response = webmasters.searchanalytics().query(siteUrl, probe).execute();
+        final List<String> partitions = new ArrayList<>();
+        if (response != null && response.getRows() != null) {
+            for (final ApiDataRow row : response.getRows()) {
+                partitions.add(row.getKeys().get(0));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * ディメンションが値と一致する条件を追加したクエリを返します。
+     *
+     * <p>条件は既存の{@code and}グループ（{@code -filter}の条件を含むグループ）へ追加します。
+     * {@code and}グループがない場合だけ、新しいグループを作成します。</p>
+     *
+     * @param request クエリリクエスト（変更されません）
+     * @param dimension ディメンション名
+     * @param value 値
+     * @return 条件を追加したクエリ
+     */
+    private static SearchAnalyticsQueryRequest withFilter(final SearchAnalyticsQueryRequest request,
+            final String dimension, final String value) {
+        final SearchAnalyticsQueryRequest copy = request.clone();
+        final List<ApiDimensionFilterGroup> groups = copy.getDimensionFilterGroups() == null
+                ? new ArrayList<>() : new ArrayList<>(copy.getDimensionFilterGroups());
+        final ApiDimensionFilter filter = new ApiDimensionFilter()
+                .setDimension(dimension)
+                .setOperator("equals")
+                .setExpression(value);
+        for (int i = 0; i < groups.size(); i++) {
+            final ApiDimensionFilterGroup group = groups.get(i);
+            // groupTypeを省略したグループはAPI側でandとして扱われる
+            if (group.getGroupType() == null || AND.equals(group.getGroupType())) {
+                final List<ApiDimensionFilter> filters = group.getFilters() == null
+                        ? new ArrayList<>() : new ArrayList<>(group.getFilters());
+                filters.add(filter);
+                groups.set(i, group.clone().setFilters(filters));
+                return copy.setDimensionFilterGroups(groups);
+            }
+        }
+        groups.add(new ApiDimensionFilterGroup()
+                .setGroupType(AND)
+                .setFilters(new ArrayList<>(List.of(filter))));
+        return copy.setDimensionFilterGroups(groups);
+    }
+}
@@ -0,0 +1,158 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
+import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * Search Analyticsクエリのフィルタ式を{@link ApiDimensionFilterGroup}へ変換するユーティリティクラス。
+ *
+ * <p>{@code <ディメンション> <演算子> <値>}の条件を{@code and}でつないだ式
+ * （例：{@code page contains /blog/ and country equals jpn}）を解析します。
+ * 演算子は{@code equals notEquals contains notContains includingRegex excludingRegex}です。
+ * 空白や{@code and}を含む値はダブルクォートで囲み、値中のダブルクォートは{@code \"}と記述します。
+ * 絞り込みはAPI側で行われるため、取得する行数と転送量を減らせます。</p>
+ */
+public final class FilterExpression {
+
+    /** 条件を結合するキーワード。 */
+    private static final String AND = "and";
+
+    /** フィルタに指定可能なディメンション。 */
+    private static final Set<String> DIMENSIONS = Set.of("query", "page", "country", "device", "searchAppearance");
+
+    /** 演算子（小文字表記からAPIでの表記への対応）。 */
+    private static final Map<String, String> OPERATORS = Map.of(
+            "equals", "equals",
+            "notequals", "notEquals",
+            "contains", "contains",
+            "notcontains", "notContains",
+            "includingregex", "includingRegex",
+            "excludingregex", "excludingRegex");
+
+    /** 1つの条件を構成するトークン数。 */
+    private static final int CLAUSE_SIZE = 3;
+
+    private FilterExpression() {
+        // インスタンス化を防止するためのプライベートコンストラクタ
+    }
+
+    /**
+     * フィルタ式を解析します。
+     *
+     * @param expression フィルタ式
+     * @return すべての条件を{@code and}で結合したフィルタグループ
+     * @throws CmdLineArgmentException 式の書式、ディメンションまたは演算子が不正な場合
+     */
+    public static ApiDimensionFilterGroup parse(final String expression) {
+        final List<Token> tokens = tokenize(expression);
+        final List<ApiDimensionFilter> filters = new ArrayList<>();
+        int index = 0;
+        while (index < tokens.size()) {
+            if (index > 0) {
+                final Token conjunction = tokens.get(index);
+                if (conjunction.quoted() || !AND.equalsIgnoreCase(conjunction.text())) {
+                    throw new CmdLineArgmentException("Expected 'and' but found '" + conjunction.text()
+                            + "' in filter: " + expression);
+                }
+                index++;
+            }
+            if (index + CLAUSE_SIZE > tokens.size()) {
+                throw new CmdLineArgmentException("Incomplete condition in filter: " + expression);
+            }
+            filters.add(toFilter(tokens.get(index), tokens.get(index + 1), tokens.get(index + 2), expression));
+            index += CLAUSE_SIZE;
+        }
+        if (filters.isEmpty()) {
+            throw new CmdLineArgmentException("Filter must not be empty");
+        }
+        return new ApiDimensionFilterGroup()
+                .setGroupType(AND)
+                .setFilters(filters);
+    }
+
+    /**
+     * 1つの条件をフィルタに変換します。
+     *
+     * @param dimension ディメンション
+     * @param operator 演算子
+     * @param value 値
+     * @param expression フィルタ式（エラーメッセージ用）
+     * @return フィルタ
+     * @throws CmdLineArgmentException ディメンションまたは演算子が不正な場合
+     */
+    private static ApiDimensionFilter toFilter(final Token dimension, final Token operator, final Token value,
+            final String expression) {
+        if (dimension.quoted() || !DIMENSIONS.contains(dimension.text())) {
+            throw new CmdLineArgmentException("Unknown filter dimension: " + dimension.text() + " (supported: "
+                    + String.join(", ", DIMENSIONS.stream().sorted().toList()) + ")");
+        }
+        final String apiOperator = operator.quoted() ? null : OPERATORS.get(operator.text().toLowerCase(Locale.ROOT));
+        if (apiOperator == null) {
+            throw new CmdLineArgmentException("Unknown filter operator: " + operator.text() + " in filter: "
+                    + expression);
+        }
+        return new ApiDimensionFilter()
+                .setDimension(dimension.text())
+                .setOperator(apiOperator)
+                .setExpression(value.text());
+    }
+
+    /**
+     * フィルタ式を空白区切りのトークンに分割します。ダブルクォートで囲んだ部分は1つのトークンとします。
+     *
+     * @param expression フィルタ式
+     * @return トークン
+     * @throws CmdLineArgmentException ダブルクォートが閉じられていない場合
+     */
+    private static List<Token> tokenize(final String expression) {
+        final String source = StringUtils.defaultString(expression);
+        final List<Token> tokens = new ArrayList<>();
+        int index = 0;
+        while (index < source.length()) {
+            final char first = source.charAt(index);
+            if (Character.isWhitespace(first)) {
+                index++;
+                continue;
+            }
+            final StringBuilder text = new StringBuilder();
+            if (first == '"') {
+                index++;
+                while (index < source.length() && source.charAt(index) != '"') {
+                    if (source.charAt(index) == '\\' && index + 1 < source.length()) {
+                        index++;
+                    }
+                    text.append(source.charAt(index));
+                    index++;
+                }
+                if (index >= source.length()) {
+                    throw new CmdLineArgmentException("Unterminated quote in filter: " + expression);
+                }
+                index++;
+                tokens.add(new Token(text.toString(), true));
+            } else {
+                while (index < source.length() && !Character.isWhitespace(source.charAt(index))) {
+                    text.append(source.charAt(index));
+                    index++;
+                }
+                tokens.add(new Token(text.toString(), false));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * フィルタ式のトークン。
+     *
+     * @param text トークンの文字列
+     * @param quoted ダブルクォートで囲まれていた場合はtrue
+     */
+    private record Token(String text, boolean quoted) {
+    }
+}
@@ -1,12 +1,16 @@
 package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
 
 import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
 import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
 import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
 import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.args4j.Option;
 import org.slf4j.Logger;
@@ -15,12 +19,24 @@ import org.springframework.stereotype.Component;
 import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
 import xyz.monotalk.google.webmaster.cli.Command;
 import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.Compression;
 import xyz.monotalk.google.webmaster.cli.Format;
 import xyz.monotalk.google.webmaster.cli.ResponseWriter;
+import xyz.monotalk.google.webmaster.cli.RowStreamWriter;
 import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+import xyz.monotalk.google.webmaster.cli.store.ColumnarStore;
+import xyz.monotalk.google.webmaster.cli.store.StoreAppender;
 
 /**
  * Search Analyticsのクエリを実行するコマンドクラス。
+ *
+ * <p>ページングまたは日付分割でCSVファイルへ出力する場合は、ページごとにチェックポイントを記録し、
+ * 中断したエクスポートを{@code -resume}で続きから再開できます（{@link ExportCheckpoint}）。
+ * {@code -storeDir}を指定すると、出力と同時に取得した行をローカルの列指向ストアへ追記します（{@link ColumnarStore}、
+ * {@code -dimensions}に{@code date}が必要です）。
+ * {@code -fanOut}を指定すると、デバイスまたは国のフィルタで分割したクエリを並行に取得します（{@link FanOutPlanner}）。
+ * {@code -compress}を指定すると出力ファイルを書き込みながら圧縮します（チェックポイントは記録しません）。
+ * {@code -filter}の式はAPIのディメンションフィルタに変換され、API側で行が絞り込まれます（{@link FilterExpression}）。</p>
  */
 @Component
 public class QueryCommand implements Command {
@@ -28,6 +44,9 @@ public class QueryCommand implements Command {
     /** ロガーインスタンス。 */
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryCommand.class);
 
+    /** 分割取得時のデフォルト同時実行数。 */
+    private static final int DEFAULT_CONCURRENCY = 4;
+
     /** サイトURL。 */
     @Option(name = "-siteUrl", usage = "Site URL", required = true)
     private String siteUrl;
@@ -40,6 +59,15 @@ public class QueryCommand implements Command {
     @Option(name = "-endDate", usage = "End date (yyyy-MM-dd)", required = true)
     private String endDate;
 
+    /** 取得するディメンション（カンマ区切り）。 */
+    @Option(name = "-dimensions", usage = "Dimensions, comma separated (date, query, page, country, device, "
+            + "searchAppearance)")
+    private String dimensions = "query";
+
+    /** API側で行を絞り込むフィルタ式。 */
+    @Option(name = "-filter", usage = "Server-side filter such as 'page contains /blog/ and country equals jpn'")
+    private String filter;
+
     /** 出力フォーマット。 */
     @Option(name = "-format", usage = "Output format")
     private Format format = Format.CONSOLE;
@@ -48,6 +76,39 @@ public class QueryCommand implements Command {
     @Option(name = "-filePath", usage = "Output file path")
     private String filePath;
 
+    /** 出力ファイルの圧縮形式。 */
+    @Option(name = "-compress", usage = "Compress the output file while writing (gzip or zstd)")
+    private Compression compress;
+
+    /** 全行をページングして逐次出力するかどうか。 */
+    @Option(name = "-paginate", usage = "Stream all rows by paging through startRow")
+    private boolean paginate;
+
+    /** ページングまたは分割取得時の1ページあたりの行数。 */
+    @Option(name = "-rowLimit", usage = "Rows per page in paginate or shard mode (1-25000)")
+    private int rowLimit = SearchAnalyticsPager.MAX_ROW_LIMIT;
+
+    /** 日付範囲の分割単位。指定した場合は分割した範囲を並行取得します。 */
+    @Option(name = "-shardBy", usage = "Split the date range and fetch shards concurrently (day or week)")
+    private ShardBy shardBy;
+
+    /** ディメンションフィルタによる分割単位。指定した場合は分割したクエリを並行取得します。 */
+    @Option(name = "-fanOut", usage = "Split each query by device or country filters and fetch them concurrently")
+    private FanOutBy fanOut;
+
+    /** 分割取得時の同時実行数。 */
+    @Option(name = "-concurrency", usage = "Number of queries fetched concurrently in shard or fan-out mode")
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /** 中断したエクスポートをチェックポイントから再開するかどうか。 */
+    @Option(name = "-resume", usage = "Resume an interrupted CSV export from its checkpoint")
+    private boolean resume;
+
+    /** 取得した行を追記する列指向ストアのディレクトリ。 */
+    @Option(name = "-storeDir", usage = "Also append fetched rows to the local columnar store in this directory "
+            + "(requires date in -dimensions)")
+    private String storeDir;
+
     /** WebmastersFactoryインスタンス。 */
     private final WebmastersFactory factory;
 
@@ -67,11 +128,24 @@ public class QueryCommand implements Command {
     public void execute() {
         validateArguments();
 
-        try {
+        final SearchAnalyticsQueryRequest request = createRequest();
+        try (StoreAppender appender = openStore(request)) {
             final Webmasters webmasters = factory.createClient();
-            final SearchAnalyticsQueryRequest request = createRequest();
-            final SearchAnalyticsQueryResponse response = executeRequest(webmasters, request);
-            ResponseWriter.writeJson(response, format, filePath);
+            if (shardBy != null || fanOut != null) {
+                executeSharded(webmasters, request, appender);
+            } else if (paginate) {
+                executePaginated(webmasters, request, appender);
+            } else {
+                final SearchAnalyticsQueryResponse response = executeRequest(webmasters, request);
+                ResponseWriter.writeJson(response, format, filePath, compress);
+                store(appender, response == null ? null : response.getRows());
+            }
+            if (appender != null) {
+                appender.commit();
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Search analytics rows stored in {}: {}", storeDir, appender.getRowCount());
+                }
+            }
         } catch (IOException e) {
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("Failed to execute search analytics query", e);
@@ -89,6 +163,39 @@ public class QueryCommand implements Command {
         validateSiteUrl();
         validateDates();
         validateOutputFormat();
+        Dimensions.parse(dimensions);
+        if (filter != null) {
+            FilterExpression.parse(filter);
+        }
+        if (resume && !isCheckpointed()) {
+            throw new CmdLineArgmentException("-resume requires -format csv and -filePath without -compress with "
+                    + "-paginate, -shardBy or -fanOut (the fan-out dimension must be included in -dimensions)");
+        }
+        if (resume && StringUtils.isNotBlank(storeDir)) {
+            throw new CmdLineArgmentException("-storeDir cannot be combined with -resume");
+        }
+        if (StringUtils.isNotBlank(storeDir) && !Dimensions.parse(dimensions).contains(Dimensions.DATE)) {
+            throw new CmdLineArgmentException("-storeDir requires date in -dimensions");
+        }
+    }
+
+    /**
+     * チェックポイントを記録しながら出力するかどうかを返します。
+     *
+     * @return 圧縮しないCSVファイルへページングまたは分割取得で出力する場合はtrue
+     */
+    private boolean isCheckpointed() {
+        return (paginate || shardBy != null || fanOut != null) && !needsMerge() && compress == null
+                && format == Format.CSV && StringUtils.isNotBlank(filePath);
+    }
+
+    /**
+     * 分割したクエリの結果を集計し直す必要があるかどうかを返します。
+     *
+     * @return 分割に使用したディメンションを取得しない場合はtrue
+     */
+    private boolean needsMerge() {
+        return fanOut != null && !Dimensions.parse(dimensions).contains(fanOut.getDimension());
     }
     
     /**
@@ -133,14 +240,47 @@ public class QueryCommand implements Command {
      * @return 作成されたリクエスト
      */
     private SearchAnalyticsQueryRequest createRequest() {
+        // clone()で複製できるよう、変更可能なリストを設定する
         return new SearchAnalyticsQueryRequest()
                 .setStartDate(startDate)
                 .setEndDate(endDate)
-                .setDimensions(Collections.singletonList("query"))
-                .setDimensionFilterGroups(Collections.singletonList(
-                        new ApiDimensionFilterGroup()
+                .setDimensions(Dimensions.parse(dimensions))
+                .setDimensionFilterGroups(new ArrayList<>(List.of(filter == null
+                        ? new ApiDimensionFilterGroup()
                                 .setGroupType("and")
-                                .setFilters(new ArrayList<>())));
+                                .setFilters(new ArrayList<>())
+                        : FilterExpression.parse(filter))));
+    }
+
+    /**
+     * {@code -storeDir}が指定されている場合、列指向ストアへのアペンダーを開きます。
+     *
+     * @param request クエリリクエスト
+     * @return アペンダー（{@code -storeDir}が未指定の場合はnull）
+     * @throws CommandLineInputOutputException ストアを開けなかった場合
+     */
+    private StoreAppender openStore(final SearchAnalyticsQueryRequest request) {
+        if (StringUtils.isBlank(storeDir)) {
+            return null;
+        }
+        try {
+            return new ColumnarStore(Paths.get(storeDir)).newAppender(request.getDimensions());
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to open store: " + storeDir, e);
+        }
+    }
+
+    /**
+     * アペンダーが指定されている場合、行を列指向ストアへ追記します。
+     *
+     * @param appender アペンダー（nullの場合は何もしない）
+     * @param rows 行（nullの場合は何もしない）
+     * @throws IOException 追記に失敗した場合
+     */
+    private static void store(final StoreAppender appender, final List<ApiDataRow> rows) throws IOException {
+        if (appender != null && rows != null) {
+            appender.append(rows);
+        }
     }
 
     /**
@@ -157,6 +297,124 @@ public class QueryCommand implements Command {
         return webmasters.searchanalytics().query(siteUrl, request).execute();
     }
 
+    /**
+     * 全ページを取得し、取得した行をそのまま出力先へ書き込みます。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param request クエリリクエスト
+     * @param appender 列指向ストアへのアペンダー（nullの場合は追記しない）
+     * @throws IOException APIコールまたは書き込み中にエラーが発生した場合
+     */
+    private void executePaginated(
+            final Webmasters webmasters,
+            final SearchAnalyticsQueryRequest request,
+            final StoreAppender appender) throws IOException {
+        final SearchAnalyticsPager pager = new SearchAnalyticsPager(webmasters, siteUrl, rowLimit);
+        if (isCheckpointed()) {
+            try (ExportCheckpoint checkpoint = ExportCheckpoint.open(Paths.get(filePath), siteUrl, request, resume)) {
+                if (!checkpoint.isCompleted(request)) {
+                    pager.fetch(request, checkpoint.firstRow(request), (startRow, rows) -> {
+                        checkpoint.onPage(request, startRow, rows);
+                        store(appender, rows);
+                    });
+                    checkpoint.onComplete(request);
+                }
+                checkpoint.commit();
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Search analytics rows written: {}", checkpoint.getRowsWritten());
+                }
+            }
+            return;
+        }
+        try (RowStreamWriter writer = ResponseWriter.openRowStream(
+                format, filePath, "rows", request.getDimensions(), compress)) {
+            final long total = pager.fetch(request, 0, (startRow, rows) -> {
+                for (final ApiDataRow row : rows) {
+                    writer.write(row);
+                }
+                store(appender, rows);
+            });
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Search analytics rows written: {}", total);
+            }
+        }
+    }
+
+    /**
+     * 日付範囲とディメンションフィルタで分割して並行取得し、日付順に出力先へ書き込みます。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param request クエリリクエスト
+     * @param appender 列指向ストアへのアペンダー（nullの場合は追記しない）
+     * @throws IOException APIコールまたは書き込み中にエラーが発生した場合
+     */
+    private void executeSharded(
+            final Webmasters webmasters,
+            final SearchAnalyticsQueryRequest request,
+            final StoreAppender appender) throws IOException {
+        final DateRange dateRange = parseDateRange();
+        final List<DateRange> ranges = shardBy == null ? List.of(dateRange) : shardBy.split(dateRange);
+        final List<SearchAnalyticsQueryRequest> shards =
+                new FanOutPlanner(webmasters, siteUrl).plan(request, ranges, fanOut);
+        final ShardedQueryExecutor executor =
+                new ShardedQueryExecutor(webmasters, siteUrl, rowLimit, concurrency);
+        if (needsMerge()) {
+            final RowMerger merger = new RowMerger();
+            executor.execute(shards, (startRow, rows) -> merger.add(rows));
+            final List<ApiDataRow> merged = merger.rows();
+            try (RowStreamWriter writer = ResponseWriter.openRowStream(
+                    format, filePath, "rows", request.getDimensions(), compress)) {
+                for (final ApiDataRow row : merged) {
+                    writer.write(row);
+                }
+            }
+            store(appender, merged);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Search analytics rows merged from {} queries: {}", shards.size(), merged.size());
+            }
+            return;
+        }
+        if (isCheckpointed()) {
+            try (ExportCheckpoint checkpoint =
+                    ExportCheckpoint.open(Paths.get(filePath), siteUrl, request, shards, resume)) {
+                shards.removeIf(checkpoint::isCompleted);
+                executor.execute(shards, checkpoint.andThen((startRow, rows) -> store(appender, rows)));
+                checkpoint.commit();
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Search analytics rows written from {} shards: {}",
+                            shards.size(), checkpoint.getRowsWritten());
+                }
+            }
+            return;
+        }
+        try (RowStreamWriter writer = ResponseWriter.openRowStream(
+                format, filePath, "rows", request.getDimensions(), compress)) {
+            final long total = executor.execute(shards, (startRow, rows) -> {
+                for (final ApiDataRow row : rows) {
+                    writer.write(row);
+                }
+                store(appender, rows);
+            });
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Search analytics rows written from {} shards: {}", shards.size(), total);
+            }
+        }
+    }
+
+    /**
+     * 開始日と終了日を日付範囲として解析します。
+     *
+     * @return 日付範囲
+     * @throws CmdLineArgmentException 日付の形式または範囲が不正な場合
+     */
+    private DateRange parseDateRange() {
+        try {
+            return new DateRange(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new CmdLineArgmentException("Invalid date range: " + startDate + ".." + endDate, e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,61 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分割したクエリの結果を、キーが同じ行ごとに集計し直すクラス。
+ *
+ * <p>分割に使用したディメンションを取得しない場合、同じキーの行が分割ごとに返されるため、
+ * クリック数と表示回数を合計し、クリック率と掲載順位（表示回数による加重平均）を算出し直します。
+ * 行は最初に現れた順に返します。</p>
+ */
+/* default */ final class RowMerger {
+
+    /** キーごとの集計値（クリック数、表示回数、表示回数で重み付けした掲載順位の合計）。 */
+    private final Map<List<String>, double[]> totals = new LinkedHashMap<>();
+
+    /**
+     * 行を集計に加えます。
+     *
+     * @param rows 行
+     */
+    /* default */ void add(final List<ApiDataRow> rows) {
+        for (final ApiDataRow row : rows) {
+            final double impressions = valueOf(row.getImpressions());
+            final double[] total = totals.computeIfAbsent(row.getKeys(), keys -> new double[3]);
+            total[0] += valueOf(row.getClicks());
+            total[1] += impressions;
+            total[2] += valueOf(row.getPosition()) * impressions;
+        }
+    }
+
+    /**
+     * 集計し直した行を返します。
+     *
+     * @return 行
+     */
+    /* default */ List<ApiDataRow> rows() {
+        final List<ApiDataRow> rows = new ArrayList<>(totals.size());
+        totals.forEach((keys, total) -> rows.add(new ApiDataRow()
+                .setKeys(keys)
+                .setClicks(total[0])
+                .setImpressions(total[1])
+                .setCtr(total[1] > 0 ? total[0] / total[1] : 0.0)
+                .setPosition(total[1] > 0 ? total[2] / total[1] : 0.0)));
+        return rows;
+    }
+
+    /**
+     * 数値を取り出します。
+     *
+     * @param value 数値
+     * @return 数値（未設定の場合は0）
+     */
+    private static double valueOf(final Double value) {
+        return value == null ? 0.0 : value;
+    }
+}
@@ -0,0 +1,115 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * Search Analyticsクエリを{@code startRow}でページングしながら実行するクラス。
+ *
+ * <p>取得したページは{@link PageHandler}へ都度渡され、全行を保持することはありません。
+ * APIが{@code rowLimit}未満の行数を返した時点で最終ページとみなします。</p>
+ */
+public class SearchAnalyticsPager {
+
+    /** APIが1リクエストで返却できる最大行数。 */
+    public static final int MAX_ROW_LIMIT = 25_000;
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchAnalyticsPager.class);
+
+    /** Webmastersクライアント。 */
+    private final Webmasters webmasters;
+
+    /** サイトURL。 */
+    private final String siteUrl;
+
+    /** 1ページあたりの行数。 */
+    private final int rowLimit;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param siteUrl サイトURL
+     * @param rowLimit 1ページあたりの行数（1～{@value #MAX_ROW_LIMIT}）
+     * @throws CmdLineArgmentException 行数が範囲外の場合
+     */
+    public SearchAnalyticsPager(final Webmasters webmasters, final String siteUrl, final int rowLimit) {
+        if (rowLimit < 1 || rowLimit > MAX_ROW_LIMIT) {
+            throw new CmdLineArgmentException("rowLimit must be between 1 and " + MAX_ROW_LIMIT);
+        }
+        this.webmasters = webmasters;
+        this.siteUrl = siteUrl;
+        this.rowLimit = rowLimit;
+    }
+
+    /**
+     * 指定行から最終ページまでを順に取得します。
+     *
+     * @param template クエリリクエストのひな形（変更されません）
+     * @param firstRow 取得を開始する行番号
+     * @param handler ページごとの処理
+     * @return 取得した行数の合計
+     * @throws IOException API呼び出しまたはページ処理に失敗した場合
+     */
+    public long fetch(final SearchAnalyticsQueryRequest template, final int firstRow,
+            final PageHandler handler) throws IOException {
+        int startRow = firstRow;
+        long total = 0;
+        while (true) {
+            final SearchAnalyticsQueryRequest request = template.clone()
+                    .setStartRow(startRow)
+                    .setRowLimit(rowLimit);
+            final List<ApiDataRow> rows = rowsOf(
+                    webmasters.searchanalytics().query(siteUrl, request).execute());
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Fetched {} rows from startRow {}", rows.size(), startRow);
+            }
+            if (!rows.isEmpty()) {
+                handler.onPage(startRow, rows);
+                total += rows.size();
+            }
+            if (rows.size() < rowLimit) {
+                return total;
+            }
+            startRow += rows.size();
+        }
+    }
+
+    /**
+     * レスポンスから行リストを取り出します。
+     *
+     * @param response クエリレスポンス
+     * @return 行リスト（存在しない場合は空リスト）
+     */
+    private static List<ApiDataRow> rowsOf(final SearchAnalyticsQueryResponse response) {
+        if (response == null || response.getRows() == null) {
+            return Collections.emptyList();
+        }
+        return response.getRows();
+    }
+
+    /**
+     * 取得したページを処理するコールバック。
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+
+        /**
+         * 1ページ分の行を処理します。
+         *
+         * @param startRow ページの開始行番号
+         * @param rows ページの行（空ではありません）
+         * @throws IOException 処理に失敗した場合
+         */
+        void onPage(int startRow, List<ApiDataRow> rows) throws IOException;
+    }
+}
@@ -0,0 +1,52 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Search Analyticsクエリの日付範囲を分割する単位を定義するenumです。
+ */
+public enum ShardBy {
+    /**
+     * 1日ごとに分割します。
+     */
+    DAY(1),
+
+    /**
+     * 開始日から7日ごとに分割します。
+     */
+    WEEK(7);
+
+    /**
+     * 1分割あたりの日数。
+     */
+    private final int days;
+
+    /**
+     * ShardByコンストラクタ。
+     *
+     * @param days 1分割あたりの日数
+     */
+    ShardBy(final int days) {
+        this.days = days;
+    }
+
+    /**
+     * 日付範囲をこの単位で日付順に分割します。
+     *
+     * @param range 分割する日付範囲
+     * @return 日付順に並んだ部分範囲
+     */
+    public List<DateRange> split(final DateRange range) {
+        final List<DateRange> shards = new ArrayList<>();
+        LocalDate shardStart = range.start();
+        while (!shardStart.isAfter(range.end())) {
+            final LocalDate candidateEnd = shardStart.plusDays(days - 1L);
+            final LocalDate shardEnd = candidateEnd.isAfter(range.end()) ? range.end() : candidateEnd;
+            shards.add(new DateRange(shardStart, shardEnd));
+            shardStart = shardEnd.plusDays(1);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,275 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+
+/**
+ * 複数のSearch Analyticsクエリを並行実行し、結果を投入順に出力するクラス。
+ *
+ * <p>各クエリは上限付きのスレッドプールで全ページを取得します。
+ * API呼び出しはWebmastersクライアントに設定されたプロセス共有のレート制限の下で行われ、
+ * 取得結果はクエリの投入順（日付分割の場合は日付順）に{@link SearchAnalyticsPager.PageHandler}へ渡されます。
+ * 各クエリの先読みは{@link #PAGES_AHEAD}ページまでに制限されるため、
+ * 保持するページ数はクエリの行数によらず同時実行数に比例する一定量に収まります。</p>
+ */
+public class ShardedQueryExecutor {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedQueryExecutor.class);
+
+    /** クエリごとに先読みして保持するページ数の上限。 */
+    /* default */ static final int PAGES_AHEAD = 2;
+
+    /** クエリの全ページを取得し終えたことを表す目印。 */
+    private static final Page END_OF_SHARD = new Page(-1, List.of());
+
+    /** ページング実行クラス。 */
+    private final SearchAnalyticsPager pager;
+
+    /** 同時実行数の上限。 */
+    private final int concurrency;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param siteUrl サイトURL
+     * @param rowLimit 1ページあたりの行数
+     * @param concurrency 同時実行数の上限
+     * @throws CmdLineArgmentException 同時実行数が不正な場合
+     */
+    public ShardedQueryExecutor(final Webmasters webmasters, final String siteUrl, final int rowLimit,
+            final int concurrency) {
+        if (concurrency < 1) {
+            throw new CmdLineArgmentException("concurrency must be greater than 0");
+        }
+        this.pager = new SearchAnalyticsPager(webmasters, siteUrl, rowLimit);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * すべてのクエリを並行実行し、結果を投入順に渡します。
+     *
+     * @param requests 実行するクエリ
+     * @param handler ページごとの処理（呼び出し元スレッドで実行されます）
+     * @return 取得した行数の合計
+     * @throws IOException API呼び出しまたはページ処理に失敗した場合
+     */
+    public long execute(final List<SearchAnalyticsQueryRequest> requests,
+            final SearchAnalyticsPager.PageHandler handler) throws IOException {
+        return execute(requests, (request, startRow, rows) -> handler.onPage(startRow, rows));
+    }
+
+    /**
+     * すべてのクエリを並行実行し、結果をクエリごとに投入順で渡します。
+     *
+     * <p>各クエリは{@link ShardHandler#firstRow}が返す行から取得を開始し、
+     * 全ページを渡し終えた時点で{@link ShardHandler#onComplete}が呼び出されます。
+     * 取得に失敗したクエリは、失敗するまでに取得したページを渡した後に例外を送出し、
+     * {@link ShardHandler#onComplete}は呼び出されません。</p>
+     *
+     * @param requests 実行するクエリ
+     * @param handler クエリごとの処理（呼び出し元スレッドで実行されます）
+     * @return 取得した行数の合計
+     * @throws IOException API呼び出しまたはページ処理に失敗した場合
+     */
+    public long execute(final List<SearchAnalyticsQueryRequest> requests,
+            final ShardHandler handler) throws IOException {
+        if (requests.isEmpty()) {
+            return 0;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, requests.size()));
+        try {
+            // スレッドプールは投入順にクエリを開始するため、先頭の未完了クエリは常に実行中か実行待ちの先頭にあり、
+            // 後続のクエリが先読みの上限で待機していても詰まらない
+            final List<BlockingQueue<Page>> queues = new ArrayList<>(requests.size());
+            final List<Future<?>> futures = new ArrayList<>(requests.size());
+            for (final SearchAnalyticsQueryRequest request : requests) {
+                final int firstRow = handler.firstRow(request);
+                final BlockingQueue<Page> queue = new ArrayBlockingQueue<>(PAGES_AHEAD + 1);
+                queues.add(queue);
+                futures.add(executor.submit(() -> fetchPages(request, firstRow, queue)));
+            }
+            long total = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                final SearchAnalyticsQueryRequest request = requests.get(i);
+                for (Page page = take(queues.get(i)); page != END_OF_SHARD; page = take(queues.get(i))) {
+                    handler.onPage(request, page.startRow(), page.rows());
+                    total += page.rows().size();
+                }
+                awaitShard(futures.get(i));
+                handler.onComplete(request);
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 1クエリ分の全ページを取得し、キューへ順に渡します。
+     *
+     * <p>キューが先読みの上限に達している間は、呼び出し元スレッドが取り出すまで待機します。
+     * 取得の成否にかかわらず、最後に{@link #END_OF_SHARD}を渡します。</p>
+     *
+     * @param request クエリリクエスト
+     * @param firstRow 取得を開始する行番号
+     * @param queue 取得したページを渡すキュー
+     * @return 常にnull
+     * @throws IOException API呼び出しに失敗した場合
+     */
+    private Void fetchPages(final SearchAnalyticsQueryRequest request, final int firstRow,
+            final BlockingQueue<Page> queue) throws IOException {
+        try {
+            final long rows = pager.fetch(request, firstRow, (startRow, page) -> put(queue, new Page(startRow, page)));
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Shard {}..{} fetched {} rows", request.getStartDate(), request.getEndDate(), rows);
+            }
+        } finally {
+            put(queue, END_OF_SHARD);
+        }
+        return null;
+    }
+
+    /**
+     * キューに空きができるまで待機してページを渡します。
+     *
+     * @param queue ページを渡すキュー
+     * @param page 渡すページ
+     */
+    private static void put(final BlockingQueue<Page> queue, final Page page) {
+        try {
+            queue.put(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineInputOutputException("Interrupted while handing over page", e);
+        }
+    }
+
+    /**
+     * キューからページが渡されるまで待機して取り出します。
+     *
+     * @param queue ページを受け取るキュー
+     * @return 取り出したページ
+     */
+    private static Page take(final BlockingQueue<Page> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineInputOutputException("Interrupted while waiting for shard", e);
+        }
+    }
+
+    /**
+     * クエリの完了を待ち、取得に失敗していた場合は例外を送出します。
+     *
+     * @param future クエリの実行結果
+     * @throws IOException API呼び出しに失敗していた場合
+     */
+    private static void awaitShard(final Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandLineInputOutputException("Interrupted while waiting for shard", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CommandLineInputOutputException("Shard execution failed", cause);
+        }
+    }
+
+    /**
+     * 取得済みの1ページを表すレコード。
+     *
+     * @param startRow ページの開始行番号
+     * @param rows ページの行
+     */
+    private record Page(int startRow, List<ApiDataRow> rows) {
+    }
+
+    /**
+     * クエリごとに取得結果を処理するコールバック。
+     */
+    @FunctionalInterface
+    public interface ShardHandler {
+
+        /**
+         * クエリの取得を開始する行番号を返します。
+         *
+         * @param request クエリリクエスト
+         * @return 取得を開始する行番号（デフォルトは0）
+         */
+        default int firstRow(final SearchAnalyticsQueryRequest request) {
+            return 0;
+        }
+
+        /**
+         * 1ページ分の行を処理します。
+         *
+         * @param request ページを取得したクエリリクエスト
+         * @param startRow ページの開始行番号
+         * @param rows ページの行（空ではありません）
+         * @throws IOException 処理に失敗した場合
+         */
+        void onPage(SearchAnalyticsQueryRequest request, int startRow, List<ApiDataRow> rows) throws IOException;
+
+        /**
+         * クエリの全ページを処理し終えたときに呼び出されます。
+         *
+         * @param request 完了したクエリリクエスト
+         * @throws IOException 処理に失敗した場合
+         */
+        default void onComplete(final SearchAnalyticsQueryRequest request) throws IOException {
+            // デフォルトでは何もしない
+        }
+
+        /**
+         * ページの処理後に別のページ処理を続けて実行するコールバックを返します。
+         *
+         * @param next 続けて実行するページ処理
+         * @return 合成したコールバック
+         */
+        default ShardHandler andThen(final SearchAnalyticsPager.PageHandler next) {
+            final ShardHandler first = this;
+            return new ShardHandler() {
+                @Override
+                public int firstRow(final SearchAnalyticsQueryRequest request) {
+                    return first.firstRow(request);
+                }
+
+                @Override
+                public void onPage(final SearchAnalyticsQueryRequest request, final int startRow,
+                        final List<ApiDataRow> rows) throws IOException {
+                    first.onPage(request, startRow, rows);
+                    next.onPage(startRow, rows);
+                }
+
+                @Override
+                public void onComplete(final SearchAnalyticsQueryRequest request) throws IOException {
+                    first.onComplete(request);
+                }
+            };
+        }
+    }
+}
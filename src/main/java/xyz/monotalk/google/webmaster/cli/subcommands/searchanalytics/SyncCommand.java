@@ -0,0 +1,358 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.Command;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.Format;
+import xyz.monotalk.google.webmaster.cli.ResponseWriter;
+import xyz.monotalk.google.webmaster.cli.RowStreamWriter;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+
+/**
+ * Search Analyticsのデータを前回の続きから差分取得するコマンドクラス。
+ *
+ * <p>サイトとディメンションの組み合わせごとに、確定済みとして出力した最終日を状態ファイルに保存します。
+ * 実行ごとに前回の最終日の翌日から、確定済みとみなす日（当日から{@code -finalizationDays}日前）までを
+ * 日単位で取得してCSVファイルへ追記し、1日書き込むごとに状態を更新します。
+ * まだ確定していない日は{@code -provisionalPath}を指定した場合のみ別ファイルへ上書き出力します。
+ * 日付はSearch Consoleの集計に合わせて太平洋時間で判定します。</p>
+ */
+@Component
+public class SyncCommand implements Command {
+
+    /** ロガーインスタンス。 */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncCommand.class);
+
+    /** Search Consoleが日付の集計に使用するタイムゾーン。 */
+    private static final ZoneId DATA_ZONE = ZoneId.of("America/Los_Angeles");
+
+    /** データが確定するまでのデフォルト日数。 */
+    private static final int DEFAULT_FINALIZATION_DAYS = 3;
+
+    /** デフォルトの状態ファイル保存ディレクトリ。 */
+    private static final String DEFAULT_STATE_DIR = ".gsc-sync";
+
+    /** デフォルトの同時実行数。 */
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    /** サイトURL。 */
+    @Option(name = "-siteUrl", usage = "Site URL", required = true)
+    private String siteUrl;
+
+    /** 初回同期の開始日。状態ファイルがある場合は無視されます。 */
+    @Option(name = "-startDate", usage = "First date of the initial sync (yyyy-MM-dd)")
+    private String startDate;
+
+    /** 日付以外のディメンション（カンマ区切り）。 */
+    @Option(name = "-dimensions", usage = "Dimensions besides date, comma separated (default: query)")
+    private String dimensions = "query";
+
+    /** 確定済みの行を追記するCSVファイルパス。 */
+    @Option(name = "-filePath", usage = "CSV file that finalized rows are appended to", required = true)
+    private String filePath;
+
+    /** 未確定の行を上書き出力するCSVファイルパス。 */
+    @Option(name = "-provisionalPath", usage = "CSV file overwritten with rows of days not yet finalized")
+    private String provisionalPath;
+
+    /** 状態ファイルを保存するディレクトリ。 */
+    @Option(name = "-stateDir", usage = "Directory of sync state files (default: .gsc-sync)")
+    private String stateDir = DEFAULT_STATE_DIR;
+
+    /** データが確定するまでの日数。 */
+    @Option(name = "-finalizationDays", usage = "Days until data is considered final (default: 3)")
+    private int finalizationDays = DEFAULT_FINALIZATION_DAYS;
+
+    /** 1ページあたりの行数。 */
+    @Option(name = "-rowLimit", usage = "Rows per page (1-25000)")
+    private int rowLimit = SearchAnalyticsPager.MAX_ROW_LIMIT;
+
+    /** 同時実行数。 */
+    @Option(name = "-concurrency", usage = "Number of days fetched concurrently")
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /** WebmastersFactoryインスタンス。 */
+    private final WebmastersFactory factory;
+
+    /** 当日を判定するための時計。 */
+    private Clock clock = Clock.system(DATA_ZONE);
+
+    /**
+     * コンストラクタ。
+     *
+     * @param factory WebmastersFactoryインスタンス
+     */
+    public SyncCommand(final WebmastersFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute() {
+        validateArguments();
+        final List<String> dimensionList = Dimensions.parse(dimensions);
+        if (dimensionList.contains(Dimensions.DATE)) {
+            throw new CmdLineArgmentException("date is always included and must not be specified");
+        }
+        final SyncStateStore store = new SyncStateStore(Paths.get(stateDir));
+        try {
+            final Optional<SyncState> state = store.load(siteUrl, dimensionList);
+            final Path csv = Paths.get(filePath).toAbsolutePath().normalize();
+            if (state.isPresent()) {
+                verifyOutputPath(state.get(), csv);
+            }
+            final LocalDate today = LocalDate.now(clock);
+            final LocalDate lastFinalized = today.minusDays(finalizationDays);
+            final LocalDate from = state.map(s -> LocalDate.parse(s.getLastFinalizedDate()).plusDays(1))
+                    .orElseGet(this::parseStartDate);
+            final Webmasters webmasters = factory.createClient();
+
+            if (state.isPresent() && state.get().getFileSize() != null) {
+                // 前回の実行が日の途中で中断した場合、状態に記録していない行を取り除く
+                ExportCheckpoint.truncate(csv, state.get().getFileSize());
+            }
+
+            if (from.isAfter(lastFinalized)) {
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("No newly finalized days to sync (last finalized: {})", lastFinalized);
+                }
+            } else {
+                final long rows = appendFinalized(webmasters, store, csv, new DateRange(from, lastFinalized),
+                        dimensionList);
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Synced {}..{}: {} rows appended", from, lastFinalized, rows);
+                }
+            }
+            writeProvisional(webmasters, from, lastFinalized, today, dimensionList);
+        } catch (IOException e) {
+            throw new CommandLineInputOutputException("Failed to sync search analytics", e);
+        }
+    }
+
+    /**
+     * 状態を記録した追記先と、今回の追記先が同じファイルであることを検証します。
+     *
+     * <p>状態に記録したファイルサイズまでの切り詰めは記録した追記先に対してのみ有効なため、
+     * 別のファイルを指定した場合は切り詰めも追記も行いません。</p>
+     *
+     * @param state 保存済みの状態
+     * @param csv 今回の追記先（絶対パス）
+     * @throws CmdLineArgmentException 追記先が異なる場合、またはファイルサイズだけが記録されている場合
+     */
+    private static void verifyOutputPath(final SyncState state, final Path csv) {
+        final String recorded = state.getOutputPath();
+        if (recorded == null ? state.getFileSize() != null : !recorded.equals(csv.toString())) {
+            throw new CmdLineArgmentException("Sync state was recorded for " + recorded
+                    + "; -filePath must point to the same file");
+        }
+    }
+
+    /**
+     * 確定済みの日を日付順に追記し、1日書き込むごとに状態を保存します。
+     *
+     * <p>追記を始める前に現在のファイルサイズを状態へ記録し、以降は各日の行を書き出すたびに
+     * その日とファイルサイズを記録します。途中で失敗・中断した場合でも、次回の実行で記録した位置まで
+     * ファイルを切り詰めてから記録した日の翌日から取得し直すため、同じ行が重複して追記されることはありません。</p>
+     *
+     * @param webmasters Webmastersクライアント
+     * @param store 状態の保存先
+     * @param csv 追記先のCSVファイル
+     * @param range 日付範囲
+     * @param dimensionList 日付以外のディメンション
+     * @return 書き込んだ行数
+     * @throws IOException APIコールまたは書き込み中にエラーが発生した場合
+     */
+    private long appendFinalized(final Webmasters webmasters, final SyncStateStore store, final Path csv,
+            final DateRange range, final List<String> dimensionList) throws IOException {
+        saveState(store, dimensionList, range.start().minusDays(1), csv);
+        try (RowStreamWriter writer = ResponseWriter.appendCsvRowStream(filePath, csvKeyColumns(dimensionList))) {
+            return newExecutor(webmasters).execute(shardsOf(range, dimensionList),
+                    new ShardedQueryExecutor.ShardHandler() {
+                        @Override
+                        public void onPage(final SearchAnalyticsQueryRequest request, final int startRow,
+                                final List<ApiDataRow> rows) throws IOException {
+                            for (final ApiDataRow row : rows) {
+                                writer.write(row);
+                            }
+                        }
+
+                        @Override
+                        public void onComplete(final SearchAnalyticsQueryRequest request) throws IOException {
+                            writer.flush();
+                            saveState(store, dimensionList, LocalDate.parse(request.getEndDate()), csv);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * 確定済みとして書き込んだ最終日と、その時点の追記先ファイルのサイズを保存します。
+     *
+     * @param store 状態の保存先
+     * @param dimensionList 日付以外のディメンション
+     * @param lastFinalizedDate 書き込んだ最終日
+     * @param csv 追記先のCSVファイル
+     * @throws IOException 保存に失敗した場合
+     */
+    private void saveState(final SyncStateStore store, final List<String> dimensionList,
+            final LocalDate lastFinalizedDate, final Path csv) throws IOException {
+        store.save(new SyncState()
+                .setSiteUrl(siteUrl)
+                .setDimensions(dimensionList)
+                .setLastFinalizedDate(lastFinalizedDate.toString())
+                .setFileSize(Files.exists(csv) ? Files.size(csv) : 0L)
+                .setOutputPath(csv.toString())
+                .setUpdatedAt(OffsetDateTime.now(clock).toString()));
+    }
+
+    /**
+     * 未確定の日を取得し、指定された場合は別ファイルへ上書き出力します。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param from 今回の取得開始日
+     * @param lastFinalized 確定済みとみなす最終日
+     * @param today 当日
+     * @param dimensionList 日付以外のディメンション
+     * @throws IOException APIコールまたは書き込み中にエラーが発生した場合
+     */
+    private void writeProvisional(final Webmasters webmasters, final LocalDate from, final LocalDate lastFinalized,
+            final LocalDate today, final List<String> dimensionList) throws IOException {
+        final LocalDate start = from.isAfter(lastFinalized) ? from : lastFinalized.plusDays(1);
+        final LocalDate end = today.minusDays(1);
+        if (StringUtils.isBlank(provisionalPath) || start.isAfter(end)) {
+            return;
+        }
+        final long rows = fetch(webmasters, new DateRange(start, end), dimensionList,
+                ResponseWriter.openRowStream(Format.CSV, provisionalPath, "rows", csvKeyColumns(dimensionList)));
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Provisional {}..{}: {} rows written", start, end, rows);
+        }
+    }
+
+    /**
+     * 日付範囲を日単位で取得し、日付順に書き込みます。
+     *
+     * @param webmasters Webmastersクライアント
+     * @param range 日付範囲
+     * @param dimensionList 日付以外のディメンション
+     * @param output 出力先（書き込み後にクローズします）
+     * @return 書き込んだ行数
+     * @throws IOException APIコールまたは書き込み中にエラーが発生した場合
+     */
+    private long fetch(final Webmasters webmasters, final DateRange range, final List<String> dimensionList,
+            final RowStreamWriter output) throws IOException {
+        try (RowStreamWriter writer = output) {
+            return newExecutor(webmasters).execute(shardsOf(range, dimensionList), (startRow, rows) -> {
+                for (final ApiDataRow row : rows) {
+                    writer.write(row);
+                }
+            });
+        }
+    }
+
+    /**
+     * 日付範囲を1日ずつのクエリに分割します。
+     *
+     * @param range 日付範囲
+     * @param dimensionList 日付以外のディメンション
+     * @return 日付順のクエリ
+     */
+    private static List<SearchAnalyticsQueryRequest> shardsOf(final DateRange range,
+            final List<String> dimensionList) {
+        final List<SearchAnalyticsQueryRequest> shards = new ArrayList<>();
+        for (final DateRange day : ShardBy.DAY.split(range)) {
+            shards.add(new SearchAnalyticsQueryRequest()
+                    .setStartDate(day.start().toString())
+                    .setEndDate(day.end().toString())
+                    .setDimensions(csvKeyColumns(dimensionList)));
+        }
+        return shards;
+    }
+
+    /**
+     * 日単位のクエリを並行実行するクラスを生成します。
+     *
+     * @param webmasters Webmastersクライアント
+     * @return 並行実行クラス
+     */
+    private ShardedQueryExecutor newExecutor(final Webmasters webmasters) {
+        return new ShardedQueryExecutor(webmasters, siteUrl, rowLimit, concurrency);
+    }
+
+    /**
+     * 日付を先頭に加えたディメンション（CSVのキー列名）を返します。
+     *
+     * @param dimensionList 日付以外のディメンション
+     * @return 日付を先頭に加えたディメンション
+     */
+    private static List<String> csvKeyColumns(final List<String> dimensionList) {
+        final List<String> columns = new ArrayList<>(dimensionList.size() + 1);
+        columns.add(Dimensions.DATE);
+        columns.addAll(dimensionList);
+        return columns;
+    }
+
+    /**
+     * 引数を検証します。
+     *
+     * @throws CmdLineArgmentException 引数が無効な場合
+     */
+    private void validateArguments() {
+        if (StringUtils.isBlank(siteUrl)) {
+            throw new CmdLineArgmentException("Site URL must be specified");
+        }
+        if (StringUtils.isBlank(filePath)) {
+            throw new CmdLineArgmentException("File path must be specified");
+        }
+        if (finalizationDays < 1) {
+            throw new CmdLineArgmentException("finalizationDays must be greater than 0");
+        }
+    }
+
+    /**
+     * 初回同期の開始日を解析します。
+     *
+     * @return 開始日
+     * @throws CmdLineArgmentException 開始日が未指定または不正な場合
+     */
+    private LocalDate parseStartDate() {
+        if (StringUtils.isBlank(startDate)) {
+            throw new CmdLineArgmentException("Start date must be specified for the initial sync");
+        }
+        try {
+            return LocalDate.parse(startDate);
+        } catch (DateTimeParseException e) {
+            throw new CmdLineArgmentException("Invalid start date: " + startDate, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String usage() {
+        return "Appends newly finalized Search Analytics rows since the last sync.";
+    }
+}
@@ -0,0 +1,172 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+import java.util.List;
+
+/**
+ * 差分同期の状態（確定済みとして取得した最終日）を表すクラス。
+ */
+public class SyncState extends GenericJson {
+
+    /** サイトURL。 */
+    @Key
+    private String siteUrl;
+
+    /** 日付以外のディメンション。 */
+    @Key
+    private List<String> dimensions;
+
+    /** 確定済みとして出力した最終日（yyyy-MM-dd）。 */
+    @Key
+    private String lastFinalizedDate;
+
+    /** 状態の更新日時（ISO-8601）。 */
+    @Key
+    private String updatedAt;
+
+    /** 最終日までの行を書き込んだ時点の追記先ファイルのサイズ（バイト）。 */
+    @Key
+    private Long fileSize;
+
+    /** 追記先ファイルの絶対パス。 */
+    @Key
+    private String outputPath;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public SyncState() {
+        super();
+    }
+
+    /**
+     * サイトURLを取得します。
+     *
+     * @return サイトURL
+     */
+    public String getSiteUrl() {
+        return siteUrl;
+    }
+
+    /**
+     * サイトURLを設定します。
+     *
+     * @param siteUrl サイトURL
+     * @return このインスタンス
+     */
+    public SyncState setSiteUrl(final String siteUrl) {
+        this.siteUrl = siteUrl;
+        return this;
+    }
+
+    /**
+     * 日付以外のディメンションを取得します。
+     *
+     * @return ディメンション
+     */
+    public List<String> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 日付以外のディメンションを設定します。
+     *
+     * @param dimensions ディメンション
+     * @return このインスタンス
+     */
+    public SyncState setDimensions(final List<String> dimensions) {
+        this.dimensions = dimensions;
+        return this;
+    }
+
+    /**
+     * 確定済みとして出力した最終日を取得します。
+     *
+     * @return 最終日（yyyy-MM-dd）
+     */
+    public String getLastFinalizedDate() {
+        return lastFinalizedDate;
+    }
+
+    /**
+     * 確定済みとして出力した最終日を設定します。
+     *
+     * @param lastFinalizedDate 最終日（yyyy-MM-dd）
+     * @return このインスタンス
+     */
+    public SyncState setLastFinalizedDate(final String lastFinalizedDate) {
+        this.lastFinalizedDate = lastFinalizedDate;
+        return this;
+    }
+
+    /**
+     * 状態の更新日時を取得します。
+     *
+     * @return 更新日時（ISO-8601）
+     */
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * 状態の更新日時を設定します。
+     *
+     * @param updatedAt 更新日時（ISO-8601）
+     * @return このインスタンス
+     */
+    public SyncState setUpdatedAt(final String updatedAt) {
+        this.updatedAt = updatedAt;
+        return this;
+    }
+
+    /**
+     * 最終日までの行を書き込んだ時点の追記先ファイルのサイズを取得します。
+     *
+     * @return ファイルサイズ（バイト、記録されていない場合はnull）
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * 最終日までの行を書き込んだ時点の追記先ファイルのサイズを設定します。
+     *
+     * @param fileSize ファイルサイズ（バイト）
+     * @return このインスタンス
+     */
+    public SyncState setFileSize(final Long fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    /**
+     * 追記先ファイルの絶対パスを取得します。
+     *
+     * @return 絶対パス（記録されていない場合はnull）
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * 追記先ファイルの絶対パスを設定します。
+     *
+     * @param outputPath 絶対パス
+     * @return このインスタンス
+     */
+    public SyncState setOutputPath(final String outputPath) {
+        this.outputPath = outputPath;
+        return this;
+    }
+
+    @Override
+    public SyncState set(final String fieldName, final Object value) {
+        return (SyncState) super.set(fieldName, value);
+    }
+
+    @Override
+    public SyncState clone() {
+        return (SyncState) super.clone();
+    }
+}
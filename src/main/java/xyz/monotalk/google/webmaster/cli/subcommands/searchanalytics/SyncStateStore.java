@@ -0,0 +1,90 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 差分同期の状態をサイトとディメンションの組み合わせごとにファイルへ保存するクラス。
+ *
+ * <p>状態ファイルは一時ファイルへ書き込んでから置き換えるため、
+ * 書き込み途中で中断しても以前の状態が壊れることはありません。</p>
+ */
+public class SyncStateStore {
+
+    /** 状態ファイル名の長さ（ハッシュ値の文字数）。 */
+    private static final int KEY_LENGTH = 16;
+
+    /** 状態ファイルの拡張子。 */
+    private static final String EXTENSION = ".json";
+
+    /** 状態ファイルを保存するディレクトリ。 */
+    private final Path directory;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param directory 状態ファイルを保存するディレクトリ
+     */
+    public SyncStateStore(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 状態を読み込みます。
+     *
+     * @param siteUrl サイトURL
+     * @param dimensions 日付以外のディメンション
+     * @return 状態（未保存の場合は空）
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public Optional<SyncState> load(final String siteUrl, final List<String> dimensions) throws IOException {
+        final Path file = pathOf(siteUrl, dimensions);
+        if (Files.notExists(file)) {
+            return Optional.empty();
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return Optional.of(GsonFactory.getDefaultInstance()
+                    .fromInputStream(in, StandardCharsets.UTF_8, SyncState.class));
+        }
+    }
+
+    /**
+     * 状態を保存します。
+     *
+     * @param state 状態
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void save(final SyncState state) throws IOException {
+        Files.createDirectories(directory);
+        final Path file = pathOf(state.getSiteUrl(), state.getDimensions());
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporary, GsonFactory.getDefaultInstance().toPrettyString(state),
+                    StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * サイトとディメンションの組み合わせに対応する状態ファイルのパスを返します。
+     *
+     * @param siteUrl サイトURL
+     * @param dimensions 日付以外のディメンション
+     * @return 状態ファイルのパス
+     */
+    /* default */ Path pathOf(final String siteUrl, final List<String> dimensions) {
+        final String key = siteUrl + '\n' + String.join(",", dimensions);
+        final String hash = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+        return directory.resolve(hash.substring(0, KEY_LENGTH) + EXTENSION);
+    }
+}
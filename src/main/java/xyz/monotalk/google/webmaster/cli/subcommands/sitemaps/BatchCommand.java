@@ -0,0 +1,69 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.sitemaps;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.services.webmasters.Webmasters;
+import java.io.IOException;
+import java.util.Locale;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.AbstractBatchCommand;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+
+/**
+ * 複数サイトのサイトマップ操作をバッチリクエストでまとめて実行するコマンドクラス。
+ *
+ * <p>入力の各行は次のいずれかの形式です。</p>
+ * <pre>
+ * get &lt;siteUrl&gt; &lt;feedpath&gt;
+ * list &lt;siteUrl&gt;
+ * submit &lt;siteUrl&gt; &lt;feedpath&gt;
+ * delete &lt;siteUrl&gt; &lt;feedpath&gt;
+ * </pre>
+ */
+@Component
+public class BatchCommand extends AbstractBatchCommand {
+
+    /**
+     * コンストラクタ。
+     *
+     * @param factory WebmastersFactoryインスタンス
+     */
+    public BatchCommand(final WebmastersFactory factory) {
+        super(factory);
+    }
+
+    @Override
+    protected AbstractGoogleJsonClientRequest<?> toRequest(final Webmasters webmasters, final String... tokens)
+            throws IOException {
+        final Webmasters.Sitemaps sitemaps = webmasters.sitemaps();
+        return switch (tokens[0].toLowerCase(Locale.ROOT)) {
+            case "get" -> {
+                requireArguments(tokens, 2, "get <siteUrl> <feedpath>");
+                yield sitemaps.get(tokens[1], tokens[2]);
+            }
+            case "list" -> {
+                requireArguments(tokens, 1, "list <siteUrl>");
+                yield sitemaps.list(tokens[1]);
+            }
+            case "submit" -> {
+                requireArguments(tokens, 2, "submit <siteUrl> <feedpath>");
+                yield sitemaps.submit(tokens[1], tokens[2]);
+            }
+            case "delete" -> {
+                requireArguments(tokens, 2, "delete <siteUrl> <feedpath>");
+                yield sitemaps.delete(tokens[1], tokens[2]);
+            }
+            default -> throw new CmdLineArgmentException("Unknown operation: " + tokens[0]);
+        };
+    }
+
+    /**
+     * コマンドの使用方法を返します。
+     *
+     * @return 使用方法の説明。
+     */
+    @Override
+    public String usage() {
+        return "Runs sitemap get/list/submit/delete calls for many sites in batch requests";
+    }
+}
@@ -0,0 +1,64 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.sites;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.services.webmasters.Webmasters;
+import java.io.IOException;
+import java.util.Locale;
+import org.springframework.stereotype.Component;
+import xyz.monotalk.google.webmaster.cli.AbstractBatchCommand;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+
+/**
+ * 複数サイトの取得・追加・削除をバッチリクエストでまとめて実行するコマンドクラス。
+ *
+ * <p>入力の各行は次のいずれかの形式です。</p>
+ * <pre>
+ * get &lt;siteUrl&gt;
+ * add &lt;siteUrl&gt;
+ * delete &lt;siteUrl&gt;
+ * </pre>
+ */
+@Component
+public class BatchCommand extends AbstractBatchCommand {
+
+    /**
+     * コンストラクタ。
+     *
+     * @param factory WebmastersFactoryインスタンス
+     */
+    public BatchCommand(final WebmastersFactory factory) {
+        super(factory);
+    }
+
+    @Override
+    protected AbstractGoogleJsonClientRequest<?> toRequest(final Webmasters webmasters, final String... tokens)
+            throws IOException {
+        final Webmasters.Sites sites = webmasters.sites();
+        return switch (tokens[0].toLowerCase(Locale.ROOT)) {
+            case "get" -> {
+                requireArguments(tokens, 1, "get <siteUrl>");
+                yield sites.get(tokens[1]);
+            }
+            case "add" -> {
+                requireArguments(tokens, 1, "add <siteUrl>");
+                yield sites.add(tokens[1]);
+            }
+            case "delete" -> {
+                requireArguments(tokens, 1, "delete <siteUrl>");
+                yield sites.delete(tokens[1]);
+            }
+            default -> throw new CmdLineArgmentException("Unknown operation: " + tokens[0]);
+        };
+    }
+
+    /**
+     * コマンドの使用方法を返します。
+     *
+     * @return 使用方法の説明
+     */
+    @Override
+    public String usage() {
+        return "Runs site get/add/delete calls for many sites in batch requests";
+    }
+}
@@ -0,0 +1,280 @@
+package xyz.monotalk.google.webmaster.cli.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * {@code Command}実装からコマンド索引クラスを生成するアノテーションプロセッサです。
+ *
+ * <p>{@code subcommands}パッケージ以下の{@code @Component}付き具象コマンドクラスを収集し、
+ * コマンド名・生成処理・args4jのオプション名を列挙した{@code GeneratedCommandIndex}を生成します。
+ * コマンド名はパッケージ名とクラス名から導出します
+ * （例：{@code subcommands.sites.ListCommand} → {@code webmasters.sites.list}）。</p>
+ */
+@SupportedAnnotationTypes("org.springframework.stereotype.Component")
+public class CommandIndexProcessor extends AbstractProcessor {
+
+    /** CLIのベースパッケージ。 */
+    private static final String BASE_PACKAGE = "xyz.monotalk.google.webmaster.cli";
+
+    /** サブコマンドのパッケージ接頭辞。 */
+    private static final String SUBCOMMANDS_PACKAGE = BASE_PACKAGE + ".subcommands.";
+
+    /** コマンドインターフェースの完全修飾名。 */
+    private static final String COMMAND_INTERFACE = BASE_PACKAGE + ".Command";
+
+    /** args4jのオプションアノテーションの完全修飾名。 */
+    private static final String OPTION_ANNOTATION = "org.kohsuke.args4j.Option";
+
+    /** 生成するクラスの単純名。 */
+    private static final String INDEX_CLASS = "GeneratedCommandIndex";
+
+    /** コマンド名の接頭辞。 */
+    private static final String COMMAND_PREFIX = "webmasters.";
+
+    /** コマンドクラス名の接尾辞。 */
+    private static final String COMMAND_SUFFIX = "Command";
+
+    /** 生成済みかどうか。 */
+    private boolean generated;
+
+    /**
+     * デフォルトコンストラクタ。
+     */
+    public CommandIndexProcessor() {
+        super();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (generated || roundEnv.processingOver()) {
+            return false;
+        }
+        final TypeElement commandType = processingEnv.getElementUtils().getTypeElement(COMMAND_INTERFACE);
+        if (commandType == null) {
+            return false;
+        }
+        final Map<String, Entry> entries = new TreeMap<>();
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isCommandClass(element, commandType)) {
+                    addEntry(entries, (TypeElement) element);
+                }
+            }
+        }
+        writeIndex(entries);
+        generated = true;
+        return false;
+    }
+
+    /**
+     * 要素が索引対象のコマンドクラスかどうかを判定します。
+     *
+     * @param element 要素
+     * @param commandType コマンドインターフェース
+     * @return 索引対象の場合はtrue
+     */
+    private boolean isCommandClass(final Element element, final TypeElement commandType) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        final String packageName = packageOf(element);
+        return packageName.startsWith(SUBCOMMANDS_PACKAGE)
+                && element.getSimpleName().toString().endsWith(COMMAND_SUFFIX)
+                && processingEnv.getTypeUtils().isAssignable(element.asType(), commandType.asType());
+    }
+
+    /**
+     * コマンドクラスを索引に追加します。コマンド名が重複する場合はコンパイルエラーにします。
+     *
+     * @param entries 索引（大文字小文字を区別しないコマンド名をキーとする）
+     * @param type コマンドクラス
+     */
+    private void addEntry(final Map<String, Entry> entries, final TypeElement type) {
+        final String name = commandName(type);
+        final Entry previous = entries.putIfAbsent(name.toLowerCase(Locale.ROOT),
+                new Entry(name, type.getQualifiedName().toString(), optionNames(type)));
+        if (previous != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Duplicate command name " + name + " (also defined by " + previous.className() + ")", type);
+        }
+    }
+
+    /**
+     * パッケージ名とクラス名からコマンド名を導出します。
+     *
+     * @param type コマンドクラス
+     * @return コマンド名
+     */
+    private String commandName(final TypeElement type) {
+        final String group = packageOf(type).substring(SUBCOMMANDS_PACKAGE.length());
+        final String simpleName = type.getSimpleName().toString();
+        final String action = simpleName.substring(0, simpleName.length() - COMMAND_SUFFIX.length());
+        return COMMAND_PREFIX + group + '.' + Character.toLowerCase(action.charAt(0)) + action.substring(1);
+    }
+
+    /**
+     * クラスとそのスーパークラスに宣言されたargs4jのオプション名と別名を収集します。
+     *
+     * @param type コマンドクラス
+     * @return オプション名
+     */
+    private List<String> optionNames(final TypeElement type) {
+        final List<String> names = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null) {
+            for (final Element member : current.getEnclosedElements()) {
+                for (final AnnotationMirror mirror : member.getAnnotationMirrors()) {
+                    if (OPTION_ANNOTATION.equals(mirror.getAnnotationType().toString())) {
+                        collectOptionNames(mirror, names);
+                    }
+                }
+            }
+            current = superclassOf(current);
+        }
+        return names;
+    }
+
+    /**
+     * {@code @Option}の{@code name}と{@code aliases}を収集します。
+     *
+     * @param mirror {@code @Option}のアノテーション
+     * @param names 収集先
+     */
+    private void collectOptionNames(final AnnotationMirror mirror, final List<String> names) {
+        final Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : values.entrySet()) {
+            final String key = value.getKey().getSimpleName().toString();
+            if ("name".equals(key)) {
+                names.add((String) value.getValue().getValue());
+            } else if ("aliases".equals(key)) {
+                for (final Object alias : (List<?>) value.getValue().getValue()) {
+                    names.add((String) ((AnnotationValue) alias).getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * スーパークラスを返します。
+     *
+     * @param type クラス
+     * @return スーパークラス（存在しない場合はnull）
+     */
+    private static TypeElement superclassOf(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    /**
+     * 要素のパッケージ名を返します。
+     *
+     * @param element 要素
+     * @return パッケージ名
+     */
+    private String packageOf(final Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    /**
+     * 索引クラスのソースを出力します。
+     *
+     * @param entries 索引
+     */
+    private void writeIndex(final Map<String, Entry> entries) {
+        try {
+            final JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(BASE_PACKAGE + '.' + INDEX_CLASS);
+            try (Writer writer = file.openWriter()) {
+                writer.write(renderIndex(entries.values()));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + INDEX_CLASS + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 索引クラスのソースを組み立てます。
+     *
+     * @param entries 索引のエントリー（コマンド名順）
+     * @return Javaソース
+     */
+    private static String renderIndex(final Iterable<Entry> entries) {
+        final StringBuilder source = new StringBuilder(1024);
+        source.append("package ").append(BASE_PACKAGE).append(";\n\n")
+                .append("import java.util.List;\n")
+                .append("import javax.annotation.processing.Generated;\n\n")
+                .append("/**\n * ビルド時に生成されたコマンド索引です。編集しないでください。\n */\n")
+                .append("@Generated(\"").append(CommandIndexProcessor.class.getName()).append("\")\n")
+                .append("final class ").append(INDEX_CLASS).append(" {\n\n")
+                .append("    private ").append(INDEX_CLASS).append("() {\n    }\n\n")
+                .append("    static List<CommandDescriptor> commands() {\n")
+                .append("        return List.of(");
+        boolean first = true;
+        for (final Entry entry : entries) {
+            source.append(first ? "\n" : ",\n")
+                    .append("            new CommandDescriptor(").append(quote(entry.name())).append(",\n")
+                    .append("                factory -> factory.createBean(").append(entry.className())
+                    .append(".class),\n")
+                    .append("                List.of(");
+            for (int i = 0; i < entry.options().size(); i++) {
+                source.append(i > 0 ? ", " : "").append(quote(entry.options().get(i)));
+            }
+            source.append("))");
+            first = false;
+        }
+        return source.append(");\n    }\n}\n").toString();
+    }
+
+    /**
+     * 文字列をJavaの文字列リテラルに変換します。
+     *
+     * @param value 文字列
+     * @return 文字列リテラル
+     */
+    private static String quote(final String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * 索引の1エントリーを表すレコード。
+     *
+     * @param name コマンド名
+     * @param className コマンドクラスの完全修飾名
+     * @param options オプション名
+     */
+    private record Entry(String name, String className, List<String> options) {
+    }
+}
@@ -0,0 +1,159 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * CachedTokenCredentialsのテストクラス。
+ */
+public class CachedTokenCredentialsTest {
+
+    /** 1時間（ミリ秒）。 */
+    private static final long ONE_HOUR_MILLIS = 60 * 60 * 1000L;
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** 保存先ディレクトリ。 */
+    private Path directory;
+
+    /** キャッシュのキー。 */
+    private final String cacheKey =
+            CachedTokenCredentials.cacheKeyOf("{\"type\":\"service_account\"}".getBytes(StandardCharsets.UTF_8),
+                    "https://www.googleapis.com/auth/webmasters");
+
+    /**
+     * テストの前準備。
+     */
+    @Before
+    public void setUp() {
+        directory = temporaryFolder.getRoot().toPath().resolve("tokens");
+    }
+
+    /**
+     * 指定した有効期限のトークンを返す委譲先を生成します。
+     *
+     * @param value トークン値
+     * @param expiresInMillis 現在からの有効期限（ミリ秒）
+     * @return 委譲先の認証情報
+     * @throws IOException 入出力例外が発生した場合
+     */
+    private static GoogleCredentials delegateReturning(final String value, final long expiresInMillis)
+            throws IOException {
+        final GoogleCredentials delegate = mock(GoogleCredentials.class);
+        when(delegate.refreshAccessToken())
+                .thenReturn(new AccessToken(value, new Date(System.currentTimeMillis() + expiresInMillis)));
+        return delegate;
+    }
+
+    /**
+     * 別のプロセスを想定した別インスタンスで、保存済みのトークンを再利用することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testRefreshAccessToken_正常系_保存済みのトークンを再利用() throws IOException {
+        final GoogleCredentials first = delegateReturning("token-1", ONE_HOUR_MILLIS);
+        final GoogleCredentials second = delegateReturning("token-2", ONE_HOUR_MILLIS);
+
+        final AccessToken minted = new CachedTokenCredentials(first, directory, cacheKey).refreshAccessToken();
+        final AccessToken reused = new CachedTokenCredentials(second, directory, cacheKey).refreshAccessToken();
+
+        assertEquals("token-1", minted.getTokenValue());
+        assertEquals("token-1", reused.getTokenValue());
+        assertEquals(minted.getExpirationTime(), reused.getExpirationTime());
+        verify(first, times(1)).refreshAccessToken();
+        verify(second, never()).refreshAccessToken();
+    }
+
+    /**
+     * 有効期限が近いトークンは再利用せずに取得し直すことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testRefreshAccessToken_正常系_期限間近なら取得し直す() throws IOException {
+        final GoogleCredentials first = delegateReturning("token-1", 60 * 1000L);
+        final GoogleCredentials second = delegateReturning("token-2", ONE_HOUR_MILLIS);
+
+        new CachedTokenCredentials(first, directory, cacheKey).refreshAccessToken();
+        final AccessToken refreshed = new CachedTokenCredentials(second, directory, cacheKey).refreshAccessToken();
+
+        assertEquals("token-2", refreshed.getTokenValue());
+        verify(second, times(1)).refreshAccessToken();
+    }
+
+    /**
+     * 残り時間がライブラリの有効期限前の更新が始まる時間に近いトークンは、別のインスタンスが保存したものでも再利用しないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testRefreshAccessToken_正常系_更新開始の残り時間なら取得し直す() throws IOException {
+        final GoogleCredentials first = delegateReturning("token-1", 6 * 60 * 1000L);
+        final GoogleCredentials second = delegateReturning("token-2", ONE_HOUR_MILLIS);
+
+        new CachedTokenCredentials(first, directory, cacheKey).refreshAccessToken();
+        final AccessToken refreshed = new CachedTokenCredentials(second, directory, cacheKey).refreshAccessToken();
+
+        assertEquals("token-2", refreshed.getTokenValue());
+        verify(second, times(1)).refreshAccessToken();
+    }
+
+    /**
+     * 保持中のトークンの更新では、保存済みの同じトークンを返さずに新しいトークンを取得することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testRefreshAccessToken_正常系_保持中のトークンは再利用しない() throws IOException {
+        final GoogleCredentials delegate = mock(GoogleCredentials.class);
+        final Date expiration = new Date(System.currentTimeMillis() + ONE_HOUR_MILLIS);
+        when(delegate.refreshAccessToken())
+                .thenReturn(new AccessToken("token-1", expiration), new AccessToken("token-2", expiration));
+        final CachedTokenCredentials credentials = new CachedTokenCredentials(delegate, directory, cacheKey);
+
+        credentials.refresh();
+        final AccessToken refreshed = credentials.refreshAccessToken();
+
+        assertEquals("token-1", credentials.getAccessToken().getTokenValue());
+        assertEquals("token-2", refreshed.getTokenValue());
+        verify(delegate, times(2)).refreshAccessToken();
+    }
+
+    /**
+     * キーが異なる場合はトークンを共有しないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testRefreshAccessToken_正常系_キーごとに分離() throws IOException {
+        final String otherKey = CachedTokenCredentials.cacheKeyOf(
+                "{\"type\":\"service_account\"}".getBytes(StandardCharsets.UTF_8), "other-scope");
+        final GoogleCredentials second = delegateReturning("token-2", ONE_HOUR_MILLIS);
+
+        new CachedTokenCredentials(delegateReturning("token-1", ONE_HOUR_MILLIS), directory, cacheKey)
+                .refreshAccessToken();
+        final AccessToken other = new CachedTokenCredentials(second, directory, otherKey).refreshAccessToken();
+
+        assertNotEquals(cacheKey, otherKey);
+        assertEquals("token-2", other.getTokenValue());
+    }
+}
@@ -0,0 +1,138 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * CachingHttpClientのテストクラス。
+ */
+public class CachingHttpClientTest {
+
+    /** サイトマップ一覧のURL。 */
+    private static final String SITEMAPS =
+            "https://www.googleapis.com/webmasters/v3/sites/https%3A%2F%2Fexample.com%2F/sitemaps";
+
+    /** 検索アナリティクスのクエリのURL。 */
+    private static final String QUERY =
+            "https://www.googleapis.com/webmasters/v3/sites/https%3A%2F%2Fexample.com%2F/searchAnalytics/query";
+
+    /** 委譲先のHTTPクライアント。 */
+    private CloseableHttpClient delegate;
+
+    /** レートリミッター。 */
+    private QuotaRateLimiter rateLimiter;
+
+    /** テスト対象を使うリクエストファクトリ。 */
+    private HttpRequestFactory requestFactory;
+
+    /**
+     * テストの前準備。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        delegate = mock(CloseableHttpClient.class);
+        when(delegate.execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class)))
+                .thenAnswer(invocation -> okResponse());
+        final AtomicLong now = new AtomicLong();
+        final ResponseCache cache = new ResponseCache(10, null, 60, 60, 60, now::get);
+        rateLimiter = mock(QuotaRateLimiter.class);
+        requestFactory = new ApacheHttpTransport(new CachingHttpClient(delegate, cache, "key.json", rateLimiter))
+                .createRequestFactory();
+    }
+
+    /**
+     * 成功レスポンスを生成します。
+     *
+     * @return レスポンス
+     */
+    private static CloseableHttpResponse okResponse() {
+        final CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        final BasicHttpResponse status = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        when(response.getStatusLine()).thenReturn(status.getStatusLine());
+        when(response.getAllHeaders()).thenReturn(new Header[0]);
+        when(response.getEntity()).thenReturn(new StringEntity("{\"sitemap\":[]}", "UTF-8"));
+        return response;
+    }
+
+    /**
+     * 2回目のGETをキャッシュから返すことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_2回目はキャッシュから返す() throws IOException {
+        final String first = requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().parseAsString();
+        final String second = requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().parseAsString();
+
+        assertEquals("{\"sitemap\":[]}", first);
+        assertEquals(first, second);
+        verify(delegate, times(1)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    /**
+     * 更新リクエストの後はキャッシュを使わずに送信することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_更新後は再送信() throws IOException {
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+        requestFactory.buildPutRequest(new GenericUrl(SITEMAPS + "/https%3A%2F%2Fexample.com%2Fsitemap.xml"), null)
+                .execute().disconnect();
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+
+        verify(delegate, times(3)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    /**
+     * 読み取り系のPOST（検索アナリティクスのクエリ）ではキャッシュを破棄しないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_POSTでは破棄しない() throws IOException {
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+        requestFactory.buildPostRequest(new GenericUrl(QUERY), ByteArrayContent.fromString("application/json", "{}"))
+                .execute().disconnect();
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+
+        verify(delegate, times(2)).execute(any(HttpHost.class), any(HttpRequest.class), any(HttpContext.class));
+    }
+
+    /**
+     * キャッシュから返すリクエストはレート制限の許可を取得せず、送信するリクエストだけが取得することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_送信する場合だけ許可を取得() throws IOException {
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+        requestFactory.buildGetRequest(new GenericUrl(SITEMAPS)).execute().disconnect();
+
+        verify(rateLimiter, times(1)).acquire(any(GenericUrl.class));
+    }
+}
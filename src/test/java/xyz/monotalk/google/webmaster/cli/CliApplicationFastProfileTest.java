@@ -0,0 +1,46 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * fastプロファイルで起動した場合のテストクラス。
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({"test", "fast"})
+public class CliApplicationFastProfileTest {
+
+    /**
+     * アプリケーションコンテキスト。
+     */
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    /**
+     * Beanが遅延初期化として登録されることをテストします。
+     */
+    @Test
+    public void testContext_shouldRegisterBeansLazily() {
+        final String beanName = WebmastersFactory.class.getName();
+
+        assertTrue("WebmastersFactoryが遅延初期化になっていません",
+                context.getBeanFactory().getBeanDefinition(beanName).isLazyInit());
+    }
+
+    /**
+     * 遅延初期化でも必要なBeanが取得できることをテストします。
+     */
+    @Test
+    public void testContext_shouldResolveRunnerOnDemand() {
+        assertNotNull("WebmastersCommandRunnerが取得できません", context.getBean(WebmastersCommandRunner.class));
+    }
+}
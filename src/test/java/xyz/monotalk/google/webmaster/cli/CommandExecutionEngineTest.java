@@ -0,0 +1,163 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ * CommandExecutionEngineのテストクラス。
+ */
+public class CommandExecutionEngineTest {
+
+    /**
+     * 全コマンドの結果が投入順に返されることのテスト。
+     */
+    @Test
+    public void testExecute_正常系_投入順の結果() {
+        // Given
+        final CommandExecutionEngine engine = new CommandExecutionEngine(args -> {
+            if ("fail".equals(args[0])) {
+                throw new CmdLineArgmentException("failed: " + args[0]);
+            }
+        }, 4, false);
+
+        // When
+        final List<CommandExecution> results = engine.execute(List.of(
+                new String[] {"a"}, new String[] {"fail"}, new String[] {"b"}));
+
+        // Then
+        assertEquals(3, results.size());
+        assertEquals(CommandExecution.Status.SUCCEEDED, results.get(0).status());
+        assertEquals(CommandExecution.Status.FAILED, results.get(1).status());
+        assertEquals("failed: fail", results.get(1).error());
+        assertEquals(CommandExecution.Status.SUCCEEDED, results.get(2).status());
+        assertEquals("b", results.get(2).args()[0]);
+    }
+
+    /**
+     * 同時に実行するコマンド数が上限を超えないことのテスト。
+     */
+    @Test
+    public void testExecute_正常系_同時実行数の上限() {
+        // Given
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CommandExecutionEngine engine = new CommandExecutionEngine(args -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+        }, 8, false);
+        final List<String[]> commands = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            commands.add(new String[] {"webmasters.sites.list"});
+        }
+
+        // When
+        final List<CommandExecution> results = engine.execute(commands);
+
+        // Then
+        assertTrue("全コマンドが成功していません", results.stream().allMatch(CommandExecution::succeeded));
+        assertTrue("同時実行数が上限を超えています: " + maxRunning.get(), maxRunning.get() <= 8);
+    }
+
+    /**
+     * 失敗時の取り消しを指定した場合に、実行中のコマンドへ割り込み、未実行のコマンドを実行しないことのテスト。
+     */
+    @Test
+    public void testExecute_正常系_失敗時に取り消し() {
+        // Given
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final AtomicInteger executed = new AtomicInteger();
+        final CommandExecutionEngine engine = new CommandExecutionEngine(args -> {
+            executed.incrementAndGet();
+            if ("block".equals(args[0])) {
+                blocked.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CommandLineInputOutputException("Interrupted", e);
+                }
+                return;
+            }
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CommandLineInputOutputException("failed");
+        }, 2, true);
+
+        // When
+        final List<CommandExecution> results = engine.execute(List.of(
+                new String[] {"block"}, new String[] {"fail"}, new String[] {"never"}));
+
+        // Then
+        assertTrue(engine.isCancelled());
+        assertEquals(CommandExecution.Status.CANCELLED, results.get(0).status());
+        assertEquals(CommandExecution.Status.FAILED, results.get(1).status());
+        assertEquals(CommandExecution.Status.CANCELLED, results.get(2).status());
+        assertEquals(2, executed.get());
+    }
+
+    /**
+     * 投入待ちの呼び出し元スレッドに割り込んだ場合に、実行中のコマンドへ割り込んでから戻ることのテスト。
+     *
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    @Test
+    public void testExecute_正常系_呼び出し元への割り込みで取り消し() throws InterruptedException {
+        // Given
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CommandExecutionEngine engine = new CommandExecutionEngine(args -> {
+            blocked.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommandLineInputOutputException("Interrupted", e);
+            }
+        }, 1, false);
+        final AtomicReference<List<CommandExecution>> results = new AtomicReference<>();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Thread caller = new Thread(() -> {
+            results.set(engine.execute(List.of(new String[] {"block"}, new String[] {"never"})));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        assertTrue("コマンドが開始されていません", blocked.await(10, TimeUnit.SECONDS));
+
+        // When
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Then
+        assertFalse("実行中のコマンドに割り込まれていません", caller.isAlive());
+        assertTrue(engine.isCancelled());
+        assertTrue("割り込み状態が復元されていません", interrupted.get());
+        assertEquals(CommandExecution.Status.CANCELLED, results.get().get(0).status());
+        assertEquals(CommandExecution.Status.CANCELLED, results.get().get(1).status());
+    }
+
+    /**
+     * 同時実行数の上限が1未満の場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testConstructor_異常系_同時実行数不正() {
+        new CommandExecutionEngine(args -> { }, 0, false);
+    }
+}
@@ -0,0 +1,103 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * CommandRegistryのテストクラス。
+ */
+public class CommandRegistryTest {
+
+    /**
+     * 生成されたコマンド索引に既存のコマンドが登録されていることのテスト。
+     */
+    @Test
+    public void testGenerated_正常系_コマンドが登録されている() {
+        final CommandRegistry registry = CommandRegistry.generated();
+
+        assertTrue("sites.listが登録されていません", registry.find("webmasters.sites.list").isPresent());
+        assertTrue("markAsFixedが登録されていません",
+                registry.find("webmasters.urlcrawlerrorssamples.markAsFixed").isPresent());
+        assertTrue("batch.runが登録されていません", registry.find("webmasters.batch.run").isPresent());
+    }
+
+    /**
+     * 生成されたコマンド索引にargs4jのオプション名が含まれることのテスト。
+     */
+    @Test
+    public void testGenerated_正常系_オプション名を保持() {
+        final CommandDescriptor descriptor = CommandRegistry.generated().require("webmasters.sitemaps.list");
+
+        assertTrue("オプション名が含まれていません", descriptor.options().contains("-siteUrl"));
+    }
+
+    /**
+     * コマンド名の照合が大文字小文字を区別しないことのテスト。
+     */
+    @Test
+    public void testFind_正常系_大文字小文字を区別しない() {
+        final CommandRegistry registry = new CommandRegistry(List.of(descriptor("webmasters.sites.list")));
+
+        assertTrue("コマンドが見つかりません", registry.find("webmasters.Sites.LIST").isPresent());
+        assertFalse("存在しないコマンドが見つかりました", registry.find("webmasters.sites.get").isPresent());
+    }
+
+    /**
+     * 存在しないコマンドの場合に候補付きの例外が発生することのテスト。
+     */
+    @Test
+    public void testRequire_異常系_候補を提示() {
+        final CommandRegistry registry = new CommandRegistry(List.of(
+                descriptor("webmasters.sites.list"), descriptor("webmasters.sitemaps.list")));
+
+        try {
+            registry.require("webmasters.sites.lst");
+        } catch (CmdLineArgmentException e) {
+            assertEquals("メッセージが正しくありません",
+                    "Command not found: webmasters.sites.lst (did you mean: webmasters.sites.list?)", e.getMessage());
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+
+    /**
+     * 近い候補がない場合は候補を提示しないことのテスト。
+     */
+    @Test
+    public void testSuggest_正常系_候補なし() {
+        assertTrue("候補が返されました",
+                CommandRegistry.suggest("webmasters.foo", List.of("webmasters.sites.list")).isEmpty());
+    }
+
+    /**
+     * 候補が編集距離の近い順に返されることのテスト。
+     */
+    @Test
+    public void testSuggest_正常系_近い順() {
+        final List<String> suggestions = CommandRegistry.suggest("-sitUrl", List.of("-format", "-siteUrl", "-siteUr"));
+
+        assertEquals("候補の順序が正しくありません", List.of("-siteUrl", "-siteUr"), suggestions);
+    }
+
+    /**
+     * コマンド名が重複している場合に例外が発生することのテスト。
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_異常系_コマンド名重複() {
+        new CommandRegistry(List.of(descriptor("webmasters.sites.list"), descriptor("webmasters.SITES.list")));
+    }
+
+    /**
+     * テスト用のコマンド定義を生成します。
+     *
+     * @param name コマンド名
+     * @return コマンド定義
+     */
+    private static CommandDescriptor descriptor(final String name) {
+        return new CommandDescriptor(name, factory -> null, List.of());
+    }
+}
@@ -0,0 +1,75 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.client.http.GenericUrl;
+import org.junit.Test;
+
+/**
+ * QuotaRateLimiterのテストクラス。
+ */
+public class QuotaRateLimiterTest {
+
+    /** テスト用のAPIベースURL。 */
+    private static final String BASE_URL = "https://www.googleapis.com/webmasters/v3/";
+
+    /**
+     * URLエンコードされたサイトURLを取り出せることのテスト。
+     */
+    @Test
+    public void testSiteKeyOf_正常系_サイトURLを取得() {
+        final GenericUrl url = new GenericUrl(
+                BASE_URL + "sites/https%3A%2F%2Fwww.example.com%2F/searchAnalytics/query");
+
+        assertEquals("サイトURLが正しくありません", "https://www.example.com/", QuotaRateLimiter.siteKeyOf(url));
+    }
+
+    /**
+     * サイトを対象としないリクエストではnullを返すことのテスト。
+     */
+    @Test
+    public void testSiteKeyOf_正常系_サイト一覧() {
+        assertNull("サイトURLが取得されました", QuotaRateLimiter.siteKeyOf(new GenericUrl(BASE_URL + "sites")));
+    }
+
+    /**
+     * 上限に達するまでは待機しないことのテスト。
+     */
+    @Test
+    public void testAcquire_正常系_上限未満は待機しない() {
+        final QuotaRateLimiter limiter = new QuotaRateLimiter(1000, 1000);
+
+        final double waited = limiter.acquire(new GenericUrl(BASE_URL + "sites/a"));
+
+        assertEquals("待機が発生しました", 0.0, waited, 0.0);
+    }
+
+    /**
+     * 同じサイトへのリクエストはサイトごとの上限で待機することのテスト。
+     */
+    @Test
+    public void testAcquire_正常系_同一サイトは待機() {
+        final QuotaRateLimiter limiter = new QuotaRateLimiter(0, 5);
+        final GenericUrl url = new GenericUrl(BASE_URL + "sites/a/sitemaps");
+
+        limiter.acquire(url);
+        final double waited = limiter.acquire(url);
+
+        assertTrue("待機が発生していません", waited > 0);
+    }
+
+    /**
+     * 異なるサイトへのリクエストは別のバケットで制限されることのテスト。
+     */
+    @Test
+    public void testAcquire_正常系_サイトごとに独立() {
+        final QuotaRateLimiter limiter = new QuotaRateLimiter(0, 5);
+
+        limiter.acquire(new GenericUrl(BASE_URL + "sites/a/sitemaps"));
+        final double waited = limiter.acquire(new GenericUrl(BASE_URL + "sites/b/sitemaps"));
+
+        assertEquals("別サイトで待機が発生しました", 0.0, waited, 0.0);
+    }
+}
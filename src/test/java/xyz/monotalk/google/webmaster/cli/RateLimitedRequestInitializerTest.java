@@ -0,0 +1,50 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.testing.http.MockHttpTransport;
+import java.io.IOException;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+/**
+ * RateLimitedRequestInitializerのテストクラス。
+ */
+public class RateLimitedRequestInitializerTest {
+
+    /**
+     * 送信前にレート制限の許可を取得してから元のインターセプターを呼ぶことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testInitialize_正常系_許可取得後に元のインターセプターを実行() throws IOException {
+        // Given
+        final QuotaRateLimiter rateLimiter = mock(QuotaRateLimiter.class);
+        final HttpExecuteInterceptor original = mock(HttpExecuteInterceptor.class);
+        final HttpRequestInitializer delegate = mock(HttpRequestInitializer.class);
+        doAnswer(invocation -> {
+            invocation.<HttpRequest>getArgument(0).setInterceptor(original);
+            return null;
+        }).when(delegate).initialize(any());
+        final GenericUrl url = new GenericUrl("https://www.googleapis.com/webmasters/v3/sites");
+
+        // When
+        new MockHttpTransport()
+                .createRequestFactory(new RateLimitedRequestInitializer(delegate, rateLimiter))
+                .buildGetRequest(url)
+                .execute();
+
+        // Then
+        final InOrder order = inOrder(rateLimiter, original);
+        order.verify(rateLimiter).acquire(url);
+        order.verify(original).intercept(any());
+    }
+}
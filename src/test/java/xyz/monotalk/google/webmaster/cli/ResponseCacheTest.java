@@ -0,0 +1,209 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ResponseCacheのテストクラス。
+ */
+public class ResponseCacheTest {
+
+    /** 名前空間。 */
+    private static final String NAMESPACE = "key.json";
+
+    /** サイト一覧のURL。 */
+    private static final String SITES = "https://www.googleapis.com/webmasters/v3/sites";
+
+    /** サイトのURL。 */
+    private static final String SITE = SITES + "/https%3A%2F%2Fexample.com%2F";
+
+    /** サイトマップ一覧のURL。 */
+    private static final String SITEMAPS = SITE + "/sitemaps";
+
+    /** サイトマップのURL。 */
+    private static final String SITEMAP = SITEMAPS + "/https%3A%2F%2Fexample.com%2Fsitemap.xml";
+
+    /** ディスカバリーのURL。 */
+    private static final String DISCOVERY = "https://www.googleapis.com/discovery/v1/apis";
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** テスト用の時計。 */
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    /**
+     * テスト対象を生成します。
+     *
+     * @param maxEntries 最大件数
+     * @param directory ディスクの保存先
+     * @return テスト対象
+     */
+    private ResponseCache newCache(final int maxEntries, final Path directory) {
+        return new ResponseCache(maxEntries, directory, 60, 120, 3600, now::get);
+    }
+
+    /**
+     * レスポンスを保存します。
+     *
+     * @param cache キャッシュ
+     * @param uri リクエストURL
+     * @param body 本文
+     */
+    private static void put(final ResponseCache cache, final String uri, final String body) {
+        final List<String[]> headers = List.<String[]>of(new String[] {"Content-Type", "application/json"});
+        cache.put(NAMESPACE, "GET", uri, 200, "OK", headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * エンドポイントごとの有効期限のテスト。
+     */
+    @Test
+    public void testTtlMillisOf_正常系_エンドポイントごとの有効期限() {
+        final ResponseCache cache = newCache(10, null);
+        assertEquals(60_000L, cache.ttlMillisOf("GET", SITES));
+        assertEquals(60_000L, cache.ttlMillisOf("GET", SITE));
+        assertEquals(120_000L, cache.ttlMillisOf("GET", SITEMAPS));
+        assertEquals(120_000L, cache.ttlMillisOf("GET", SITEMAP + "?sitemapIndex=x"));
+        assertEquals(3_600_000L, cache.ttlMillisOf("GET", DISCOVERY));
+        assertEquals(0L, cache.ttlMillisOf("GET", SITE + "/urlCrawlErrorsCounts/query"));
+        assertEquals(0L, cache.ttlMillisOf("POST", SITE + "/searchAnalytics/query"));
+        assertEquals(0L, cache.ttlMillisOf("PUT", SITEMAP));
+    }
+
+    /**
+     * 有効期限を過ぎたエントリを返さないことのテスト。
+     */
+    @Test
+    public void testGet_正常系_有効期限切れ() {
+        final ResponseCache cache = newCache(10, null);
+        put(cache, SITES, "{}");
+        now.addAndGet(59_999L);
+        assertNotNull(cache.get(NAMESPACE, "GET", SITES));
+        now.addAndGet(1L);
+        assertNull(cache.get(NAMESPACE, "GET", SITES));
+    }
+
+    /**
+     * 上限を超えると最も長く参照されていないエントリを破棄することのテスト。
+     */
+    @Test
+    public void testPut_正常系_LRUで破棄() {
+        final ResponseCache cache = newCache(2, null);
+        put(cache, SITES, "sites");
+        put(cache, SITE, "site");
+        assertNotNull(cache.get(NAMESPACE, "GET", SITES));
+        put(cache, SITEMAPS, "sitemaps");
+
+        assertTrue(cache.contains(NAMESPACE, "GET", SITES));
+        assertFalse(cache.contains(NAMESPACE, "GET", SITE));
+        assertTrue(cache.contains(NAMESPACE, "GET", SITEMAPS));
+    }
+
+    /**
+     * 更新されたリソース自身と、それを直接含む一覧だけを破棄することのテスト。
+     */
+    @Test
+    public void testInvalidate_正常系_リソースと親の一覧を破棄() {
+        final ResponseCache cache = newCache(10, null);
+        final String otherSite = SITES + "/https%3A%2F%2Fother.example.com%2F";
+        put(cache, SITES, "sites");
+        put(cache, SITE, "site");
+        put(cache, SITEMAPS, "sitemaps");
+        put(cache, SITEMAP, "sitemap");
+        put(cache, otherSite, "other");
+        put(cache, DISCOVERY, "discovery");
+
+        cache.invalidate(NAMESPACE, SITEMAP);
+
+        assertFalse(cache.contains(NAMESPACE, "GET", SITEMAP));
+        assertFalse(cache.contains(NAMESPACE, "GET", SITEMAPS));
+        assertTrue(cache.contains(NAMESPACE, "GET", SITE));
+        assertTrue(cache.contains(NAMESPACE, "GET", SITES));
+        assertTrue(cache.contains(NAMESPACE, "GET", otherSite));
+        assertTrue(cache.contains(NAMESPACE, "GET", DISCOVERY));
+    }
+
+    /**
+     * サイトの削除でサイト一覧と配下のサイトマップが破棄されることのテスト。
+     */
+    @Test
+    public void testInvalidate_正常系_サイトの更新で一覧と子孫を破棄() {
+        final ResponseCache cache = newCache(10, null);
+        put(cache, SITES, "sites");
+        put(cache, SITEMAPS, "sitemaps");
+        put(cache, DISCOVERY, "discovery");
+
+        cache.invalidate(NAMESPACE, SITE);
+
+        assertFalse(cache.contains(NAMESPACE, "GET", SITES));
+        assertFalse(cache.contains(NAMESPACE, "GET", SITEMAPS));
+        assertTrue(cache.contains(NAMESPACE, "GET", DISCOVERY));
+    }
+
+    /**
+     * 名前空間が異なるエントリを共有しないことのテスト。
+     */
+    @Test
+    public void testGet_正常系_名前空間ごとに分離() {
+        final ResponseCache cache = newCache(10, null);
+        put(cache, SITES, "sites");
+        assertNull(cache.get("other.json", "GET", SITES));
+    }
+
+    /**
+     * ディスクに保存したエントリを別のインスタンスから読み込めることのテスト。
+     */
+    @Test
+    public void testGet_正常系_ディスクから読み込み() {
+        final Path directory = temporaryFolder.getRoot().toPath().resolve("cache");
+        put(newCache(10, directory), SITEMAPS, "{\"sitemap\":[]}");
+
+        final ResponseCache.Entry entry = newCache(10, directory).get(NAMESPACE, "GET", SITEMAPS);
+
+        assertNotNull(entry);
+        assertEquals(200, entry.statusCode());
+        assertArrayEquals("{\"sitemap\":[]}".getBytes(StandardCharsets.UTF_8), entry.body());
+        assertEquals("application/json", entry.headers().get(0)[1]);
+    }
+
+    /**
+     * ディスク上のエントリも更新時に破棄され、関係しないエントリは残ることのテスト。
+     */
+    @Test
+    public void testInvalidate_正常系_ディスクからも破棄() {
+        final Path directory = temporaryFolder.getRoot().toPath();
+        final ResponseCache writer = newCache(10, directory);
+        put(writer, SITEMAPS, "sitemaps");
+        put(writer, SITES, "sites");
+
+        newCache(10, directory).invalidate(NAMESPACE, SITEMAP);
+
+        assertNull(newCache(10, directory).get(NAMESPACE, "GET", SITEMAPS));
+        assertNotNull(newCache(10, directory).get(NAMESPACE, "GET", SITES));
+    }
+
+    /**
+     * 上限件数が0の場合はキャッシュしないことのテスト。
+     */
+    @Test
+    public void testPut_正常系_無効() {
+        final ResponseCache cache = newCache(0, null);
+        put(cache, SITES, "sites");
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get(NAMESPACE, "GET", SITES));
+    }
+}
@@ -1,14 +1,19 @@
 package xyz.monotalk.google.webmaster.cli;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.github.luben.zstd.ZstdInputStream;
 import com.google.api.client.json.GenericJson;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -16,7 +21,11 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -494,6 +503,194 @@ public class ResponseWriterTest {
         assertEquals(JSON_WRITE_ERR, EXPECTED_JSON, result);
     }
 
+    /**
+     * 検索アナリティクスの行がキー列を展開したCSVとして出力されることをテストします。
+     *
+     * @throws IOException ファイル操作中に発生する可能性のある例外
+     */
+    @Test
+    public void testWriteJsonCsvSearchAnalyticsRows() throws IOException {
+        // Given
+        final SearchAnalyticsQueryResponse response = new SearchAnalyticsQueryResponse().setRows(Arrays.asList(
+                new ApiDataRow().setKeys(Arrays.asList("java", "https://example.com/a"))
+                        .setClicks(10.0).setCtr(0.5).setImpressions(20.0).setPosition(1.5),
+                new ApiDataRow().setKeys(Arrays.asList("spring, boot", "https://example.com/\"b\""))
+                        .setClicks(1.0).setCtr(0.1).setImpressions(10.0).setPosition(3.0)));
+        final String filePath = tempFolder.newFile("rows.csv").getAbsolutePath();
+
+        // When
+        ResponseWriter.writeJson(response, Format.CSV, filePath);
+
+        // Then
+        final List<String> lines = Files.readAllLines(Path.of(filePath), StandardCharsets.UTF_8);
+        assertEquals("CSVの行数が正しくありません", 3, lines.size());
+        assertEquals("ヘッダーが正しくありません", "key1,key2,clicks,ctr,impressions,position", lines.get(0));
+        assertEquals("1行目が正しくありません", "java,https://example.com/a,10.0,0.5,20.0,1.5", lines.get(1));
+        assertEquals("エスケープが正しくありません",
+                "\"spring, boot\",\"https://example.com/\"\"b\"\"\",1.0,0.1,10.0,3.0", lines.get(2));
+    }
+
+    /**
+     * 行ストリームでキー列名を指定した場合にヘッダーへ反映されることをテストします。
+     *
+     * @throws IOException ファイル操作中に発生する可能性のある例外
+     */
+    @Test
+    public void testOpenRowStreamCsvWithKeyColumns() throws IOException {
+        // Given
+        final String filePath = tempFolder.newFile("stream.csv").getAbsolutePath();
+
+        // When
+        try (RowStreamWriter writer = ResponseWriter.openRowStream(
+                Format.CSV, filePath, "rows", List.of("query"))) {
+            writer.write(new ApiDataRow().setKeys(List.of("java")).setClicks(1.0));
+        }
+
+        // Then
+        final List<String> lines = Files.readAllLines(Path.of(filePath), StandardCharsets.UTF_8);
+        assertEquals("ヘッダーが正しくありません", "query,clicks,ctr,impressions,position", lines.get(0));
+        assertEquals("行が正しくありません", "java,1.0,,,", lines.get(1));
+    }
+
+    /**
+     * 行ストリームをgzipで圧縮しながら出力できることをテストします。
+     *
+     * @throws IOException ファイル操作中に発生する可能性のある例外
+     */
+    @Test
+    public void testOpenRowStreamCsvGzip() throws IOException {
+        // Given
+        final String filePath = tempFolder.getRoot().toPath().resolve("stream.csv.gz").toString();
+
+        // When
+        try (RowStreamWriter writer = ResponseWriter.openRowStream(
+                Format.CSV, filePath, "rows", List.of("query"), Compression.GZIP)) {
+            writer.write(new ApiDataRow().setKeys(List.of("java")).setClicks(1.0));
+        }
+
+        // Then
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(Path.of(filePath)))) {
+            assertEquals("圧縮した内容が正しくありません", "query,clicks,ctr,impressions,position\r\njava,1.0,,,\r\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * レスポンスをZstandardで圧縮してJSON出力できることをテストします。
+     *
+     * @throws IOException ファイル操作中に発生する可能性のある例外
+     */
+    @Test
+    public void testWriteJsonZstd() throws IOException {
+        // Given
+        final String filePath = tempFolder.getRoot().toPath().resolve("response.json.zst").toString();
+        final GenericJson json = getFactoryConfiguredGenericJson();
+        json.set(JSON_KEY, JSON_VALUE);
+
+        // When
+        ResponseWriter.writeJson(json, Format.JSON, filePath, Compression.ZSTD);
+
+        // Then
+        try (InputStream in = new ZstdInputStream(Files.newInputStream(Path.of(filePath)))) {
+            assertJsonEquals(EXPECTED_JSON, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 標準出力への出力で圧縮を指定した場合に例外が発生することをテストします。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testOpenRowStreamConsoleCompression() {
+        ResponseWriter.openRowStream(Format.CONSOLE, null, "rows", List.of(), Compression.GZIP);
+    }
+
+    /**
+     * 行形式でないオブジェクトをCSV出力しようとした場合に例外が発生することをテストします。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testWriteJsonCsvUnsupportedObject() {
+        ResponseWriter.writeJson(Map.of(JSON_KEY, JSON_VALUE), Format.CSV, null);
+    }
+
+    /**
+     * GenericJsonが出力ストリームへ直接書き込まれることをテストします。
+     *
+     * @throws IOException 書き込み中に発生する可能性のある例外
+     */
+    @Test
+    public void testStreamJsonGenericJson() throws IOException {
+        // Given
+        final GenericJson json = getFactoryConfiguredGenericJson();
+        json.set(JSON_KEY, JSON_VALUE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        ResponseWriter.streamJson(json, out);
+
+        // Then
+        assertJsonEquals(EXPECTED_JSON, out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * GenericJson以外のオブジェクトはゲッターから出力され、ゲッターのないフィールドは出力されず、
+     * 出力先がクローズされないことをテストします。
+     *
+     * @throws IOException 書き込み中に発生する可能性のある例外
+     */
+    @Test
+    public void testStreamJsonGetterBasedObject() throws IOException {
+        // Given
+        final boolean[] closed = new boolean[1];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        // When
+        ResponseWriter.streamJson(new GetterResponse(JSON_VALUE), out);
+
+        // Then
+        assertJsonEquals(EXPECTED_JSON, out.toString(StandardCharsets.UTF_8));
+        assertFalse("出力先がクローズされています", closed[0]);
+    }
+
+    /**
+     * ゲッターを持つテスト用レスポンスクラスです。
+     */
+    @SuppressWarnings({"PMD.TestClassWithoutTestCases", "unused"})
+    private static final class GetterResponse {
+
+        /**
+         * ゲッターから出力される値。
+         */
+        private final String key;
+
+        /**
+         * ゲッターがないため出力されない値。
+         */
+        private final String internal = "hidden";
+
+        /**
+         * コンストラクタ。
+         *
+         * @param key 出力される値
+         */
+        /* default */ GetterResponse(final String key) {
+            this.key = key;
+        }
+
+        /**
+         * 出力される値を返します。
+         *
+         * @return 出力される値
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
     /**
      * JSON文字列を正規化します。
      * スペース、改行、タブなどのホワイトスペースを除去します。
@@ -0,0 +1,189 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RetryingResponseHandlerのテストクラス。
+ */
+public class RetryingResponseHandlerTest {
+
+    /** テスト用のURL。 */
+    private static final GenericUrl URL = new GenericUrl("https://www.googleapis.com/webmasters/v3/sites");
+
+    /** テスト用のリトライ方針。 */
+    private static final RetryPolicy POLICY = new RetryPolicy(3, 100, 1000, 60_000);
+
+    /** 送信ごとに返すレスポンス。 */
+    private final Deque<MockLowLevelHttpResponse> responses = new ArrayDeque<>();
+
+    /** 待機した時間の記録。 */
+    private final List<Long> sleeps = new ArrayList<>();
+
+    /** テスト対象のハンドラー。 */
+    private RetryingResponseHandler handler;
+
+    /**
+     * テストの前準備。
+     */
+    @Before
+    public void setUp() {
+        handler = new RetryingResponseHandler(POLICY, null, sleeps::add);
+    }
+
+    /**
+     * 一時的なエラーの後にリトライして成功することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_一時エラー後に成功() throws IOException {
+        responses.add(response(503));
+        responses.add(response(200));
+
+        final HttpResponse response = buildRequest().execute();
+
+        assertEquals("ステータスコードが正しくありません", 200, response.getStatusCode());
+        assertEquals("リトライ回数が正しくありません", 1, handler.getRetries());
+        assertTrue("待機時間が上限を超えています", sleeps.get(0) <= POLICY.backOffCeilingMillis(0));
+    }
+
+    /**
+     * Retry-Afterヘッダーの時間だけ待機することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_RetryAfterに従う() throws IOException {
+        responses.add(response(429).addHeader("Retry-After", "2"));
+        responses.add(response(200));
+
+        buildRequest().execute();
+
+        assertEquals("待機時間が正しくありません", List.of(2000L), sleeps);
+    }
+
+    /**
+     * リトライ対象外のエラーはリトライしないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_異常系_リトライ対象外() throws IOException {
+        responses.add(response(400));
+        responses.add(response(200));
+
+        try {
+            buildRequest().execute();
+        } catch (HttpResponseException e) {
+            assertEquals("ステータスコードが正しくありません", 400, e.getStatusCode());
+            assertEquals("リトライされています", 0, handler.getRetries());
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+
+    /**
+     * 最大リトライ回数を超えた場合はエラーになることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_異常系_最大リトライ回数超過() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            responses.add(response(500));
+        }
+
+        try {
+            buildRequest().execute();
+        } catch (HttpResponseException e) {
+            assertEquals("リトライ回数が正しくありません", 3, handler.getRetries());
+            assertEquals("送信回数が正しくありません", 1, responses.size());
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+
+    /**
+     * 合計時間の上限を超える待機はしないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test(expected = HttpResponseException.class)
+    public void testExecute_異常系_合計時間超過() throws IOException {
+        handler = new RetryingResponseHandler(new RetryPolicy(3, 100, 1000, 1000), null, sleeps::add);
+        responses.add(response(503).addHeader("Retry-After", "5"));
+        responses.add(response(200));
+
+        buildRequest().execute();
+    }
+
+    /**
+     * Retry-Afterヘッダーの値の解釈のテスト。
+     */
+    @Test
+    public void testRetryAfterMillis_正常系_秒数と不正値() {
+        assertEquals("秒数の解釈が正しくありません", 3000L, RetryingResponseHandler.retryAfterMillis("3"));
+        assertEquals("過去の日付は0になること", 0L,
+                RetryingResponseHandler.retryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals("不正値は負の値になること", -1L, RetryingResponseHandler.retryAfterMillis("soon"));
+        assertEquals("未指定は負の値になること", -1L, RetryingResponseHandler.retryAfterMillis(null));
+    }
+
+    /**
+     * 指数バックオフの上限が最大待機時間で頭打ちになることのテスト。
+     */
+    @Test
+    public void testBackOffCeilingMillis_正常系_指数増加と上限() {
+        assertEquals("初回の上限が正しくありません", 100L, POLICY.backOffCeilingMillis(0));
+        assertEquals("3回目の上限が正しくありません", 400L, POLICY.backOffCeilingMillis(2));
+        assertEquals("上限で頭打ちになっていません", 1000L, POLICY.backOffCeilingMillis(10));
+        assertEquals("桁あふれしても上限になること", 1000L, POLICY.backOffCeilingMillis(100));
+    }
+
+    /**
+     * ハンドラーを設定したリクエストを作成します。
+     *
+     * @return リクエスト
+     * @throws IOException 入出力例外が発生した場合
+     */
+    private HttpRequest buildRequest() throws IOException {
+        final MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) {
+                return new MockLowLevelHttpRequest(url).setResponse(responses.poll());
+            }
+        };
+        return transport.createRequestFactory(request -> {
+            request.setUnsuccessfulResponseHandler(handler);
+            request.setIOExceptionHandler(handler);
+            request.setNumberOfRetries(POLICY.getMaxRetries() + 1);
+        }).buildGetRequest(URL);
+    }
+
+    /**
+     * 指定したステータスコードのレスポンスを作成します。
+     *
+     * @param statusCode ステータスコード
+     * @return レスポンス
+     */
+    private static MockLowLevelHttpResponse response(final int statusCode) {
+        return new MockLowLevelHttpResponse().setStatusCode(statusCode);
+    }
+}
@@ -0,0 +1,222 @@
+package xyz.monotalk.google.webmaster.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.WmxSitemap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
+
+/**
+ * WebmastersBatchExecutorのテストクラス。
+ */
+public class WebmastersBatchExecutorTest {
+
+    /** マルチパートの境界文字列。 */
+    private static final String BOUNDARY = "batch_test";
+
+    /** 改行文字。 */
+    private static final String CRLF = "\r\n";
+
+    /** 送信されたHTTPリクエスト数。 */
+    private int httpRequests;
+
+    /**
+     * 成功と失敗が混在するバッチで、呼び出しごとの結果が投入順に返されることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_部分的な失敗() throws IOException {
+        // Given
+        final Webmasters webmasters = createClient(List.of(
+                part(1, "200 OK", "{\"path\":\"https://example.com/sitemap.xml\"}"),
+                part(2, "404 Not Found", "{\"error\":{\"code\":404,\"message\":\"Sitemap not found\"}}")));
+        final List<AbstractGoogleJsonClientRequest<?>> requests = List.of(
+                webmasters.sitemaps().get("https://example.com/", "https://example.com/sitemap.xml"),
+                webmasters.sitemaps().get("https://example.com/", "https://example.com/missing.xml"));
+
+        // When
+        final List<ApiResponseRecord<?>> results = new WebmastersBatchExecutor(webmasters).execute(requests);
+
+        // Then
+        assertEquals("HTTPリクエスト数が正しくありません", 1, httpRequests);
+        assertEquals("成功ステータスが正しくありません", ApiResponseRecord.ResponseStatus.SUCCESS, results.get(0).status());
+        assertEquals("応答データが正しくありません", "https://example.com/sitemap.xml",
+                ((WmxSitemap) results.get(0).data()).getPath());
+        assertEquals("失敗ステータスが正しくありません",
+                ApiResponseRecord.ResponseStatus.NOT_FOUND, results.get(1).status());
+        assertEquals("エラーメッセージが正しくありません", "Sitemap not found", results.get(1).err());
+        assertNull("失敗した呼び出しにデータがあります", results.get(1).data());
+    }
+
+    /**
+     * バッチサイズごとに分割して送信されることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_バッチサイズで分割() throws IOException {
+        // Given
+        final Webmasters webmasters = createClient(List.of(part(1, "204 No Content", "")));
+        final List<AbstractGoogleJsonClientRequest<?>> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(webmasters.sites().delete("https://example" + i + ".com/"));
+        }
+
+        // When
+        new WebmastersBatchExecutor(webmasters, 1).execute(requests);
+
+        // Then
+        assertEquals("HTTPリクエスト数が正しくありません", 3, httpRequests);
+    }
+
+    /**
+     * バッチ内の呼び出しごとに、対象サイトを含むレート制限の許可を取得することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_呼び出しごとに許可を取得() throws IOException {
+        // Given
+        final Webmasters webmasters = createClient(List.of(part(1, "204 No Content", ""),
+                part(2, "204 No Content", "")));
+        final QuotaRateLimiter rateLimiter = mock(QuotaRateLimiter.class);
+        final List<AbstractGoogleJsonClientRequest<?>> requests = List.of(
+                webmasters.sites().delete("https://example1.com/"),
+                webmasters.sites().delete("https://example2.com/"));
+
+        // When
+        new WebmastersBatchExecutor(webmasters, WebmastersBatchExecutor.MAX_BATCH_SIZE, rateLimiter, null)
+                .execute(requests);
+
+        // Then
+        final ArgumentCaptor<GenericUrl> urls = ArgumentCaptor.forClass(GenericUrl.class);
+        verify(rateLimiter, times(2)).acquire(urls.capture());
+        assertEquals("https://example1.com/", QuotaRateLimiter.siteKeyOf(urls.getAllValues().get(0)));
+        assertEquals("https://example2.com/", QuotaRateLimiter.siteKeyOf(urls.getAllValues().get(1)));
+    }
+
+    /**
+     * リトライ対象のステータスで失敗した呼び出しだけが再送信されることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_正常系_一時的な失敗だけをリトライ() throws IOException {
+        // Given
+        final Webmasters webmasters = createClient(
+                List.of(
+                        part(1, "200 OK", "{\"path\":\"https://example.com/a.xml\"}"),
+                        part(2, "429 Too Many Requests",
+                                "{\"error\":{\"code\":429,\"message\":\"Rate limit exceeded\"}}"),
+                        part(3, "404 Not Found", "{\"error\":{\"code\":404,\"message\":\"Sitemap not found\"}}")),
+                List.of(part(1, "200 OK", "{\"path\":\"https://example.com/b.xml\"}")));
+        final List<AbstractGoogleJsonClientRequest<?>> requests = List.of(
+                webmasters.sitemaps().get("https://example.com/", "https://example.com/a.xml"),
+                webmasters.sitemaps().get("https://example.com/", "https://example.com/b.xml"),
+                webmasters.sitemaps().get("https://example.com/", "https://example.com/missing.xml"));
+
+        // When
+        final List<ApiResponseRecord<?>> results = new WebmastersBatchExecutor(webmasters,
+                WebmastersBatchExecutor.MAX_BATCH_SIZE, null, new RetryPolicy(3, 0, 0, 60_000), millis -> { })
+                .execute(requests);
+
+        // Then
+        assertEquals("HTTPリクエスト数が正しくありません", 2, httpRequests);
+        assertEquals(ApiResponseRecord.ResponseStatus.SUCCESS, results.get(0).status());
+        assertEquals(ApiResponseRecord.ResponseStatus.SUCCESS, results.get(1).status());
+        assertEquals("https://example.com/b.xml", ((WmxSitemap) results.get(1).data()).getPath());
+        assertEquals(ApiResponseRecord.ResponseStatus.NOT_FOUND, results.get(2).status());
+    }
+
+    /**
+     * リトライ回数の上限に達した場合は最後の失敗を結果とすることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute_異常系_リトライ上限で失敗を返す() throws IOException {
+        // Given
+        final Webmasters webmasters = createClient(List.of(part(1, "503 Service Unavailable",
+                "{\"error\":{\"code\":503,\"message\":\"Backend Error\"}}")));
+        final List<AbstractGoogleJsonClientRequest<?>> requests =
+                List.of(webmasters.sites().get("https://example.com/"));
+
+        // When
+        final List<ApiResponseRecord<?>> results = new WebmastersBatchExecutor(webmasters,
+                WebmastersBatchExecutor.MAX_BATCH_SIZE, null, new RetryPolicy(2, 0, 0, 60_000), millis -> { })
+                .execute(requests);
+
+        // Then
+        assertEquals("HTTPリクエスト数が正しくありません", 3, httpRequests);
+        assertEquals(503, results.get(0).code());
+        assertEquals("Backend Error", results.get(0).err());
+    }
+
+    /**
+     * バッチサイズが範囲外の場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testConstructor_異常系_バッチサイズ範囲外() {
+        new WebmastersBatchExecutor(null, WebmastersBatchExecutor.MAX_BATCH_SIZE + 1);
+    }
+
+    /**
+     * バッチ応答を順に返すクライアントを作成します。最後の応答は以降のリクエストでも繰り返し返します。
+     *
+     * @param responses バッチリクエストごとの応答の各パート
+     * @return Webmastersクライアント
+     */
+    @SafeVarargs
+    private Webmasters createClient(final List<String>... responses) {
+        final MockHttpTransport transport = new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(final String method, final String url) {
+                final List<String> parts = responses[Math.min(httpRequests, responses.length - 1)];
+                httpRequests++;
+                return new MockLowLevelHttpRequest(url).setResponse(new MockLowLevelHttpResponse()
+                        .setContentType("multipart/mixed; boundary=" + BOUNDARY)
+                        .setContent(String.join("", parts) + "--" + BOUNDARY + "--" + CRLF));
+            }
+        };
+        return new Webmasters.Builder(transport, GsonFactory.getDefaultInstance(), null)
+                .setApplicationName("test")
+                .build();
+    }
+
+    /**
+     * バッチ応答の1パートを作成します。
+     *
+     * @param id コンテンツID
+     * @param status ステータス行
+     * @param json 本文
+     * @return パート
+     */
+    private static String part(final int id, final String status, final String json) {
+        return "--" + BOUNDARY + CRLF
+                + "Content-Type: application/http" + CRLF
+                + "Content-ID: <response-" + id + ">" + CRLF
+                + CRLF
+                + "HTTP/1.1 " + status + CRLF
+                + "Content-Type: application/json; charset=UTF-8" + CRLF
+                + "Content-Length: " + json.length() + CRLF
+                + CRLF
+                + json + CRLF;
+    }
+}
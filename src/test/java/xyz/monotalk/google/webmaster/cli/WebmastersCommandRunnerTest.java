@@ -1,5 +1,7 @@
 package xyz.monotalk.google.webmaster.cli;
 
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -75,6 +77,27 @@ public class WebmastersCommandRunnerTest {
         verify(beanFactory).createBean(any());
     }
 
+    /**
+     * コマンドの解決だけではコマンドが実行されないことをテストします。
+     */
+    @Test
+    public void testPrepare_正常系_コマンドを実行せずに返す() {
+        // Given
+        final ListCommand listCommand = new ListCommand(webmastersFactory) {
+            @Override
+            public void execute() {
+                throw new AssertionError("コマンドが実行されました");
+            }
+        };
+        when(beanFactory.createBean(any())).thenReturn(listCommand);
+
+        // When
+        final Command prepared = runner.prepare(TEST_ARGS);
+
+        // Then
+        assertSame(listCommand, prepared);
+    }
+
     /**
      * 引数がnullの場合に例外がスローされることをテストします。
      */
@@ -102,4 +125,18 @@ public class WebmastersCommandRunnerTest {
         // When
         runner.run(invalidArgs);
     }
-}
\ No newline at end of file
+
+    /**
+     * 存在しないコマンドの場合に候補付きの例外がスローされることをテストします。
+     */
+    @Test
+    public void testRun_異常系_コマンドが存在しない() {
+        try {
+            runner.run("webmasters.sites.lst");
+        } catch (CmdLineArgmentException e) {
+            assertTrue("候補が含まれていません", e.getMessage().contains("webmasters.sites.list"));
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+}
@@ -1,6 +1,8 @@
 package xyz.monotalk.google.webmaster.cli;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -88,6 +90,40 @@ public class WebmastersFactoryTest {
         verify(credentialFactory).create();
     }
 
+    /**
+     * 同じキーファイルに対しては生成済みのクライアントが再利用されることのテスト。
+     *
+     * @throws Exception テスト実行中の例外
+     */
+    @Test
+    public void testCreateClientReusesInstance() throws Exception {
+        // When
+        final Webmasters first = factory.createClient();
+        final Webmasters second = factory.createClient();
+
+        // Then
+        assertSame("同じWebmastersインスタンスが返されること", first, second);
+        verify(transportFactory, times(1)).createTransport();
+        verify(credentialFactory, times(1)).create();
+    }
+
+    /**
+     * キーファイルが異なる場合もHTTPトランスポートは共有されることのテスト。
+     *
+     * @throws Exception テスト実行中の例外
+     */
+    @Test
+    public void testCreateClientSharesTransportAcrossKeyFiles() throws Exception {
+        // When
+        factory.createClient();
+        ReflectionTestUtils.setField(factory, "keyFileLocation", "other-key.json");
+        factory.createClient();
+
+        // Then
+        verify(transportFactory, times(1)).createTransport();
+        verify(credentialFactory, times(2)).create();
+    }
+
     /**
      * HttpTransport生成時の例外ハンドリングテスト。
      *
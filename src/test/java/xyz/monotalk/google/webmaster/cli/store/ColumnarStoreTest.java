@@ -0,0 +1,140 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * ColumnarStoreクラスの単体テスト。
+ */
+public class ColumnarStoreTest {
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** テスト対象のストア。 */
+    private ColumnarStore store;
+
+    /**
+     * テスト前のセットアップ処理。
+     */
+    @Before
+    public void setUp() {
+        store = new ColumnarStore(temporaryFolder.getRoot().toPath().resolve("store"), 2);
+    }
+
+    /**
+     * 追記した行が最大行数ごとのセグメントに分割され、索引付きで読み込めることのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test
+    public void testAppendAndRead() throws IOException {
+        try (StoreAppender appender = store.newAppender(List.of("query", "date", "device"))) {
+            appender.append(List.of(
+                    row(10.0, "shoes", "2024-01-02", "MOBILE"),
+                    row(5.0, "shoes", "2024-01-01", "DESKTOP"),
+                    row(1.0, "boots", "2024-01-03", "MOBILE")));
+            appender.commit();
+            assertEquals(3, appender.getRowCount());
+        }
+
+        final List<SegmentMetadata> segments = store.segments();
+        assertEquals(2, segments.size());
+        final SegmentMetadata first = segments.get(0);
+        assertEquals(2, first.getRowCount());
+        assertEquals(List.of("date", "query", "device"), first.getDimensions());
+        assertEquals(LocalDate.of(2024, 1, 1), first.getMinDate());
+        assertEquals(LocalDate.of(2024, 1, 2), first.getMaxDate());
+        assertEquals(5.0, first.min(Metric.CLICKS), 0.0);
+        assertEquals(10.0, first.max(Metric.CLICKS), 0.0);
+        assertFalse(first.overlaps(LocalDate.of(2024, 1, 3), null));
+        assertTrue(segments.get(1).overlaps(LocalDate.of(2024, 1, 3), null));
+
+        final Segment segment = Segment.read(first.getPath());
+        assertEquals(1, segment.dictionarySize(Column.QUERY));
+        assertEquals("shoes", segment.value(Column.QUERY, 1));
+        assertEquals("DESKTOP", segment.value(Column.DEVICE, 1));
+        assertEquals("", segment.value(Column.PAGE, 1));
+        assertEquals(LocalDate.of(2024, 1, 1), segment.date(1));
+        assertEquals(100.0, segment.metric(Metric.IMPRESSIONS, 0), 0.0);
+    }
+
+    /**
+     * 公開せずにクローズした場合は行がストアに残らないことのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test
+    public void testCloseWithoutCommit() throws IOException {
+        try (StoreAppender appender = store.newAppender(List.of("date", "query"))) {
+            appender.append(List.of(
+                    row(1.0, "2024-01-01", "a"),
+                    row(1.0, "2024-01-01", "b"),
+                    row(1.0, "2024-01-01", "c")));
+        }
+
+        assertTrue(store.segments().isEmpty());
+        try (Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath().resolve("store"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * ストアが存在しない場合は空のセグメント一覧を返すことのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test
+    public void testSegments_MissingStore() throws IOException {
+        assertTrue(store.segments().isEmpty());
+    }
+
+    /**
+     * 日付ディメンションを含まない場合に例外が発生することのテスト。
+     *
+     * @throws IOException ストアの作成に失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testNewAppender_WithoutDate() throws IOException {
+        store.newAppender(List.of("query")).close();
+    }
+
+    /**
+     * 保存できないディメンションを含む場合に例外が発生することのテスト。
+     *
+     * @throws IOException ストアの作成に失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testNewAppender_UnsupportedDimension() throws IOException {
+        store.newAppender(List.of("date", "searchAppearance")).close();
+    }
+
+    /**
+     * テスト用の行を生成します。
+     *
+     * @param clicks クリック数
+     * @param keys 行のキー
+     * @return 生成した行
+     */
+    private static ApiDataRow row(final double clicks, final String... keys) {
+        return new ApiDataRow()
+                .setKeys(List.of(keys))
+                .setClicks(clicks)
+                .setImpressions(clicks * 10);
+    }
+}
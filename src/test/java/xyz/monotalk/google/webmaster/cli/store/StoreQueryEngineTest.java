@@ -0,0 +1,228 @@
+package xyz.monotalk.google.webmaster.cli.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * StoreQueryEngineクラスの単体テスト。
+ */
+public class StoreQueryEngineTest {
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** テスト対象のストア。 */
+    private ColumnarStore store;
+
+    /** テスト対象のエンジン。 */
+    private StoreQueryEngine engine;
+
+    /**
+     * テスト前のセットアップ処理。複数のセグメントにまたがる行をストアへ追記します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        store = new ColumnarStore(temporaryFolder.getRoot().toPath(), 2);
+        try (StoreAppender appender = store.newAppender(List.of("date", "page", "query"))) {
+            appender.append(List.of(
+                    row("2024-01-01", "/a", "shoes", 10, 100, 2.0),
+                    row("2024-01-01", "/b", "boots", 1, 50, 12.0),
+                    row("2024-01-02", "/a", "boots", 5, 100, 4.0),
+                    row("2024-01-03", "/b", "shoes", 3, 50, 8.0),
+                    row("2024-01-03", "/c", "socks", 7, 10, 1.0)));
+            appender.commit();
+        }
+        engine = new StoreQueryEngine(store, 2);
+    }
+
+    /**
+     * ページごとに合計し、クリック数の降順で返すことのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_GroupByPage() throws IOException {
+        final List<ApiDataRow> rows = engine.execute(query(null, null, List.of("page"), List.of(), Metric.CLICKS, 10));
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of("/a"), rows.get(0).getKeys());
+        assertEquals(15.0, rows.get(0).getClicks(), 0.0);
+        assertEquals(200.0, rows.get(0).getImpressions(), 0.0);
+        assertEquals(0.075, rows.get(0).getCtr(), 1e-9);
+        assertEquals(3.0, rows.get(0).getPosition(), 1e-9);
+        assertEquals(List.of("/c"), rows.get(1).getKeys());
+        assertEquals(List.of("/b"), rows.get(2).getKeys());
+    }
+
+    /**
+     * 条件と日付範囲で絞り込み、上位件数だけを返すことのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_FilterAndTopN() throws IOException {
+        final List<ApiDataRow> rows = engine.execute(query(LocalDate.of(2024, 1, 2), null, List.of("query"),
+                List.of(RowFilter.parse("position<10")), Metric.CLICKS, 2));
+
+        assertEquals(2, rows.size());
+        assertEquals(List.of("socks"), rows.get(0).getKeys());
+        assertEquals(List.of("boots"), rows.get(1).getKeys());
+    }
+
+    /**
+     * 複数のディメンションでグループ化し、掲載順位の昇順で返すことのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_GroupByDateAndQuery() throws IOException {
+        final List<ApiDataRow> rows = engine.execute(query(null, LocalDate.of(2024, 1, 1),
+                List.of("date", "query"), List.of(RowFilter.parse("query~oe")), Metric.POSITION, 10));
+
+        assertEquals(1, rows.size());
+        assertEquals(List.of("2024-01-01", "shoes"), rows.get(0).getKeys());
+    }
+
+    /**
+     * グループ化しない場合は全体を1行に集計することのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_Total() throws IOException {
+        final List<ApiDataRow> rows = engine.execute(query(null, null, List.of(), List.of(), Metric.CLICKS, 10));
+
+        assertEquals(1, rows.size());
+        assertTrue(rows.get(0).getKeys().isEmpty());
+        assertEquals(26.0, rows.get(0).getClicks(), 0.0);
+    }
+
+    /**
+     * 保存されていないディメンションでグループ化した場合に例外が発生することのテスト。
+     *
+     * @throws IOException 読み込みに失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_UnknownGroup() throws IOException {
+        engine.execute(query(null, null, List.of("searchAppearance"), List.of(), Metric.CLICKS, 10));
+    }
+
+    /**
+     * 日付範囲内にディメンションの異なるセグメントが混在する場合、対象を指定しないと例外が発生することのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_MixedDimensions() throws IOException {
+        appendByQuery();
+
+        engine.execute(query(null, null, List.of("query"), List.of(), Metric.CLICKS, 10));
+    }
+
+    /**
+     * 対象のディメンションを指定した場合、一致するセグメントだけを集計し二重に計上しないことのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test
+    public void testExecute_SelectDimensions() throws IOException {
+        appendByQuery();
+
+        final List<ApiDataRow> byQuery = engine.execute(new StoreQuery(null, null, List.of(), List.of(),
+                Metric.CLICKS, 10, List.of("query", "date")));
+        final List<ApiDataRow> byPage = engine.execute(new StoreQuery(null, null, List.of(), List.of(),
+                Metric.CLICKS, 10, List.of("date", "page", "query")));
+
+        assertEquals(30.0, byQuery.get(0).getClicks(), 0.0);
+        assertEquals(26.0, byPage.get(0).getClicks(), 0.0);
+    }
+
+    /**
+     * 日付範囲内のセグメントが1種類であれば、指定しなくても集計できることのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test
+    public void testExecute_DimensionsOutsideDateRange() throws IOException {
+        appendByQuery();
+
+        final List<ApiDataRow> rows = engine.execute(query(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3),
+                List.of("page"), List.of(), Metric.CLICKS, 10));
+
+        assertEquals(3, rows.size());
+    }
+
+    /**
+     * 対象のセグメントに保存されていないディメンションでグループ化した場合に例外が発生することのテスト。
+     *
+     * @throws IOException 読み書きに失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_GroupNotStored() throws IOException {
+        engine.execute(new StoreQuery(null, null, List.of("country"), List.of(), Metric.CLICKS, 10,
+                List.of("date", "page", "query")));
+    }
+
+    /**
+     * 集計クエリを生成します。
+     *
+     * @param from 開始日
+     * @param to 終了日
+     * @param groupBy グループ化するディメンション
+     * @param filters 条件
+     * @param orderBy 並べ替えに使用する数値列
+     * @param limit 最大グループ数
+     * @return 集計クエリ
+     */
+    private static StoreQuery query(final LocalDate from, final LocalDate to, final List<String> groupBy,
+            final List<RowFilter> filters, final Metric orderBy, final int limit) {
+        return new StoreQuery(from, to, groupBy, filters, orderBy, limit);
+    }
+
+    /**
+     * ページを含まないディメンションで、2024-01-01の同じトラフィックを集計した行を追記します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private void appendByQuery() throws IOException {
+        try (StoreAppender appender = store.newAppender(List.of("date", "query"))) {
+            appender.append(List.of(
+                    new ApiDataRow().setKeys(List.of("2024-01-01", "shoes")).setClicks(10.0).setImpressions(100.0),
+                    new ApiDataRow().setKeys(List.of("2024-01-01", "boots")).setClicks(20.0).setImpressions(50.0)));
+            appender.commit();
+        }
+    }
+
+    /**
+     * テスト用の行を生成します。
+     *
+     * @param date 日付
+     * @param page ページ
+     * @param query クエリ
+     * @param clicks クリック数
+     * @param impressions 表示回数
+     * @param position 掲載順位
+     * @return 生成した行
+     */
+    private static ApiDataRow row(final String date, final String page, final String query, final double clicks,
+            final double impressions, final double position) {
+        return new ApiDataRow()
+                .setKeys(List.of(date, page, query))
+                .setClicks(clicks)
+                .setImpressions(impressions)
+                .setPosition(position);
+    }
+}
@@ -0,0 +1,166 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.apiinfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.webmasters.Webmasters;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+import xyz.monotalk.google.webmaster.cli.model.ApiResponseRecord;
+
+/**
+ * ApiInfoFetcherのテストクラス。ローカルのスタブサーバーからディスカバリードキュメントを取得します。
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ApiInfoFetcherTest {
+
+    /** スタブサーバーが返すETag。 */
+    private static final String ETAG = "\"v1\"";
+
+    /** スタブサーバーが返す本文。 */
+    private static final String BODY = "{\"kind\":\"discovery#directoryList\"}";
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** Webmastersクライアント生成ファクトリのモック。 */
+    @Mock
+    private WebmastersFactory factory;
+
+    /** テスト対象。 */
+    @InjectMocks
+    private ApiInfoFetcher fetcher;
+
+    /** スタブサーバー。 */
+    private HttpServer server;
+
+    /** スタブサーバーが受け取ったIf-None-Matchヘッダー（ない場合はnull）。 */
+    private final List<String> receivedIfNoneMatch = new CopyOnWriteArrayList<>();
+
+    /** スタブサーバーが返すETag。 */
+    private volatile String currentEtag = ETAG;
+
+    /**
+     * スタブサーバーを起動し、テスト対象を準備します。
+     *
+     * @throws IOException ポートを確保できなかった場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/discovery/v1/apis", this::handle);
+        server.start();
+        final Webmasters client = new Webmasters.Builder(
+                new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setApplicationName("test")
+                .build();
+        when(factory.createClient()).thenReturn(client);
+        ReflectionTestUtils.setField(fetcher, "discoveryUrl",
+                "http://localhost:" + server.getAddress().getPort() + "/discovery/v1/apis");
+        ReflectionTestUtils.setField(fetcher, "cacheDir", temporaryFolder.getRoot().getPath());
+    }
+
+    /**
+     * スタブサーバーを停止します。
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * ETagが一致すれば304、そうでなければ本文を返します。
+     *
+     * @param exchange HTTPのやり取り
+     * @throws IOException 送信に失敗した場合
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        receivedIfNoneMatch.add(String.valueOf(ifNoneMatch));
+        exchange.getResponseHeaders().set("ETag", currentEtag);
+        if (currentEtag.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        final byte[] bytes = BODY.replace("directoryList", "directoryList-" + currentEtag.length())
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 2回目の取得で条件付きリクエストを送り、304の場合は保存済みの本文を返すことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testFetchApiInfo_正常系_304なら保存済みの本文を返す() throws IOException {
+        final ApiResponseRecord<GenericJson> first = fetcher.fetchApiInfo();
+        final ApiResponseRecord<GenericJson> second = fetcher.fetchApiInfo();
+
+        assertEquals(List.of("null", ETAG), receivedIfNoneMatch);
+        assertTrue(second.isSuccess());
+        assertEquals(first.data().get("kind"), second.data().get("kind"));
+    }
+
+    /**
+     * ETagが変わった場合は新しい本文を返し、保存し直すことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testFetchApiInfo_正常系_変更があれば新しい本文を保存() throws IOException {
+        fetcher.fetchApiInfo();
+        currentEtag = "\"version-2\"";
+
+        final ApiResponseRecord<GenericJson> changed = fetcher.fetchApiInfo();
+        fetcher.fetchApiInfo();
+
+        assertEquals(List.of("null", ETAG, "\"version-2\""), receivedIfNoneMatch);
+        assertEquals("discovery#directoryList-" + currentEtag.length(), changed.data().get("kind"));
+    }
+
+    /**
+     * 保存先を指定しない場合は条件付きリクエストを送らないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testFetchApiInfo_正常系_保存先なし() throws IOException {
+        ReflectionTestUtils.setField(fetcher, "cacheDir", "");
+
+        fetcher.fetchApiInfo();
+        final ApiResponseRecord<GenericJson> second = fetcher.fetchApiInfo();
+
+        assertEquals(List.of("null", "null"), receivedIfNoneMatch);
+        assertNull(second.getErrorMessage().orElse(null));
+    }
+}
@@ -0,0 +1,202 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandInput;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.Format;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+
+/**
+ * バッチ実行コマンドのテストクラス。
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class RunCommandTest {
+
+    /** テスト用の一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** WebmastersCommandRunnerのモック。 */
+    @Mock
+    private WebmastersCommandRunner runner;
+
+    /** テスト対象のコマンドインスタンス。 */
+    @InjectMocks
+    private RunCommand command;
+
+    /**
+     * ファイルの各行が引数に分割されて実行され、集計結果が出力されることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute正常系全コマンド実行() throws IOException {
+        // Given
+        final File input = writeInput(
+                "# comment",
+                "webmasters.sitemaps.list -siteUrl https://example.com",
+                "",
+                "webmasters.sites.list");
+        final File summary = temporaryFolder.newFile("summary.json");
+        configureCommand(input, Format.JSON, summary.getAbsolutePath());
+
+        // When
+        command.execute();
+
+        // Then
+        verify(runner).run("webmasters.sitemaps.list", "-siteUrl", "https://example.com");
+        verify(runner).run("webmasters.sites.list");
+        final String content = Files.readString(summary.toPath(), StandardCharsets.UTF_8);
+        assertTrue("集計結果が出力されていません", content.contains("\"succeeded\":2"));
+    }
+
+    /**
+     * 失敗したコマンドがあっても残りを実行し、最後に例外が発生することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute異常系失敗コマンドあり() throws IOException {
+        // Given
+        final File input = writeInput("webmasters.unknown.command", "webmasters.sites.list");
+        final File summary = temporaryFolder.newFile("summary.json");
+        configureCommand(input, Format.JSON, summary.getAbsolutePath());
+        doThrow(new CmdLineArgmentException("Command not found")).when(runner).run("webmasters.unknown.command");
+
+        // When
+        try {
+            command.execute();
+        } catch (CommandLineInputOutputException e) {
+            // Then
+            verify(runner).run("webmasters.sites.list");
+            final String content = Files.readString(summary.toPath(), StandardCharsets.UTF_8);
+            assertTrue("失敗件数が出力されていません", content.contains("\"failed\":1"));
+            assertTrue("エラーメッセージが出力されていません", content.contains("Command not found"));
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+
+    /**
+     * 失敗時の取り消しを指定した場合に、以降のコマンドが実行されないことのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test
+    public void testExecute異常系失敗時に取り消し() throws IOException {
+        // Given
+        final File input = writeInput("webmasters.unknown.command", "webmasters.sites.list");
+        final File summary = temporaryFolder.newFile("summary.json");
+        configureCommand(input, Format.JSON, summary.getAbsolutePath());
+        ReflectionTestUtils.setField(command, "concurrency", 1);
+        ReflectionTestUtils.setField(command, "failFast", true);
+        doThrow(new CmdLineArgmentException("Command not found")).when(runner).run("webmasters.unknown.command");
+
+        // When
+        try {
+            command.execute();
+        } catch (CommandLineInputOutputException e) {
+            // Then
+            verify(runner, never()).run("webmasters.sites.list");
+            final String content = Files.readString(summary.toPath(), StandardCharsets.UTF_8);
+            assertTrue("取り消したコマンドが失敗として集計されていません", content.contains("\"failed\":2"));
+            assertTrue("取り消しが記録されていません", content.contains("Cancelled"));
+            return;
+        }
+        throw new AssertionError("例外が発生しませんでした");
+    }
+
+    /**
+     * 引用符で囲まれた引数が1つの引数として扱われることのテスト。
+     */
+    @Test
+    public void testTokenize正常系引用符付き引数() {
+        final String[] args = CommandInput.tokenize(
+                "webmasters.sitemaps.submit -siteUrl \"https://example.com/a b\" -feedpath sitemap.xml");
+
+        assertArrayEquals("引数の分割が正しくありません", new String[] {
+            "webmasters.sitemaps.submit", "-siteUrl", "https://example.com/a b", "-feedpath", "sitemap.xml"}, args);
+    }
+
+    /**
+     * バッチ実行の入れ子は失敗として扱われることのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test(expected = CommandLineInputOutputException.class)
+    public void testExecute異常系入れ子実行() throws IOException {
+        final File input = writeInput("webmasters.batch.run -file other.txt");
+        configureCommand(input, Format.CONSOLE, null);
+
+        command.execute();
+    }
+
+    /**
+     * 同時実行数が不正な場合に例外が発生することのテスト。
+     *
+     * @throws IOException 入出力例外が発生した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute異常系同時実行数不正() throws IOException {
+        configureCommand(writeInput("webmasters.sites.list"), Format.CONSOLE, null);
+        ReflectionTestUtils.setField(command, "concurrency", 0);
+
+        command.execute();
+    }
+
+    /**
+     * usageメソッドのテスト。
+     */
+    @Test
+    public void testUsage正常系説明文字列返却() {
+        assertEquals("コマンドの説明文が正しいこと",
+                "Runs command lines from a file or stdin in a single process.", command.usage());
+    }
+
+    /**
+     * 入力ファイルを作成します。
+     *
+     * @param lines ファイルの各行
+     * @return 作成したファイル
+     * @throws IOException 入出力例外が発生した場合
+     */
+    private File writeInput(final String... lines) throws IOException {
+        final File input = temporaryFolder.newFile();
+        Files.write(input.toPath(), List.of(lines), StandardCharsets.UTF_8);
+        return input;
+    }
+
+    /**
+     * コマンドを設定します。
+     *
+     * @param input 入力ファイル
+     * @param format 集計結果の出力フォーマット
+     * @param filePath 集計結果の出力ファイルパス
+     */
+    private void configureCommand(final File input, final Format format, final String filePath) {
+        ReflectionTestUtils.setField(command, "file", input.getAbsolutePath());
+        ReflectionTestUtils.setField(command, "concurrency", 2);
+        ReflectionTestUtils.setField(command, "format", format);
+        ReflectionTestUtils.setField(command, "filePath", filePath);
+    }
+}
@@ -0,0 +1,280 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.WebmastersCommandRunner;
+
+/**
+ * DaemonServerクラスの単体テスト。
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DaemonServerTest {
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** コマンドランナーのモック。 */
+    @Mock
+    private WebmastersCommandRunner runner;
+
+    /** テスト対象のサーバー。 */
+    private DaemonServer server;
+
+    /** HTTPクライアント。 */
+    private HttpClient client;
+
+    /** トークンのファイル。 */
+    private Path tokenFile;
+
+    /** 起動時に書き出されたトークン。 */
+    private String token;
+
+    /**
+     * 空いているポートでサーバーを起動します。
+     *
+     * @throws IOException ポートを確保できなかった場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        tokenFile = temporaryFolder.getRoot().toPath().resolve("daemon").resolve("daemon.token");
+        server = new DaemonServer(runner, 0, 2, tokenFile);
+        server.start();
+        client = HttpClient.newHttpClient();
+        token = Files.readString(tokenFile, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * サーバーを停止します。
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * コマンドが標準出力へ書き込んだ内容がレスポンスとして返されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_正常系_標準出力を返す() throws Exception {
+        doAnswer(invocation -> {
+            System.out.print("{\"siteEntry\":[]}");
+            return null;
+        }).when(runner).run("webmasters.sites.list", "-format", "console");
+
+        final HttpResponse<String> response = post("/run", "webmasters.sites.list -format console");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"siteEntry\":[]}", response.body());
+    }
+
+    /**
+     * 出力のないコマンドが本文なしの成功を返すことのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_正常系_出力なし() throws Exception {
+        final HttpResponse<String> response = post("/run", "webmasters.sitemaps.submit -siteUrl \"https://a b\"");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("", response.body());
+        verify(runner).run("webmasters.sitemaps.submit", "-siteUrl", "https://a b");
+    }
+
+    /**
+     * 引数の誤りが400として返されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_異常系_引数誤り() throws Exception {
+        doThrow(new CmdLineArgmentException("Option \"-siteUrl\" is required"))
+                .when(runner).run(any(String[].class));
+
+        final HttpResponse<String> response = post("/run", "webmasters.sitemaps.list");
+
+        assertEquals(400, response.statusCode());
+        assertEquals("Option \"-siteUrl\" is required", response.body());
+    }
+
+    /**
+     * 常駐サーバー自身の実行要求が拒否されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_異常系_入れ子実行() throws Exception {
+        final HttpResponse<String> response = post("/run", "webmasters.daemon.serve -port 0");
+
+        assertEquals(400, response.statusCode());
+        verify(runner, never()).run(any(String[].class));
+    }
+
+    /**
+     * トークンが所有者だけが読み書きできるファイルへ書き出され、停止時に削除されることのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testStart_正常系_トークンのファイル() throws IOException {
+        assertEquals(64, token.length());
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(tokenFile));
+        }
+
+        server.stop();
+
+        assertFalse("停止後もトークンのファイルが残っています", Files.exists(tokenFile));
+    }
+
+    /**
+     * トークンのない実行要求が拒否されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_異常系_トークンなし() throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/run"))
+                .POST(HttpRequest.BodyPublishers.ofString("webmasters.sites.delete -siteUrl https://example.com"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(401, response.statusCode());
+        verify(runner, never()).run(any(String[].class));
+    }
+
+    /**
+     * 誤ったトークンの実行要求が拒否されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_異常系_トークン誤り() throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/run"))
+                .header("Authorization", "Bearer " + "0".repeat(token.length()))
+                .POST(HttpRequest.BodyPublishers.ofString("webmasters.sites.list"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(401, response.statusCode());
+        verify(runner, never()).run(any(String[].class));
+    }
+
+    /**
+     * Originヘッダーを含む要求は、正しいトークンがあっても拒否されることのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testRun_異常系_クロスオリジン() throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/run"))
+                .header("Authorization", "Bearer " + token)
+                .header("Origin", "https://attacker.example")
+                .POST(HttpRequest.BodyPublishers.ofString("webmasters.sites.list"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(403, response.statusCode());
+        verify(runner, never()).run(any(String[].class));
+    }
+
+    /**
+     * トークンのない停止要求では停止しないことのテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testShutdown_異常系_トークンなし() throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/shutdown"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(401, response.statusCode());
+        final Thread waiter = new Thread(() -> {
+            try {
+                server.awaitShutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(TimeUnit.MILLISECONDS.toMillis(200));
+        assertTrue("トークンのない停止要求で停止しました", waiter.isAlive());
+        waiter.interrupt();
+    }
+
+    /**
+     * 稼働確認と停止要求のテスト。
+     *
+     * @throws Exception 通信に失敗した場合
+     */
+    @Test
+    public void testHealthAndShutdown() throws Exception {
+        final HttpResponse<String> health = client.send(HttpRequest.newBuilder(uri("/health"))
+                .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("ok", health.body());
+
+        assertEquals(200, post("/shutdown", "").statusCode());
+        final Thread waiter = new Thread(() -> {
+            try {
+                server.awaitShutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse("停止要求後に待機が終了していません", waiter.isAlive());
+    }
+
+    /**
+     * トークンを付けてPOSTリクエストを送信します。
+     *
+     * @param path パス
+     * @param body 本文
+     * @return レスポンス
+     * @throws Exception 通信に失敗した場合
+     */
+    private HttpResponse<String> post(final String path, final String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * サーバーのURIを返します。
+     *
+     * @param path パス
+     * @return URI
+     */
+    private URI uri(final String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,98 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.local;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.Format;
+import xyz.monotalk.google.webmaster.cli.store.ColumnarStore;
+import xyz.monotalk.google.webmaster.cli.store.StoreAppender;
+
+/**
+ * local.QueryCommandクラスの単体テスト。
+ */
+public class QueryCommandTest {
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** テスト対象のコマンド。 */
+    private QueryCommand command;
+
+    /** 出力ファイル。 */
+    private File output;
+
+    /**
+     * テスト前のセットアップ処理。
+     *
+     * @throws IOException ストアへの書き込みに失敗した場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        final File storeDir = temporaryFolder.newFolder("store");
+        try (StoreAppender appender = new ColumnarStore(storeDir.toPath()).newAppender(List.of("date", "page"))) {
+            appender.append(List.of(
+                    row("2024-01-01", "/old", 100),
+                    row("2024-01-30", "/a", 3),
+                    row("2024-01-31", "/b", 5),
+                    row("2024-01-31", "/a", 4)));
+            appender.commit();
+        }
+        output = new File(temporaryFolder.getRoot(), "result.csv");
+        command = new QueryCommand();
+        ReflectionTestUtils.setField(command, "storeDir", storeDir.getPath());
+        ReflectionTestUtils.setField(command, "format", Format.CSV);
+        ReflectionTestUtils.setField(command, "filePath", output.getPath());
+    }
+
+    /**
+     * ストア内の最新日から遡った日数でページごとに集計することのテスト。
+     *
+     * @throws IOException 出力の読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_LastDays() throws IOException {
+        ReflectionTestUtils.setField(command, "days", 28);
+
+        command.execute();
+
+        final List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("page,clicks,ctr,impressions,position", lines.get(0));
+        assertEquals("/a,7.0,0.0,0.0,0.0", lines.get(1));
+        assertEquals("/b,5.0,0.0,0.0,0.0", lines.get(2));
+    }
+
+    /**
+     * 不正な条件式を指定した場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_InvalidFilter() {
+        ReflectionTestUtils.setField(command, "where", List.of("position<<10"));
+
+        command.execute();
+    }
+
+    /**
+     * テスト用の行を生成します。
+     *
+     * @param date 日付
+     * @param page ページ
+     * @param clicks クリック数
+     * @return 生成した行
+     */
+    private static ApiDataRow row(final String date, final String page, final double clicks) {
+        return new ApiDataRow().setKeys(List.of(date, page)).setClicks(clicks);
+    }
+}
@@ -0,0 +1,184 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * ExportCheckpointクラスの単体テスト。
+ */
+public class ExportCheckpointTest {
+
+    /** サイトURL。 */
+    private static final String SITE_URL = "https://example.com";
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** 出力ファイル。 */
+    private Path output;
+
+    /** 書きかけファイル。 */
+    private Path part;
+
+    /** ジャーナルファイル。 */
+    private Path journal;
+
+    /** 日付分割のクエリリクエスト。 */
+    private SearchAnalyticsQueryRequest request;
+
+    /**
+     * テスト前のセットアップ処理。
+     */
+    @Before
+    public void setUp() {
+        output = temporaryFolder.getRoot().toPath().resolve("rows.csv");
+        part = output.resolveSibling("rows.csv.part");
+        journal = output.resolveSibling("rows.csv.checkpoint");
+        request = new SearchAnalyticsQueryRequest()
+                .setStartDate("2024-01-01")
+                .setEndDate("2024-01-01")
+                .setDimensions(List.of("query"));
+    }
+
+    /**
+     * 完了時に出力ファイルへ置き換えられ、チェックポイントが削除されることのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test
+    public void testCommit() throws IOException {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            checkpoint.onPage(request, 0, List.of(row("a"), row("b")));
+            checkpoint.onComplete(request);
+            assertFalse("完了前に出力ファイルが見えています", Files.exists(output));
+            checkpoint.commit();
+        }
+
+        final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(List.of("query,clicks,ctr,impressions,position", "a,1.0,,,", "b,1.0,,,"), lines);
+        assertFalse(Files.exists(part));
+        assertFalse(Files.exists(journal));
+    }
+
+    /**
+     * 中断後の再開で、記録済みの位置から書き込みを続けることのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test
+    public void testResume() throws IOException {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            checkpoint.onPage(request, 0, List.of(row("a"), row("b")));
+        }
+        // 記録前に中断したページの書きかけと、改行で終わらないジャーナルレコードを再現する
+        Files.writeString(part, "half-written", StandardOpenOption.APPEND);
+        Files.writeString(journal, "page\t2024-01-01..2024-01-01\t2\t1\t9", StandardOpenOption.APPEND);
+
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, true)) {
+            assertFalse(checkpoint.isCompleted(request));
+            assertEquals(2, checkpoint.firstRow(request));
+            checkpoint.onPage(request, 2, List.of(row("c")));
+            checkpoint.onComplete(request);
+            checkpoint.commit();
+            assertEquals(1, checkpoint.getRowsWritten());
+        }
+
+        final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(List.of("query,clicks,ctr,impressions,position", "a,1.0,,,", "b,1.0,,,", "c,1.0,,,"), lines);
+    }
+
+    /**
+     * 完了済みの日付分割が再開時に完了扱いになることのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test
+    public void testResume_CompletedShard() throws IOException {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            checkpoint.onPage(request, 0, List.of(row("a")));
+            checkpoint.onComplete(request);
+        }
+
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, true)) {
+            assertTrue(checkpoint.isCompleted(request));
+        }
+    }
+
+    /**
+     * 再開しない場合は既存のチェックポイントを破棄することのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test
+    public void testOpen_WithoutResumeDiscardsCheckpoint() throws IOException {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            checkpoint.onPage(request, 0, List.of(row("a")));
+        }
+
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            assertEquals(0, checkpoint.firstRow(request));
+            assertEquals(0, Files.size(part));
+        }
+    }
+
+    /**
+     * 異なるクエリのチェックポイントからは再開できないことのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testResume_DifferentQuery() throws IOException {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(output, SITE_URL, request, false)) {
+            checkpoint.onPage(request, 0, List.of(row("a")));
+        }
+
+        ExportCheckpoint.open(output, "https://example.org", request, true).close();
+    }
+
+    /**
+     * 分割方法が異なる場合はチェックポイントから再開できないことのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testResume_DifferentShardPlan() throws IOException {
+        final SearchAnalyticsQueryRequest template = request.clone().setEndDate("2024-01-02");
+        final SearchAnalyticsQueryRequest secondDay = request.clone()
+                .setStartDate("2024-01-02")
+                .setEndDate("2024-01-02");
+        try (ExportCheckpoint checkpoint =
+                ExportCheckpoint.open(output, SITE_URL, template, List.of(request, secondDay), false)) {
+            checkpoint.onPage(request, 0, List.of(row("a")));
+            checkpoint.onComplete(request);
+        }
+
+        // 同じ日付範囲を分割せずに再開すると、1日目の行が重複して出力されてしまう
+        ExportCheckpoint.open(output, SITE_URL, template, List.of(template), true).close();
+    }
+
+    /**
+     * テスト用の行を生成します。
+     *
+     * @param key 行のキー
+     * @return 生成した行
+     */
+    private static ApiDataRow row(final String key) {
+        return new ApiDataRow().setKeys(List.of(key)).setClicks(1.0);
+    }
+}
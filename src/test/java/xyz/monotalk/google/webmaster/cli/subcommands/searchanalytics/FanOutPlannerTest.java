@@ -0,0 +1,149 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
+import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * FanOutPlannerクラスの単体テスト。
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FanOutPlannerTest {
+
+    /** サイトURL。 */
+    private static final String SITE_URL = "https://example.com";
+
+    /** Webmastersのモック。 */
+    @Mock
+    private Webmasters webmasters;
+
+    /** Searchanalyticsのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics searchanalytics;
+
+    /** 検索クエリのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics.Query searchQuery;
+
+    /**
+     * デバイスで分割する場合に日付範囲ごとに3つのクエリを作成することのテスト。
+     *
+     * @throws IOException API呼び出しに失敗した場合
+     */
+    @Test
+    public void testPlan_Device() throws IOException {
+        final List<SearchAnalyticsQueryRequest> requests = new FanOutPlanner(webmasters, SITE_URL)
+                .plan(template(), ranges(), FanOutBy.DEVICE);
+
+        assertEquals(6, requests.size());
+        assertEquals("2024-01-01", requests.get(0).getStartDate());
+        assertEquals("2024-01-02", requests.get(3).getStartDate());
+        final ApiDimensionFilter filter = requests.get(1).getDimensionFilterGroups().get(0).getFilters().get(0);
+        assertEquals("device", filter.getDimension());
+        assertEquals("equals", filter.getOperator());
+        assertEquals("MOBILE", filter.getExpression());
+        verifyNoInteractions(webmasters);
+    }
+
+    /**
+     * 国で分割する場合に事前クエリで取得した国ごとにクエリを作成することのテスト。
+     *
+     * @throws IOException API呼び出しに失敗した場合
+     */
+    @Test
+    public void testPlan_Country() throws IOException {
+        final ArgumentCaptor<SearchAnalyticsQueryRequest> probe =
+                ArgumentCaptor.forClass(SearchAnalyticsQueryRequest.class);
+        when(webmasters.searchanalytics()).thenReturn(searchanalytics);
+        when(searchanalytics.query(eq(SITE_URL), probe.capture())).thenReturn(searchQuery);
+        when(searchQuery.execute()).thenReturn(new SearchAnalyticsQueryResponse().setRows(List.of(
+                new ApiDataRow().setKeys(List.of("jpn")),
+                new ApiDataRow().setKeys(List.of("usa")))));
+
+        final SearchAnalyticsQueryRequest template = template();
+        final List<SearchAnalyticsQueryRequest> requests = new FanOutPlanner(webmasters, SITE_URL)
+                .plan(template, ranges(), FanOutBy.COUNTRY);
+
+        assertEquals(List.of("country"), probe.getValue().getDimensions());
+        assertEquals(4, requests.size());
+        assertEquals("usa", requests.get(3).getDimensionFilterGroups().get(0).getFilters().get(0).getExpression());
+        assertEquals("ひな形が変更されています", List.of("query"), template.getDimensions());
+    }
+
+    /**
+     * 分割単位を指定しない場合は日付範囲だけで分割することのテスト。
+     *
+     * @throws IOException API呼び出しに失敗した場合
+     */
+    @Test
+    public void testPlan_DateRangesOnly() throws IOException {
+        final List<SearchAnalyticsQueryRequest> requests = new FanOutPlanner(webmasters, SITE_URL)
+                .plan(template(), ranges(), null);
+
+        assertEquals(2, requests.size());
+        assertEquals(null, requests.get(0).getDimensionFilterGroups());
+        verifyNoInteractions(webmasters);
+    }
+
+    /**
+     * 既存のandグループへ分割の条件を追加し、フィルタグループを増やさないことのテスト。
+     *
+     * @throws IOException API呼び出しに失敗した場合
+     */
+    @Test
+    public void testPlan_AppendsToExistingAndGroup() throws IOException {
+        final SearchAnalyticsQueryRequest template = template().setDimensionFilterGroups(new ArrayList<>(List.of(
+                new ApiDimensionFilterGroup().setGroupType("and").setFilters(new ArrayList<>(List.of(
+                        new ApiDimensionFilter().setDimension("page").setOperator("contains")
+                                .setExpression("/blog/")))))));
+
+        final List<SearchAnalyticsQueryRequest> requests = new FanOutPlanner(webmasters, SITE_URL)
+                .plan(template, ranges(), FanOutBy.DEVICE);
+
+        final List<ApiDimensionFilterGroup> groups = requests.get(1).getDimensionFilterGroups();
+        assertEquals(1, groups.size());
+        assertEquals(2, groups.get(0).getFilters().size());
+        assertEquals("/blog/", groups.get(0).getFilters().get(0).getExpression());
+        assertEquals("MOBILE", groups.get(0).getFilters().get(1).getExpression());
+        assertEquals("ひな形が変更されています", 1,
+                template.getDimensionFilterGroups().get(0).getFilters().size());
+    }
+
+    /**
+     * クエリリクエストのひな形を生成します。
+     *
+     * @return ひな形
+     */
+    private static SearchAnalyticsQueryRequest template() {
+        return new SearchAnalyticsQueryRequest()
+                .setStartDate("2024-01-01")
+                .setEndDate("2024-01-02")
+                .setDimensions(new ArrayList<>(List.of("query")));
+    }
+
+    /**
+     * 1日ごとの日付範囲を生成します。
+     *
+     * @return 日付範囲
+     */
+    private static List<DateRange> ranges() {
+        return ShardBy.DAY.split(new DateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2)));
+    }
+}
@@ -0,0 +1,106 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
+import com.google.api.services.webmasters.model.ApiDimensionFilterGroup;
+import org.junit.Test;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+
+/**
+ * FilterExpressionクラスの単体テスト。
+ */
+public class FilterExpressionTest {
+
+    /**
+     * andでつないだ複数の条件がフィルタに変換されることのテスト。
+     */
+    @Test
+    public void testParse_MultipleConditions() {
+        final ApiDimensionFilterGroup group = FilterExpression.parse("page contains /blog/ and country equals jpn");
+
+        assertEquals("and", group.getGroupType());
+        assertEquals(2, group.getFilters().size());
+        assertFilter(group.getFilters().get(0), "page", "contains", "/blog/");
+        assertFilter(group.getFilters().get(1), "country", "equals", "jpn");
+    }
+
+    /**
+     * 演算子とandの大文字・小文字が区別されないことのテスト。
+     */
+    @Test
+    public void testParse_CaseInsensitiveOperator() {
+        final ApiDimensionFilterGroup group =
+                FilterExpression.parse("query NOTCONTAINS brand AND device equals MOBILE");
+
+        assertFilter(group.getFilters().get(0), "query", "notContains", "brand");
+        assertFilter(group.getFilters().get(1), "device", "equals", "MOBILE");
+    }
+
+    /**
+     * ダブルクォートで囲んだ値に空白やandを含められることのテスト。
+     */
+    @Test
+    public void testParse_QuotedValue() {
+        final ApiDimensionFilterGroup group =
+                FilterExpression.parse("query includingRegex \"shoes and \\\"boots\\\"\"");
+
+        assertEquals(1, group.getFilters().size());
+        assertFilter(group.getFilters().get(0), "query", "includingRegex", "shoes and \"boots\"");
+    }
+
+    /**
+     * 未知のディメンションを指定した場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testParse_UnknownDimension() {
+        FilterExpression.parse("date equals 2024-01-01");
+    }
+
+    /**
+     * 未知の演算子を指定した場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testParse_UnknownOperator() {
+        FilterExpression.parse("page startsWith /blog/");
+    }
+
+    /**
+     * and以外で条件をつないだ場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testParse_UnsupportedConjunction() {
+        FilterExpression.parse("page contains /blog/ or country equals jpn");
+    }
+
+    /**
+     * 条件が途中で終わっている場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testParse_IncompleteCondition() {
+        FilterExpression.parse("page contains /blog/ and country");
+    }
+
+    /**
+     * ダブルクォートが閉じられていない場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testParse_UnterminatedQuote() {
+        FilterExpression.parse("query equals \"shoes");
+    }
+
+    /**
+     * フィルタの内容を検証します。
+     *
+     * @param filter フィルタ
+     * @param dimension 期待するディメンション
+     * @param operator 期待する演算子
+     * @param expression 期待する値
+     */
+    private static void assertFilter(final ApiDimensionFilter filter, final String dimension, final String operator,
+            final String expression) {
+        assertEquals(dimension, filter.getDimension());
+        assertEquals(operator, filter.getOperator());
+        assertEquals(expression, filter.getExpression());
+    }
+}
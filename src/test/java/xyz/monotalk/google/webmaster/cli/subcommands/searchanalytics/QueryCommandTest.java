@@ -1,30 +1,41 @@
 package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.services.webmasters.Webmasters;
 import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.ApiDimensionFilter;
 import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
 import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import xyz.monotalk.google.webmaster.cli.ResponseWriter;
 import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+import xyz.monotalk.google.webmaster.cli.store.ColumnarStore;
+import xyz.monotalk.google.webmaster.cli.store.SegmentMetadata;
 
 /**
  * QueryCommandクラスの単体テスト。
@@ -38,6 +49,10 @@ public class QueryCommandTest {
     /** 標準出力。 */
     private static final PrintStream STANDARD_OUT = System.out;
 
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /** WebmastersFactoryのモック。 */
     @Mock
     private WebmastersFactory factory;
@@ -171,4 +186,137 @@ public class QueryCommandTest {
         assertTrue("検索結果が期待通り出力されていません",
             outputContent.toString(StandardCharsets.UTF_8).length() > 0);
     }
-}
\ No newline at end of file
+
+    /**
+     * ページングモードで短いページが返るまで取得を続けることのテスト。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    @Test
+    public void testQueryCommand_Paginate() throws IOException {
+        ReflectionTestUtils.setField(queryCommand, "paginate", true);
+        ReflectionTestUtils.setField(queryCommand, "rowLimit", 2);
+        final SearchAnalyticsQueryResponse fullPage = new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(createRow("first"), createRow("second")));
+        final SearchAnalyticsQueryResponse shortPage = new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(createRow("third")));
+        when(searchQuery.execute()).thenReturn(fullPage, shortPage);
+
+        queryCommand.execute();
+
+        verify(searchQuery, times(2)).execute();
+        final String output = outputContent.toString(StandardCharsets.UTF_8);
+        assertTrue("全ページの行が出力されていません",
+                output.contains("first") && output.contains("second") && output.contains("third"));
+    }
+
+    /**
+     * 日付分割モードで各分割の結果が日付順に出力されることのテスト。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    @Test
+    public void testQueryCommand_ShardByDay() throws IOException {
+        ReflectionTestUtils.setField(queryCommand, "endDate", "2020-01-03");
+        ReflectionTestUtils.setField(queryCommand, "shardBy", ShardBy.DAY);
+        ReflectionTestUtils.setField(queryCommand, "concurrency", 1);
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+        when(searchQuery.execute()).thenAnswer(invocation -> new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(createRow("day-" + lastRequest[0].getStartDate()))));
+
+        queryCommand.execute();
+
+        verify(searchQuery, times(3)).execute();
+        final String output = outputContent.toString(StandardCharsets.UTF_8);
+        assertTrue("分割結果が日付順に出力されていません",
+                output.indexOf("day-2020-01-01") < output.indexOf("day-2020-01-02")
+                        && output.indexOf("day-2020-01-02") < output.indexOf("day-2020-01-03"));
+    }
+
+    /**
+     * フィルタ式がリクエストのディメンションフィルタに設定されることのテスト。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    @Test
+    public void testQueryCommand_Filter() throws IOException {
+        ReflectionTestUtils.setField(queryCommand, "filter", "page contains /blog/ and country equals jpn");
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+
+        queryCommand.execute();
+
+        final List<ApiDimensionFilter> filters = lastRequest[0].getDimensionFilterGroups().get(0).getFilters();
+        assertEquals(2, filters.size());
+        assertEquals("/blog/", filters.get(0).getExpression());
+        assertEquals("jpn", filters.get(1).getExpression());
+    }
+
+    /**
+     * 分割に使用したディメンションを取得しない場合に、分割ごとの行が集計し直されることのテスト。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    @Test
+    public void testQueryCommand_FanOutMerge() throws IOException {
+        ReflectionTestUtils.setField(queryCommand, "fanOut", FanOutBy.DEVICE);
+        ReflectionTestUtils.setField(queryCommand, "concurrency", 1);
+        when(searchQuery.execute()).thenAnswer(invocation -> new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(createRow("shoes"))));
+
+        queryCommand.execute();
+
+        verify(searchQuery, times(3)).execute();
+        final String output = outputContent.toString(StandardCharsets.UTF_8);
+        assertEquals("同じキーの行が集計されていません",
+                output.indexOf("shoes"), output.lastIndexOf("shoes"));
+        assertTrue("表示回数が合計されていません", output.contains("30.0"));
+    }
+
+    /**
+     * ストアを指定した場合に取得した行が指定したディメンションのままストアへ追記されることのテスト。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    @Test
+    public void testQueryCommand_StoreDir() throws IOException {
+        final Path storeDir = temporaryFolder.getRoot().toPath().resolve("store");
+        ReflectionTestUtils.setField(queryCommand, "paginate", true);
+        ReflectionTestUtils.setField(queryCommand, "storeDir", storeDir.toString());
+        ReflectionTestUtils.setField(queryCommand, "dimensions", "date,query");
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+        when(searchQuery.execute()).thenReturn(new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(createRow("2020-01-01", "first"), createRow("2020-01-02", "second"))));
+
+        queryCommand.execute();
+
+        assertEquals(Arrays.asList("date", "query"), lastRequest[0].getDimensions());
+        final SegmentMetadata segment = new ColumnarStore(storeDir).segments().get(0);
+        assertEquals(2, segment.getRowCount());
+        assertEquals(Arrays.asList("date", "query"), segment.getDimensions());
+    }
+
+    /**
+     * テスト用の行を生成します。
+     *
+     * @param keys 行のキー
+     * @return 生成した行
+     */
+    private static ApiDataRow createRow(final String... keys) {
+        return new ApiDataRow()
+                .setKeys(Arrays.asList(keys))
+                .setClicks(1.0)
+                .setImpressions(10.0);
+    }
+}
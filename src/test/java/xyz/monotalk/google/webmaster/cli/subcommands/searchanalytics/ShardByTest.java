@@ -0,0 +1,51 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * ShardByクラスの単体テスト。
+ */
+public class ShardByTest {
+
+    /**
+     * 日単位で分割した場合に1日ずつの範囲になることのテスト。
+     */
+    @Test
+    public void testSplit_Day() {
+        final List<DateRange> shards = ShardBy.DAY.split(
+                new DateRange(LocalDate.parse("2020-01-30"), LocalDate.parse("2020-02-02")));
+
+        assertEquals("分割数が正しくありません", 4, shards.size());
+        assertEquals("先頭の範囲が正しくありません",
+                new DateRange(LocalDate.parse("2020-01-30"), LocalDate.parse("2020-01-30")), shards.get(0));
+        assertEquals("末尾の範囲が正しくありません",
+                new DateRange(LocalDate.parse("2020-02-02"), LocalDate.parse("2020-02-02")), shards.get(3));
+    }
+
+    /**
+     * 週単位で分割した場合に最後の範囲が終了日で切り詰められることのテスト。
+     */
+    @Test
+    public void testSplit_WeekTruncatesLastShard() {
+        final List<DateRange> shards = ShardBy.WEEK.split(
+                new DateRange(LocalDate.parse("2020-01-01"), LocalDate.parse("2020-01-10")));
+
+        assertEquals("分割数が正しくありません", 2, shards.size());
+        assertEquals("先頭の範囲が正しくありません",
+                new DateRange(LocalDate.parse("2020-01-01"), LocalDate.parse("2020-01-07")), shards.get(0));
+        assertEquals("末尾の範囲が正しくありません",
+                new DateRange(LocalDate.parse("2020-01-08"), LocalDate.parse("2020-01-10")), shards.get(1));
+    }
+
+    /**
+     * 終了日が開始日より前の範囲は生成できないことのテスト。
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDateRange_EndBeforeStart() {
+        new DateRange(LocalDate.parse("2020-01-10"), LocalDate.parse("2020-01-01"));
+    }
+}
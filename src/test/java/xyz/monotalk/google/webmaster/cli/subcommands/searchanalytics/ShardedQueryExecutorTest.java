@@ -0,0 +1,168 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * ShardedQueryExecutorクラスの単体テスト。
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ShardedQueryExecutorTest {
+
+    /** サイトURL。 */
+    private static final String SITE_URL = "https://example.com";
+
+    /** 1クエリあたりのページ数。 */
+    private static final int PAGES = 20;
+
+    /** Webmastersのモック。 */
+    @Mock
+    private Webmasters webmasters;
+
+    /** Searchanalyticsのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics searchanalytics;
+
+    /** 検索クエリのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics.Query searchQuery;
+
+    /** API呼び出し回数。 */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * テスト前のセットアップ処理。
+     *
+     * @throws IOException モックの設定に失敗した場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(webmasters.searchanalytics()).thenReturn(searchanalytics);
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+        // 失敗時のテストで上書きするため、未使用でもエラーにしない
+        lenient().when(searchQuery.execute()).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            final SearchAnalyticsQueryRequest request = lastRequest[0];
+            if (request.getStartRow() >= PAGES) {
+                return new SearchAnalyticsQueryResponse();
+            }
+            return new SearchAnalyticsQueryResponse().setRows(Arrays.asList(new ApiDataRow()
+                    .setKeys(Arrays.asList(request.getStartDate(), String.valueOf(request.getStartRow())))));
+        });
+    }
+
+    /**
+     * 呼び出し元がページを処理している間、先読みが上限で止まることのテスト。
+     *
+     * @throws IOException 実行に失敗した場合
+     */
+    @Test
+    public void testExecute_正常系_先読みを上限で止める() throws IOException {
+        final ShardedQueryExecutor executor = new ShardedQueryExecutor(webmasters, SITE_URL, 1, 1);
+        final int[] callsWhileBlocked = new int[1];
+        final List<Integer> startRows = new ArrayList<>();
+
+        final long total = executor.execute(List.of(request("2024-01-01")), (startRow, rows) -> {
+            if (startRows.isEmpty()) {
+                // 取得側が先読みの上限まで進むのを待つ
+                sleep(200);
+                callsWhileBlocked[0] = calls.get();
+            }
+            startRows.add(startRow);
+        });
+
+        assertEquals(PAGES, total);
+        assertEquals(PAGES, startRows.size());
+        assertEquals(Integer.valueOf(PAGES - 1), startRows.get(PAGES - 1));
+        // 処理中のページ・キューの中身・キューへの投入待ちの1ページを超えて取得しない
+        assertTrue("calls=" + callsWhileBlocked[0], callsWhileBlocked[0] <= ShardedQueryExecutor.PAGES_AHEAD + 3);
+    }
+
+    /**
+     * 取得に失敗したクエリは取得済みのページを渡した後に例外となり、完了が通知されないことのテスト。
+     *
+     * @throws IOException モックの設定に失敗した場合
+     */
+    @Test
+    public void testExecute_異常系_失敗したクエリは完了しない() throws IOException {
+        when(searchQuery.execute()).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new IOException("Simulated failure");
+            }
+            return new SearchAnalyticsQueryResponse().setRows(Arrays.asList(new ApiDataRow()));
+        });
+        final ShardedQueryExecutor executor = new ShardedQueryExecutor(webmasters, SITE_URL, 1, 1);
+        final List<Integer> startRows = new ArrayList<>();
+        final boolean[] completed = new boolean[1];
+
+        try {
+            executor.execute(List.of(request("2024-01-01")), new ShardedQueryExecutor.ShardHandler() {
+                @Override
+                public void onPage(final SearchAnalyticsQueryRequest request, final int startRow,
+                        final List<ApiDataRow> rows) {
+                    startRows.add(startRow);
+                }
+
+                @Override
+                public void onComplete(final SearchAnalyticsQueryRequest request) {
+                    completed[0] = true;
+                }
+            });
+            fail("Expected the shard to fail");
+        } catch (IOException e) {
+            assertEquals("Simulated failure", e.getMessage());
+        }
+
+        assertEquals(List.of(0), startRows);
+        assertFalse(completed[0]);
+    }
+
+    /**
+     * 1日分のクエリリクエストを作成します。
+     *
+     * @param date 日付
+     * @return クエリリクエスト
+     */
+    private static SearchAnalyticsQueryRequest request(final String date) {
+        return new SearchAnalyticsQueryRequest().setStartDate(date).setEndDate(date);
+    }
+
+    /**
+     * 指定した時間だけ待機します。
+     *
+     * @param millis 待機時間（ミリ秒）
+     */
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
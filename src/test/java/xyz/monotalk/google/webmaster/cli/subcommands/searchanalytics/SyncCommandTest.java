@@ -0,0 +1,322 @@
+package xyz.monotalk.google.webmaster.cli.subcommands.searchanalytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.services.webmasters.Webmasters;
+import com.google.api.services.webmasters.model.ApiDataRow;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryRequest;
+import com.google.api.services.webmasters.model.SearchAnalyticsQueryResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import xyz.monotalk.google.webmaster.cli.CmdLineArgmentException;
+import xyz.monotalk.google.webmaster.cli.CommandLineInputOutputException;
+import xyz.monotalk.google.webmaster.cli.WebmastersFactory;
+
+/**
+ * SyncCommandクラスの単体テスト。
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SyncCommandTest {
+
+    /** サイトURL。 */
+    private static final String SITE_URL = "https://example.com";
+
+    /** 一時フォルダ。 */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** WebmastersFactoryのモック。 */
+    @Mock
+    private WebmastersFactory factory;
+
+    /** Webmastersのモック。 */
+    @Mock
+    private Webmasters webmasters;
+
+    /** Searchanalyticsのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics searchanalytics;
+
+    /** 検索クエリのモック。 */
+    @Mock
+    private Webmasters.Searchanalytics.Query searchQuery;
+
+    /** 追記先のCSVファイル。 */
+    private File csvFile;
+
+    /** 状態ファイルのディレクトリ。 */
+    private File stateDir;
+
+    /**
+     * テスト前のセットアップ処理。
+     *
+     * @throws IOException 一時フォルダの作成に失敗した場合
+     */
+    @Before
+    public void setUp() throws IOException {
+        csvFile = new File(temporaryFolder.getRoot(), "sync.csv");
+        stateDir = temporaryFolder.newFolder("state");
+        lenient().when(factory.createClient()).thenReturn(webmasters);
+    }
+
+    /**
+     * 初回同期で確定済みの日だけが追記され、状態が保存されることのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_InitialSync() throws IOException {
+        stubQueryByDay();
+
+        createCommand("2024-01-10T12:00:00Z").execute();
+
+        verify(searchQuery, times(3)).execute();
+        final List<String> lines = Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("date,query,clicks,ctr,impressions,position", lines.get(0));
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).startsWith("2024-01-05,"));
+        assertTrue(lines.get(3).startsWith("2024-01-07,"));
+        final Optional<SyncState> state = new SyncStateStore(stateDir.toPath()).load(SITE_URL, List.of("query"));
+        assertEquals("2024-01-07", state.orElseThrow().getLastFinalizedDate());
+    }
+
+    /**
+     * 2回目の同期で新たに確定した日だけがヘッダーなしで追記されることのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_IncrementalSync() throws IOException {
+        stubQueryByDay();
+        createCommand("2024-01-10T12:00:00Z").execute();
+
+        createCommand("2024-01-11T12:00:00Z").execute();
+
+        verify(searchQuery, times(4)).execute();
+        final List<String> lines = Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(4).startsWith("2024-01-08,"));
+    }
+
+    /**
+     * 範囲の途中の日で失敗した場合、書き込み済みの日までが状態に記録され、
+     * 再実行しても行が重複しないことのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_RerunAfterFailureInMiddleOfRange() throws IOException {
+        // 2024-01-06の2ページ目で1回だけ失敗させる（1ページ目の行は書き込まれた後に失敗する）
+        final boolean[] failed = new boolean[1];
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(webmasters.searchanalytics()).thenReturn(searchanalytics);
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+        when(searchQuery.execute()).thenAnswer(invocation -> {
+            final SearchAnalyticsQueryRequest request = lastRequest[0];
+            if (request.getStartRow() > 0) {
+                if ("2024-01-06".equals(request.getStartDate()) && !failed[0]) {
+                    failed[0] = true;
+                    throw new IOException("Simulated failure");
+                }
+                return new SearchAnalyticsQueryResponse();
+            }
+            return new SearchAnalyticsQueryResponse().setRows(Arrays.asList(new ApiDataRow()
+                    .setKeys(Arrays.asList(request.getStartDate(), "keyword"))
+                    .setClicks(1.0)
+                    .setImpressions(10.0)));
+        });
+        final SyncCommand first = createCommand("2024-01-10T12:00:00Z");
+        ReflectionTestUtils.setField(first, "rowLimit", 1);
+
+        try {
+            first.execute();
+            fail("Expected the sync to fail");
+        } catch (CommandLineInputOutputException e) {
+            // 2024-01-06の途中で失敗する
+        }
+        final SyncStateStore store = new SyncStateStore(stateDir.toPath());
+        assertEquals("2024-01-05", store.load(SITE_URL, List.of("query")).orElseThrow().getLastFinalizedDate());
+
+        final SyncCommand second = createCommand("2024-01-10T12:00:00Z");
+        ReflectionTestUtils.setField(second, "rowLimit", 1);
+        second.execute();
+
+        final List<String> lines = Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).startsWith("2024-01-05,"));
+        assertTrue(lines.get(2).startsWith("2024-01-06,"));
+        assertTrue(lines.get(3).startsWith("2024-01-07,"));
+        assertEquals("2024-01-07", store.load(SITE_URL, List.of("query")).orElseThrow().getLastFinalizedDate());
+    }
+
+    /**
+     * 状態を保存する前に中断して追記された行が、次回の実行で取り除かれることのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_TruncatesRowsAppendedAfterLastState() throws IOException {
+        stubQueryByDay();
+        createCommand("2024-01-10T12:00:00Z").execute();
+        Files.writeString(csvFile.toPath(), "2024-01-08,keyword,1.0,,10.0,\n", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        createCommand("2024-01-11T12:00:00Z").execute();
+
+        final List<String> lines = Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(3).startsWith("2024-01-07,"));
+        assertTrue(lines.get(4).startsWith("2024-01-08,"));
+    }
+
+    /**
+     * 状態を記録したファイルと異なる追記先を指定した場合に、そのファイルを切り詰めずに例外が発生することのテスト。
+     *
+     * @throws IOException ファイルの読み書きに失敗した場合
+     */
+    @Test
+    public void testExecute_DifferentFilePathRejected() throws IOException {
+        stubQueryByDay();
+        createCommand("2024-01-10T12:00:00Z").execute();
+        final File other = temporaryFolder.newFile("other.csv");
+        final String content = "x".repeat((int) csvFile.length() * 2);
+        Files.writeString(other.toPath(), content, StandardCharsets.UTF_8);
+        final SyncCommand command = createCommand("2024-01-11T12:00:00Z");
+        ReflectionTestUtils.setField(command, "filePath", other.getPath());
+
+        try {
+            command.execute();
+            fail("Expected CmdLineArgmentException");
+        } catch (CmdLineArgmentException e) {
+            assertTrue(e.getMessage().contains("-filePath"));
+        }
+
+        assertEquals(content, Files.readString(other.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 新たに確定した日がない場合はAPIを呼び出さないことのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_NothingToSync() throws IOException {
+        new SyncStateStore(stateDir.toPath()).save(new SyncState()
+                .setSiteUrl(SITE_URL)
+                .setDimensions(List.of("query"))
+                .setLastFinalizedDate("2024-01-07"));
+
+        createCommand("2024-01-10T12:00:00Z").execute();
+
+        verify(webmasters, never()).searchanalytics();
+        assertFalse(csvFile.exists());
+    }
+
+    /**
+     * 未確定の日が別ファイルへ出力されることのテスト。
+     *
+     * @throws IOException ファイルの読み込みに失敗した場合
+     */
+    @Test
+    public void testExecute_ProvisionalFile() throws IOException {
+        stubQueryByDay();
+        final File provisional = new File(temporaryFolder.getRoot(), "provisional.csv");
+        final SyncCommand command = createCommand("2024-01-10T12:00:00Z");
+        ReflectionTestUtils.setField(command, "provisionalPath", provisional.getPath());
+
+        command.execute();
+
+        final List<String> lines = Files.readAllLines(provisional.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).startsWith("2024-01-08,"));
+        assertTrue(lines.get(2).startsWith("2024-01-09,"));
+    }
+
+    /**
+     * 状態ファイルがなく開始日も未指定の場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_MissingStartDate() {
+        final SyncCommand command = createCommand("2024-01-10T12:00:00Z");
+        ReflectionTestUtils.setField(command, "startDate", null);
+
+        command.execute();
+    }
+
+    /**
+     * 日付ディメンションを明示した場合に例外が発生することのテスト。
+     */
+    @Test(expected = CmdLineArgmentException.class)
+    public void testExecute_DateDimensionRejected() {
+        final SyncCommand command = createCommand("2024-01-10T12:00:00Z");
+        ReflectionTestUtils.setField(command, "dimensions", "date,query");
+
+        command.execute();
+    }
+
+    /**
+     * テスト対象のコマンドを生成します。
+     *
+     * @param now 現在時刻
+     * @return コマンド
+     */
+    private SyncCommand createCommand(final String now) {
+        final SyncCommand command = new SyncCommand(factory);
+        ReflectionTestUtils.setField(command, "siteUrl", SITE_URL);
+        ReflectionTestUtils.setField(command, "startDate", "2024-01-05");
+        ReflectionTestUtils.setField(command, "filePath", csvFile.getPath());
+        ReflectionTestUtils.setField(command, "stateDir", stateDir.getPath());
+        ReflectionTestUtils.setField(command, "concurrency", 1);
+        ReflectionTestUtils.setField(command, "clock", Clock.fixed(Instant.parse(now), ZoneOffset.UTC));
+        return command;
+    }
+
+    /**
+     * リクエストの開始日をキーに含む1行を返すようにスタブします。
+     *
+     * @throws IOException モックのセットアップ中に例外が発生した場合
+     */
+    private void stubQueryByDay() throws IOException {
+        final SearchAnalyticsQueryRequest[] lastRequest = new SearchAnalyticsQueryRequest[1];
+        when(webmasters.searchanalytics()).thenReturn(searchanalytics);
+        when(searchanalytics.query(anyString(), any(SearchAnalyticsQueryRequest.class))).thenAnswer(invocation -> {
+            lastRequest[0] = invocation.getArgument(1);
+            return searchQuery;
+        });
+        when(searchQuery.execute()).thenAnswer(invocation -> new SearchAnalyticsQueryResponse()
+                .setRows(Arrays.asList(new ApiDataRow()
+                        .setKeys(Arrays.asList(lastRequest[0].getStartDate(), "keyword"))
+                        .setClicks(1.0)
+                        .setImpressions(10.0))));
+    }
+}